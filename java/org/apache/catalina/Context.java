@@ -771,6 +771,20 @@ public interface Context extends Container, ContextBind {
      */
     void setParallelAnnotationScanning(boolean parallelAnnotationScanning);
 
+    /**
+     * @return the value of the cache annotation scanning flag. If true, the results of scanning the classes in JARs
+     *             for annotations will be persisted in the work directory and re-used by subsequent starts for JARs
+     *             that have not changed.
+     */
+    boolean getCacheAnnotationScanning();
+
+    /**
+     * Set the cache annotation scanning value.
+     *
+     * @param cacheAnnotationScanning new cache annotation scanning flag
+     */
+    void setCacheAnnotationScanning(boolean cacheAnnotationScanning);
+
 
     // --------------------------------------------------------- Public Methods
 
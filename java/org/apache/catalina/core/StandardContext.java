@@ -798,6 +798,8 @@ public class StandardContext extends ContainerBase implements Context, Notificat
 
     private boolean parallelAnnotationScanning = false;
 
+    private boolean cacheAnnotationScanning = false;
+
     private int notFoundClassResourceCacheSize = 1000;
 
     private EncodedSolidusHandling encodedReverseSolidusHandling = EncodedSolidusHandling.DECODE;
@@ -1437,6 +1439,23 @@ public class StandardContext extends ContainerBase implements Context, Notificat
     }
 
 
+    @Override
+    public void setCacheAnnotationScanning(boolean cacheAnnotationScanning) {
+
+        boolean oldCacheAnnotationScanning = this.cacheAnnotationScanning;
+        this.cacheAnnotationScanning = cacheAnnotationScanning;
+        support.firePropertyChange("cacheAnnotationScanning", oldCacheAnnotationScanning,
+                this.cacheAnnotationScanning);
+
+    }
+
+
+    @Override
+    public boolean getCacheAnnotationScanning() {
+        return this.cacheAnnotationScanning;
+    }
+
+
     /**
      * @return the Locale to character set mapper for this Context.
      */
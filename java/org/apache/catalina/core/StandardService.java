@@ -116,6 +116,24 @@ public class StandardService extends LifecycleMBeanBase implements Service {
     }
 
 
+    /**
+     * @return the number of entries in the mapping result cache of each host
+     */
+    public int getMapperCacheSize() {
+        return mapper.getCacheSize();
+    }
+
+
+    /**
+     * Set the number of entries in the mapping result cache of each host.
+     *
+     * @param mapperCacheSize The number of entries in each cache. Zero or less disables the cache.
+     */
+    public void setMapperCacheSize(int mapperCacheSize) {
+        mapper.setCacheSize(mapperCacheSize);
+    }
+
+
     @Override
     public Mapper getMapper() {
         return mapper;
@@ -115,6 +115,18 @@ public class BackupManager extends ClusterManagerBase implements MapOwner, Distr
     }
 
 
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Always {@code false} since the backup copies of sessions are added to the replicated map directly rather than
+     * via {@link #add(Session)} so they would not be indexed.
+     */
+    @Override
+    public boolean getUseSessionExpiryIndex() {
+        return false;
+    }
+
+
     @Override
     public String getName() {
         return this.name;
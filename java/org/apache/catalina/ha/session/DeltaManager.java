@@ -22,7 +22,10 @@ import java.io.IOException;
 import java.io.ObjectInputStream;
 import java.io.ObjectOutputStream;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Date;
+import java.util.HashSet;
+import java.util.Set;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
 
@@ -538,6 +541,70 @@ public class DeltaManager extends ClusterManagerBase {
         return bos.toByteArray();
     }
 
+    /**
+     * Ask the node that sent a delta request for the entire values of the attributes for which the replicated changes
+     * could not be applied.
+     *
+     * @param sessionId The session id
+     * @param names     The attribute names
+     * @param sender    The node that sent the changes
+     */
+    protected void sendAttributeResend(String sessionId, Collection<String> names, Member sender) {
+        try {
+            byte[] data = serializeAttributeNames(names);
+            SessionMessage msg = new SessionMessageImpl(getName(), SessionMessage.EVT_SESSION_ATTRIBUTE_RESEND, data,
+                    sessionId, sessionId + "-" + System.currentTimeMillis());
+            msg.setTimestamp(System.currentTimeMillis());
+            if (log.isDebugEnabled()) {
+                log.debug(sm.getString("deltaManager.createMessage.attributeResend", getName(), sessionId, names));
+            }
+            cluster.send(msg, sender);
+        } catch (IOException ioe) {
+            log.error(sm.getString("deltaManager.unableSerializeAttributeNames", sessionId, names), ioe);
+        }
+    }
+
+    /**
+     * serialize attribute names
+     *
+     * @param names Attribute names to serialize
+     *
+     * @return byte array with serialized attribute names
+     *
+     * @throws IOException if an input/output error occurs
+     */
+    protected byte[] serializeAttributeNames(Collection<String> names) throws IOException {
+        ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        ObjectOutputStream oos = new ObjectOutputStream(bos);
+        oos.writeInt(names.size());
+        for (String name : names) {
+            oos.writeUTF(name);
+        }
+        oos.flush();
+        oos.close();
+        return bos.toByteArray();
+    }
+
+    /**
+     * Load attribute names
+     *
+     * @param data serialized attribute names
+     *
+     * @return attribute names
+     *
+     * @throws IOException if an input/output error occurs
+     */
+    protected Set<String> deserializeAttributeNames(byte[] data) throws IOException {
+        ReplicationStream ois = getReplicationStream(data);
+        int count = ois.readInt();
+        Set<String> names = new HashSet<>();
+        for (int i = 0; i < count; i++) {
+            names.add(ois.readUTF());
+        }
+        ois.close();
+        return names;
+    }
+
     /**
      * Load sessionID
      *
@@ -1118,6 +1185,9 @@ public class DeltaManager extends ClusterManagerBase {
                 case SessionMessage.EVT_ALL_SESSION_NOCONTEXTMANAGER:
                     handleALL_SESSION_NOCONTEXTMANAGER(msg, sender);
                     break;
+                case SessionMessage.EVT_SESSION_ATTRIBUTE_RESEND:
+                    handleSESSION_ATTRIBUTE_RESEND(msg, sender);
+                    break;
                 default:
                     // we didn't recognize the message type, do nothing
                     break;
@@ -1175,6 +1245,38 @@ public class DeltaManager extends ClusterManagerBase {
             }
 
             session.deserializeAndExecuteDeltaRequest(delta);
+            Set<String> failed = session.takeFailedAttributeDiffs();
+            if (!failed.isEmpty()) {
+                // Heal the stale values by asking for the entire values
+                sendAttributeResend(msg.getSessionID(), failed, sender);
+            }
+        }
+    }
+
+    /**
+     * handle receive request for the entire values of session attributes for which the replicated changes could not
+     * be applied
+     *
+     * @param msg    Session message
+     * @param sender Member which sent the message
+     *
+     * @throws IOException IO error with serialization
+     */
+    protected void handleSESSION_ATTRIBUTE_RESEND(SessionMessage msg, Member sender) throws IOException {
+        DeltaSession session = (DeltaSession) findSession(msg.getSessionID());
+        if (session == null) {
+            return;
+        }
+        Set<String> names = deserializeAttributeNames(msg.getSession());
+        if (log.isDebugEnabled()) {
+            log.debug(sm.getString("deltaManager.receiveMessage.attributeResend", getName(), msg.getSessionID(),
+                    names));
+        }
+        session.resendAttributes(names);
+        // Not the end of a request so neither the primary node nor the access time are changed
+        ClusterMessage delta = requestCompleted(msg.getSessionID(), true);
+        if (delta != null) {
+            cluster.send(delta);
         }
     }
 
@@ -55,6 +55,7 @@ public class DeltaRequest implements Externalizable {
 
     public static final int ACTION_SET = 0;
     public static final int ACTION_REMOVE = 1;
+    public static final int ACTION_DIFF = 2;
 
     public static final String NAME_PRINCIPAL = "__SET__PRINCIPAL__";
     public static final String NAME_MAXINTERVAL = "__SET__MAXINTERVAL__";
@@ -85,6 +86,29 @@ public class DeltaRequest implements Externalizable {
         addAction(TYPE_ATTRIBUTE, action, name, value);
     }
 
+    /**
+     * Record a modification of an attribute value that is already the current value of the attribute so that only the
+     * changes to the value are replicated. If an action is already pending for the same value, that action will
+     * replicate the modification and no further action is recorded.
+     *
+     * @param name    The attribute name
+     * @param value   The attribute value
+     * @param version The version of the diff. Diffs for an attribute are numbered consecutively from one, starting
+     *                    again each time the entire value is replicated, so that nodes can detect lost diffs.
+     *
+     * @return {@code true} if the diff was recorded, {@code false} if an action was already pending for the value
+     */
+    public boolean setAttributeDiff(String name, DiffableAttribute value, long version) {
+        for (AttributeInfo info : actions) {
+            if (info.getType() == TYPE_ATTRIBUTE && info.getValue() == value && info.getName().equals(name)) {
+                return false;
+            }
+        }
+        addAction(TYPE_ATTRIBUTE, ACTION_DIFF, name, value);
+        actions.getLast().setVersion(version);
+        return true;
+    }
+
     public void removeAttribute(String name) {
         addAction(TYPE_ATTRIBUTE, ACTION_REMOVE, name, null);
     }
@@ -181,6 +205,12 @@ public class DeltaRequest implements Externalizable {
                             log.trace("Session.setAttribute('" + info.getName() + "', '" + info.getValue() + "')");
                         }
                         session.setAttribute(info.getName(), info.getValue(), notifyListeners, false);
+                    } else if (info.getAction() == ACTION_DIFF) {
+                        if (log.isTraceEnabled()) {
+                            log.trace("Session.applyAttributeDiff('" + info.getName() + "')");
+                        }
+                        applyAttributeDiff(session, info.getName(), (byte[]) info.getValue(), info.getVersion(),
+                                notifyListeners);
                     } else {
                         if (log.isTraceEnabled()) {
                             log.trace("Session.removeAttribute('" + info.getName() + "')");
@@ -245,6 +275,41 @@ public class DeltaRequest implements Externalizable {
         reset();
     }
 
+    /*
+     * If the diff cannot be applied, the session records the failure so that the entire value can be requested from
+     * the node that sent the diff.
+     */
+    private void applyAttributeDiff(DeltaSession session, String name, byte[] diff, long version,
+            boolean notifyListeners) {
+        Object value = session.getAttribute(name);
+        if (!(value instanceof DiffableAttribute attribute)) {
+            log.warn(sm.getString("deltaRequest.noDiffableAttribute", name, getSessionId()));
+            session.attributeDiffFailed(name);
+            return;
+        }
+        long expected = session.getAttributeDiffVersion(name) + 1;
+        if (version != expected) {
+            // A diff has been lost or could not be applied so the value is stale
+            log.warn(sm.getString("deltaRequest.diffVersionMismatch", name, getSessionId(), Long.valueOf(version),
+                    Long.valueOf(expected)));
+            session.attributeDiffFailed(name);
+            return;
+        }
+        if (diff.length > 0) {
+            try {
+                attribute.applyDiff(diff, 0, diff.length);
+            } catch (IOException | ClassNotFoundException | RuntimeException e) {
+                log.warn(sm.getString("deltaRequest.applyDiffFailed", name, getSessionId()), e);
+                session.attributeDiffFailed(name);
+                return;
+            }
+        }
+        session.attributeDiffApplied(name, version);
+        if (diff.length > 0) {
+            session.setAttribute(name, value, notifyListeners, false);
+        }
+    }
+
     public void reset() {
         while (!actions.isEmpty()) {
             try {
@@ -343,6 +408,7 @@ public class DeltaRequest implements Externalizable {
         private Object value = null;
         private int action;
         private int type;
+        private long version;
 
         AttributeInfo() {
             this(-1, -1, null, null);
@@ -358,6 +424,7 @@ public class DeltaRequest implements Externalizable {
             this.value = value;
             this.action = action;
             this.type = type;
+            this.version = 0;
         }
 
         public int getType() {
@@ -372,6 +439,14 @@ public class DeltaRequest implements Externalizable {
             return value;
         }
 
+        public long getVersion() {
+            return version;
+        }
+
+        public void setVersion(long version) {
+            this.version = version;
+        }
+
         @Override
         public int hashCode() {
             return name.hashCode();
@@ -386,6 +461,7 @@ public class DeltaRequest implements Externalizable {
             value = null;
             type = -1;
             action = -1;
+            version = 0;
         }
 
         @Override
@@ -402,11 +478,15 @@ public class DeltaRequest implements Externalizable {
             // action - int
             // name - String
             // hasvalue - boolean
+            // version - long (diffs only)
             // value - object
             type = in.readInt();
             action = in.readInt();
             name = in.readUTF();
             boolean hasValue = in.readBoolean();
+            if (action == ACTION_DIFF) {
+                version = in.readLong();
+            }
             if (hasValue) {
                 value = in.readObject();
             }
@@ -418,12 +498,38 @@ public class DeltaRequest implements Externalizable {
             // action - int
             // name - String
             // hasvalue - boolean
+            // version - long (diffs only)
             // value - object
+            byte[] diff = null;
+            int writeAction = getAction();
+            if (writeAction == ACTION_DIFF) {
+                try {
+                    diff = ((DiffableAttribute) getValue()).takeDiff();
+                } catch (IOException | RuntimeException e) {
+                    // Replicate the entire value instead
+                    log.warn(sm.getString("deltaRequest.takeDiffFailed", getName()), e);
+                    writeAction = ACTION_SET;
+                }
+            }
             out.writeInt(getType());
-            out.writeInt(getAction());
+            out.writeInt(writeAction);
             out.writeUTF(getName());
             out.writeBoolean(getValue() != null);
-            if (getValue() != null) {
+            if (writeAction == ACTION_DIFF) {
+                // Only the changes are replicated
+                out.writeLong(getVersion());
+                out.writeObject(diff);
+            } else if (getValue() instanceof DiffableAttribute attribute) {
+                // The changes made so far are included in the value
+                synchronized (attribute) {
+                    try {
+                        attribute.takeDiff();
+                    } catch (IOException | RuntimeException e) {
+                        log.warn(sm.getString("deltaRequest.takeDiffFailed", getName()), e);
+                    }
+                    out.writeObject(attribute);
+                }
+            } else if (getValue() != null) {
                 out.writeObject(getValue());
             }
         }
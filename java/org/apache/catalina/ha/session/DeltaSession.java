@@ -27,7 +27,12 @@ import java.io.Serializable;
 import java.io.WriteAbortedException;
 import java.security.Principal;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.locks.Lock;
@@ -74,6 +79,17 @@ public class DeltaSession extends StandardSession implements Externalizable, Clu
      */
     private transient DeltaRequest deltaRequest = null;
 
+    /**
+     * The version of the last diff recorded or applied for each attribute with a {@link DiffableAttribute} value. Used
+     * to detect diffs that have been lost. Guarded by the session lock.
+     */
+    private final transient Map<String,Long> attributeDiffVersions = new HashMap<>();
+
+    /**
+     * The attributes for which a replicated diff could not be applied. Guarded by the session lock.
+     */
+    private final transient Set<String> failedAttributeDiffs = new HashSet<>();
+
     /**
      * Last time the session was replicated, used for distributed expiring of session
      */
@@ -176,6 +192,8 @@ public class DeltaSession extends StandardSession implements Externalizable, Clu
             }
             deltaRequest.readExternal(stream);
             deltaRequest.execute(this, ((ClusterManager) getManager()).isNotifyListenersOnReplication());
+            // The backup cannot request the entire value from the primary node
+            failedAttributeDiffs.clear();
         } finally {
             unlockInternal();
             currentThread.setContextClassLoader(contextLoader);
@@ -290,6 +308,9 @@ public class DeltaSession extends StandardSession implements Externalizable, Clu
 
     public void setMaxInactiveInterval(int interval, boolean addDeltaRequest) {
         super.maxInactiveInterval = interval;
+        if (manager instanceof ManagerBase) {
+            ((ManagerBase) manager).updateSessionExpiry(this);
+        }
         if (addDeltaRequest) {
             lockInternal();
             try {
@@ -620,9 +641,96 @@ public class DeltaSession extends StandardSession implements Externalizable, Clu
 
         lockInternal();
         try {
+            Object oldValue = attributes.get(name);
             super.setAttribute(name, value, notify);
+            if (value != oldValue) {
+                attributeDiffVersions.remove(name);
+            }
             if (addDeltaRequest && !exclude(name, value)) {
-                deltaRequest.setAttribute(name, value);
+                if (value == oldValue && value instanceof DiffableAttribute attribute) {
+                    long version = getAttributeDiffVersion(name) + 1;
+                    if (deltaRequest.setAttributeDiff(name, attribute, version)) {
+                        attributeDiffVersions.put(name, Long.valueOf(version));
+                    }
+                } else {
+                    deltaRequest.setAttribute(name, value);
+                }
+            }
+        } finally {
+            unlockInternal();
+        }
+    }
+
+
+    /*
+     * Returns the version of the last diff recorded or applied for the attribute or zero if no diff has been recorded
+     * or applied since the value was set.
+     */
+    long getAttributeDiffVersion(String name) {
+        lockInternal();
+        try {
+            Long version = attributeDiffVersions.get(name);
+            return version == null ? 0 : version.longValue();
+        } finally {
+            unlockInternal();
+        }
+    }
+
+
+    void attributeDiffApplied(String name, long version) {
+        lockInternal();
+        try {
+            attributeDiffVersions.put(name, Long.valueOf(version));
+        } finally {
+            unlockInternal();
+        }
+    }
+
+
+    void attributeDiffFailed(String name) {
+        lockInternal();
+        try {
+            failedAttributeDiffs.add(name);
+        } finally {
+            unlockInternal();
+        }
+    }
+
+
+    /*
+     * Returns, and clears, the names of the attributes for which a replicated diff could not be applied since this
+     * method was last called.
+     */
+    Set<String> takeFailedAttributeDiffs() {
+        lockInternal();
+        try {
+            if (failedAttributeDiffs.isEmpty()) {
+                return Set.of();
+            }
+            Set<String> result = new HashSet<>(failedAttributeDiffs);
+            failedAttributeDiffs.clear();
+            return result;
+        } finally {
+            unlockInternal();
+        }
+    }
+
+
+    /**
+     * Record that the entire values of the given attributes are to be replicated, as another node was unable to apply
+     * the diffs replicated for them.
+     *
+     * @param names The attribute names
+     */
+    void resendAttributes(Collection<String> names) {
+        lockInternal();
+        try {
+            for (String name : names) {
+                Object value = attributes.get(name);
+                if (value instanceof DiffableAttribute && !exclude(name, value)) {
+                    attributeDiffVersions.remove(name);
+                    deltaRequest.setAttribute(name, value);
+                }
             }
         } finally {
             unlockInternal();
@@ -858,6 +966,7 @@ public class DeltaSession extends StandardSession implements Externalizable, Clu
             }
 
             super.removeAttributeInternal(name, notify);
+            attributeDiffVersions.remove(name);
             if (addDeltaRequest && !exclude(name, null)) {
                 deltaRequest.removeAttribute(name);
             }
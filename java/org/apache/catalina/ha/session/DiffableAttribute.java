@@ -0,0 +1,60 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.catalina.ha.session;
+
+import java.io.IOException;
+import java.io.Serializable;
+
+/**
+ * Session attribute values may implement this interface to allow the {@link DeltaManager} to replicate only the
+ * changes made to the value rather than the entire value. When {@link DeltaSession#setAttribute(String, Object)} is
+ * called with the instance that is already the current value of the attribute, the change is recorded as a diff. The
+ * diff is obtained from the value when the delta request is sent at the end of the request so multiple updates to the
+ * same attribute within a request are sent as a single diff. The first time a value is set, the entire value is
+ * replicated as usual.
+ * <p>
+ * Implementations are responsible for tracking the changes made since the diff was last taken and must ensure that
+ * applying the diff to the copy of the value held by another node results in a value equal to the local value. The
+ * value may be modified by one thread while another replicates it. When the entire value is replicated, the diff is
+ * taken and the value serialized while holding the monitor of the value so implementations must also hold the monitor
+ * of the value while modifying it.
+ */
+public interface DiffableAttribute extends Serializable {
+
+    /**
+     * Obtain the changes made to the value since the diff was last taken and discard the record of them as a single
+     * atomic operation, so that every change is included in exactly one diff.
+     *
+     * @return the serialized changes or a zero length array if the value has not been modified
+     *
+     * @throws IOException if an error occurs serializing the changes
+     */
+    byte[] takeDiff() throws IOException;
+
+    /**
+     * Apply the changes generated by {@link #takeDiff()} on another node to this value. The applied changes must not
+     * be included in the diff subsequently taken from this value.
+     *
+     * @param diff   The buffer containing the changes
+     * @param offset The offset of the changes in the buffer
+     * @param length The length of the changes
+     *
+     * @throws IOException            if an error occurs reading the changes
+     * @throws ClassNotFoundException if the changes reference a class that cannot be loaded
+     */
+    void applyDiff(byte[] diff, int offset, int length) throws IOException, ClassNotFoundException;
+}
@@ -85,6 +85,12 @@ public interface SessionMessage extends ClusterMessage {
      */
     int EVT_ALL_SESSION_NOCONTEXTMANAGER = 16;
 
+    /**
+     * Event type used when a node was unable to apply the changes replicated for session attributes. The node that
+     * sent the changes replies by replicating the entire values of the attributes.
+     */
+    int EVT_SESSION_ATTRIBUTE_RESEND = 17;
+
     /**
      * @return the context name associated with this message
      */
@@ -73,6 +73,8 @@ public class SessionMessageImpl extends ClusterMessageBase implements SessionMes
      * send original sessionID and new sessionID.<BR>
      * <B>EVT_ALL_SESSION_NOCONTEXTMANAGER</B><BR>
      * send that context manager does not exist after GET_ALL_SESSION received from this sender.<BR>
+     * <B>EVT_SESSION_ATTRIBUTE_RESEND</B><BR>
+     * send the names of the attributes whose entire values are required.<BR>
      *
      * @param contextName - the name of the context (application
      * @param eventtype   - one of the 8 event type defined in this class
@@ -130,6 +132,7 @@ public class SessionMessageImpl extends ClusterMessageBase implements SessionMes
             case EVT_ALL_SESSION_TRANSFERCOMPLETE -> "SESSION-STATE-TRANSFERRED";
             case EVT_CHANGE_SESSION_ID -> "SESSION-ID-CHANGED";
             case EVT_ALL_SESSION_NOCONTEXTMANAGER -> "NO-CONTEXT-MANAGER";
+            case EVT_SESSION_ATTRIBUTE_RESEND -> "SESSION-ATTRIBUTE-RESEND";
             default -> "UNKNOWN-EVENT-TYPE";
         };
     }
@@ -0,0 +1,152 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.apache.catalina.mapper;
+
+import java.util.Arrays;
+
+import org.apache.catalina.mapper.Mapper.MapElement;
+import org.apache.tomcat.util.buf.CharChunk;
+
+/**
+ * Immutable hash index of a set of map elements used by the {@link Mapper} to look up contexts and wrappers without
+ * having to perform a binary search for each candidate path. The index is built when the set of elements changes
+ * (i.e. on deployment / undeployment) so the cost of building it is not incurred during request processing.
+ * <p>
+ * The hash of a name is the same as {@link String#hashCode()} so the hashes of all the candidate prefixes of a path can
+ * be calculated in a single pass over the path. This makes both exact and longest prefix look-ups O(path length).
+ *
+ * @param <E> The type of map element held in the index
+ */
+final class MapElementIndex<E extends MapElement<?>> {
+
+    private final E[] table;
+    private final int[] hashes;
+    private final int mask;
+    private final int maxSlashCount;
+
+
+    /**
+     * Create an index for the given elements.
+     *
+     * @param elements The elements to index. The names of the elements must be unique.
+     */
+    MapElementIndex(E[] elements) {
+        // Keep the load factor at or below 0.5 so probe sequences stay short
+        int size = Integer.highestOneBit(Math.max(elements.length, 1)) * 4;
+        table = Arrays.copyOf(elements, size);
+        Arrays.fill(table, null);
+        hashes = new int[size];
+        mask = size - 1;
+
+        int maxSlashCount = 0;
+        for (E element : elements) {
+            int hash = element.name.hashCode();
+            int i = spread(hash) & mask;
+            while (table[i] != null) {
+                i = (i + 1) & mask;
+            }
+            table[i] = element;
+            hashes[i] = hash;
+            maxSlashCount = Math.max(maxSlashCount, Mapper.slashCount(element.name));
+        }
+        this.maxSlashCount = maxSlashCount;
+    }
+
+
+    /**
+     * Find the element with the given name.
+     *
+     * @param name The name to look up
+     *
+     * @return The element with the given name or {@code null} if there is no such element
+     */
+    E get(CharChunk name) {
+        char[] buf = name.getBuffer();
+        int start = name.getStart();
+        int end = name.getEnd();
+        int hash = 0;
+        for (int i = start; i < end; i++) {
+            hash = 31 * hash + buf[i];
+        }
+        return get(buf, start, end, hash);
+    }
+
+
+    /**
+     * Find the element with the longest name that is either equal to the given path or is a prefix of the given path
+     * where the next character in the path after the prefix is {@code '/'}.
+     *
+     * @param path The path to look up
+     *
+     * @return The matching element with the longest name or {@code null} if no element matches
+     */
+    E getLongestPrefix(CharChunk path) {
+        char[] buf = path.getBuffer();
+        int start = path.getStart();
+        int end = path.getEnd();
+        E result = null;
+        int hash = 0;
+        int slashCount = 0;
+        for (int i = start; ; i++) {
+            if (i == end || buf[i] == '/') {
+                E element = get(buf, start, i, hash);
+                if (element != null) {
+                    result = element;
+                }
+                // No element can match a prefix with more slashes than any of the names
+                if (i == end || ++slashCount > maxSlashCount) {
+                    break;
+                }
+            }
+            hash = 31 * hash + buf[i];
+        }
+        return result;
+    }
+
+
+    private E get(char[] buf, int start, int end, int hash) {
+        int i = spread(hash) & mask;
+        E element;
+        while ((element = table[i]) != null) {
+            if (hashes[i] == hash && nameEquals(element.name, buf, start, end)) {
+                return element;
+            }
+            i = (i + 1) & mask;
+        }
+        return null;
+    }
+
+
+    private static boolean nameEquals(String name, char[] buf, int start, int end) {
+        int len = end - start;
+        if (name.length() != len) {
+            return false;
+        }
+        for (int i = 0; i < len; i++) {
+            if (name.charAt(i) != buf[start + i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+
+    private static int spread(int hash) {
+        return hash ^ (hash >>> 16);
+    }
+
+}
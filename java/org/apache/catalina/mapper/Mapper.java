@@ -24,6 +24,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
 
 import jakarta.servlet.http.MappingMatch;
 
@@ -84,6 +85,82 @@ public final class Mapper {
     private final Map<Context,ContextVersion> contextObjectToContextVersionMap = new ConcurrentHashMap<>();
 
 
+    /**
+     * The number of entries in the mapping result cache of each host. Zero or less disables the cache.
+     */
+    private volatile int cacheSize = 0;
+
+
+    /**
+     * Incremented every time the context or wrapper mappings change so any cached mapping results are no longer used.
+     */
+    private final AtomicLong cacheGeneration = new AtomicLong();
+
+
+    // ------------------------------------------------------------- Properties
+
+    /**
+     * Obtain the number of entries in the mapping result cache of each host.
+     *
+     * @return The number of entries in each cache. Zero means the cache is disabled.
+     */
+    public int getCacheSize() {
+        return cacheSize;
+    }
+
+
+    /**
+     * Set the number of entries in the mapping result cache of each host. The cache holds the result of mapping a
+     * (decoded) URI so subsequent requests for the same URI skip the context and wrapper mapping. Changing the size
+     * clears the cache.
+     *
+     * @param cacheSize The number of entries in each cache. This will be rounded up to the next power of two. Zero or
+     *                      less disables the cache.
+     */
+    public synchronized void setCacheSize(int cacheSize) {
+        this.cacheSize = Math.max(cacheSize, 0);
+        for (MappedHost host : hosts) {
+            if (!host.isAlias()) {
+                host.cache = createCache();
+            }
+        }
+    }
+
+
+    /**
+     * Obtain the number of requests mapped using a cached result.
+     *
+     * @return The number of cache hits across all hosts
+     */
+    public long getCacheHitCount() {
+        long result = 0;
+        for (MappedHost host : hosts) {
+            MappingCache cache = host.cache;
+            if (cache != null) {
+                result += cache.getHitCount();
+            }
+        }
+        return result;
+    }
+
+
+    /**
+     * Obtain the number of requests that could not be mapped using a cached result.
+     *
+     * @return The number of cache misses across all hosts
+     */
+    public long getCacheMissCount() {
+        long result = 0;
+        for (MappedHost host : hosts) {
+            MappingCache cache = host.cache;
+            if (cache != null) {
+                result += cache.getMissCount();
+            }
+        }
+        return result;
+    }
+
+
     // --------------------------------------------------------- Public Methods
 
     /**
@@ -113,6 +190,7 @@ public final class Mapper {
         MappedHost[] newHosts = new MappedHost[hosts.length + 1];
         MappedHost newHost = new MappedHost(name, host);
         if (insertMap(hosts, newHosts, newHost)) {
+            newHost.cache = createCache();
             hosts = newHosts;
             if (newHost.name.equals(defaultHostName)) {
                 defaultHost = newHost;
@@ -292,7 +370,7 @@ public final class Mapper {
             MappedContext mappedContext = exactFind(contextList.contexts, path);
             if (mappedContext == null) {
                 mappedContext = new MappedContext(path, newContextVersion);
-                ContextList newContextList = contextList.addContext(mappedContext, slashCount);
+                ContextList newContextList = contextList.addContext(mappedContext);
                 if (newContextList != null) {
                     updateContextList(mappedHost, newContextList);
                     contextObjectToContextVersionMap.put(context, newContextVersion);
@@ -313,6 +391,7 @@ public final class Mapper {
                     }
                 }
             }
+            invalidateCache();
         }
 
     }
@@ -355,6 +434,7 @@ public final class Mapper {
                 } else {
                     context.versions = newContextVersions;
                 }
+                invalidateCache();
             }
         }
     }
@@ -376,6 +456,7 @@ public final class Mapper {
             return;
         }
         contextVersion.markPaused();
+        invalidateCache();
     }
 
 
@@ -460,10 +541,7 @@ public final class Mapper {
                 MappedWrapper[] newWrappers = new MappedWrapper[oldWrappers.length + 1];
                 if (insertMap(oldWrappers, newWrappers, newWrapper)) {
                     context.wildcardWrappers = newWrappers;
-                    int slashCount = slashCount(newWrapper.name);
-                    if (slashCount > context.nesting) {
-                        context.nesting = slashCount;
-                    }
+                    context.wildcardWrapperIndex = new MapElementIndex<>(newWrappers);
                 }
             } else if (path.startsWith("*.")) {
                 // Extension wrapper
@@ -473,6 +551,7 @@ public final class Mapper {
                 MappedWrapper[] newWrappers = new MappedWrapper[oldWrappers.length + 1];
                 if (insertMap(oldWrappers, newWrappers, newWrapper)) {
                     context.extensionWrappers = newWrappers;
+                    context.extensionWrapperIndex = new MapElementIndex<>(newWrappers);
                 }
             } else if (path.equals("/")) {
                 // Default wrapper
@@ -492,8 +571,10 @@ public final class Mapper {
                 MappedWrapper[] newWrappers = new MappedWrapper[oldWrappers.length + 1];
                 if (insertMap(oldWrappers, newWrappers, newWrapper)) {
                     context.exactWrappers = newWrappers;
+                    context.exactWrapperIndex = new MapElementIndex<>(newWrappers);
                 }
             }
+            invalidateCache();
         }
     }
 
@@ -531,15 +612,8 @@ public final class Mapper {
                 }
                 MappedWrapper[] newWrappers = new MappedWrapper[oldWrappers.length - 1];
                 if (removeMap(oldWrappers, newWrappers, name)) {
-                    // Recalculate nesting
-                    context.nesting = 0;
-                    for (MappedWrapper newWrapper : newWrappers) {
-                        int slashCount = slashCount(newWrapper.name);
-                        if (slashCount > context.nesting) {
-                            context.nesting = slashCount;
-                        }
-                    }
                     context.wildcardWrappers = newWrappers;
+                    context.wildcardWrapperIndex = new MapElementIndex<>(newWrappers);
                 }
             } else if (path.startsWith("*.")) {
                 // Extension wrapper
@@ -551,6 +625,7 @@ public final class Mapper {
                 MappedWrapper[] newWrappers = new MappedWrapper[oldWrappers.length - 1];
                 if (removeMap(oldWrappers, newWrappers, name)) {
                     context.extensionWrappers = newWrappers;
+                    context.extensionWrapperIndex = new MapElementIndex<>(newWrappers);
                 }
             } else if (path.equals("/")) {
                 // Default wrapper
@@ -572,8 +647,10 @@ public final class Mapper {
                 MappedWrapper[] newWrappers = new MappedWrapper[oldWrappers.length - 1];
                 if (removeMap(oldWrappers, newWrappers, name)) {
                     context.exactWrappers = newWrappers;
+                    context.exactWrapperIndex = new MapElementIndex<>(newWrappers);
                 }
             }
+            invalidateCache();
         }
     }
 
@@ -597,6 +674,7 @@ public final class Mapper {
         System.arraycopy(contextVersion.welcomeResources, 0, newWelcomeResources, 0, len - 1);
         newWelcomeResources[len - 1] = welcomeFile;
         contextVersion.welcomeResources = newWelcomeResources;
+        invalidateCache();
     }
 
 
@@ -629,6 +707,7 @@ public final class Mapper {
                 System.arraycopy(contextVersion.welcomeResources, match + 1, newWelcomeResources, match, len - match);
             }
             contextVersion.welcomeResources = newWelcomeResources;
+            invalidateCache();
         }
     }
 
@@ -647,6 +726,7 @@ public final class Mapper {
             return;
         }
         contextVersion.welcomeResources = new String[0];
+        invalidateCache();
     }
 
 
@@ -746,50 +826,32 @@ public final class Mapper {
 
         uri.setLimit(-1);
 
-        // Context mapping
-        ContextList contextList = mappedHost.contextList;
-        MappedContext[] contexts = contextList.contexts;
-        int pos = find(contexts, uri);
-        if (pos == -1) {
-            return;
-        }
-
-        int lastSlash = -1;
-        int uriEnd = uri.getEnd();
-        boolean found = false;
-        MappedContext context = null;
-        while (pos >= 0) {
-            context = contexts[pos];
-            if (uri.startsWith(context.name)) {
-                int length = context.name.length();
-                if (uri.getLength() == length) {
-                    found = true;
-                    break;
-                } else if (uri.startsWithIgnoreCase("/", length)) {
-                    found = true;
-                    break;
-                }
-            }
-            if (lastSlash == -1) {
-                lastSlash = nthSlash(uri, contextList.nesting + 1);
-            } else {
-                lastSlash = lastSlash(uri);
+        // Mapping result cache
+        MappingCache cache = mappedHost.getRealHost().cache;
+        long generation = 0;
+        String cacheKey = null;
+        if (cache != null) {
+            // Read the generation before mapping so the result is never cached
+            // against a generation that is newer than the mapping used
+            generation = cacheGeneration.get();
+            if (cache.get(uri, generation, mappingData)) {
+                return;
             }
-            uri.setEnd(lastSlash);
-            pos = find(contexts, uri);
+            // Obtain the key now as wrapper mapping may modify the URI
+            cacheKey = uri.toString();
         }
-        uri.setEnd(uriEnd);
 
-        if (!found) {
-            if (contexts[0].name.isEmpty()) {
+        // Context mapping
+        ContextList contextList = mappedHost.contextList;
+        MappedContext context = contextList.index.getLongestPrefix(uri);
+        if (context == null) {
+            MappedContext[] contexts = contextList.contexts;
+            if (contexts.length > 0 && contexts[0].name.isEmpty()) {
                 context = contexts[0];
             } else {
-                context = null;
+                return;
             }
         }
-        if (context == null) {
-            return;
-        }
 
         ContextVersion contextVersion = null;
         ContextVersion[] contextVersions = context.versions;
@@ -814,7 +876,17 @@ public final class Mapper {
 
         // Wrapper mapping
         if (!contextVersion.isPaused()) {
-            internalMapWrapper(contextVersion, uri, mappingData);
+            boolean resourceChecked = internalMapWrapper(contextVersion, uri, mappingData);
+            // Results that depend on the requested version are not cached
+            if (cacheKey != null && versionCount == 1) {
+                if (!resourceChecked) {
+                    cache.put(cacheKey, generation, 0, mappingData);
+                } else if (contextVersion.resources.isCachingAllowed()) {
+                    // Re-validate at the same interval as the static resource cache
+                    cache.put(cacheKey, generation,
+                            System.currentTimeMillis() + contextVersion.resources.getCacheTtl(), mappingData);
+                }
+            }
         }
 
     }
@@ -823,11 +895,15 @@ public final class Mapper {
     /**
      * Wrapper mapping.
      *
+     * @return {@code true} if the result of the mapping depended on the presence of static resources
+     *
      * @throws IOException if the buffers are too small to hold the results of the mapping.
      */
-    private void internalMapWrapper(ContextVersion contextVersion, CharChunk path, MappingData mappingData)
+    private boolean internalMapWrapper(ContextVersion contextVersion, CharChunk path, MappingData mappingData)
             throws IOException {
 
+        boolean resourceChecked = false;
+
         int pathStart = path.getStart();
         int pathEnd = path.getEnd();
         boolean noServletPath = false;
@@ -840,14 +916,14 @@ public final class Mapper {
         path.setStart(servletPath);
 
         // Rule 1 -- Exact Match
-        MappedWrapper[] exactWrappers = contextVersion.exactWrappers;
+        MapElementIndex<MappedWrapper> exactWrappers = contextVersion.exactWrapperIndex;
         internalMapExactWrapper(exactWrappers, path, mappingData);
 
         // Rule 2 -- Prefix Match
         boolean checkJspWelcomeFiles = false;
-        MappedWrapper[] wildcardWrappers = contextVersion.wildcardWrappers;
+        MapElementIndex<MappedWrapper> wildcardWrappers = contextVersion.wildcardWrapperIndex;
         if (mappingData.wrapper == null) {
-            internalMapWildcardWrapper(wildcardWrappers, contextVersion.nesting, path, mappingData);
+            internalMapWildcardWrapper(wildcardWrappers, path, mappingData);
             if (mappingData.wrapper != null && mappingData.jspWildCard) {
                 char[] buf = path.getBuffer();
                 if (buf[pathEnd - 1] == '/') {
@@ -873,11 +949,11 @@ public final class Mapper {
             pathEnd = path.getEnd();
             mappingData.redirectPath.setChars(path.getBuffer(), pathStart, pathEnd - pathStart);
             path.setEnd(pathEnd - 1);
-            return;
+            return false;
         }
 
         // Rule 3 -- Extension Match
-        MappedWrapper[] extensionWrappers = contextVersion.extensionWrappers;
+        MapElementIndex<MappedWrapper> extensionWrappers = contextVersion.extensionWrapperIndex;
         if (mappingData.wrapper == null && !checkJspWelcomeFiles) {
             internalMapExtensionWrapper(extensionWrappers, path, mappingData, true);
         }
@@ -901,7 +977,7 @@ public final class Mapper {
 
                     // Rule 4b -- Welcome resources processing for prefix match
                     if (mappingData.wrapper == null) {
-                        internalMapWildcardWrapper(wildcardWrappers, contextVersion.nesting, path, mappingData);
+                        internalMapWildcardWrapper(wildcardWrappers, path, mappingData);
                     }
 
                     // Rule 4c -- Welcome resources processing
@@ -909,6 +985,7 @@ public final class Mapper {
                     if (mappingData.wrapper == null && contextVersion.resources != null) {
                         String pathStr = path.toString();
                         WebResource file = contextVersion.resources.getResource(pathStr);
+                        resourceChecked = true;
                         if (file != null && file.isFile()) {
                             internalMapExtensionWrapper(extensionWrappers, path, mappingData, true);
                             if (mappingData.wrapper == null && contextVersion.defaultWrapper != null) {
@@ -969,6 +1046,7 @@ public final class Mapper {
                 // Note: Check redirect first to save unnecessary getResource()
                 // call. See BZ 62968.
                 if (contextVersion.object.getMapperDirectoryRedirectEnabled()) {
+                    resourceChecked = true;
                     WebResource file;
                     // Handle context root
                     if (pathStr.isEmpty()) {
@@ -996,20 +1074,22 @@ public final class Mapper {
 
         path.setStart(pathStart);
         path.setEnd(pathEnd);
+        return resourceChecked;
     }
 
 
     /**
      * Exact mapping.
      */
-    private void internalMapExactWrapper(MappedWrapper[] wrappers, CharChunk path, MappingData mappingData) {
+    private void internalMapExactWrapper(MapElementIndex<MappedWrapper> wrappers, CharChunk path,
+            MappingData mappingData) {
         if (path.isEmpty()) {
             /*
              * Looking for a context root mapped servlet but that will be stored under the name "/"
              */
             path = CONTEXT_ROOT_MAPPED_PATH_CHAR_CHUNK;
         }
-        MappedWrapper wrapper = exactFind(wrappers, path);
+        MappedWrapper wrapper = wrappers.get(path);
         if (wrapper != null) {
             mappingData.requestPath.setString(wrapper.name);
             mappingData.wrapper = wrapper.object;
@@ -1029,47 +1109,20 @@ public final class Mapper {
     /**
      * Wildcard mapping.
      */
-    private void internalMapWildcardWrapper(MappedWrapper[] wrappers, int nesting, CharChunk path,
+    private void internalMapWildcardWrapper(MapElementIndex<MappedWrapper> wrappers, CharChunk path,
             MappingData mappingData) {
 
-        int pathEnd = path.getEnd();
-
-        int lastSlash = -1;
-        int length = -1;
-        int pos = find(wrappers, path);
-        if (pos != -1) {
-            boolean found = false;
-            while (pos >= 0) {
-                if (path.startsWith(wrappers[pos].name)) {
-                    length = wrappers[pos].name.length();
-                    if (path.getLength() == length) {
-                        found = true;
-                        break;
-                    } else if (path.startsWithIgnoreCase("/", length)) {
-                        found = true;
-                        break;
-                    }
-                }
-                if (lastSlash == -1) {
-                    lastSlash = nthSlash(path, nesting + 1);
-                } else {
-                    lastSlash = lastSlash(path);
-                }
-                path.setEnd(lastSlash);
-                pos = find(wrappers, path);
-            }
-            path.setEnd(pathEnd);
-            if (found) {
-                mappingData.wrapperPath.setString(wrappers[pos].name);
-                if (path.getLength() > length) {
-                    mappingData.pathInfo.setChars(path.getBuffer(), path.getStart() + length,
-                            path.getLength() - length);
-                }
-                mappingData.requestPath.setChars(path.getBuffer(), path.getStart(), path.getLength());
-                mappingData.wrapper = wrappers[pos].object;
-                mappingData.jspWildCard = wrappers[pos].jspWildCard;
-                mappingData.matchType = MappingMatch.PATH;
+        MappedWrapper wrapper = wrappers.getLongestPrefix(path);
+        if (wrapper != null) {
+            int length = wrapper.name.length();
+            mappingData.wrapperPath.setString(wrapper.name);
+            if (path.getLength() > length) {
+                mappingData.pathInfo.setChars(path.getBuffer(), path.getStart() + length, path.getLength() - length);
             }
+            mappingData.requestPath.setChars(path.getBuffer(), path.getStart(), path.getLength());
+            mappingData.wrapper = wrapper.object;
+            mappingData.jspWildCard = wrapper.jspWildCard;
+            mappingData.matchType = MappingMatch.PATH;
         }
     }
 
@@ -1082,8 +1135,8 @@ public final class Mapper {
      * @param mappingData      Mapping data for result
      * @param resourceExpected Is this mapping expecting to find a resource
      */
-    private void internalMapExtensionWrapper(MappedWrapper[] wrappers, CharChunk path, MappingData mappingData,
-            boolean resourceExpected) {
+    private void internalMapExtensionWrapper(MapElementIndex<MappedWrapper> wrappers, CharChunk path,
+            MappingData mappingData, boolean resourceExpected) {
         char[] buf = path.getBuffer();
         int pathEnd = path.getEnd();
         int servletPath = path.getStart();
@@ -1105,7 +1158,7 @@ public final class Mapper {
             if (period >= 0) {
                 path.setStart(period + 1);
                 path.setEnd(pathEnd);
-                MappedWrapper wrapper = exactFind(wrappers, path);
+                MappedWrapper wrapper = wrappers.get(path);
                 if (wrapper != null && (resourceExpected || !wrapper.resourceOnly)) {
                     mappingData.wrapperPath.setChars(buf, servletPath, pathEnd - servletPath);
                     mappingData.requestPath.setChars(buf, servletPath, pathEnd - servletPath);
@@ -1119,59 +1172,6 @@ public final class Mapper {
     }
 
 
-    /**
-     * Find a map element given its name in a sorted array of map elements. This will return the index for the closest
-     * inferior or equal item in the given array.
-     */
-    private static <T> int find(MapElement<T>[] map, CharChunk name) {
-        return find(map, name, name.getStart(), name.getEnd());
-    }
-
-
-    /**
-     * Find a map element given its name in a sorted array of map elements. This will return the index for the closest
-     * inferior or equal item in the given array.
-     */
-    private static <T> int find(MapElement<T>[] map, CharChunk name, int start, int end) {
-
-        int a = 0;
-        int b = map.length - 1;
-
-        // Special cases: -1 and 0
-        if (b == -1) {
-            return -1;
-        }
-
-        if (compare(name, start, end, map[0].name) < 0) {
-            return -1;
-        }
-        if (b == 0) {
-            return 0;
-        }
-
-        int i;
-        while (true) {
-            i = (b + a) >>> 1;
-            int result = compare(name, start, end, map[i].name);
-            if (result == 1) {
-                a = i;
-            } else if (result == 0) {
-                return i;
-            } else {
-                b = i;
-            }
-            if ((b - a) == 1) {
-                int result2 = compare(name, start, end, map[b].name);
-                if (result2 < 0) {
-                    return a;
-                } else {
-                    return b;
-                }
-            }
-        }
-
-    }
-
     /**
      * Find a map element given its name in a sorted array of map elements. This will return the index for the closest
      * inferior or equal item in the given array.
@@ -1289,21 +1289,6 @@ public final class Mapper {
         return null;
     }
 
-    /**
-     * Find a map element given its name in a sorted array of map elements. This will return the element that you were
-     * searching for. Otherwise it will return <code>null</code>.
-     */
-    private static <T, E extends MapElement<T>> E exactFind(E[] map, CharChunk name) {
-        int pos = find(map, name);
-        if (pos >= 0) {
-            E result = map[pos];
-            if (name.equals(result.name)) {
-                return result;
-            }
-        }
-        return null;
-    }
-
     /**
      * Find a map element given its name in a sorted array of map elements. This will return the element that you were
      * searching for. Otherwise it will return <code>null</code>.
@@ -1322,37 +1307,6 @@ public final class Mapper {
     }
 
 
-    /**
-     * Compare given char chunk with String. Return -1, 0 or +1 if inferior, equal, or superior to the String.
-     */
-    private static int compare(CharChunk name, int start, int end, String compareTo) {
-        int result = 0;
-        char[] c = name.getBuffer();
-        int compareLen = compareTo.length();
-        int len = compareLen;
-        if ((end - start) < len) {
-            len = end - start;
-        }
-        for (int i = 0; (i < len) && (result == 0); i++) {
-            char nameChar = c[i + start];
-            char compareToChar = compareTo.charAt(i);
-            if (nameChar > compareToChar) {
-                result = 1;
-            } else if (nameChar < compareToChar) {
-                result = -1;
-            }
-        }
-        if (result == 0) {
-            if (compareLen > (end - start)) {
-                result = -1;
-            } else if (compareLen < (end - start)) {
-                result = 1;
-            }
-        }
-        return result;
-    }
-
-
     /**
      * Compare given char chunk with String ignoring case. Return -1, 0 or +1 if inferior, equal, or superior to the
      * String.
@@ -1385,49 +1339,10 @@ public final class Mapper {
     }
 
 
-    /**
-     * Find the position of the last slash in the given char chunk.
-     */
-    private static int lastSlash(CharChunk name) {
-        char[] c = name.getBuffer();
-        int end = name.getEnd();
-        int start = name.getStart();
-        int pos = end;
-
-        while (pos > start) {
-            if (c[--pos] == '/') {
-                break;
-            }
-        }
-
-        return pos;
-    }
-
-
-    /**
-     * Find the position of the nth slash, in the given char chunk.
-     */
-    private static int nthSlash(CharChunk name, int n) {
-        char[] c = name.getBuffer();
-        int end = name.getEnd();
-        int pos = name.getStart();
-        int count = 0;
-
-        while (pos < end) {
-            if ((c[pos++] == '/') && ((++count) == n)) {
-                pos--;
-                break;
-            }
-        }
-
-        return pos;
-    }
-
-
     /**
      * Return the slash count in a given string.
      */
-    private static int slashCount(String name) {
+    static int slashCount(String name) {
         int pos = -1;
         int count = 0;
         while ((pos = name.indexOf('/', pos + 1)) != -1) {
@@ -1466,6 +1381,20 @@ public final class Mapper {
     }
 
 
+    private MappingCache createCache() {
+        int cacheSize = this.cacheSize;
+        if (cacheSize > 0) {
+            return new MappingCache(cacheSize);
+        }
+        return null;
+    }
+
+
+    private void invalidateCache() {
+        cacheGeneration.incrementAndGet();
+    }
+
+
     /*
      * To simplify the mapping process, wild card hosts take the form ".apache.org" rather than "*.apache.org"
      * internally. However, for ease of use the external form remains "*.apache.org". Any host name passed into this
@@ -1503,6 +1432,11 @@ public final class Mapper {
 
         public volatile ContextList contextList;
 
+        /**
+         * The cache of mapping results. Only used in the "real" MappedHost.
+         */
+        private volatile MappingCache cache;
+
         /**
          * Link to the "real" MappedHost, shared by all aliases.
          */
@@ -1576,21 +1510,21 @@ public final class Mapper {
     protected static final class ContextList {
 
         public final MappedContext[] contexts;
-        public final int nesting;
+        public final MapElementIndex<MappedContext> index;
 
         public ContextList() {
-            this(new MappedContext[0], 0);
+            this(new MappedContext[0]);
         }
 
-        private ContextList(MappedContext[] contexts, int nesting) {
+        private ContextList(MappedContext[] contexts) {
             this.contexts = contexts;
-            this.nesting = nesting;
+            this.index = new MapElementIndex<>(contexts);
         }
 
-        public ContextList addContext(MappedContext mappedContext, int slashCount) {
+        public ContextList addContext(MappedContext mappedContext) {
             MappedContext[] newContexts = new MappedContext[contexts.length + 1];
             if (insertMap(contexts, newContexts, mappedContext)) {
-                return new ContextList(newContexts, Math.max(nesting, slashCount));
+                return new ContextList(newContexts);
             }
             return null;
         }
@@ -1598,11 +1532,7 @@ public final class Mapper {
         public ContextList removeContext(String path) {
             MappedContext[] newContexts = new MappedContext[contexts.length - 1];
             if (removeMap(contexts, newContexts, path)) {
-                int newNesting = 0;
-                for (MappedContext context : newContexts) {
-                    newNesting = Math.max(newNesting, slashCount(context.name));
-                }
-                return new ContextList(newContexts, newNesting);
+                return new ContextList(newContexts);
             }
             return null;
         }
@@ -1630,7 +1560,13 @@ public final class Mapper {
         public MappedWrapper[] exactWrappers = new MappedWrapper[0];
         public MappedWrapper[] wildcardWrappers = new MappedWrapper[0];
         public MappedWrapper[] extensionWrappers = new MappedWrapper[0];
-        public int nesting = 0;
+        /*
+         * The wrapper mapping indexes are used for mapping requests. The arrays are retained to maintain the sorted
+         * lists that are updated as wrappers are added and removed.
+         */
+        public MapElementIndex<MappedWrapper> exactWrapperIndex = new MapElementIndex<>(exactWrappers);
+        public MapElementIndex<MappedWrapper> wildcardWrapperIndex = new MapElementIndex<>(wildcardWrappers);
+        public MapElementIndex<MappedWrapper> extensionWrapperIndex = new MapElementIndex<>(extensionWrappers);
         private volatile boolean paused;
 
         public ContextVersion(String version, String path, int slashCount, Context context, WebResourceRoot resources,
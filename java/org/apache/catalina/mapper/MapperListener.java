@@ -83,6 +83,32 @@ public class MapperListener extends LifecycleMBeanBase implements ContainerListe
     }
 
 
+    // ------------------------------------------------------------- Properties
+
+    /**
+     * @return the number of entries in the mapping result cache of each host
+     */
+    public int getCacheSize() {
+        return mapper.getCacheSize();
+    }
+
+
+    /**
+     * @return the number of requests mapped using a cached mapping result
+     */
+    public long getCacheHitCount() {
+        return mapper.getCacheHitCount();
+    }
+
+
+    /**
+     * @return the number of requests that could not be mapped using a cached mapping result
+     */
+    public long getCacheMissCount() {
+        return mapper.getCacheMissCount();
+    }
+
+
     // ------------------------------------------------------- Lifecycle Methods
 
     @Override
@@ -0,0 +1,180 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.apache.catalina.mapper;
+
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+
+import jakarta.servlet.http.MappingMatch;
+
+import org.apache.catalina.Context;
+import org.apache.catalina.Wrapper;
+import org.apache.tomcat.util.buf.CharChunk;
+import org.apache.tomcat.util.buf.MessageBytes;
+
+/**
+ * Bounded, lock-free cache of the results of mapping a URI for a single host.
+ * <p>
+ * The cache is direct mapped: each URI can only be held in the slot selected by its hash and a new entry simply
+ * replaces the current occupant of the slot. Entries are immutable so readers never block and writers never wait for
+ * each other. Entries are invalidated by the {@link Mapper} incrementing its generation counter whenever the mapping
+ * configuration changes. Entries created from a mapping that had to check for the presence of static resources also
+ * expire after a fixed time so changes to the static resources are observed.
+ */
+final class MappingCache {
+
+    private final AtomicReferenceArray<Entry> entries;
+    private final int mask;
+    private final LongAdder hitCount = new LongAdder();
+    private final LongAdder missCount = new LongAdder();
+
+
+    /**
+     * Create a cache.
+     *
+     * @param size The number of entries in the cache. This will be rounded up to the next power of two.
+     */
+    MappingCache(int size) {
+        int capacity = size <= 1 ? 1 : Integer.highestOneBit(size - 1) << 1;
+        entries = new AtomicReferenceArray<>(capacity);
+        mask = capacity - 1;
+    }
+
+
+    int getSize() {
+        return entries.length();
+    }
+
+
+    long getHitCount() {
+        return hitCount.sum();
+    }
+
+
+    long getMissCount() {
+        return missCount.sum();
+    }
+
+
+    /**
+     * Look up the given URI and, if a valid entry is found, populate the mapping data with the cached result.
+     *
+     * @param uri         The URI to look up
+     * @param generation  The current generation of the mapper configuration
+     * @param mappingData The mapping data to populate
+     *
+     * @return {@code true} if the mapping data was populated from the cache, otherwise {@code false}
+     */
+    boolean get(CharChunk uri, long generation, MappingData mappingData) {
+        char[] buf = uri.getBuffer();
+        int start = uri.getStart();
+        int end = uri.getEnd();
+        int hash = 0;
+        for (int i = start; i < end; i++) {
+            hash = 31 * hash + buf[i];
+        }
+        Entry entry = entries.get(index(hash));
+        if (entry == null || entry.generation != generation || entry.hash != hash ||
+                !uri.equals(entry.uri) ||
+                (entry.expires > 0 && System.currentTimeMillis() >= entry.expires)) {
+            missCount.increment();
+            return false;
+        }
+        hitCount.increment();
+        entry.populate(mappingData);
+        return true;
+    }
+
+
+    /**
+     * Add the result of mapping the given URI to the cache.
+     *
+     * @param uri         The URI that was mapped
+     * @param generation  The generation of the mapper configuration that was used to map the URI
+     * @param expires     The time at which the entry expires or zero if it only expires when the mapper configuration
+     *                        changes
+     * @param mappingData The result of the mapping
+     */
+    void put(String uri, long generation, long expires, MappingData mappingData) {
+        Entry entry = new Entry(uri, generation, expires, mappingData);
+        entries.set(index(entry.hash), entry);
+    }
+
+
+    private int index(int hash) {
+        return (hash ^ (hash >>> 16)) & mask;
+    }
+
+
+    private static String toString(MessageBytes mb) {
+        return mb.isNull() ? null : mb.toString();
+    }
+
+
+    private static void setString(MessageBytes mb, String value) {
+        if (value != null) {
+            mb.setString(value);
+        }
+    }
+
+
+    private static final class Entry {
+
+        private final String uri;
+        private final int hash;
+        private final long generation;
+        private final long expires;
+
+        private final Context context;
+        private final int contextSlashCount;
+        private final Wrapper wrapper;
+        private final boolean jspWildCard;
+        private final String requestPath;
+        private final String wrapperPath;
+        private final String pathInfo;
+        private final String redirectPath;
+        private final MappingMatch matchType;
+
+        private Entry(String uri, long generation, long expires, MappingData mappingData) {
+            this.uri = uri;
+            this.hash = uri.hashCode();
+            this.generation = generation;
+            this.expires = expires;
+            context = mappingData.context;
+            contextSlashCount = mappingData.contextSlashCount;
+            wrapper = mappingData.wrapper;
+            jspWildCard = mappingData.jspWildCard;
+            requestPath = MappingCache.toString(mappingData.requestPath);
+            wrapperPath = MappingCache.toString(mappingData.wrapperPath);
+            pathInfo = MappingCache.toString(mappingData.pathInfo);
+            redirectPath = MappingCache.toString(mappingData.redirectPath);
+            matchType = mappingData.matchType;
+        }
+
+        private void populate(MappingData mappingData) {
+            mappingData.context = context;
+            mappingData.contextSlashCount = contextSlashCount;
+            mappingData.wrapper = wrapper;
+            mappingData.jspWildCard = jspWildCard;
+            setString(mappingData.requestPath, requestPath);
+            setString(mappingData.wrapperPath, wrapperPath);
+            setString(mappingData.pathInfo, pathInfo);
+            setString(mappingData.redirectPath, redirectPath);
+            mappingData.matchType = matchType;
+        }
+    }
+}
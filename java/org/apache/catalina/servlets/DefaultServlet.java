@@ -34,6 +34,7 @@ import java.io.Serializable;
 import java.io.StringReader;
 import java.io.StringWriter;
 import java.io.UnsupportedEncodingException;
+import java.nio.ByteBuffer;
 import java.nio.charset.Charset;
 import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
@@ -67,12 +68,16 @@ import org.apache.catalina.Context;
 import org.apache.catalina.Globals;
 import org.apache.catalina.WebResource;
 import org.apache.catalina.WebResourceRoot;
+import org.apache.catalina.connector.CoyoteOutputStream;
 import org.apache.catalina.connector.RequestFacade;
 import org.apache.catalina.connector.ResponseFacade;
 import org.apache.catalina.util.IOTools;
 import org.apache.catalina.util.ServerInfo;
 import org.apache.catalina.util.URLEncoder;
+import org.apache.catalina.webresources.CachedCompressedResource;
 import org.apache.catalina.webresources.CachedResource;
+import org.apache.coyote.CompressionCodec;
+import org.apache.coyote.CompressionConfig;
 import org.apache.tomcat.util.buf.B2CConverter;
 import org.apache.tomcat.util.http.FastHttpDateFormat;
 import org.apache.tomcat.util.http.Method;
@@ -188,6 +193,12 @@ public class DefaultServlet extends HttpServlet {
      */
     protected CompressionFormat[] compressionFormats;
 
+    /**
+     * Configuration used to compress eligible resources and cache the compressed content alongside the resource.
+     * {@code null} if resources are not compressed by this servlet.
+     */
+    private transient CompressionConfig compressionConfig = null;
+
     /**
      * The output buffer size to use when serving resources.
      */
@@ -315,6 +326,21 @@ public class DefaultServlet extends HttpServlet {
         compressionFormats = parseCompressionFormats(getServletConfig().getInitParameter("precompressed"),
                 getServletConfig().getInitParameter("gzip"));
 
+        String compressionEncodings = getServletConfig().getInitParameter("compressionEncodings");
+        if (compressionEncodings != null && !compressionEncodings.isBlank()) {
+            compressionConfig = new CompressionConfig();
+            compressionConfig.setCompressionEncodings(compressionEncodings);
+            compressionConfig.setCompressionEncodingLevels(
+                    getServletConfig().getInitParameter("compressionEncodingLevels"));
+            if (getServletConfig().getInitParameter("compressibleMimeType") != null) {
+                compressionConfig.setCompressibleMimeType(getServletConfig().getInitParameter("compressibleMimeType"));
+            }
+            if (getServletConfig().getInitParameter("compressionMinSize") != null) {
+                compressionConfig.setCompressionMinSize(
+                        Integer.parseInt(getServletConfig().getInitParameter("compressionMinSize")));
+            }
+        }
+
         if (getServletConfig().getInitParameter("sendfileSize") != null) {
             sendfileSize = Integer.parseInt(getServletConfig().getInitParameter("sendfileSize")) * 1024;
         }
@@ -924,6 +950,23 @@ public class DefaultServlet extends HttpServlet {
             resource.setMimeType(contentType);
         }
 
+        // Serve a compressed version of the file from the cache if configured
+        // to do so and there is no precompressed version of the file. This has
+        // to happen before the ETag is generated as the compressed version has
+        // its own ETag.
+        boolean usingPrecompressedVersion = false;
+        if (compressionConfig != null && resource instanceof CachedResource cachedResource && resource.isFile() &&
+                !isError && request.getAttribute(RequestDispatcher.INCLUDE_CONTEXT_PATH) == null &&
+                compressionConfig.isCompressible(contentType, resource.getContentLength()) &&
+                !pathEndsWithCompressedExtension(path) && getAvailablePrecompressedResources(path).isEmpty()) {
+            CachedCompressedResource compressedResource = getCompressedResource(request, response, cachedResource);
+            if (compressedResource != null) {
+                response.addHeader("Content-Encoding", compressedResource.getEncoding());
+                resource = compressedResource;
+                usingPrecompressedVersion = true;
+            }
+        }
+
         // These need to reflect the original resource, not the potentially
         // precompressed version of the resource so get them now if they are going to
         // be needed later
@@ -946,8 +989,8 @@ public class DefaultServlet extends HttpServlet {
         }
 
         // Serve a precompressed version of the file if present
-        boolean usingPrecompressedVersion = false;
-        if (compressionFormats.length > 0 && !included && resource.isFile() && !pathEndsWithCompressedExtension(path)) {
+        if (compressionFormats.length > 0 && !usingPrecompressedVersion && !included && resource.isFile() &&
+                !pathEndsWithCompressedExtension(path)) {
             List<PrecompressedResource> precompressedResources = getAvailablePrecompressedResources(path);
             if (!precompressedResources.isEmpty()) {
                 ResponseUtil.addVaryFieldName(response, "accept-encoding");
@@ -1149,16 +1192,24 @@ public class DefaultServlet extends HttpServlet {
                                 // implementations as that could trigger loading
                                 // the contents of a very large file into memory
                                 byte[] resourceBody = null;
-                                if (resource instanceof CachedResource) {
+                                if (resource instanceof CachedResource ||
+                                        resource instanceof CachedCompressedResource) {
                                     resourceBody = resource.getContent();
                                 }
+                                ByteBuffer mappedBody = null;
                                 if (resourceBody == null) {
+                                    mappedBody = getMappedContent(resource, contentLength);
+                                }
+                                if (resourceBody != null) {
+                                    // Use the resource content directly
+                                    ostream.write(resourceBody);
+                                } else if (mappedBody != null) {
+                                    // Use the mapped resource content directly
+                                    copy(mappedBody, ostream);
+                                } else {
                                     // Resource content not directly available,
                                     // use InputStream
                                     renderResult = resource.getInputStream();
-                                } else {
-                                    // Use the resource content directly
-                                    ostream.write(resourceBody);
                                 }
                             }
                         }
@@ -1405,6 +1456,37 @@ public class DefaultServlet extends HttpServlet {
         return ret;
     }
 
+    /**
+     * Select the preferred compression codec supported by the client and obtain the compressed version of the resource
+     * from the cache, compressing the resource if necessary.
+     *
+     * @param request        The servlet request we are processing
+     * @param response       The servlet response we are creating
+     * @param cachedResource The resource to compress
+     *
+     * @return The compressed resource or null if the client does not accept any of the configured encodings or the
+     *             resource cannot be compressed
+     */
+    private CachedCompressedResource getCompressedResource(HttpServletRequest request, HttpServletResponse response,
+            CachedResource cachedResource) {
+        CompressionCodec[] codecs = compressionConfig.getCompressionCodecs();
+        if (codecs.length == 0) {
+            return null;
+        }
+        ResponseUtil.addVaryFieldName(response, "accept-encoding");
+        CompressionCodec codec;
+        try {
+            codec = CompressionConfig.selectCodec(codecs, request.getHeaders("Accept-Encoding"));
+        } catch (IOException ioe) {
+            // Invalid header - don't compress
+            return null;
+        }
+        if (codec == null) {
+            return null;
+        }
+        return cachedResource.getCompressedResource(codec);
+    }
+
     /**
      * Match the client preferred encoding formats to the available precompressed resources.
      *
@@ -2564,6 +2646,12 @@ public class DefaultServlet extends HttpServlet {
     protected void copy(WebResource resource, long length, ServletOutputStream ostream, Ranges.Entry range)
             throws IOException {
 
+        ByteBuffer mappedContent = getMappedContent(resource, length);
+        if (mappedContent != null) {
+            copy(mappedContent, ostream, getStart(range, length), getEnd(range, length));
+            return;
+        }
+
         InputStream resourceInputStream = resource.getInputStream();
         InputStream istream = new BufferedInputStream(resourceInputStream, input);
         IOException exception = copyRange(istream, ostream, getStart(range, length), getEnd(range, length));
@@ -2595,24 +2683,23 @@ public class DefaultServlet extends HttpServlet {
             String contentType) throws IOException {
 
         IOException exception = null;
+        ByteBuffer mappedContent = getMappedContent(resource, length);
 
         for (Ranges.Entry range : ranges.getEntries()) {
             if (exception != null) {
                 break;
             }
+            long start = getStart(range, length);
+            long end = getEnd(range, length);
+            if (mappedContent != null) {
+                writeRangeHeader(ostream, contentType, start, end, length);
+                copy(mappedContent, ostream, start, end);
+                continue;
+            }
             InputStream resourceInputStream = resource.getInputStream();
             try (InputStream istream = new BufferedInputStream(resourceInputStream, input)) {
 
-                // Writing MIME header.
-                ostream.println();
-                ostream.println("--" + mimeSeparation);
-                if (contentType != null) {
-                    ostream.println("Content-Type: " + contentType);
-                }
-                long start = getStart(range, length);
-                long end = getEnd(range, length);
-                ostream.println("Content-Range: bytes " + start + "-" + end + "/" + length);
-                ostream.println();
+                writeRangeHeader(ostream, contentType, start, end, length);
 
                 // Printing content
                 exception = copyRange(istream, ostream, start, end);
@@ -2630,6 +2717,82 @@ public class DefaultServlet extends HttpServlet {
     }
 
 
+    private void writeRangeHeader(ServletOutputStream ostream, String contentType, long start, long end, long length)
+            throws IOException {
+        // Writing MIME header.
+        ostream.println();
+        ostream.println("--" + mimeSeparation);
+        if (contentType != null) {
+            ostream.println("Content-Type: " + contentType);
+        }
+        ostream.println("Content-Range: bytes " + start + "-" + end + "/" + length);
+        ostream.println();
+    }
+
+
+    /*
+     * Returns the content of the resource as a buffer backed by a memory mapping of the file if the resource is a cache
+     * entry with mapped content of the expected length. Otherwise, returns null.
+     */
+    private static ByteBuffer getMappedContent(WebResource resource, long length) {
+        if (resource instanceof CachedResource cachedResource) {
+            ByteBuffer mappedContent = cachedResource.getMappedContent();
+            if (mappedContent != null && mappedContent.remaining() == length) {
+                return mappedContent;
+            }
+        }
+        return null;
+    }
+
+
+    /**
+     * Copy the specified range of the contents of the specified buffer to the specified output stream.
+     *
+     * @param content The buffer containing the content
+     * @param ostream The output stream to write to
+     * @param start   Start of the range which will be copied
+     * @param end     End of the range which will be copied
+     *
+     * @exception IOException if an input/output error occurs
+     */
+    protected void copy(ByteBuffer content, ServletOutputStream ostream, long start, long end) throws IOException {
+        if (debug > 10) {
+            log("Serving bytes: " + start + "-" + end);
+        }
+        copy(content.slice((int) start, (int) (end - start + 1)), ostream);
+    }
+
+
+    /**
+     * Copy the remaining contents of the specified buffer to the specified output stream. The buffer is written
+     * directly if the stream supports it. Otherwise, it is copied in chunks of the configured output buffer size.
+     *
+     * @param content The buffer containing the content
+     * @param ostream The output stream to write to
+     *
+     * @exception IOException if an input/output error occurs, including a failure to read the content of a memory
+     *                            mapped file that has been truncated
+     */
+    protected void copy(ByteBuffer content, ServletOutputStream ostream) throws IOException {
+        try {
+            if (ostream instanceof CoyoteOutputStream) {
+                ostream.write(content);
+                return;
+            }
+            byte[] buffer = new byte[Math.min(output, content.remaining())];
+            while (content.hasRemaining()) {
+                int len = Math.min(buffer.length, content.remaining());
+                content.get(buffer, 0, len);
+                ostream.write(buffer, 0, len);
+            }
+        } catch (InternalError e) {
+            // Thrown when a page of a mapped file is no longer backed by the file, e.g. because the file was truncated
+            // in place. Abort this response rather than treat it as a failure of the JVM.
+            throw new IOException(sm.getString("defaultServlet.mappedContentFail"), e);
+        }
+    }
+
+
     /**
      * Copy the contents of the specified input stream to the specified output stream, and ensure that both streams are
      * closed before returning (even in the face of an exception).
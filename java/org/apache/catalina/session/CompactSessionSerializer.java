@@ -0,0 +1,269 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.catalina.session;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InvalidObjectException;
+import java.io.NotSerializableException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.ObjectStreamException;
+import java.io.Serializable;
+import java.io.WriteAbortedException;
+import java.security.Principal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.apache.catalina.Manager;
+import org.apache.catalina.authenticator.Constants;
+import org.apache.juli.logging.Log;
+import org.apache.tomcat.util.res.StringManager;
+
+/**
+ * A {@link SessionSerializer} that writes the session metadata as versioned primitive data rather than as boxed,
+ * individually serialized objects. Attribute values are written by a pluggable {@link SessionAttributeCodec}.
+ * <p>
+ * The format starts with primitive data whereas the format written by {@link JavaSessionSerializer} starts with an
+ * object. This allows sessions that were persisted before this serializer was configured to be read.
+ */
+public class CompactSessionSerializer implements SessionSerializer {
+
+    private static final StringManager sm = StringManager.getManager(CompactSessionSerializer.class);
+
+    static final int MAGIC = 0x54435353;
+    static final int VERSION = 1;
+
+    private static final int FLAG_NEW = 0x01;
+    private static final int FLAG_VALID = 0x02;
+    private static final int FLAG_ID = 0x04;
+    private static final int FLAG_AUTHENTICATION = 0x08;
+
+    private SessionAttributeCodec attributeCodec = new StandardSessionAttributeCodec();
+
+
+    public SessionAttributeCodec getAttributeCodec() {
+        return attributeCodec;
+    }
+
+
+    /**
+     * Set the codec used to write and read the values of the session attributes. Note that sessions must be read with
+     * the codec that was used to write them.
+     *
+     * @param attributeCodec The codec to use
+     */
+    public void setAttributeCodec(SessionAttributeCodec attributeCodec) {
+        this.attributeCodec = attributeCodec;
+    }
+
+
+    @Override
+    public void writeSession(StandardSession session, ObjectOutputStream stream) throws IOException {
+        Log log = session.manager.getContext().getLogger();
+        boolean persistAuthentication = getPersistAuthentication(session.manager);
+
+        int flags = 0;
+        if (session.isNew) {
+            flags |= FLAG_NEW;
+        }
+        if (session.isValid) {
+            flags |= FLAG_VALID;
+        }
+        if (session.id != null) {
+            flags |= FLAG_ID;
+        }
+        if (persistAuthentication) {
+            flags |= FLAG_AUTHENTICATION;
+        }
+
+        stream.writeInt(MAGIC);
+        stream.writeByte(VERSION);
+        stream.writeByte(flags);
+        stream.writeLong(session.creationTime);
+        stream.writeLong(session.lastAccessedTime);
+        stream.writeLong(session.thisAccessedTime);
+        stream.writeInt(session.maxInactiveInterval);
+        if (session.id != null) {
+            stream.writeUTF(session.id);
+        }
+        if (log.isTraceEnabled()) {
+            log.trace("writeSession() storing session " + session.id);
+        }
+
+        if (persistAuthentication) {
+            Principal sessionPrincipal = session.getPrincipal();
+            if (sessionPrincipal != null && !(sessionPrincipal instanceof Serializable)) {
+                sessionPrincipal = null;
+                log.warn(sm.getString("compactSessionSerializer.principalNotSerializable", session.id));
+            }
+            stream.writeObject(session.getAuthType());
+            try {
+                stream.writeObject(sessionPrincipal);
+            } catch (NotSerializableException e) {
+                log.warn(sm.getString("compactSessionSerializer.principalNotSerializable", session.id), e);
+            }
+            stream.writeObject(session.getNote(Constants.SESSION_ID_NOTE));
+            stream.writeObject(session.getNote(Constants.FORM_REQUEST_NOTE));
+        }
+
+        // Remove any attributes that cannot be distributed before writing the count
+        List<String> saveNames = new ArrayList<>();
+        List<Object> saveValues = new ArrayList<>();
+        for (String key : session.keys()) {
+            Object value = session.attributes.get(key);
+            if (value == null) {
+                // Continue
+            } else if (session.isAttributeDistributable(key, value) && !session.exclude(key, value)) {
+                saveNames.add(key);
+                saveValues.add(value);
+            } else {
+                session.removeAttributeInternal(key, true);
+            }
+        }
+
+        int n = saveNames.size();
+        stream.writeInt(n);
+        for (int i = 0; i < n; i++) {
+            stream.writeUTF(saveNames.get(i));
+            try {
+                attributeCodec.writeValue(saveValues.get(i), stream);
+                if (log.isTraceEnabled()) {
+                    log.trace("  storing attribute '" + saveNames.get(i) + "' with value '" + saveValues.get(i) + "'");
+                }
+            } catch (NotSerializableException e) {
+                log.warn(sm.getString("compactSessionSerializer.notSerializable", saveNames.get(i), session.id), e);
+            }
+        }
+    }
+
+
+    @Override
+    public void readSession(StandardSession session, ObjectInputStream stream)
+            throws ClassNotFoundException, IOException {
+        int magic;
+        try {
+            magic = stream.readInt();
+        } catch (EOFException e) {
+            // The stream starts with an object rather than primitive data. Nothing has been consumed so read the
+            // session in the format written by JavaSessionSerializer.
+            session.doReadObject(stream);
+            return;
+        }
+        if (magic != MAGIC) {
+            throw new InvalidObjectException(
+                    sm.getString("compactSessionSerializer.invalidMagic", Integer.toHexString(magic)));
+        }
+        int version = stream.readUnsignedByte();
+        if (version > VERSION) {
+            throw new InvalidObjectException(
+                    sm.getString("compactSessionSerializer.unsupportedVersion", Integer.valueOf(version)));
+        }
+
+        Log log = session.manager.getContext().getLogger();
+
+        int flags = stream.readUnsignedByte();
+        session.authType = null;
+        session.principal = null;
+        session.isNew = (flags & FLAG_NEW) != 0;
+        session.creationTime = stream.readLong();
+        session.lastAccessedTime = stream.readLong();
+        session.thisAccessedTime = stream.readLong();
+        session.maxInactiveInterval = stream.readInt();
+        session.id = (flags & FLAG_ID) != 0 ? stream.readUTF() : null;
+        if (log.isTraceEnabled()) {
+            log.trace("readSession() loading session " + session.id);
+        }
+
+        if (session.notes == null) {
+            session.notes = new ConcurrentHashMap<>();
+        }
+        if ((flags & FLAG_AUTHENTICATION) != 0) {
+            session.setAuthType((String) stream.readObject());
+            try {
+                session.setPrincipal((Principal) stream.readObject());
+            } catch (ClassNotFoundException | ObjectStreamException e) {
+                String msg = sm.getString("compactSessionSerializer.principalNotDeserializable", session.id);
+                if (log.isDebugEnabled()) {
+                    log.debug(msg, e);
+                } else {
+                    log.warn(msg);
+                }
+                throw e;
+            }
+            Object expectedSessionId = stream.readObject();
+            if (expectedSessionId != null) {
+                session.notes.put(Constants.SESSION_ID_NOTE, expectedSessionId);
+            }
+            Object savedRequest = stream.readObject();
+            if (savedRequest != null) {
+                session.notes.put(Constants.FORM_REQUEST_NOTE, savedRequest);
+            }
+        }
+
+        if (session.attributes == null) {
+            session.attributes = new ConcurrentHashMap<>();
+        }
+        int n = stream.readInt();
+        // Attributes are read with the session marked as valid so that exclude() can be called
+        session.isValid = true;
+        for (int i = 0; i < n; i++) {
+            String name = stream.readUTF();
+            final Object value;
+            try {
+                value = attributeCodec.readValue(stream);
+            } catch (WriteAbortedException wae) {
+                if (wae.getCause() instanceof NotSerializableException) {
+                    String msg = sm.getString("compactSessionSerializer.notDeserializable", name, session.id);
+                    if (log.isDebugEnabled()) {
+                        log.debug(msg, wae);
+                    } else {
+                        log.warn(msg);
+                    }
+                    // Skip non serializable attributes
+                    continue;
+                }
+                throw wae;
+            }
+            if (log.isTraceEnabled()) {
+                log.trace("  loading attribute '" + name + "' with value '" + value + "'");
+            }
+            // The filter configuration may have changed since the session was written
+            if (session.exclude(name, value)) {
+                continue;
+            }
+            // ConcurrentHashMap does not allow null keys or values
+            if (value != null) {
+                session.attributes.put(name, value);
+            }
+        }
+        session.isValid = (flags & FLAG_VALID) != 0;
+
+        if (session.listeners == null) {
+            session.listeners = new ArrayList<>();
+        }
+    }
+
+
+    private static boolean getPersistAuthentication(Manager manager) {
+        if (manager instanceof ManagerBase) {
+            return ((ManagerBase) manager).getPersistAuthentication();
+        }
+        return false;
+    }
+}
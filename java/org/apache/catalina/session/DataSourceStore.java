@@ -451,6 +451,80 @@ public class DataSourceStore extends StoreBase {
         return _session;
     }
 
+    /**
+     * {@inheritDoc}
+     * <p>
+     * The Sessions are loaded with a single query for each batch.
+     */
+    @Override
+    public List<Session> loadAll(List<String> ids) throws ClassNotFoundException, IOException {
+        List<Session> result = new ArrayList<>(ids.size());
+        int batchSize = Math.max(getBatchSize(), 1);
+        for (int start = 0; start < ids.size(); start += batchSize) {
+            loadAll(ids.subList(start, Math.min(ids.size(), start + batchSize)), result);
+        }
+        return result;
+    }
+
+    private void loadAll(List<String> ids, List<Session> result) throws ClassNotFoundException, IOException {
+        org.apache.catalina.Context context = getManager().getContext();
+        Log contextLog = context.getLogger();
+
+        StringBuilder loadSql = new StringBuilder();
+        loadSql.append("SELECT ").append(sessionIdCol).append(", ").append(sessionDataCol).append(" FROM ");
+        loadSql.append(sessionTable).append(" WHERE ").append(sessionAppCol).append(" = ? AND ");
+        loadSql.append(sessionIdCol).append(" IN (");
+        for (int i = 0; i < ids.size(); i++) {
+            if (i > 0) {
+                loadSql.append(", ");
+            }
+            loadSql.append('?');
+        }
+        loadSql.append(')');
+
+        int numberOfTries = 2;
+        while (numberOfTries > 0) {
+            Connection _conn = getConnection();
+            if (_conn == null) {
+                return;
+            }
+
+            ClassLoader oldThreadContextCL = context.bind(null);
+
+            try (PreparedStatement preparedLoadSql = _conn.prepareStatement(loadSql.toString())) {
+                preparedLoadSql.setString(1, getName());
+                for (int i = 0; i < ids.size(); i++) {
+                    preparedLoadSql.setString(i + 2, ids.get(i));
+                }
+                try (ResultSet rst = preparedLoadSql.executeQuery()) {
+                    List<Session> sessions = new ArrayList<>(ids.size());
+                    while (rst.next()) {
+                        String id = rst.getString(1);
+                        try (ObjectInputStream ois = getObjectInputStream(rst.getBinaryStream(2))) {
+                            if (contextLog.isTraceEnabled()) {
+                                contextLog.trace(sm.getString("dataSourceStore.loading", id, sessionTable));
+                            }
+
+                            StandardSession _session = (StandardSession) manager.createEmptySession();
+                            _session.readObjectData(ois);
+                            _session.setManager(manager);
+                            sessions.add(_session);
+                        }
+                    }
+                    result.addAll(sessions);
+                    // Break out after the finally block
+                    numberOfTries = 0;
+                }
+            } catch (SQLException e) {
+                contextLog.error(sm.getString("dataSourceStore.SQLException"), e);
+            } finally {
+                context.unbind(oldThreadContextCL);
+                release(_conn);
+            }
+            numberOfTries--;
+        }
+    }
+
     @Override
     public void remove(String id) throws IOException {
 
@@ -498,6 +572,60 @@ public class DataSourceStore extends StoreBase {
         }
     }
 
+    /**
+     * {@inheritDoc}
+     * <p>
+     * The Sessions are removed using JDBC batches.
+     */
+    @Override
+    public void removeAll(List<String> ids) throws IOException {
+
+        int numberOfTries = 2;
+        while (numberOfTries > 0) {
+            Connection _conn = getConnection();
+
+            if (_conn == null) {
+                return;
+            }
+
+            try {
+                removeAll(ids, _conn);
+                // Break out after the finally block
+                numberOfTries = 0;
+            } catch (SQLException e) {
+                manager.getContext().getLogger().error(sm.getString("dataSourceStore.SQLException"), e);
+            } finally {
+                release(_conn);
+            }
+            numberOfTries--;
+        }
+
+        if (manager.getContext().getLogger().isTraceEnabled()) {
+            manager.getContext().getLogger()
+                    .trace(sm.getString("dataSourceStore.removingAll", Integer.valueOf(ids.size()), sessionTable));
+        }
+    }
+
+    private void removeAll(List<String> ids, Connection _conn) throws SQLException {
+        String removeSql =
+                "DELETE FROM " + sessionTable + " WHERE " + sessionIdCol + " = ?  AND " + sessionAppCol + " = ?";
+        int batchSize = Math.max(getBatchSize(), 1);
+        try (PreparedStatement preparedRemoveSql = _conn.prepareStatement(removeSql)) {
+            int count = 0;
+            for (String id : ids) {
+                preparedRemoveSql.setString(1, id);
+                preparedRemoveSql.setString(2, getName());
+                preparedRemoveSql.addBatch();
+                if (++count % batchSize == 0) {
+                    preparedRemoveSql.executeBatch();
+                }
+            }
+            if (count % batchSize != 0) {
+                preparedRemoveSql.executeBatch();
+            }
+        }
+    }
+
     @Override
     public void clear() throws IOException {
         String clearSql = "DELETE FROM " + sessionTable + " WHERE " + sessionAppCol + " = ?";
@@ -577,6 +705,96 @@ public class DataSourceStore extends StoreBase {
         }
     }
 
+    /**
+     * {@inheritDoc}
+     * <p>
+     * The Sessions are serialized and then written using JDBC batches, with one transaction per batch.
+     *
+     * @exception IOException if a Session cannot be serialized, in which case none of the Sessions are saved
+     */
+    @Override
+    public void saveAll(List<? extends Session> sessions) throws IOException {
+        List<SessionRow> rows = new ArrayList<>(sessions.size());
+        for (Session session : sessions) {
+            synchronized (session) {
+                ByteArrayOutputStream bos = new ByteArrayOutputStream();
+                try (ObjectOutputStream oos = new ObjectOutputStream(new BufferedOutputStream(bos))) {
+                    ((StandardSession) session).writeObjectData(oos);
+                }
+                rows.add(new SessionRow(session.getIdInternal(), bos.toByteArray(), session.isValid(),
+                        session.getMaxInactiveInterval(), session.getLastAccessedTime()));
+            }
+        }
+
+        int batchSize = Math.max(getBatchSize(), 1);
+        for (int start = 0; start < rows.size(); start += batchSize) {
+            saveRows(rows.subList(start, Math.min(rows.size(), start + batchSize)));
+        }
+    }
+
+    private void saveRows(List<SessionRow> rows) {
+        String saveSql = "INSERT INTO " + sessionTable + " (" + sessionIdCol + ", " + sessionAppCol + ", " +
+                sessionDataCol + ", " + sessionValidCol + ", " + sessionMaxInactiveCol + ", " + sessionLastAccessedCol +
+                ") VALUES (?, ?, ?, ?, ?, ?)";
+
+        List<String> ids = new ArrayList<>(rows.size());
+        for (SessionRow row : rows) {
+            ids.add(row.id());
+        }
+
+        int numberOfTries = 2;
+        while (numberOfTries > 0) {
+            Connection _conn = getConnection();
+            if (_conn == null) {
+                return;
+            }
+
+            boolean autoCommit = true;
+            try {
+                autoCommit = _conn.getAutoCommit();
+                if (autoCommit) {
+                    _conn.setAutoCommit(false);
+                }
+                try {
+                    // Remove sessions if they exist and insert them again.
+                    removeAll(ids, _conn);
+                    try (PreparedStatement preparedSaveSql = _conn.prepareStatement(saveSql)) {
+                        for (SessionRow row : rows) {
+                            preparedSaveSql.setString(1, row.id());
+                            preparedSaveSql.setString(2, getName());
+                            preparedSaveSql.setBinaryStream(3, new ByteArrayInputStream(row.data()), row.data().length);
+                            preparedSaveSql.setString(4, row.valid() ? "1" : "0");
+                            preparedSaveSql.setInt(5, row.maxInactiveInterval());
+                            preparedSaveSql.setLong(6, row.lastAccessedTime());
+                            preparedSaveSql.addBatch();
+                        }
+                        preparedSaveSql.executeBatch();
+                    }
+                    _conn.commit();
+                    // Break out after the finally block
+                    numberOfTries = 0;
+                } catch (SQLException e) {
+                    _conn.rollback();
+                    throw e;
+                } finally {
+                    if (autoCommit) {
+                        _conn.setAutoCommit(true);
+                    }
+                }
+            } catch (SQLException e) {
+                manager.getContext().getLogger().error(sm.getString("dataSourceStore.SQLException"), e);
+            } finally {
+                release(_conn);
+            }
+            numberOfTries--;
+        }
+
+        if (manager.getContext().getLogger().isTraceEnabled()) {
+            manager.getContext().getLogger()
+                    .trace(sm.getString("dataSourceStore.savingAll", Integer.valueOf(rows.size()), sessionTable));
+        }
+    }
+
 
     // --------------------------------------------------------- Protected Methods
 
@@ -698,4 +916,9 @@ public class DataSourceStore extends StoreBase {
         }
     }
 
+
+    private record SessionRow(String id, byte[] data, boolean valid, int maxInactiveInterval,
+            long lastAccessedTime) {
+    }
+
 }
@@ -181,6 +181,15 @@ public abstract class ManagerBase extends LifecycleMBeanBase implements Manager
      */
     private boolean persistAuthentication = false;
 
+    private SessionSerializer sessionSerializer = new JavaSessionSerializer();
+
+    private boolean useSessionExpiryIndex = true;
+
+    /**
+     * The sessions indexed by the earliest time at which they may expire, with a resolution of one second.
+     */
+    private final SessionExpiryIndex sessionExpiryIndex = new SessionExpiryIndex(1000, System.currentTimeMillis());
+
     private boolean sessionActivityCheck = Globals.STRICT_SERVLET_COMPLIANCE;
 
     private boolean sessionLastAccessAtStart = Globals.STRICT_SERVLET_COMPLIANCE;
@@ -540,6 +549,48 @@ public abstract class ManagerBase extends LifecycleMBeanBase implements Manager
     }
 
 
+    /**
+     * @return the serializer used to write and read the state of the sessions managed by this manager when they are
+     *             persisted
+     */
+    public SessionSerializer getSessionSerializer() {
+        return sessionSerializer;
+    }
+
+
+    /**
+     * Set the serializer used to write and read the state of the sessions managed by this manager when they are
+     * persisted. The default is {@link JavaSessionSerializer}.
+     *
+     * @param sessionSerializer The serializer to use
+     */
+    public void setSessionSerializer(SessionSerializer sessionSerializer) {
+        this.sessionSerializer = sessionSerializer;
+    }
+
+
+    /**
+     * Return whether sessions are indexed by their expiry time so that {@link #processExpires()} only needs to check
+     * the sessions that may have expired rather than every session.
+     *
+     * @return {@code true} if the expiry index is used; {@code false} if every session is checked
+     */
+    public boolean getUseSessionExpiryIndex() {
+        return useSessionExpiryIndex;
+    }
+
+
+    /**
+     * Set whether sessions are indexed by their expiry time. This must be configured before the manager is started.
+     *
+     * @param useSessionExpiryIndex if {@code true}, only the sessions that may have expired are checked by
+     *                                  {@link #processExpires()}
+     */
+    public void setUseSessionExpiryIndex(boolean useSessionExpiryIndex) {
+        this.useSessionExpiryIndex = useSessionExpiryIndex;
+    }
+
+
     // --------------------------------------------------------- Public Methods
 
     /**
@@ -561,17 +612,11 @@ public abstract class ManagerBase extends LifecycleMBeanBase implements Manager
     public void processExpires() {
 
         long timeNow = System.currentTimeMillis();
-        Session[] sessions = findSessions();
-        int expireHere = 0;
 
         if (log.isTraceEnabled()) {
-            log.trace("Start expire sessions " + getName() + " at " + timeNow + " sessioncount " + sessions.length);
-        }
-        for (Session session : sessions) {
-            if (session != null && !session.isValid()) {
-                expireHere++;
-            }
+            log.trace("Start expire sessions " + getName() + " at " + timeNow + " sessioncount " + getActiveSessions());
         }
+        int expireHere = processExpiredSessions(timeNow);
         long timeEnd = System.currentTimeMillis();
         if (log.isTraceEnabled()) {
             log.trace("End expire sessions " + getName() + " processingTime " + (timeEnd - timeNow) +
@@ -582,6 +627,70 @@ public abstract class ManagerBase extends LifecycleMBeanBase implements Manager
     }
 
 
+    /**
+     * Check the sessions that may have expired by the given time and expire those that have. If the expiry index is
+     * used, the sessions that have not expired are indexed again using their current expiry time.
+     *
+     * @param timeNow The current time
+     *
+     * @return the number of sessions that have expired
+     */
+    protected int processExpiredSessions(long timeNow) {
+        int expired = 0;
+        if (!getUseSessionExpiryIndex()) {
+            for (Session session : findSessions()) {
+                if (session != null && !session.isValid()) {
+                    expired++;
+                }
+            }
+            return expired;
+        }
+        for (Session session : sessionExpiryIndex.advance(timeNow)) {
+            String id = session.getIdInternal();
+            if (id == null || sessions.get(id) != session) {
+                // No longer managed by this manager
+                continue;
+            }
+            if (!session.isValid()) {
+                expired++;
+            } else {
+                // Accessed since it was indexed
+                scheduleSessionExpiry(session, timeNow);
+            }
+        }
+        return expired;
+    }
+
+
+    /**
+     * Update the entry for the session in the expiry index. This must be called when a change, such as a reduction of
+     * the maximum inactive interval, may cause the session to expire earlier than previously calculated. Changes that
+     * only delay the expiry of the session, such as accessing it, do not need to be reported.
+     *
+     * @param session The session that has changed
+     */
+    public void updateSessionExpiry(Session session) {
+        if (getUseSessionExpiryIndex()) {
+            String id = session.getIdInternal();
+            if (id != null && sessions.get(id) == session) {
+                scheduleSessionExpiry(session, System.currentTimeMillis());
+            }
+        }
+    }
+
+
+    private void scheduleSessionExpiry(Session session, long timeNow) {
+        int maxInactiveInterval = session.getMaxInactiveInterval();
+        if (maxInactiveInterval > 0) {
+            sessionExpiryIndex.schedule(session,
+                    timeNow - session.getIdleTimeInternal() + maxInactiveInterval * 1000L);
+        } else {
+            // Never expires
+            sessionExpiryIndex.remove(session);
+        }
+    }
+
+
     @Override
     protected void initInternal() throws LifecycleException {
         super.initInternal();
@@ -648,6 +757,9 @@ public abstract class ManagerBase extends LifecycleMBeanBase implements Manager
     @Override
     public void add(Session session) {
         sessions.put(session.getIdInternal(), session);
+        if (getUseSessionExpiryIndex()) {
+            scheduleSessionExpiry(session, System.currentTimeMillis());
+        }
         int size = getActiveSessions();
         if (size > maxActive) {
             synchronized (maxActiveUpdateLock) {
@@ -742,6 +854,7 @@ public abstract class ManagerBase extends LifecycleMBeanBase implements Manager
         if (session.getIdInternal() != null) {
             sessions.remove(session.getIdInternal());
         }
+        sessionExpiryIndex.remove(session);
     }
 
 
@@ -0,0 +1,146 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.catalina.session;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.Deque;
+
+/**
+ * Allocates blocks of off-heap memory for the {@link OffHeapStore}. Blocks are grouped into size classes where each
+ * class holds blocks with a capacity that is a power of two. Blocks are carved from large direct buffers (slabs) that
+ * are dedicated to a single size class and freed blocks are re-used for later allocations in the same class. Slabs are
+ * never returned to the operating system. Requests larger than the largest class are allocated as individual direct
+ * buffers that are released by the garbage collector once freed.
+ * <p>
+ * Blocks are created with {@link ByteBuffer#slice(int, int)} so the on-heap cost of a block is the small buffer object
+ * that refers to it rather than the data it holds.
+ */
+class OffHeapBlockAllocator {
+
+    private static final int MIN_SHIFT = 6;
+    private static final int MAX_SHIFT = 16;
+
+    static final int MIN_BLOCK_SIZE = 1 << MIN_SHIFT;
+    static final int MAX_BLOCK_SIZE = 1 << MAX_SHIFT;
+
+    private final int slabSize;
+
+    private final ByteBuffer[] slabs = new ByteBuffer[MAX_SHIFT - MIN_SHIFT + 1];
+    private final int[] slabOffsets = new int[MAX_SHIFT - MIN_SHIFT + 1];
+    @SuppressWarnings("unchecked")
+    private final Deque<ByteBuffer>[] freeBlocks = new Deque[MAX_SHIFT - MIN_SHIFT + 1];
+
+    // Guarded by this
+    private long reservedBytes;
+    private long usedBytes;
+
+
+    /**
+     * Create a new allocator.
+     *
+     * @param slabSize The size, in bytes, of the direct buffers from which blocks are carved. It is rounded up to
+     *                     {@link #MAX_BLOCK_SIZE} if smaller.
+     */
+    OffHeapBlockAllocator(int slabSize) {
+        this.slabSize = Math.max(slabSize, MAX_BLOCK_SIZE);
+        for (int i = 0; i < freeBlocks.length; i++) {
+            freeBlocks[i] = new ArrayDeque<>();
+        }
+    }
+
+
+    /**
+     * Allocate a block.
+     *
+     * @param size The minimum capacity of the block
+     *
+     * @return A block with position zero and a limit equal to the requested size
+     */
+    synchronized ByteBuffer allocate(int size) {
+        ByteBuffer block;
+        if (size > MAX_BLOCK_SIZE) {
+            block = ByteBuffer.allocateDirect(size);
+            reservedBytes += size;
+        } else {
+            int index = classIndex(size);
+            block = freeBlocks[index].poll();
+            if (block == null) {
+                block = carve(index);
+            }
+        }
+        usedBytes += block.capacity();
+        block.clear().limit(size);
+        return block;
+    }
+
+
+    /**
+     * Return a block, previously obtained from {@link #allocate(int)}, to the allocator. The block must not be used
+     * once it has been freed.
+     *
+     * @param block The block to free
+     */
+    synchronized void free(ByteBuffer block) {
+        int capacity = block.capacity();
+        usedBytes -= capacity;
+        if (capacity > MAX_BLOCK_SIZE) {
+            reservedBytes -= capacity;
+        } else {
+            freeBlocks[classIndex(capacity)].push(block);
+        }
+    }
+
+
+    /**
+     * @return the total capacity, in bytes, of the blocks that are currently allocated
+     */
+    synchronized long getUsedBytes() {
+        return usedBytes;
+    }
+
+
+    /**
+     * @return the total off-heap memory, in bytes, that has been reserved by the allocator
+     */
+    synchronized long getReservedBytes() {
+        return reservedBytes;
+    }
+
+
+    private ByteBuffer carve(int index) {
+        int blockSize = MIN_BLOCK_SIZE << index;
+        ByteBuffer slab = slabs[index];
+        if (slab == null || slabOffsets[index] + blockSize > slab.capacity()) {
+            slab = ByteBuffer.allocateDirect(slabSize);
+            slabs[index] = slab;
+            slabOffsets[index] = 0;
+            reservedBytes += slabSize;
+        }
+        ByteBuffer block = slab.slice(slabOffsets[index], blockSize);
+        slabOffsets[index] += blockSize;
+        return block;
+    }
+
+
+    private static int classIndex(int size) {
+        if (size <= MIN_BLOCK_SIZE) {
+            return 0;
+        }
+        return 32 - Integer.numberOfLeadingZeros(size - 1) - MIN_SHIFT;
+    }
+}
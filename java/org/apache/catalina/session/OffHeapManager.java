@@ -0,0 +1,144 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.catalina.session;
+
+import java.io.IOException;
+
+import org.apache.catalina.LifecycleException;
+import org.apache.catalina.Session;
+import org.apache.catalina.Store;
+
+/**
+ * Implementation of the <b>Manager</b> interface that keeps recently used Sessions on the Java heap and swaps idle
+ * Sessions out, in their serialized form, to memory that is allocated outside of the Java heap. This allows the heap
+ * size to be independent of the number of sessions. Idle sessions are swapped in again, transparently, when they are
+ * next requested.
+ * <p>
+ * By default an {@link OffHeapStore} is used and sessions idle for more than {@link #DEFAULT_MAX_IDLE_SWAP} seconds are
+ * swapped out. Sessions held off-heap do not survive a restart of the JVM.
+ */
+public final class OffHeapManager extends PersistentManagerBase {
+
+    /**
+     * The default number of seconds a session must be idle before it is swapped out of the heap.
+     */
+    public static final int DEFAULT_MAX_IDLE_SWAP = 60;
+
+    /**
+     * The descriptive name of this Manager implementation (for logging).
+     */
+    private static final String name = "OffHeapManager";
+
+
+    public OffHeapManager() {
+        setStore(new OffHeapStore());
+        setMaxIdleSwap(DEFAULT_MAX_IDLE_SWAP);
+    }
+
+
+    // ------------------------------------------------------------- Properties
+
+    @Override
+    public String getName() {
+        return name;
+    }
+
+
+    /**
+     * @return the off-heap memory, in bytes, currently used by swapped out sessions or -1 if the Store is not an
+     *             {@link OffHeapStore}
+     */
+    public long getOffHeapUsedBytes() {
+        Store store = getStore();
+        if (store instanceof OffHeapStore) {
+            return ((OffHeapStore) store).getUsedBytes();
+        }
+        return -1;
+    }
+
+
+    /**
+     * @return the off-heap memory, in bytes, reserved for swapped out sessions including memory that is available for
+     *             re-use or -1 if the Store is not an {@link OffHeapStore}
+     */
+    public long getOffHeapReservedBytes() {
+        Store store = getStore();
+        if (store instanceof OffHeapStore) {
+            return ((OffHeapStore) store).getReservedBytes();
+        }
+        return -1;
+    }
+
+
+    /**
+     * @return the number of sessions that have been deserialized when swapping them in or -1 if the Store is not an
+     *             {@link OffHeapStore}
+     */
+    public long getSwapInCount() {
+        Store store = getStore();
+        if (store instanceof OffHeapStore) {
+            return ((OffHeapStore) store).getLoadCount();
+        }
+        return -1;
+    }
+
+
+    /**
+     * @return the total time, in milliseconds, spent deserializing sessions when swapping them in or -1 if the Store is
+     *             not an {@link OffHeapStore}
+     */
+    public long getSwapInTime() {
+        Store store = getStore();
+        if (store instanceof OffHeapStore) {
+            return ((OffHeapStore) store).getLoadTime();
+        }
+        return -1;
+    }
+
+
+    // ------------------------------------------------------ Protected Methods
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Unless sessions are being backed up to the Store, the swapped in session is removed from the Store so that it is
+     * not held both on the heap and off-heap. It will be saved again when it is next swapped out.
+     */
+    @Override
+    protected Session swapIn(String id) throws IOException {
+        Session session = super.swapIn(id);
+        if (session != null && getMaxIdleBackup() < 0) {
+            removeSession(id);
+        }
+        return session;
+    }
+
+
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * The Store is destroyed with this Manager so the off-heap memory it holds is released.
+     */
+    @Override
+    protected void destroyInternal() throws LifecycleException {
+        if (getStore() instanceof OffHeapStore) {
+            ((OffHeapStore) getStore()).destroy();
+        }
+        super.destroyInternal();
+    }
+}
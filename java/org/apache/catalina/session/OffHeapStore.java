@@ -0,0 +1,303 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.catalina.session;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.catalina.Context;
+import org.apache.catalina.Session;
+import org.apache.juli.logging.Log;
+import org.apache.tomcat.util.res.StringManager;
+
+/**
+ * Implementation of the <b>Store</b> interface that keeps saved Sessions, in their serialized form, in memory that is
+ * allocated outside of the Java heap. The memory is allocated from direct buffers by an allocator that re-uses the
+ * memory of sessions that have been removed. The expiry time of each saved session is kept on the heap so that expired
+ * sessions can be found without deserializing every saved session.
+ * <p>
+ * The saved sessions are retained when the Store is stopped, so they survive a reload of the web application, but they
+ * are discarded when the Store is destroyed and they do not survive a restart of the JVM. The total amount of memory
+ * used is limited by the <code>-XX:MaxDirectMemorySize</code> option of the JVM.
+ */
+public class OffHeapStore extends StoreBase {
+
+    private static final StringManager sm = StringManager.getManager(OffHeapStore.class);
+
+    /**
+     * Name to register for this Store, used for logging.
+     */
+    private static final String storeName = "offHeapStore";
+
+    private final Map<String,Entry> entries = new ConcurrentHashMap<>();
+
+    private final AtomicLong loadCount = new AtomicLong(0);
+    private final AtomicLong loadTime = new AtomicLong(0);
+
+    private int slabSize = 1024 * 1024;
+
+    private volatile OffHeapBlockAllocator allocator;
+
+
+    // ------------------------------------------------------------- Properties
+
+    @Override
+    public String getStoreName() {
+        return storeName;
+    }
+
+
+    /**
+     * @return the size, in bytes, of the blocks of off-heap memory that are allocated to hold saved sessions
+     */
+    public int getSlabSize() {
+        return slabSize;
+    }
+
+
+    /**
+     * Set the size of the blocks of off-heap memory that are allocated to hold saved sessions. This must be configured
+     * before the Store is started.
+     *
+     * @param slabSize The size in bytes
+     */
+    public void setSlabSize(int slabSize) {
+        int oldSlabSize = this.slabSize;
+        this.slabSize = slabSize;
+        support.firePropertyChange("slabSize", Integer.valueOf(oldSlabSize), Integer.valueOf(this.slabSize));
+    }
+
+
+    /**
+     * @return the off-heap memory, in bytes, currently used by saved sessions
+     */
+    public long getUsedBytes() {
+        OffHeapBlockAllocator allocator = this.allocator;
+        return allocator == null ? 0 : allocator.getUsedBytes();
+    }
+
+
+    /**
+     * @return the off-heap memory, in bytes, reserved by this Store including memory that is available for re-use
+     */
+    public long getReservedBytes() {
+        OffHeapBlockAllocator allocator = this.allocator;
+        return allocator == null ? 0 : allocator.getReservedBytes();
+    }
+
+
+    /**
+     * @return the number of sessions that have been deserialized by {@link #load(String)}
+     */
+    public long getLoadCount() {
+        return loadCount.get();
+    }
+
+
+    /**
+     * @return the total time, in milliseconds, spent deserializing sessions in {@link #load(String)}
+     */
+    public long getLoadTime() {
+        return loadTime.get() / 1_000_000;
+    }
+
+
+    // --------------------------------------------------------- Public Methods
+
+    @Override
+    public int getSize() throws IOException {
+        return entries.size();
+    }
+
+
+    @Override
+    public String[] keys() throws IOException {
+        return entries.keySet().toArray(new String[0]);
+    }
+
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Only the keys of the sessions whose expiry time, as recorded when they were saved, has passed are returned.
+     */
+    @Override
+    public String[] expiredKeys() throws IOException {
+        long timeNow = System.currentTimeMillis();
+        List<String> result = new ArrayList<>();
+        for (Map.Entry<String,Entry> entry : entries.entrySet()) {
+            long expiryTime = entry.getValue().expiryTime;
+            if (expiryTime >= 0 && expiryTime <= timeNow) {
+                result.add(entry.getKey());
+            }
+        }
+        return result.toArray(new String[0]);
+    }
+
+
+    @Override
+    public Session load(String id) throws ClassNotFoundException, IOException {
+        Entry entry = entries.get(id);
+        if (entry == null) {
+            return null;
+        }
+        byte[] data = entry.read();
+        if (data == null) {
+            // Removed concurrently
+            return null;
+        }
+
+        Context context = getManager().getContext();
+        Log contextLog = context.getLogger();
+        if (contextLog.isTraceEnabled()) {
+            contextLog.trace(sm.getString("offHeapStore.loading", id, Integer.valueOf(data.length)));
+        }
+
+        long start = System.nanoTime();
+        ClassLoader oldThreadContextCL = context.bind(null);
+        try (ObjectInputStream ois = getObjectInputStream(new ByteArrayInputStream(data))) {
+            StandardSession session = (StandardSession) manager.createEmptySession();
+            session.readObjectData(ois);
+            session.setManager(manager);
+            return session;
+        } finally {
+            context.unbind(oldThreadContextCL);
+            loadTime.addAndGet(System.nanoTime() - start);
+            loadCount.incrementAndGet();
+        }
+    }
+
+
+    @Override
+    public void remove(String id) throws IOException {
+        if (manager.getContext().getLogger().isTraceEnabled()) {
+            manager.getContext().getLogger().trace(sm.getString("offHeapStore.removing", id));
+        }
+        Entry entry = entries.remove(id);
+        if (entry != null) {
+            entry.free();
+        }
+    }
+
+
+    @Override
+    public void clear() throws IOException {
+        for (String id : keys()) {
+            remove(id);
+        }
+    }
+
+
+    @Override
+    public void save(Session session) throws IOException {
+        ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        try (ObjectOutputStream oos = new ObjectOutputStream(bos)) {
+            ((StandardSession) session).writeObjectData(oos);
+        }
+        byte[] data = bos.toByteArray();
+
+        if (manager.getContext().getLogger().isTraceEnabled()) {
+            manager.getContext().getLogger()
+                    .trace(sm.getString("offHeapStore.saving", session.getIdInternal(), Integer.valueOf(data.length)));
+        }
+
+        long expiryTime = -1;
+        int maxInactiveInterval = session.getMaxInactiveInterval();
+        if (maxInactiveInterval > 0) {
+            expiryTime = System.currentTimeMillis() - session.getIdleTimeInternal() + maxInactiveInterval * 1000L;
+        }
+
+        OffHeapBlockAllocator allocator = getAllocator();
+        ByteBuffer block = allocator.allocate(data.length);
+        block.put(0, data);
+        Entry previous = entries.put(session.getIdInternal(), new Entry(allocator, block, expiryTime));
+        if (previous != null) {
+            previous.free();
+        }
+    }
+
+
+    // ------------------------------------------------------ Protected Methods
+
+    @Override
+    protected void destroyInternal() {
+        for (Entry entry : entries.values()) {
+            entry.free();
+        }
+        entries.clear();
+        allocator = null;
+        super.destroyInternal();
+    }
+
+
+    // -------------------------------------------------------- Private Methods
+
+    private OffHeapBlockAllocator getAllocator() {
+        OffHeapBlockAllocator result = allocator;
+        if (result == null) {
+            synchronized (this) {
+                result = allocator;
+                if (result == null) {
+                    result = new OffHeapBlockAllocator(slabSize);
+                    allocator = result;
+                }
+            }
+        }
+        return result;
+    }
+
+
+    private static class Entry {
+
+        private final OffHeapBlockAllocator allocator;
+        private final long expiryTime;
+
+        // Guarded by this. Null once the entry has been freed.
+        private ByteBuffer block;
+
+        Entry(OffHeapBlockAllocator allocator, ByteBuffer block, long expiryTime) {
+            this.allocator = allocator;
+            this.block = block;
+            this.expiryTime = expiryTime;
+        }
+
+        synchronized byte[] read() {
+            if (block == null) {
+                return null;
+            }
+            byte[] data = new byte[block.limit()];
+            block.get(0, data);
+            return data;
+        }
+
+        synchronized void free() {
+            if (block != null) {
+                allocator.free(block);
+                block = null;
+            }
+        }
+    }
+}
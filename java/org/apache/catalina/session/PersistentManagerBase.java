@@ -17,20 +17,31 @@
 package org.apache.catalina.session;
 
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
 
+import org.apache.catalina.Container;
 import org.apache.catalina.Lifecycle;
 import org.apache.catalina.LifecycleException;
 import org.apache.catalina.LifecycleState;
+import org.apache.catalina.Server;
+import org.apache.catalina.Service;
 import org.apache.catalina.Session;
 import org.apache.catalina.Store;
 import org.apache.catalina.StoreManager;
 import org.apache.juli.logging.Log;
 import org.apache.juli.logging.LogFactory;
+import org.apache.tomcat.util.ExceptionUtils;
 
 /**
  * Extends the {@link ManagerBase} class to implement most of the functionality required by a Manager which supports any
@@ -309,17 +320,11 @@ public abstract class PersistentManagerBase extends ManagerBase implements Store
     public void processExpires() {
 
         long timeNow = System.currentTimeMillis();
-        Session[] sessions = findSessions();
-        int expireHere = 0;
         if (log.isTraceEnabled()) {
-            log.trace("Start expire sessions " + getName() + " at " + timeNow + " sessioncount " + sessions.length);
-        }
-        for (Session session : sessions) {
-            if (!session.isValid()) {
-                expiredSessions.incrementAndGet();
-                expireHere++;
-            }
+            log.trace("Start expire sessions " + getName() + " at " + timeNow + " sessioncount " + getActiveSessions());
         }
+        int expireHere = processExpiredSessions(timeNow);
+        expiredSessions.addAndGet(expireHere);
         processPersistenceChecks();
         if (getStore() instanceof StoreBase) {
             ((StoreBase) getStore()).processExpires();
@@ -487,13 +492,7 @@ public abstract class PersistentManagerBase extends ManagerBase implements Store
             log.debug(sm.getString("persistentManager.unloading", String.valueOf(n)));
         }
 
-        for (Session session : sessions) {
-            try {
-                swapOut(session);
-            } catch (IOException ignore) {
-                // This is logged in writeSession()
-            }
-        }
+        swapOut(Arrays.asList(sessions));
 
     }
 
@@ -671,6 +670,192 @@ public abstract class PersistentManagerBase extends ManagerBase implements Store
     }
 
 
+    /**
+     * Remove the provided sessions from the Manager's list of active sessions and write them out to the Store. If the
+     * Store is a {@link StoreBase} the sessions are written in batches, concurrently if the Store allows it. Sessions
+     * that are invalid are ignored and sessions that are accessed while they are being written remain active.
+     *
+     * @param sessions The Sessions to write out
+     */
+    protected void swapOut(List<? extends Session> sessions) {
+
+        if (store == null) {
+            return;
+        }
+
+        if (store instanceof StoreBase storeBase) {
+            processBatches(storeBase, sessions, batch -> swapOut(storeBase, batch));
+        } else {
+            for (Session session : sessions) {
+                try {
+                    swapOut(session);
+                } catch (IOException ignore) {
+                    // This is logged in writeSession()
+                }
+            }
+        }
+
+    }
+
+
+    /**
+     * Write the provided sessions to the Store without modifying the copies in memory or triggering passivation events.
+     * If the Store is a {@link StoreBase} the sessions are written in batches, concurrently if the Store allows it.
+     *
+     * @param sessions The sessions that should be written
+     */
+    protected void writeSessions(List<? extends Session> sessions) {
+
+        if (store instanceof StoreBase storeBase) {
+            processBatches(storeBase, sessions, batch -> {
+                try {
+                    storeBase.saveAll(batch);
+                } catch (IOException ioe) {
+                    log.warn(sm.getString("persistentManager.batchSaveError", Integer.valueOf(batch.size())), ioe);
+                    for (Session session : batch) {
+                        try {
+                            writeSession(session);
+                        } catch (IOException ignore) {
+                            // This is logged in writeSession()
+                        }
+                    }
+                }
+            });
+        } else {
+            for (Session session : sessions) {
+                try {
+                    writeSession(session);
+                } catch (IOException ignore) {
+                    // This is logged in writeSession()
+                }
+            }
+        }
+
+    }
+
+
+    /*
+     * Splits the sessions into batches of the Store's batch size and processes them. Up to the Store's maximum number
+     * of concurrent batches are processed at once using the utility executor. The current thread processes batches
+     * too and only waits for the batches that other threads have started, so it cannot be blocked by a busy executor.
+     */
+    private void processBatches(StoreBase storeBase, List<? extends Session> sessions,
+            Consumer<List<? extends Session>> processor) {
+
+        int batchSize = Math.max(storeBase.getBatchSize(), 1);
+        int batches = (sessions.size() + batchSize - 1) / batchSize;
+        AtomicInteger nextBatch = new AtomicInteger();
+        CountDownLatch processed = new CountDownLatch(batches);
+        Runnable worker = () -> {
+            int batch;
+            while ((batch = nextBatch.getAndIncrement()) < batches) {
+                int start = batch * batchSize;
+                try {
+                    processor.accept(sessions.subList(start, Math.min(sessions.size(), start + batchSize)));
+                } catch (Throwable t) {
+                    ExceptionUtils.handleThrowable(t);
+                    log.error(sm.getString("persistentManager.batchError"), t);
+                } finally {
+                    processed.countDown();
+                }
+            }
+        };
+
+        int workers = Math.min(storeBase.getMaxConcurrentBatches(), batches);
+        if (workers > 1) {
+            ExecutorService executor = getUtilityExecutor();
+            if (executor != null) {
+                // Process the batches in the same environment as the current thread
+                Runnable contextWorker = () -> {
+                    ClassLoader oldThreadContextCL = getContext().bind(null);
+                    try {
+                        worker.run();
+                    } finally {
+                        getContext().unbind(oldThreadContextCL);
+                    }
+                };
+                try {
+                    for (int i = 1; i < workers; i++) {
+                        executor.execute(contextWorker);
+                    }
+                } catch (RejectedExecutionException e) {
+                    // The remaining batches are processed by the threads that have started
+                }
+            }
+        }
+        worker.run();
+        try {
+            processed.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+
+    private ExecutorService getUtilityExecutor() {
+        Service service = Container.getService(getContext());
+        Server server = (service == null) ? null : service.getServer();
+        return (server == null) ? null : server.getUtilityExecutor();
+    }
+
+
+    private void swapOut(StoreBase storeBase, List<? extends Session> sessions) {
+
+        List<StandardSession> passivated = new ArrayList<>(sessions.size());
+        long[] thisAccessedTimes = new long[sessions.size()];
+        for (Session value : sessions) {
+            StandardSession session = (StandardSession) value;
+            synchronized (session) {
+                if (!session.isValid()) {
+                    continue;
+                }
+                session.passivate();
+                thisAccessedTimes[passivated.size()] = session.getThisAccessedTimeInternal();
+                passivated.add(session);
+            }
+        }
+        if (passivated.isEmpty()) {
+            return;
+        }
+
+        try {
+            storeBase.saveAll(passivated);
+        } catch (IOException ioe) {
+            log.warn(sm.getString("persistentManager.batchSaveError", Integer.valueOf(passivated.size())), ioe);
+            // Write the sessions one at a time so only the sessions that cannot be written remain active
+            for (StandardSession session : passivated) {
+                synchronized (session) {
+                    try {
+                        writeSession(session);
+                    } catch (IOException e) {
+                        // This is logged in writeSession()
+                        session.activate();
+                        continue;
+                    }
+                    super.remove(session, true);
+                    session.recycle();
+                }
+            }
+            return;
+        }
+
+        for (int i = 0; i < passivated.size(); i++) {
+            StandardSession session = passivated.get(i);
+            synchronized (session) {
+                if (session.getThisAccessedTimeInternal() != thisAccessedTimes[i] ||
+                        session.accessCount != null && session.accessCount.get() > 0) {
+                    // Accessed while being written - keep it active
+                    session.activate();
+                    continue;
+                }
+                super.remove(session, true);
+                session.recycle();
+            }
+        }
+
+    }
+
+
     /**
      * Start this component and implement the requirements of
      * {@link org.apache.catalina.util.LifecycleBase#startInternal()}.
@@ -745,6 +930,7 @@ public abstract class PersistentManagerBase extends ManagerBase implements Store
         }
 
         Session[] sessions = findSessions();
+        List<Session> toSwap = new ArrayList<>();
 
         // Swap out all sessions idle longer than maxIdleSwap
         if (maxIdleSwap >= 0) {
@@ -764,16 +950,14 @@ public abstract class PersistentManagerBase extends ManagerBase implements Store
                             log.trace(sm.getString("persistentManager.swapMaxIdle", session.getIdInternal(),
                                     Integer.valueOf(timeIdle)));
                         }
-                        try {
-                            swapOut(session);
-                        } catch (IOException ignore) {
-                            // This is logged in writeSession()
-                        }
+                        toSwap.add(session);
                     }
                 }
             }
         }
 
+        swapOut(toSwap);
+
     }
 
 
@@ -800,6 +984,7 @@ public abstract class PersistentManagerBase extends ManagerBase implements Store
         }
 
         int toswap = sessions.length - limit;
+        List<Session> toSwap = new ArrayList<>(toswap);
 
         for (int i = 0; i < sessions.length && toswap > 0; i++) {
             StandardSession session = (StandardSession) sessions[i];
@@ -814,16 +999,14 @@ public abstract class PersistentManagerBase extends ManagerBase implements Store
                         log.trace(sm.getString("persistentManager.swapTooManyActive", session.getIdInternal(),
                                 Integer.valueOf(timeIdle)));
                     }
-                    try {
-                        swapOut(session);
-                    } catch (IOException ignore) {
-                        // This is logged in writeSession()
-                    }
+                    toSwap.add(session);
                     toswap--;
                 }
             }
         }
 
+        swapOut(toSwap);
+
     }
 
 
@@ -837,6 +1020,7 @@ public abstract class PersistentManagerBase extends ManagerBase implements Store
         }
 
         Session[] sessions = findSessions();
+        List<Session> toBackup = new ArrayList<>();
 
         // Back up all sessions idle longer than maxIdleBackup
         if (maxIdleBackup >= 0) {
@@ -859,17 +1043,15 @@ public abstract class PersistentManagerBase extends ManagerBase implements Store
                                     Integer.valueOf(timeIdle)));
                         }
 
-                        try {
-                            writeSession(session);
-                        } catch (IOException ignore) {
-                            // This is logged in writeSession()
-                        }
+                        toBackup.add(session);
                         session.setNote(PERSISTED_LAST_ACCESSED_TIME, Long.valueOf(lastAccessedTime));
                     }
                 }
             }
         }
 
+        writeSessions(toBackup);
+
     }
 
 }
@@ -0,0 +1,731 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.catalina.session;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.zip.CRC32;
+
+import jakarta.servlet.ServletContext;
+
+import org.apache.catalina.Context;
+import org.apache.catalina.LifecycleException;
+import org.apache.catalina.Session;
+import org.apache.juli.logging.Log;
+import org.apache.juli.logging.LogFactory;
+import org.apache.tomcat.util.buf.ByteBufferUtils;
+import org.apache.tomcat.util.res.StringManager;
+
+/**
+ * Implementation of the <b>Store</b> interface that appends saved Sessions to a log of memory-mapped segment files in
+ * a configured directory. The location of the most recently saved copy of each Session is held in an in-memory index
+ * so that listing, counting and finding expired Sessions does not require any file system access. Removing a Session
+ * appends a marker to the log so that it is not restored when the log is read on start.
+ * <p>
+ * Once a segment is full a new one is started. Segments in which the proportion of live data has dropped below the
+ * configured threshold are compacted, by copying their live records to the current segment and then deleting them,
+ * when the background processing of the Manager checks for expired sessions.
+ */
+public final class SegmentedFileStore extends StoreBase {
+
+    private static final Log log = LogFactory.getLog(SegmentedFileStore.class);
+    private static final StringManager sm = StringManager.getManager(SegmentedFileStore.class);
+
+
+    // ----------------------------------------------------- Constants
+
+    /**
+     * The extension to use for segment filenames.
+     */
+    private static final String FILE_EXT = ".segment";
+
+    private static final byte TYPE_SAVE = 1;
+    private static final byte TYPE_REMOVE = 2;
+
+    /*
+     * Each record is: length (4), CRC32 of the remainder of the record (4), type (1), expiry time (8), id length (2),
+     * id (UTF-8) and then the serialized session. A length of zero marks the end of the records in a segment.
+     */
+    private static final int HEADER_LENGTH = 19;
+
+
+    // ----------------------------------------------------- Instance Variables
+
+    /**
+     * The pathname of the directory in which segments are stored. This may be an absolute pathname, or a relative path
+     * that is resolved against the temporary work directory for this application.
+     */
+    private volatile String directory = ".";
+
+    private int maxSegmentSize = 16 * 1024 * 1024;
+
+    private int compactionThreshold = 50;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private final Object compactionLock = new Object();
+
+    /*
+     * Only modified while holding the write lock. Segments are only released while holding the write lock so an entry
+     * obtained while holding the read lock may be safely read.
+     */
+    private final Map<String,Entry> index = new ConcurrentHashMap<>();
+
+    // Guarded by lock
+    private final NavigableMap<Long,Segment> segments = new TreeMap<>();
+
+    // Guarded by lock
+    private Segment activeSegment = null;
+
+    private final AtomicLong compactionCount = new AtomicLong(0);
+
+    /**
+     * Name to register for this Store, used for logging.
+     */
+    private static final String storeName = "segmentedFileStore";
+
+
+    // ------------------------------------------------------------- Properties
+
+    /**
+     * @return The directory path for this Store.
+     */
+    public String getDirectory() {
+        return directory;
+    }
+
+
+    /**
+     * Set the directory path for this Store. This must be configured before the Store is started.
+     *
+     * @param path The new directory path
+     */
+    public void setDirectory(String path) {
+        String oldDirectory = this.directory;
+        this.directory = path;
+        support.firePropertyChange("directory", oldDirectory, this.directory);
+    }
+
+
+    /**
+     * @return the size, in bytes, of each segment file
+     */
+    public int getMaxSegmentSize() {
+        return maxSegmentSize;
+    }
+
+
+    /**
+     * Set the size of each segment file. A Session that is larger than this is written to a segment of its own.
+     *
+     * @param maxSegmentSize The size in bytes
+     */
+    public void setMaxSegmentSize(int maxSegmentSize) {
+        int oldMaxSegmentSize = this.maxSegmentSize;
+        this.maxSegmentSize = maxSegmentSize;
+        support.firePropertyChange("maxSegmentSize", Integer.valueOf(oldMaxSegmentSize),
+                Integer.valueOf(this.maxSegmentSize));
+    }
+
+
+    /**
+     * @return the percentage of live data below which a full segment is compacted
+     */
+    public int getCompactionThreshold() {
+        return compactionThreshold;
+    }
+
+
+    /**
+     * Set the percentage of live data below which a full segment is compacted.
+     *
+     * @param compactionThreshold The threshold as a percentage
+     */
+    public void setCompactionThreshold(int compactionThreshold) {
+        int oldCompactionThreshold = this.compactionThreshold;
+        this.compactionThreshold = compactionThreshold;
+        support.firePropertyChange("compactionThreshold", Integer.valueOf(oldCompactionThreshold),
+                Integer.valueOf(this.compactionThreshold));
+    }
+
+
+    /**
+     * @return the number of segment files currently in use
+     */
+    public int getSegmentCount() {
+        Lock readLock = lock.readLock();
+        readLock.lock();
+        try {
+            return segments.size();
+        } finally {
+            readLock.unlock();
+        }
+    }
+
+
+    /**
+     * @return the number of segments that have been compacted since this Store was created
+     */
+    public long getCompactionCount() {
+        return compactionCount.get();
+    }
+
+
+    @Override
+    public String getStoreName() {
+        return storeName;
+    }
+
+
+    @Override
+    public int getSize() throws IOException {
+        return index.size();
+    }
+
+
+    // --------------------------------------------------------- Public Methods
+
+    @Override
+    public void clear() throws IOException {
+        for (String key : keys()) {
+            remove(key);
+        }
+    }
+
+
+    @Override
+    public String[] keys() throws IOException {
+        return index.keySet().toArray(new String[0]);
+    }
+
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Only the keys of the sessions whose expiry time, as recorded when they were saved, has passed are returned.
+     */
+    @Override
+    public String[] expiredKeys() throws IOException {
+        long timeNow = System.currentTimeMillis();
+        List<String> result = new ArrayList<>();
+        for (Map.Entry<String,Entry> entry : index.entrySet()) {
+            long expiryTime = entry.getValue().expiryTime();
+            if (expiryTime >= 0 && expiryTime <= timeNow) {
+                result.add(entry.getKey());
+            }
+        }
+        return result.toArray(new String[0]);
+    }
+
+
+    @Override
+    public Session load(String id) throws ClassNotFoundException, IOException {
+        byte[] data;
+        String fileName;
+        Lock readLock = lock.readLock();
+        readLock.lock();
+        try {
+            Entry entry = index.get(id);
+            if (entry == null) {
+                return null;
+            }
+            data = entry.segment().read(entry.dataOffset(), entry.dataLength());
+            fileName = entry.segment().file.getAbsolutePath();
+        } finally {
+            readLock.unlock();
+        }
+
+        Context context = getManager().getContext();
+        Log contextLog = context.getLogger();
+
+        if (contextLog.isTraceEnabled()) {
+            contextLog.trace(sm.getString("segmentedFileStore.loading", id, fileName));
+        }
+
+        ClassLoader oldThreadContextCL = context.bind(null);
+        try (ObjectInputStream ois = getObjectInputStream(new ByteArrayInputStream(data))) {
+            StandardSession session = (StandardSession) manager.createEmptySession();
+            session.readObjectData(ois);
+            session.setManager(manager);
+            return session;
+        } finally {
+            context.unbind(oldThreadContextCL);
+        }
+    }
+
+
+    @Override
+    public void remove(String id) throws IOException {
+        if (manager.getContext().getLogger().isTraceEnabled()) {
+            manager.getContext().getLogger().trace(sm.getString("segmentedFileStore.removing", id));
+        }
+
+        byte[] record = createRecord(TYPE_REMOVE, id, -1, new byte[0]);
+        Lock writeLock = lock.writeLock();
+        writeLock.lock();
+        try {
+            if (index.containsKey(id)) {
+                append(record);
+            }
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+
+    @Override
+    public void save(Session session) throws IOException {
+        ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        try (ObjectOutputStream oos = new ObjectOutputStream(new BufferedOutputStream(bos))) {
+            ((StandardSession) session).writeObjectData(oos);
+        }
+
+        long expiryTime = -1;
+        int maxInactiveInterval = session.getMaxInactiveInterval();
+        if (maxInactiveInterval > 0) {
+            expiryTime = System.currentTimeMillis() - session.getIdleTimeInternal() + maxInactiveInterval * 1000L;
+        }
+        byte[] record = createRecord(TYPE_SAVE, session.getIdInternal(), expiryTime, bos.toByteArray());
+
+        Lock writeLock = lock.writeLock();
+        writeLock.lock();
+        try {
+            Segment segment = append(record);
+            if (manager.getContext().getLogger().isTraceEnabled()) {
+                manager.getContext().getLogger().trace(sm.getString("segmentedFileStore.saving",
+                        session.getIdInternal(), segment.file.getAbsolutePath()));
+            }
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Once expired sessions have been processed, segments that contain a low proportion of live data are compacted.
+     */
+    @Override
+    public void processExpires() {
+        super.processExpires();
+        if (getState().isAvailable()) {
+            compact();
+        }
+    }
+
+
+    // ------------------------------------------------------ Protected Methods
+
+    /**
+     * Read the existing segments, if any, to restore the index of saved sessions.
+     *
+     * @exception LifecycleException if the directory cannot be created or the segments cannot be read
+     */
+    @Override
+    protected void startInternal() throws LifecycleException {
+        Lock writeLock = lock.writeLock();
+        writeLock.lock();
+        try {
+            File dir = directory();
+            File[] files = dir.listFiles((d, name) -> name.endsWith(FILE_EXT) && sequence(name) > 0);
+            if (files != null) {
+                Arrays.sort(files, Comparator.comparingLong(f -> sequence(f.getName())));
+                for (File file : files) {
+                    recover(file);
+                }
+            }
+        } catch (IOException ioe) {
+            throw new LifecycleException(sm.getString("segmentedFileStore.startFailed", directory), ioe);
+        } finally {
+            writeLock.unlock();
+        }
+
+        super.startInternal();
+    }
+
+
+    /**
+     * Flush the current segment and release all the segments. Sessions saved to this Store will be restored when it is
+     * next started.
+     *
+     * @exception LifecycleException if this component detects a fatal error that prevents this component from being
+     *                                   used
+     */
+    @Override
+    protected void stopInternal() throws LifecycleException {
+        super.stopInternal();
+
+        Lock writeLock = lock.writeLock();
+        writeLock.lock();
+        try {
+            if (activeSegment != null) {
+                activeSegment.buffer.force();
+                activeSegment = null;
+            }
+            for (Segment segment : segments.values()) {
+                segment.release();
+            }
+            segments.clear();
+            index.clear();
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+
+    // -------------------------------------------------------- Private Methods
+
+    /*
+     * Must be called while holding the write lock.
+     */
+    private Segment append(byte[] record) throws IOException {
+        if (activeSegment == null || activeSegment.buffer.capacity() - activeSegment.position < record.length) {
+            if (activeSegment != null) {
+                activeSegment.buffer.force();
+            }
+            activeSegment = createSegment(record.length);
+        }
+        Segment segment = activeSegment;
+        int offset = segment.position;
+        segment.buffer.put(offset, record);
+        segment.position += record.length;
+        updateIndex(segment, offset, readRecord(segment.buffer, offset, false));
+        return segment;
+    }
+
+
+    /*
+     * Must be called while holding the write lock.
+     */
+    private void updateIndex(Segment segment, int offset, Record record) {
+        Entry previous;
+        if (record.type() == TYPE_SAVE) {
+            int dataOffset = offset + HEADER_LENGTH + record.idLength();
+            Entry entry = new Entry(segment, offset, record.length(), dataOffset,
+                    record.length() - HEADER_LENGTH - record.idLength(), record.expiryTime());
+            previous = index.put(record.id(), entry);
+            segment.liveBytes += record.length();
+            segment.savedIds.add(record.id());
+        } else {
+            previous = index.remove(record.id());
+            segment.removals.merge(record.id(), Integer.valueOf(record.length()), Integer::sum);
+        }
+        if (previous != null) {
+            previous.segment().liveBytes -= previous.length();
+        }
+    }
+
+
+    /*
+     * Must be called while holding the write lock.
+     */
+    private Segment createSegment(int minSize) throws IOException {
+        long sequence = segments.isEmpty() ? 1 : segments.lastKey().longValue() + 1;
+        File file = new File(directory(), String.format("%016d", Long.valueOf(sequence)) + FILE_EXT);
+        MappedByteBuffer buffer;
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE_NEW,
+                StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            buffer = channel.map(MapMode.READ_WRITE, 0, Math.max(maxSegmentSize, minSize));
+        }
+        Segment segment = new Segment(sequence, file, buffer);
+        segments.put(Long.valueOf(sequence), segment);
+        return segment;
+    }
+
+
+    /*
+     * Must be called while holding the write lock.
+     */
+    private void recover(File file) throws IOException {
+        long sequence = sequence(file.getName());
+        MappedByteBuffer buffer;
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            buffer = channel.map(MapMode.READ_ONLY, 0, channel.size());
+        }
+        Segment segment = new Segment(sequence, file, buffer);
+        segments.put(Long.valueOf(sequence), segment);
+
+        int offset = 0;
+        Record record;
+        while ((record = readRecord(buffer, offset, true)) != null) {
+            updateIndex(segment, offset, record);
+            offset += record.length();
+        }
+        segment.position = offset;
+        if (buffer.capacity() - offset >= 4 && buffer.getInt(offset) != 0) {
+            log.warn(sm.getString("segmentedFileStore.corrupt", file.getAbsolutePath(), Integer.valueOf(offset)));
+        }
+    }
+
+
+    private void compact() {
+        synchronized (compactionLock) {
+            List<Segment> candidates = new ArrayList<>();
+            Lock readLock = lock.readLock();
+            readLock.lock();
+            try {
+                for (Segment segment : segments.values()) {
+                    if (segment == activeSegment) {
+                        continue;
+                    }
+                    long retainedBytes = segment.liveBytes + requiredRemovalBytes(segment);
+                    if (retainedBytes == 0 || retainedBytes * 100 < (long) segment.position * compactionThreshold) {
+                        candidates.add(segment);
+                    }
+                }
+            } finally {
+                readLock.unlock();
+            }
+
+            for (Segment segment : candidates) {
+                try {
+                    compact(segment);
+                } catch (IOException ioe) {
+                    log.warn(sm.getString("segmentedFileStore.compactFailed", segment.file.getAbsolutePath()), ioe);
+                    return;
+                }
+            }
+        }
+    }
+
+
+    private void compact(Segment segment) throws IOException {
+        Lock writeLock = lock.writeLock();
+        int offset = 0;
+        int moved = 0;
+        while (true) {
+            writeLock.lock();
+            try {
+                if (segments.get(Long.valueOf(segment.sequence)) != segment) {
+                    // Stopped concurrently
+                    return;
+                }
+                if (offset >= segment.position) {
+                    segments.remove(Long.valueOf(segment.sequence));
+                    segment.release();
+                    break;
+                }
+                Record record = readRecord(segment.buffer, offset, false);
+                boolean live;
+                if (record.type() == TYPE_SAVE) {
+                    Entry entry = index.get(record.id());
+                    live = entry != null && entry.segment() == segment && entry.offset() == offset;
+                } else {
+                    live = isRemovalRequired(segment, record.id());
+                }
+                if (live) {
+                    append(segment.read(offset, record.length()));
+                    moved++;
+                }
+                offset += record.length();
+            } finally {
+                writeLock.unlock();
+            }
+        }
+
+        if (!segment.file.delete()) {
+            log.warn(sm.getString("segmentedFileStore.deleteFailed", segment.file.getAbsolutePath()));
+        }
+        compactionCount.incrementAndGet();
+        if (log.isDebugEnabled()) {
+            log.debug(sm.getString("segmentedFileStore.compacted", segment.file.getAbsolutePath(),
+                    Integer.valueOf(moved)));
+        }
+    }
+
+
+    /*
+     * A removal must be retained while an older segment still contains a saved copy of the session, else the session
+     * would be restored when the segments are next read. Must be called while holding the read or write lock.
+     */
+    private boolean isRemovalRequired(Segment segment, String id) {
+        if (index.containsKey(id)) {
+            // Saved again after the removal
+            return false;
+        }
+        for (Segment older : segments.headMap(Long.valueOf(segment.sequence), false).values()) {
+            if (older.savedIds.contains(id)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+
+    /*
+     * Must be called while holding the read or write lock.
+     */
+    private long requiredRemovalBytes(Segment segment) {
+        long result = 0;
+        for (Map.Entry<String,Integer> removal : segment.removals.entrySet()) {
+            if (isRemovalRequired(segment, removal.getKey())) {
+                result += removal.getValue().intValue();
+            }
+        }
+        return result;
+    }
+
+
+    /**
+     * Return a File object representing the pathname to our segment directory. The directory will be created if it
+     * does not already exist.
+     */
+    private File directory() throws IOException {
+        File file = new File(this.directory);
+        if (!file.isAbsolute()) {
+            Context context = manager.getContext();
+            ServletContext servletContext = context.getServletContext();
+            File work = (File) servletContext.getAttribute(ServletContext.TEMPDIR);
+            file = new File(work, this.directory);
+        }
+        if (!file.exists() || !file.isDirectory()) {
+            if (!file.delete() && file.exists()) {
+                throw new IOException(sm.getString("fileStore.deleteFailed", file));
+            }
+            if (!file.mkdirs() && !file.isDirectory()) {
+                throw new IOException(sm.getString("fileStore.createFailed", file));
+            }
+        }
+        return file;
+    }
+
+
+    private static long sequence(String fileName) {
+        try {
+            return Long.parseLong(fileName.substring(0, fileName.length() - FILE_EXT.length()));
+        } catch (NumberFormatException nfe) {
+            return -1;
+        }
+    }
+
+
+    private static byte[] createRecord(byte type, String id, long expiryTime, byte[] data) {
+        byte[] idBytes = id.getBytes(StandardCharsets.UTF_8);
+        int length = HEADER_LENGTH + idBytes.length + data.length;
+        ByteBuffer record = ByteBuffer.allocate(length);
+        record.putInt(length);
+        record.putInt(0);
+        record.put(type);
+        record.putLong(expiryTime);
+        record.putShort((short) idBytes.length);
+        record.put(idBytes);
+        record.put(data);
+        CRC32 crc = new CRC32();
+        crc.update(record.array(), 8, length - 8);
+        record.putInt(4, (int) crc.getValue());
+        return record.array();
+    }
+
+
+    /*
+     * Returns null if there is no valid record at the given offset.
+     */
+    private static Record readRecord(ByteBuffer buffer, int offset, boolean validate) {
+        if (buffer.capacity() - offset < HEADER_LENGTH) {
+            return null;
+        }
+        int length = buffer.getInt(offset);
+        if (length < HEADER_LENGTH || length > buffer.capacity() - offset) {
+            return null;
+        }
+        byte type = buffer.get(offset + 8);
+        int idLength = buffer.getShort(offset + 17) & 0xFFFF;
+        if (validate) {
+            if (type != TYPE_SAVE && type != TYPE_REMOVE || HEADER_LENGTH + idLength > length) {
+                return null;
+            }
+            CRC32 crc = new CRC32();
+            crc.update(buffer.slice(offset + 8, length - 8));
+            if ((int) crc.getValue() != buffer.getInt(offset + 4)) {
+                return null;
+            }
+        }
+        byte[] id = new byte[idLength];
+        buffer.get(offset + HEADER_LENGTH, id);
+        return new Record(type, new String(id, StandardCharsets.UTF_8), idLength, length,
+                buffer.getLong(offset + 9));
+    }
+
+
+    private record Record(byte type, String id, int idLength, int length, long expiryTime) {
+    }
+
+
+    private record Entry(Segment segment, int offset, int length, int dataOffset, int dataLength, long expiryTime) {
+    }
+
+
+    private static class Segment {
+
+        private final long sequence;
+        private final File file;
+        private final MappedByteBuffer buffer;
+
+        // Guarded by the write lock of the Store
+        private int position;
+        private long liveBytes;
+        // The sessions with a saved copy in this segment, whether or not it is still the current copy
+        private final Set<String> savedIds = new HashSet<>();
+        // The total length of the removal records in this segment for each session
+        private final Map<String,Integer> removals = new HashMap<>();
+
+        Segment(long sequence, File file, MappedByteBuffer buffer) {
+            this.sequence = sequence;
+            this.file = file;
+            this.buffer = buffer;
+        }
+
+        byte[] read(int offset, int length) {
+            byte[] data = new byte[length];
+            buffer.get(offset, data);
+            return data;
+        }
+
+        /*
+         * Must be called while holding the write lock of the Store, so there can be no concurrent readers.
+         */
+        void release() {
+            ByteBufferUtils.cleanDirectBuffer(buffer);
+        }
+    }
+}
@@ -0,0 +1,55 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.catalina.session;
+
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+
+/**
+ * Converts the values of session attributes to and from the binary form used by the {@link CompactSessionSerializer}.
+ * Implementations may write values of types they know about as primitive data and should fall back to
+ * {@link ObjectOutputStream#writeObject(Object)} for any other value.
+ */
+public interface SessionAttributeCodec {
+
+    /**
+     * Write a session attribute value to the stream.
+     *
+     * @param value  The value to write. Never {@code null}.
+     * @param stream The stream to write to
+     *
+     * @throws java.io.NotSerializableException if the value, or an object it references, cannot be serialized. The
+     *                                              attribute will be skipped when the session is read.
+     * @throws IOException                      if any other I/O error occurs
+     */
+    void writeValue(Object value, ObjectOutputStream stream) throws IOException;
+
+
+    /**
+     * Read a session attribute value, previously written by {@link #writeValue(Object, ObjectOutputStream)}, from the
+     * stream.
+     *
+     * @param stream The stream to read from
+     *
+     * @return The attribute value
+     *
+     * @throws ClassNotFoundException if the class of the value cannot be found
+     * @throws IOException            if an I/O error occurs
+     */
+    Object readValue(ObjectInputStream stream) throws ClassNotFoundException, IOException;
+}
@@ -0,0 +1,188 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.catalina.session;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.catalina.Session;
+
+/**
+ * An index of sessions by the earliest time at which they may expire, implemented as a hierarchical timing wheel. Each
+ * level of the wheel has 64 slots and each slot of a level covers 64 times the time covered by a slot of the level
+ * below. Sessions are placed in the lowest level that covers their expiry time and move down the levels as that time
+ * approaches, so the cost of {@link #advance(long)} is proportional to the number of sessions that are about to
+ * expire rather than to the total number of sessions.
+ * <p>
+ * Sessions are not moved when they are accessed. Instead, the caller is expected to check a session returned by
+ * {@link #advance(long)} and to schedule it again if it has not yet expired. This keeps the index off the request
+ * processing path.
+ */
+class SessionExpiryIndex {
+
+    private static final int WHEEL_BITS = 6;
+    private static final int WHEEL_SIZE = 1 << WHEEL_BITS;
+    private static final int WHEEL_MASK = WHEEL_SIZE - 1;
+
+    /*
+     * Six levels cover 2^36 ticks which is more than the longest possible maximum inactive interval. Anything further
+     * away is placed in the top level and will be moved again when its slot is reached.
+     */
+    private static final int LEVELS = 6;
+
+    private final long tickMillis;
+
+    private final Set<Session>[][] slots;
+    private final Map<Session,Entry> entries = new IdentityHashMap<>();
+    private Set<Session> due = newSlot();
+
+    /*
+     * All ticks up to and including this one have been processed.
+     */
+    private long currentTick;
+
+
+    @SuppressWarnings("unchecked")
+    SessionExpiryIndex(long tickMillis, long timeNow) {
+        this.tickMillis = tickMillis;
+        slots = new Set[LEVELS][WHEEL_SIZE];
+        currentTick = timeNow / tickMillis;
+    }
+
+
+    /**
+     * Add the session to the index, replacing any existing entry for the session.
+     *
+     * @param session    The session
+     * @param expiryTime The earliest time, in milliseconds since the epoch, at which the session may expire
+     */
+    synchronized void schedule(Session session, long expiryTime) {
+        remove(session);
+        // Round up so a session is never returned before its expiry time
+        long tick = (expiryTime + tickMillis - 1) / tickMillis;
+        insert(session, new Entry(tick));
+    }
+
+
+    /**
+     * Remove the session from the index.
+     *
+     * @param session The session
+     */
+    synchronized void remove(Session session) {
+        Entry entry = entries.remove(session);
+        if (entry != null) {
+            entry.slot.remove(session);
+        }
+    }
+
+
+    /**
+     * Advance the index to the given time and remove the sessions that may have expired by then.
+     *
+     * @param timeNow The current time in milliseconds since the epoch
+     *
+     * @return The sessions whose expiry time has been reached. They are no longer in the index.
+     */
+    synchronized List<Session> advance(long timeNow) {
+        List<Session> result = new ArrayList<>(due);
+        for (Session session : due) {
+            entries.remove(session);
+        }
+        due.clear();
+
+        long nowTick = timeNow / tickMillis;
+        if (nowTick <= currentTick) {
+            return result;
+        }
+
+        // Empty every slot, at every level, that covers a tick that has been reached
+        List<Session> reached = new ArrayList<>();
+        for (int level = 0; level < LEVELS; level++) {
+            int shift = level * WHEEL_BITS;
+            long first = (currentTick + 1) >>> shift;
+            long count = Math.min((nowTick >>> shift) - first + 1, WHEEL_SIZE);
+            for (long i = 0; i < count; i++) {
+                Set<Session> slot = slots[level][(int) ((first + i) & WHEEL_MASK)];
+                if (slot != null && !slot.isEmpty()) {
+                    reached.addAll(slot);
+                    slot.clear();
+                }
+            }
+        }
+        currentTick = nowTick;
+
+        // Return the sessions that are due and move the others to a lower level
+        for (Session session : reached) {
+            Entry entry = entries.remove(session);
+            if (entry.tick <= nowTick) {
+                result.add(session);
+            } else {
+                insert(session, entry);
+            }
+        }
+        return result;
+    }
+
+
+    /**
+     * @return the number of sessions in the index
+     */
+    synchronized int size() {
+        return entries.size();
+    }
+
+
+    private void insert(Session session, Entry entry) {
+        long delta = entry.tick - currentTick;
+        Set<Session> slot;
+        if (delta <= 0) {
+            slot = due;
+        } else {
+            int level = Math.min((Long.SIZE - 1 - Long.numberOfLeadingZeros(delta)) / WHEEL_BITS, LEVELS - 1);
+            int index = (int) ((entry.tick >>> (level * WHEEL_BITS)) & WHEEL_MASK);
+            slot = slots[level][index];
+            if (slot == null) {
+                slot = newSlot();
+                slots[level][index] = slot;
+            }
+        }
+        slot.add(session);
+        entry.slot = slot;
+        entries.put(session, entry);
+    }
+
+
+    private static Set<Session> newSlot() {
+        return Collections.newSetFromMap(new IdentityHashMap<>());
+    }
+
+
+    private static class Entry {
+
+        private final long tick;
+        private Set<Session> slot;
+
+        Entry(long tick) {
+            this.tick = tick;
+        }
+    }
+}
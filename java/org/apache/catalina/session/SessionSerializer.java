@@ -0,0 +1,57 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.catalina.session;
+
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+
+/**
+ * Converts the state of a {@link StandardSession} to and from the binary form used when the session is persisted by a
+ * {@link StandardManager} or a {@link org.apache.catalina.Store} or is otherwise written to a stream via
+ * {@link StandardSession#writeObjectData(ObjectOutputStream)}.
+ * <p>
+ * The stream is always an {@link ObjectOutputStream} (or {@link ObjectInputStream}) so that implementations may mix
+ * primitive data with Java serialization and so that the class loading performed by the input streams provided by the
+ * Manager and the Stores is available when reading objects.
+ */
+public interface SessionSerializer {
+
+    /**
+     * Write the state of the given session to the stream.
+     *
+     * @param session The session to write
+     * @param stream  The stream to write to
+     *
+     * @throws IOException if an I/O error occurs
+     */
+    void writeSession(StandardSession session, ObjectOutputStream stream) throws IOException;
+
+
+    /**
+     * Read the state of a session, previously written by {@link #writeSession(StandardSession, ObjectOutputStream)},
+     * from the stream into the given session. The Manager of the session will have been set before this method is
+     * called.
+     *
+     * @param session The session to populate
+     * @param stream  The stream to read from
+     *
+     * @throws ClassNotFoundException if the class of a session attribute cannot be found
+     * @throws IOException            if an I/O error occurs
+     */
+    void readSession(StandardSession session, ObjectInputStream stream) throws ClassNotFoundException, IOException;
+}
@@ -146,6 +146,7 @@ public class StandardManager extends ManagerBase {
                         session.readObjectData(ois);
                         session.setManager(this);
                         sessions.put(session.getIdInternal(), session);
+                        updateSessionExpiry(session);
                         session.activate();
                         if (!session.isValidInternal()) {
                             // If session is already invalid,
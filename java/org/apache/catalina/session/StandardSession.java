@@ -106,6 +106,9 @@ public class StandardSession implements HttpSession, Session, Serializable {
     protected static final String[] EMPTY_ARRAY = new String[0];
 
 
+    private static final SessionSerializer JAVA_SESSION_SERIALIZER = new JavaSessionSerializer();
+
+
     /**
      * The collection of user data attributes associated with this Session.
      */
@@ -439,6 +442,9 @@ public class StandardSession implements HttpSession, Session, Serializable {
     @Override
     public void setMaxInactiveInterval(int interval) {
         this.maxInactiveInterval = interval;
+        if (manager instanceof ManagerBase) {
+            ((ManagerBase) manager).updateSessionExpiry(this);
+        }
     }
 
 
@@ -809,7 +815,8 @@ public class StandardSession implements HttpSession, Session, Serializable {
 
     /**
      * Read a serialized version of the contents of this session object from the specified object input stream, without
-     * requiring that the StandardSession itself have been serialized.
+     * requiring that the StandardSession itself have been serialized. The format is determined by the
+     * {@link SessionSerializer} of the Manager.
      *
      * @param stream The object input stream to read from
      *
@@ -818,14 +825,15 @@ public class StandardSession implements HttpSession, Session, Serializable {
      */
     public void readObjectData(ObjectInputStream stream) throws ClassNotFoundException, IOException {
 
-        doReadObject(stream);
+        getSessionSerializer().readSession(this, stream);
 
     }
 
 
     /**
      * Write a serialized version of the contents of this session object to the specified object output stream, without
-     * requiring that the StandardSession itself have been serialized.
+     * requiring that the StandardSession itself have been serialized. The format is determined by the
+     * {@link SessionSerializer} of the Manager.
      *
      * @param stream The object output stream to write to
      *
@@ -833,11 +841,19 @@ public class StandardSession implements HttpSession, Session, Serializable {
      */
     public void writeObjectData(ObjectOutputStream stream) throws IOException {
 
-        doWriteObject(stream);
+        getSessionSerializer().writeSession(this, stream);
 
     }
 
 
+    private SessionSerializer getSessionSerializer() {
+        if (manager instanceof ManagerBase) {
+            return ((ManagerBase) manager).getSessionSerializer();
+        }
+        return JAVA_SESSION_SERIALIZER;
+    }
+
+
     // ------------------------------------------------- HttpSession Properties
 
 
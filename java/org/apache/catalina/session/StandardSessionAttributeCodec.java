@@ -0,0 +1,113 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.catalina.session;
+
+import java.io.IOException;
+import java.io.InvalidObjectException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.StreamCorruptedException;
+
+import org.apache.tomcat.util.res.StringManager;
+
+/**
+ * The default {@link SessionAttributeCodec}. Strings, the common boxed primitives and byte arrays are written as a type
+ * tag followed by primitive data. Any other value is written with Java serialization.
+ */
+public class StandardSessionAttributeCodec implements SessionAttributeCodec {
+
+    private static final StringManager sm = StringManager.getManager(StandardSessionAttributeCodec.class);
+
+    private static final int TYPE_OBJECT = 0;
+    private static final int TYPE_STRING = 1;
+    private static final int TYPE_INTEGER = 2;
+    private static final int TYPE_LONG = 3;
+    private static final int TYPE_BOOLEAN = 4;
+    private static final int TYPE_DOUBLE = 5;
+    private static final int TYPE_BYTE_ARRAY = 6;
+
+    /*
+     * writeUTF() is limited to 65535 bytes of modified UTF-8 and each character requires at most three bytes. Longer
+     * strings are written with Java serialization.
+     */
+    private static final int MAX_UTF_LENGTH = 65535 / 3;
+
+
+    @Override
+    public void writeValue(Object value, ObjectOutputStream stream) throws IOException {
+        if (value instanceof String s && s.length() <= MAX_UTF_LENGTH) {
+            stream.writeByte(TYPE_STRING);
+            stream.writeUTF(s);
+        } else if (value instanceof Integer i) {
+            stream.writeByte(TYPE_INTEGER);
+            stream.writeInt(i.intValue());
+        } else if (value instanceof Long l) {
+            stream.writeByte(TYPE_LONG);
+            stream.writeLong(l.longValue());
+        } else if (value instanceof Boolean b) {
+            stream.writeByte(TYPE_BOOLEAN);
+            stream.writeBoolean(b.booleanValue());
+        } else if (value instanceof Double d) {
+            stream.writeByte(TYPE_DOUBLE);
+            stream.writeDouble(d.doubleValue());
+        } else if (value instanceof byte[] bytes) {
+            stream.writeByte(TYPE_BYTE_ARRAY);
+            stream.writeInt(bytes.length);
+            stream.write(bytes);
+        } else {
+            stream.writeByte(TYPE_OBJECT);
+            stream.writeObject(value);
+        }
+    }
+
+
+    @Override
+    public Object readValue(ObjectInputStream stream) throws ClassNotFoundException, IOException {
+        int type = stream.readUnsignedByte();
+        switch (type) {
+            case TYPE_OBJECT:
+                return stream.readObject();
+            case TYPE_STRING:
+                return stream.readUTF();
+            case TYPE_INTEGER:
+                return Integer.valueOf(stream.readInt());
+            case TYPE_LONG:
+                return Long.valueOf(stream.readLong());
+            case TYPE_BOOLEAN:
+                return Boolean.valueOf(stream.readBoolean());
+            case TYPE_DOUBLE:
+                return Double.valueOf(stream.readDouble());
+            case TYPE_BYTE_ARRAY: {
+                int length = stream.readInt();
+                if (length < 0) {
+                    throw new StreamCorruptedException(sm.getString("standardSessionAttributeCodec.invalidLength",
+                            Integer.toString(length)));
+                }
+                // The length is untrusted. Only allocate as much memory as there is data available.
+                byte[] bytes = stream.readNBytes(length);
+                if (bytes.length != length) {
+                    throw new StreamCorruptedException(sm.getString("standardSessionAttributeCodec.invalidLength",
+                            Integer.toString(length)));
+                }
+                return bytes;
+            }
+            default:
+                throw new InvalidObjectException(sm.getString("standardSessionAttributeCodec.invalidType",
+                        Integer.valueOf(type)));
+        }
+    }
+}
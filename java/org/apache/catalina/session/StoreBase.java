@@ -22,10 +22,14 @@ import java.io.BufferedInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.ObjectInputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 
 import org.apache.catalina.LifecycleException;
 import org.apache.catalina.LifecycleState;
 import org.apache.catalina.Manager;
+import org.apache.catalina.Session;
 import org.apache.catalina.Store;
 import org.apache.catalina.util.CustomObjectInputStream;
 import org.apache.catalina.util.LifecycleBase;
@@ -60,6 +64,16 @@ public abstract class StoreBase extends LifecycleBase implements Store {
      */
     protected Manager manager;
 
+    /**
+     * The maximum number of Sessions that are loaded, saved or removed by a single batch operation.
+     */
+    protected int batchSize = 100;
+
+    /**
+     * The maximum number of batches of Sessions that are saved concurrently.
+     */
+    protected int maxConcurrentBatches = 1;
+
 
     // ------------------------------------------------------------- Properties
 
@@ -84,6 +98,49 @@ public abstract class StoreBase extends LifecycleBase implements Store {
     }
 
 
+    /**
+     * @return the maximum number of Sessions that are loaded, saved or removed by a single batch operation
+     */
+    public int getBatchSize() {
+        return batchSize;
+    }
+
+
+    /**
+     * Set the maximum number of Sessions that are loaded, saved or removed by a single batch operation.
+     *
+     * @param batchSize The new batch size
+     */
+    public void setBatchSize(int batchSize) {
+        int oldBatchSize = this.batchSize;
+        this.batchSize = batchSize;
+        support.firePropertyChange("batchSize", Integer.valueOf(oldBatchSize), Integer.valueOf(this.batchSize));
+    }
+
+
+    /**
+     * @return the maximum number of batches of Sessions that are saved concurrently
+     */
+    public int getMaxConcurrentBatches() {
+        return maxConcurrentBatches;
+    }
+
+
+    /**
+     * Set the maximum number of batches of Sessions that are saved concurrently when the Manager swaps out or backs up
+     * multiple Sessions. Batches beyond the first are saved using the utility executor of the Server. A Store that
+     * uses a connection for each batch should not allow more concurrent batches than the connections it can obtain.
+     *
+     * @param maxConcurrentBatches The new maximum number of concurrent batches
+     */
+    public void setMaxConcurrentBatches(int maxConcurrentBatches) {
+        int oldMaxConcurrentBatches = this.maxConcurrentBatches;
+        this.maxConcurrentBatches = maxConcurrentBatches;
+        support.firePropertyChange("maxConcurrentBatches", Integer.valueOf(oldMaxConcurrentBatches),
+                Integer.valueOf(this.maxConcurrentBatches));
+    }
+
+
     // --------------------------------------------------------- Public Methods
 
     @Override
@@ -96,6 +153,59 @@ public abstract class StoreBase extends LifecycleBase implements Store {
         support.removePropertyChangeListener(listener);
     }
 
+    /**
+     * Load the Sessions with the given identifiers from this Store. Stores that are able to load multiple Sessions more
+     * efficiently than loading them one at a time should override this method. The default implementation calls
+     * {@link #load(String)} for each identifier.
+     *
+     * @param ids The identifiers of the Sessions to load
+     *
+     * @return the Sessions that were found, in no particular order
+     *
+     * @exception ClassNotFoundException if a deserialization error occurs
+     * @exception IOException            if an input/output error occurs
+     */
+    public List<Session> loadAll(List<String> ids) throws ClassNotFoundException, IOException {
+        List<Session> result = new ArrayList<>(ids.size());
+        for (String id : ids) {
+            Session session = load(id);
+            if (session != null) {
+                result.add(session);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Save the given Sessions to this Store, replacing any previously saved copies. Stores that are able to save
+     * multiple Sessions more efficiently than saving them one at a time should override this method. The default
+     * implementation calls {@link #save(Session)} for each Session.
+     *
+     * @param sessions The Sessions to save
+     *
+     * @exception IOException if an input/output error occurs
+     */
+    public void saveAll(List<? extends Session> sessions) throws IOException {
+        for (Session session : sessions) {
+            save(session);
+        }
+    }
+
+    /**
+     * Remove the Sessions with the given identifiers from this Store. Stores that are able to remove multiple Sessions
+     * more efficiently than removing them one at a time should override this method. The default implementation calls
+     * {@link #remove(String)} for each identifier.
+     *
+     * @param ids The identifiers of the Sessions to remove
+     *
+     * @exception IOException if an input/output error occurs
+     */
+    public void removeAll(List<String> ids) throws IOException {
+        for (String id : ids) {
+            remove(id);
+        }
+    }
+
     /**
      * Get only those keys of sessions, that are saved in the Store and are to be expired.
      *
@@ -130,48 +240,73 @@ public abstract class StoreBase extends LifecycleBase implements Store {
         }
 
         long timeNow = System.currentTimeMillis();
+        List<String> expiredIds = new ArrayList<>();
 
-        for (String key : keys) {
+        int batchSize = Math.max(getBatchSize(), 1);
+        for (int start = 0; start < keys.length; start += batchSize) {
+            List<String> batch = Arrays.asList(keys).subList(start, Math.min(keys.length, start + batchSize));
+            List<Session> sessions;
             try {
-                StandardSession session = (StandardSession) load(key);
-                if (session == null) {
-                    continue;
-                }
-                int timeIdle = (int) ((timeNow - session.getThisAccessedTime()) / 1000L);
-                if (timeIdle < session.getMaxInactiveInterval()) {
-                    continue;
-                }
-                if (manager.getContext().getLogger().isTraceEnabled()) {
-                    manager.getContext().getLogger()
-                            .trace(getStoreName() + ": processExpires expire store session " + key);
-                }
-                boolean isLoaded = false;
-                if (manager instanceof PersistentManagerBase) {
-                    isLoaded = ((PersistentManagerBase) manager).isLoaded(key);
-                } else {
+                sessions = loadAll(batch);
+            } catch (Exception e) {
+                // Load the sessions one at a time so only the sessions that cannot be loaded are affected
+                sessions = new ArrayList<>(batch.size());
+                for (String key : batch) {
                     try {
-                        if (manager.findSession(key) != null) {
-                            isLoaded = true;
+                        Session session = load(key);
+                        if (session != null) {
+                            sessions.add(session);
                         }
-                    } catch (IOException ioe) {
-                        // Ignore - session will be expired
+                    } catch (Exception e2) {
+                        manager.getContext().getLogger().error(sm.getString("store.expireFail", key), e2);
+                        expiredIds.add(key);
                     }
                 }
-                if (isLoaded) {
-                    // recycle old backup session
-                    session.recycle();
-                } else {
-                    // expire swapped out session
-                    session.expire();
-                }
-                remove(key);
-            } catch (Exception e) {
-                manager.getContext().getLogger().error(sm.getString("store.expireFail", key), e);
+            }
+            for (Session value : sessions) {
+                String key = value.getIdInternal();
                 try {
-                    remove(key);
-                } catch (IOException ioe) {
-                    manager.getContext().getLogger().error(sm.getString("store.removeFail", key), ioe);
+                    StandardSession session = (StandardSession) value;
+                    int timeIdle = (int) ((timeNow - session.getThisAccessedTime()) / 1000L);
+                    if (timeIdle < session.getMaxInactiveInterval()) {
+                        continue;
+                    }
+                    if (manager.getContext().getLogger().isTraceEnabled()) {
+                        manager.getContext().getLogger()
+                                .trace(getStoreName() + ": processExpires expire store session " + key);
+                    }
+                    boolean isLoaded = false;
+                    if (manager instanceof PersistentManagerBase) {
+                        isLoaded = ((PersistentManagerBase) manager).isLoaded(key);
+                    } else {
+                        try {
+                            if (manager.findSession(key) != null) {
+                                isLoaded = true;
+                            }
+                        } catch (IOException ioe) {
+                            // Ignore - session will be expired
+                        }
+                    }
+                    if (isLoaded) {
+                        // recycle old backup session
+                        session.recycle();
+                    } else {
+                        // expire swapped out session
+                        session.expire();
+                    }
+                } catch (Exception e) {
+                    manager.getContext().getLogger().error(sm.getString("store.expireFail", key), e);
                 }
+                expiredIds.add(key);
+            }
+        }
+
+        if (!expiredIds.isEmpty()) {
+            try {
+                removeAll(expiredIds);
+            } catch (IOException ioe) {
+                manager.getContext().getLogger()
+                        .error(sm.getString("store.removeAllFail", Integer.valueOf(expiredIds.size())), ioe);
             }
         }
     }
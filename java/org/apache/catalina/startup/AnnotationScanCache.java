@@ -0,0 +1,385 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.catalina.startup;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.StreamCorruptedException;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.apache.juli.logging.Log;
+import org.apache.juli.logging.LogFactory;
+import org.apache.tomcat.util.bcel.classfile.AnnotationEntry;
+import org.apache.tomcat.util.bcel.classfile.JavaClass;
+import org.apache.tomcat.util.res.StringManager;
+
+/**
+ * A cache, persisted in the work directory of a web application, of the information {@link ContextConfig} obtains by
+ * parsing each class in a JAR when scanning for annotations and {@link jakarta.servlet.annotation.HandlesTypes}
+ * matches. The information cached for a class is independent of the
+ * {@link jakarta.servlet.ServletContainerInitializer}s that are present. A JAR is only parsed again if its size or last
+ * modified time has changed since it was cached. The few classes with annotations that define servlets, filters or
+ * listeners are always parsed again as the values of those annotations are not cached.
+ * <p>
+ * Only JARs that are files are cached. The cache file only retains the JARs that were scanned by the most recent
+ * start of the web application.
+ */
+final class AnnotationScanCache {
+
+    private static final Log log = LogFactory.getLog(AnnotationScanCache.class);
+    private static final StringManager sm = StringManager.getManager(AnnotationScanCache.class);
+
+    static final String FILE_NAME = "annotation-scan.cache";
+
+    // "TASC"
+    private static final int MAGIC = 0x54415343;
+    // Increment if the format or the information cached for each class changes
+    private static final int VERSION = 1;
+
+    private final File file;
+    private final Map<String,JarScan> cached;
+    private final Map<String,JarScan> scanned = new ConcurrentHashMap<>();
+
+
+    private AnnotationScanCache(File file, Map<String,JarScan> cached) {
+        this.file = file;
+        this.cached = cached;
+    }
+
+
+    /**
+     * Load the cache from the given work directory. If the cache file does not exist or can not be read, the cache
+     * starts empty.
+     *
+     * @param workDir The work directory of the web application
+     *
+     * @return the cache
+     */
+    static AnnotationScanCache load(File workDir) {
+        File file = new File(workDir, FILE_NAME);
+        Map<String,JarScan> cached = new HashMap<>();
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+                log.info(sm.getString("annotationScanCache.version", file));
+            } else {
+                // Every counted item occupies at least one byte so no valid count can exceed the file length
+                long limit = file.length();
+                int jarCount = readCount(in, limit);
+                for (int i = 0; i < jarCount; i++) {
+                    JarScan jarScan = JarScan.read(in, limit);
+                    cached.put(jarScan.key, jarScan);
+                }
+            }
+        } catch (FileNotFoundException e) {
+            // First start
+        } catch (IOException | RuntimeException e) {
+            // The cache is only an optimisation. Any problem reading it means all the JARs are scanned.
+            log.warn(sm.getString("annotationScanCache.loadFail", file), e);
+            cached.clear();
+        }
+        return new AnnotationScanCache(file, cached);
+    }
+
+
+    private static int readCount(DataInputStream in, long limit) throws IOException {
+        int count = in.readInt();
+        if (count < 0 || count > limit) {
+            throw new StreamCorruptedException(
+                    sm.getString("annotationScanCache.invalidCount", Integer.toString(count)));
+        }
+        return count;
+    }
+
+
+    /**
+     * Obtain the cached classes of the given JAR.
+     *
+     * @param url The URL of the JAR
+     *
+     * @return the scan of the JAR, holding the cached classes if the JAR has not changed since it was cached, or
+     *             {@code null} if the JAR can not be cached
+     */
+    JarScan get(URL url) {
+        File jarFile = getFile(url);
+        if (jarFile == null) {
+            return null;
+        }
+        String key = jarFile.getAbsolutePath();
+        long length = jarFile.length();
+        long lastModified = jarFile.lastModified();
+        JarScan jarScan = cached.get(key);
+        if (jarScan != null && jarScan.length == length && jarScan.lastModified == lastModified) {
+            scanned.put(key, jarScan);
+            return jarScan;
+        }
+        return new JarScan(key, length, lastModified, null);
+    }
+
+
+    /**
+     * Add the classes of a JAR that has been parsed.
+     *
+     * @param jarScan The scan of the JAR obtained from {@link #get(URL)} before the JAR was parsed
+     * @param classes The classes of the JAR, in the order they were parsed
+     */
+    void put(JarScan jarScan, List<ClassInfo> classes) {
+        scanned.put(jarScan.key, new JarScan(jarScan.key, jarScan.length, jarScan.lastModified, classes));
+    }
+
+
+    /**
+     * Write the JARs scanned since the cache was loaded to the cache file if they differ from the JARs in the cache
+     * file.
+     */
+    void save() {
+        if (scanned.equals(cached)) {
+            return;
+        }
+        File tmp = new File(file.getParentFile(), FILE_NAME + ".tmp");
+        try {
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tmp)))) {
+                out.writeInt(MAGIC);
+                out.writeInt(VERSION);
+                out.writeInt(scanned.size());
+                for (JarScan jarScan : scanned.values()) {
+                    jarScan.write(out);
+                }
+            }
+            Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException ioe) {
+            log.warn(sm.getString("annotationScanCache.saveFail", file), ioe);
+            if (tmp.exists() && !tmp.delete()) {
+                log.warn(sm.getString("annotationScanCache.deleteFail", tmp));
+            }
+        }
+    }
+
+
+    private static File getFile(URL url) {
+        String spec = url.toString();
+        if ("jar".equals(url.getProtocol()) && spec.startsWith("jar:file:") && spec.endsWith("!/") &&
+                spec.indexOf("!/") == spec.length() - 2) {
+            spec = spec.substring(4, spec.length() - 2);
+        } else if (!"file".equals(url.getProtocol())) {
+            return null;
+        }
+        try {
+            File result = new File(new URI(spec));
+            if (result.isFile()) {
+                return result;
+            }
+        } catch (URISyntaxException | IllegalArgumentException e) {
+            // Not a file - can't be cached
+        }
+        return null;
+    }
+
+
+    /**
+     * The classes of a JAR along with the size and last modified time of the JAR when it was parsed.
+     */
+    static final class JarScan {
+        private final String key;
+        private final long length;
+        private final long lastModified;
+        private final List<ClassInfo> classes;
+
+        private JarScan(String key, long length, long lastModified, List<ClassInfo> classes) {
+            this.key = key;
+            this.length = length;
+            this.lastModified = lastModified;
+            this.classes = classes;
+        }
+
+        /**
+         * @return the cached classes or {@code null} if the JAR needs to be parsed
+         */
+        List<ClassInfo> getClasses() {
+            return classes;
+        }
+
+        private void write(DataOutputStream out) throws IOException {
+            out.writeUTF(key);
+            out.writeLong(length);
+            out.writeLong(lastModified);
+            out.writeInt(classes.size());
+            for (ClassInfo classInfo : classes) {
+                classInfo.write(out);
+            }
+        }
+
+        private static JarScan read(DataInputStream in, long limit) throws IOException {
+            String key = in.readUTF();
+            long length = in.readLong();
+            long lastModified = in.readLong();
+            int classCount = readCount(in, limit);
+            List<ClassInfo> classes = new ArrayList<>(classCount);
+            for (int i = 0; i < classCount; i++) {
+                classes.add(ClassInfo.read(in, limit));
+            }
+            return new JarScan(key, length, lastModified, classes);
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            // Classes are always the same if the JAR is unchanged
+            return obj instanceof JarScan other && key.equals(other.key) && length == other.length &&
+                    lastModified == other.lastModified;
+        }
+
+        @Override
+        public int hashCode() {
+            return key.hashCode();
+        }
+    }
+
+
+    /**
+     * The information about a class that is required to check it for {@link jakarta.servlet.annotation.HandlesTypes}
+     * matches.
+     */
+    static final class ClassInfo {
+        private static final String[] EMPTY = new String[0];
+
+        private final String className;
+        private final int accessFlags;
+        private final String superclassName;
+        private final String[] interfaceNames;
+        private final String[] annotationTypes;
+        private final String entryName;
+
+        /**
+         * @param javaClass The parsed class
+         * @param entryName The name of the JAR entry for the class if the class needs to be parsed again to process
+         *                      its annotations, otherwise {@code null}
+         */
+        ClassInfo(JavaClass javaClass, String entryName) {
+            className = javaClass.getClassName();
+            accessFlags = javaClass.getAccessFlags();
+            superclassName = javaClass.getSuperclassName();
+            interfaceNames = javaClass.getInterfaceNames();
+            AnnotationEntry[] annotationEntries = javaClass.getAllAnnotationEntries();
+            if (annotationEntries == null) {
+                annotationTypes = EMPTY;
+            } else {
+                annotationTypes = new String[annotationEntries.length];
+                for (int i = 0; i < annotationEntries.length; i++) {
+                    annotationTypes[i] = annotationEntries[i].getAnnotationType();
+                }
+            }
+            this.entryName = entryName;
+        }
+
+        private ClassInfo(String className, int accessFlags, String superclassName, String[] interfaceNames,
+                String[] annotationTypes, String entryName) {
+            this.className = className;
+            this.accessFlags = accessFlags;
+            this.superclassName = superclassName;
+            this.interfaceNames = interfaceNames;
+            this.annotationTypes = annotationTypes;
+            this.entryName = entryName;
+        }
+
+        String getClassName() {
+            return className;
+        }
+
+        int getAccessFlags() {
+            return accessFlags;
+        }
+
+        String getSuperclassName() {
+            return superclassName;
+        }
+
+        String[] getInterfaceNames() {
+            return interfaceNames;
+        }
+
+        /**
+         * @return the types, as descriptors, of the annotations of the class and of its fields and methods
+         */
+        String[] getAnnotationTypes() {
+            return annotationTypes;
+        }
+
+        /**
+         * @return the name of the JAR entry to parse to process the annotations of the class or {@code null} if the
+         *             class has no annotations to process
+         */
+        String getEntryName() {
+            return entryName;
+        }
+
+        private void write(DataOutputStream out) throws IOException {
+            out.writeUTF(className);
+            out.writeInt(accessFlags);
+            out.writeUTF(superclassName);
+            writeStrings(out, interfaceNames);
+            writeStrings(out, annotationTypes);
+            out.writeBoolean(entryName != null);
+            if (entryName != null) {
+                out.writeUTF(entryName);
+            }
+        }
+
+        private static ClassInfo read(DataInputStream in, long limit) throws IOException {
+            String className = in.readUTF();
+            int accessFlags = in.readInt();
+            String superclassName = in.readUTF();
+            String[] interfaceNames = readStrings(in, limit);
+            String[] annotationTypes = readStrings(in, limit);
+            String entryName = in.readBoolean() ? in.readUTF() : null;
+            return new ClassInfo(className, accessFlags, superclassName, interfaceNames, annotationTypes, entryName);
+        }
+
+        private static void writeStrings(DataOutputStream out, String[] values) throws IOException {
+            out.writeInt(values.length);
+            for (String value : values) {
+                out.writeUTF(value);
+            }
+        }
+
+        private static String[] readStrings(DataInputStream in, long limit) throws IOException {
+            int count = readCount(in, limit);
+            if (count == 0) {
+                return EMPTY;
+            }
+            String[] result = new String[count];
+            for (int i = 0; i < count; i++) {
+                result[i] = in.readUTF();
+            }
+            return result;
+        }
+    }
+}
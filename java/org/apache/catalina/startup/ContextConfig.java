@@ -228,6 +228,11 @@ public class ContextConfig implements LifecycleListener {
      */
     protected boolean handlesTypesNonAnnotations = false;
 
+    /**
+     * The cache of the results of parsing the classes in JARs, if enabled for the current scan.
+     */
+    private volatile AnnotationScanCache annotationScanCache = null;
+
 
     // ------------------------------------------------------------- Properties
 
@@ -1345,6 +1350,13 @@ public class ContextConfig implements LifecycleListener {
             javaClassCache = new HashMap<>();
         }
 
+        if (context.getCacheAnnotationScanning()) {
+            File workDir = (File) context.getServletContext().getAttribute(ServletContext.TEMPDIR);
+            if (workDir != null && (workDir.isDirectory() || workDir.mkdirs())) {
+                annotationScanCache = AnnotationScanCache.load(workDir);
+            }
+        }
+
         if (ok) {
             WebResource[] webResources = context.getResources().listResources("/WEB-INF/classes");
 
@@ -1366,6 +1378,13 @@ public class ContextConfig implements LifecycleListener {
             processAnnotations(orderedFragments, webXml.isMetadataComplete(), javaClassCache);
         }
 
+        if (annotationScanCache != null) {
+            if (ok) {
+                annotationScanCache.save();
+            }
+            annotationScanCache = null;
+        }
+
         // Cache, if used, is no longer required so clear it
         javaClassCache.clear();
     }
@@ -2175,6 +2194,20 @@ public class ContextConfig implements LifecycleListener {
     protected void processAnnotationsJar(URL url, WebXml fragment, boolean handlesTypesOnly,
             Map<String,JavaClassCacheEntry> javaClassCache) {
 
+        AnnotationScanCache annotationScanCache = this.annotationScanCache;
+        AnnotationScanCache.JarScan jarScan = null;
+        List<AnnotationScanCache.ClassInfo> classes = null;
+        if (annotationScanCache != null) {
+            jarScan = annotationScanCache.get(url);
+            if (jarScan != null) {
+                if (jarScan.getClasses() != null) {
+                    processAnnotationsCachedJar(url, jarScan.getClasses(), fragment, handlesTypesOnly, javaClassCache);
+                    return;
+                }
+                classes = new ArrayList<>();
+            }
+        }
+
         try (Jar jar = JarFactory.newInstance(url)) {
             if (log.isTraceEnabled()) {
                 log.trace(sm.getString("contextConfig.processAnnotationsJar.debug", url));
@@ -2185,9 +2218,23 @@ public class ContextConfig implements LifecycleListener {
             while (entryName != null) {
                 if (entryName.endsWith(".class")) {
                     try (InputStream is = jar.getEntryInputStream()) {
-                        processAnnotationsStream(is, fragment, handlesTypesOnly, javaClassCache);
+                        if (classes == null) {
+                            processAnnotationsStream(is, fragment, handlesTypesOnly, javaClassCache);
+                        } else {
+                            ClassParser parser = new ClassParser(is);
+                            JavaClass clazz = parser.parse();
+                            AnnotationScanCache.ClassInfo classInfo = new AnnotationScanCache.ClassInfo(clazz,
+                                    hasAnnotationsToProcess(clazz) ? entryName : null);
+                            classes.add(classInfo);
+                            checkHandlesTypes(classInfo, javaClassCache);
+                            if (!handlesTypesOnly) {
+                                processClass(fragment, clazz);
+                            }
+                        }
                     } catch (IOException | ClassFormatException e) {
                         log.error(sm.getString("contextConfig.inputStreamJar", entryName, url), e);
+                        // Parse the JAR again next time so the error is reported again
+                        jarScan = null;
                     }
                 }
                 jar.nextEntry();
@@ -2195,6 +2242,54 @@ public class ContextConfig implements LifecycleListener {
             }
         } catch (IOException ioe) {
             log.error(sm.getString("contextConfig.jarFile", url), ioe);
+            jarScan = null;
+        }
+
+        if (jarScan != null) {
+            annotationScanCache.put(jarScan, classes);
+        }
+    }
+
+
+    /*
+     * Processes a JAR using the results of a previous parse of its classes. Only the classes with annotations that
+     * need to be processed are parsed.
+     */
+    private void processAnnotationsCachedJar(URL url, List<AnnotationScanCache.ClassInfo> classes, WebXml fragment,
+            boolean handlesTypesOnly, Map<String,JavaClassCacheEntry> javaClassCache) {
+
+        if (log.isTraceEnabled()) {
+            log.trace(sm.getString("contextConfig.processAnnotationsCachedJar.debug", url));
+        }
+
+        Jar jar = null;
+        try {
+            for (AnnotationScanCache.ClassInfo classInfo : classes) {
+                checkHandlesTypes(classInfo, javaClassCache);
+
+                String entryName = classInfo.getEntryName();
+                if (handlesTypesOnly || entryName == null) {
+                    continue;
+                }
+                if (jar == null) {
+                    jar = JarFactory.newInstance(url);
+                }
+                try (InputStream is = jar.getInputStream(entryName)) {
+                    if (is == null) {
+                        throw new FileNotFoundException(entryName);
+                    }
+                    ClassParser parser = new ClassParser(is);
+                    processClass(fragment, parser.parse());
+                } catch (IOException | ClassFormatException e) {
+                    log.error(sm.getString("contextConfig.inputStreamJar", entryName, url), e);
+                }
+            }
+        } catch (IOException ioe) {
+            log.error(sm.getString("contextConfig.jarFile", url), ioe);
+        } finally {
+            if (jar != null) {
+                jar.close();
+            }
         }
     }
 
@@ -2238,6 +2333,28 @@ public class ContextConfig implements LifecycleListener {
     }
 
 
+    /*
+     * Returns true if the class has any of the annotations processed by processClass().
+     */
+    private static boolean hasAnnotationsToProcess(JavaClass clazz) {
+        AnnotationEntry[] annotationsEntries = clazz.getAnnotationEntries();
+        if (annotationsEntries != null) {
+            for (AnnotationEntry ae : annotationsEntries) {
+                switch (ae.getAnnotationType()) {
+                    case "Ljakarta/servlet/annotation/WebServlet;", "Ljakarta/servlet/annotation/WebFilter;",
+                            "Ljakarta/servlet/annotation/WebListener;" -> {
+                        return true;
+                    }
+                    case null, default -> {
+                        // Not processed
+                    }
+                }
+            }
+        }
+        return false;
+    }
+
+
     protected void processClass(WebXml fragment, JavaClass clazz) {
         AnnotationEntry[] annotationsEntries = clazz.getAnnotationEntries();
         if (annotationsEntries != null) {
@@ -2273,6 +2390,18 @@ public class ContextConfig implements LifecycleListener {
             return;
         }
 
+        checkHandlesTypes(new AnnotationScanCache.ClassInfo(javaClass, null), javaClassCache);
+    }
+
+
+    private void checkHandlesTypes(AnnotationScanCache.ClassInfo javaClass,
+            Map<String,JavaClassCacheEntry> javaClassCache) {
+
+        // Skip this if we can
+        if (typeInitializerMap.isEmpty()) {
+            return;
+        }
+
         if ((javaClass.getAccessFlags() & org.apache.tomcat.util.bcel.Const.ACC_ANNOTATION) != 0) {
             // Skip annotations.
             return;
@@ -2283,7 +2412,8 @@ public class ContextConfig implements LifecycleListener {
         Class<?> clazz = null;
         if (handlesTypesNonAnnotations) {
             // This *might* be match for a HandlesType.
-            populateJavaClassCache(className, javaClass, javaClassCache);
+            populateJavaClassCache(className, javaClass.getSuperclassName(), javaClass.getInterfaceNames(),
+                    javaClassCache);
             JavaClassCacheEntry entry = javaClassCache.get(className);
             if (entry.getSciSet() == null) {
                 try {
@@ -2309,13 +2439,13 @@ public class ContextConfig implements LifecycleListener {
         }
 
         if (handlesTypesAnnotations) {
-            AnnotationEntry[] annotationEntries = javaClass.getAllAnnotationEntries();
-            if (annotationEntries != null) {
+            String[] annotationTypes = javaClass.getAnnotationTypes();
+            if (annotationTypes.length > 0) {
                 for (Map.Entry<Class<?>,Set<ServletContainerInitializer>> entry : typeInitializerMap.entrySet()) {
                     if (entry.getKey().isAnnotation()) {
                         String entryClassName = entry.getKey().getName();
-                        for (AnnotationEntry annotationEntry : annotationEntries) {
-                            if (entryClassName.equals(getClassName(annotationEntry.getAnnotationType()))) {
+                        for (String annotationType : annotationTypes) {
+                            if (entryClassName.equals(getClassName(annotationType))) {
                                 if (clazz == null) {
                                     clazz = Introspection.loadClass(context, className);
                                     if (clazz == null) {
@@ -2360,18 +2490,18 @@ public class ContextConfig implements LifecycleListener {
         return msg.toString();
     }
 
-    private void populateJavaClassCache(String className, JavaClass javaClass,
+    private void populateJavaClassCache(String className, String superclassName, String[] interfaceNames,
             Map<String,JavaClassCacheEntry> javaClassCache) {
         if (javaClassCache.containsKey(className)) {
             return;
         }
 
         // Add this class to the cache
-        javaClassCache.put(className, new JavaClassCacheEntry(javaClass));
+        javaClassCache.put(className, new JavaClassCacheEntry(superclassName, interfaceNames));
 
-        populateJavaClassCache(javaClass.getSuperclassName(), javaClassCache);
+        populateJavaClassCache(superclassName, javaClassCache);
 
-        for (String interfaceName : javaClass.getInterfaceNames()) {
+        for (String interfaceName : interfaceNames) {
             populateJavaClassCache(interfaceName, javaClassCache);
         }
     }
@@ -2385,7 +2515,8 @@ public class ContextConfig implements LifecycleListener {
                 }
                 ClassParser parser = new ClassParser(is);
                 JavaClass clazz = parser.parse();
-                populateJavaClassCache(clazz.getClassName(), clazz, javaClassCache);
+                populateJavaClassCache(clazz.getClassName(), clazz.getSuperclassName(), clazz.getInterfaceNames(),
+                        javaClassCache);
             } catch (ClassFormatException | IOException e) {
                 log.debug(sm.getString("contextConfig.invalidSciHandlesTypes", className), e);
             }
@@ -2767,8 +2898,12 @@ public class ContextConfig implements LifecycleListener {
         private Set<ServletContainerInitializer> sciSet = null;
 
         JavaClassCacheEntry(JavaClass javaClass) {
-            superclassName = javaClass.getSuperclassName();
-            interfaceNames = javaClass.getInterfaceNames();
+            this(javaClass.getSuperclassName(), javaClass.getInterfaceNames());
+        }
+
+        JavaClassCacheEntry(String superclassName, String[] interfaceNames) {
+            this.superclassName = superclassName;
+            this.interfaceNames = interfaceNames;
         }
 
         public String getSuperclassName() {
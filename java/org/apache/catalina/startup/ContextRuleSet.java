@@ -114,6 +114,18 @@ public class ContextRuleSet implements RuleSet {
         digester.addSetNext(prefix + "Context/Manager/SessionIdGenerator", "setSessionIdGenerator",
                 "org.apache.catalina.SessionIdGenerator");
 
+        digester.addObjectCreate(prefix + "Context/Manager/SessionSerializer",
+                "org.apache.catalina.session.CompactSessionSerializer", "className");
+        digester.addSetProperties(prefix + "Context/Manager/SessionSerializer");
+        digester.addSetNext(prefix + "Context/Manager/SessionSerializer", "setSessionSerializer",
+                "org.apache.catalina.session.SessionSerializer");
+
+        digester.addObjectCreate(prefix + "Context/Manager/SessionSerializer/AttributeCodec",
+                "org.apache.catalina.session.StandardSessionAttributeCodec", "className");
+        digester.addSetProperties(prefix + "Context/Manager/SessionSerializer/AttributeCodec");
+        digester.addSetNext(prefix + "Context/Manager/SessionSerializer/AttributeCodec", "setAttributeCodec",
+                "org.apache.catalina.session.SessionAttributeCodec");
+
         digester.addObjectCreate(prefix + "Context/Parameter",
                 "org.apache.tomcat.util.descriptor.web.ApplicationParameter");
         digester.addSetProperties(prefix + "Context/Parameter");
@@ -1423,6 +1423,15 @@ public class FailedContext extends LifecycleMBeanBase implements Context {
     public void setParallelAnnotationScanning(boolean parallelAnnotationScanning) {
     }
 
+    @Override
+    public boolean getCacheAnnotationScanning() {
+        return false;
+    }
+
+    @Override
+    public void setCacheAnnotationScanning(boolean cacheAnnotationScanning) {
+    }
+
     @Override
     public boolean getSuspendWrappedResponseAfterForward() {
         return false;
@@ -25,19 +25,26 @@ import java.io.IOException;
 import java.io.OutputStreamWriter;
 import java.io.PrintWriter;
 import java.io.UnsupportedEncodingException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 import java.nio.charset.Charset;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
 import java.text.SimpleDateFormat;
 import java.util.Date;
 import java.util.Locale;
 import java.util.Objects;
 import java.util.TimeZone;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
 
 import org.apache.catalina.LifecycleException;
 import org.apache.juli.logging.Log;
 import org.apache.juli.logging.LogFactory;
 import org.apache.tomcat.util.ExceptionUtils;
 import org.apache.tomcat.util.buf.B2CConverter;
+import org.apache.tomcat.util.collections.MpscRingBuffer;
 
 
 /**
@@ -56,11 +63,20 @@ import org.apache.tomcat.util.buf.B2CConverter;
  * For JMX junkies, a public method called <code>rotate</code> has been made available to allow you to tell this
  * instance to move the existing log file to somewhere else and start writing a new log file.
  * </p>
+ * <p>
+ * If <code>asyncLog</code> is enabled, request threads only format and encode the log entries and add them to a
+ * bounded, lock-free queue. A dedicated background thread removes the entries from the queue and writes them to the
+ * log file in batches. The <code>asyncLogOverflowPolicy</code> controls what happens when the queue is full.
+ * </p>
  */
 public class AccessLogValve extends AbstractAccessLogValve {
 
     private static final Log log = LogFactory.getLog(AccessLogValve.class);
 
+    private static final int ASYNC_WRITE_BUFFER_SIZE = 64 * 1024;
+    private static final long ASYNC_WRITER_IDLE_NANOS = TimeUnit.SECONDS.toNanos(1);
+    private static final long ASYNC_BLOCK_NANOS = TimeUnit.MICROSECONDS.toNanos(100);
+
     // ------------------------------------------------------ Constructor
     public AccessLogValve() {
         super();
@@ -154,6 +170,38 @@ public class AccessLogValve extends AbstractAccessLogValve {
     private int maxDays = -1;
     private volatile boolean checkForOldLogs = false;
 
+    /**
+     * The character set used to encode log entries, set when the log file is opened.
+     */
+    private volatile Charset charset = StandardCharsets.UTF_8;
+
+    /**
+     * Should log entries be written to the log file by a background thread?
+     */
+    private boolean asyncLog = false;
+
+    /**
+     * The maximum number of log entries waiting to be written by the background thread.
+     */
+    private int asyncLogQueueSize = 8192;
+
+    /**
+     * What to do with a log entry when the queue of entries waiting to be written is full.
+     */
+    private AsyncOverflowPolicy asyncLogOverflowPolicy = AsyncOverflowPolicy.BLOCK;
+
+    /**
+     * The channel used to write to the current log file when logging asynchronously.
+     */
+    protected FileChannel channel = null;
+
+    private volatile MpscRingBuffer<byte[]> asyncLogQueue = null;
+    private volatile Thread asyncWriterThread = null;
+    private volatile boolean asyncWriterRunning = false;
+    private volatile boolean asyncWriterWaiting = false;
+    private final LongAdder asyncLogDroppedCount = new LongAdder();
+    private long asyncLogDroppedReported = 0;
+
     // ------------------------------------------------------------- Properties
 
 
@@ -349,6 +397,98 @@ public class AccessLogValve extends AbstractAccessLogValve {
         }
     }
 
+    /**
+     * Are log entries written to the log file by a background thread?
+     *
+     * @return <code>true</code> if log entries are written asynchronously
+     */
+    public boolean isAsyncLog() {
+        return asyncLog;
+    }
+
+
+    /**
+     * Configure whether log entries are written to the log file by a background thread. Changes take effect when the
+     * valve is next started.
+     *
+     * @param asyncLog <code>true</code> to write log entries asynchronously
+     */
+    public void setAsyncLog(boolean asyncLog) {
+        this.asyncLog = asyncLog;
+    }
+
+
+    /**
+     * @return the maximum number of log entries waiting to be written when logging asynchronously
+     */
+    public int getAsyncLogQueueSize() {
+        return asyncLogQueueSize;
+    }
+
+
+    /**
+     * Set the maximum number of log entries waiting to be written when logging asynchronously. The value will be
+     * rounded up to the next power of two. Changes take effect when the valve is next started.
+     *
+     * @param asyncLogQueueSize The maximum number of log entries
+     */
+    public void setAsyncLogQueueSize(int asyncLogQueueSize) {
+        this.asyncLogQueueSize = asyncLogQueueSize;
+    }
+
+
+    /**
+     * @return the policy applied when the queue of log entries waiting to be written is full
+     */
+    public String getAsyncLogOverflowPolicy() {
+        return asyncLogOverflowPolicy.name().toLowerCase(Locale.ENGLISH);
+    }
+
+
+    /**
+     * Set the policy applied when the queue of log entries waiting to be written is full. The supported values are:
+     * <ul>
+     * <li><code>block</code> - the request thread waits until there is space in the queue</li>
+     * <li><code>drop</code> - the log entry is discarded and a warning with the number of discarded entries is logged
+     * periodically</li>
+     * <li><code>count</code> - the log entry is discarded and the number of discarded entries is only reported via
+     * {@link #getAsyncLogDroppedCount()}</li>
+     * </ul>
+     *
+     * @param asyncLogOverflowPolicy The name of the policy
+     */
+    public void setAsyncLogOverflowPolicy(String asyncLogOverflowPolicy) {
+        try {
+            this.asyncLogOverflowPolicy =
+                    AsyncOverflowPolicy.valueOf(asyncLogOverflowPolicy.trim().toUpperCase(Locale.ENGLISH));
+        } catch (IllegalArgumentException | NullPointerException e) {
+            throw new IllegalArgumentException(
+                    sm.getString("accessLogValve.invalidOverflowPolicy", asyncLogOverflowPolicy), e);
+        }
+    }
+
+
+    /**
+     * @return the number of log entries waiting to be written by the background thread
+     */
+    public int getAsyncLogQueueDepth() {
+        MpscRingBuffer<byte[]> queue = asyncLogQueue;
+        if (queue == null) {
+            return 0;
+        }
+        return queue.size();
+    }
+
+
+    /**
+     * @return the number of log entries that have been discarded because the queue of log entries waiting to be
+     *             written was full
+     */
+    public long getAsyncLogDroppedCount() {
+        return asyncLogDroppedCount.sum();
+    }
+
+
     // --------------------------------------------------------- Public Methods
 
     /**
@@ -360,6 +500,15 @@ public class AccessLogValve extends AbstractAccessLogValve {
             writer.flush();
         }
 
+        if (asyncLogOverflowPolicy == AsyncOverflowPolicy.DROP) {
+            long dropped = asyncLogDroppedCount.sum();
+            if (dropped > asyncLogDroppedReported) {
+                log.warn(sm.getString("accessLogValve.asyncDropped", Long.valueOf(dropped - asyncLogDroppedReported),
+                        Long.valueOf(dropped)));
+                asyncLogDroppedReported = dropped;
+            }
+        }
+
         int maxDays = this.maxDays;
         String prefix = this.prefix;
         String suffix = this.suffix;
@@ -529,11 +678,20 @@ public class AccessLogValve extends AbstractAccessLogValve {
      * @param rename Rename file to final name after closing
      */
     private synchronized void close(boolean rename) {
-        if (writer == null) {
+        if (writer == null && channel == null) {
             return;
         }
-        writer.flush();
-        writer.close();
+        if (writer != null) {
+            writer.flush();
+            writer.close();
+        }
+        if (channel != null) {
+            try {
+                channel.close();
+            } catch (IOException ioe) {
+                log.info(sm.getString("accessLogValve.closeFail"), ioe);
+            }
+        }
         if (rename && renameOnRotate) {
             File newLogFile = getLogFile(true);
             if (!newLogFile.exists()) {
@@ -550,6 +708,7 @@ public class AccessLogValve extends AbstractAccessLogValve {
             }
         }
         writer = null;
+        channel = null;
         dateStamp = "";
         currentLogFile = null;
     }
@@ -558,8 +717,53 @@ public class AccessLogValve extends AbstractAccessLogValve {
     @Override
     public void log(CharArrayWriter message) {
 
+        MpscRingBuffer<byte[]> queue = asyncLogQueue;
+        if (queue != null) {
+            message.append(System.lineSeparator());
+            enqueue(queue, message.toString().getBytes(charset));
+            return;
+        }
+
         rotate();
+        checkLogFile();
 
+        // Log this message
+        try {
+            message.write(System.lineSeparator());
+            synchronized (this) {
+                if (writer != null) {
+                    message.writeTo(writer);
+                    if (!buffered) {
+                        writer.flush();
+                    }
+                }
+            }
+        } catch (IOException ioe) {
+            log.warn(sm.getString("accessLogValve.writeFail", message.toString()), ioe);
+        }
+    }
+
+
+    private void enqueue(MpscRingBuffer<byte[]> queue, byte[] entry) {
+        while (!queue.offer(entry)) {
+            if (asyncLogOverflowPolicy != AsyncOverflowPolicy.BLOCK || !asyncWriterRunning) {
+                asyncLogDroppedCount.increment();
+                return;
+            }
+            // Wait for the writer to make space
+            LockSupport.unpark(asyncWriterThread);
+            LockSupport.parkNanos(this, ASYNC_BLOCK_NANOS);
+        }
+        if (asyncWriterWaiting) {
+            LockSupport.unpark(asyncWriterThread);
+        }
+    }
+
+
+    /**
+     * Re-open the log file if it has been removed since it was opened.
+     */
+    private void checkLogFile() {
         /* In case something external rotated the file instead */
         if (checkExists) {
             synchronized (this) {
@@ -578,21 +782,6 @@ public class AccessLogValve extends AbstractAccessLogValve {
                 }
             }
         }
-
-        // Log this message
-        try {
-            message.write(System.lineSeparator());
-            synchronized (this) {
-                if (writer != null) {
-                    message.writeTo(writer);
-                    if (!buffered) {
-                        writer.flush();
-                    }
-                }
-            }
-        } catch (IOException ioe) {
-            log.warn(sm.getString("accessLogValve.writeFail", message.toString()), ioe);
-        }
     }
 
 
@@ -615,15 +804,21 @@ public class AccessLogValve extends AbstractAccessLogValve {
         if (charset == null) {
             charset = StandardCharsets.UTF_8;
         }
+        this.charset = charset;
 
         try {
-            writer = new PrintWriter(
-                    new BufferedWriter(new OutputStreamWriter(new FileOutputStream(pathname, true), charset), 128000),
-                    false);
+            if (asyncLogQueue != null) {
+                channel = FileChannel.open(pathname.toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                        StandardOpenOption.APPEND);
+            } else {
+                writer = new PrintWriter(new BufferedWriter(
+                        new OutputStreamWriter(new FileOutputStream(pathname, true), charset), 128000), false);
+            }
 
             currentLogFile = pathname;
         } catch (IOException ioe) {
             writer = null;
+            channel = null;
             currentLogFile = null;
             log.error(sm.getString("accessLogValve.openFail", pathname, System.getProperty("user.name")), ioe);
         }
@@ -651,8 +846,19 @@ public class AccessLogValve extends AbstractAccessLogValve {
         if (rotatable && renameOnRotate) {
             restore();
         }
+        if (asyncLog) {
+            asyncLogQueue = new MpscRingBuffer<>(asyncLogQueueSize);
+        }
         open();
 
+        if (asyncLog) {
+            asyncWriterRunning = true;
+            Thread thread = new Thread(new AsyncWriter(), "AccessLogWriter[" + toString() + "]");
+            thread.setDaemon(true);
+            asyncWriterThread = thread;
+            thread.start();
+        }
+
         super.startInternal();
     }
 
@@ -665,9 +871,115 @@ public class AccessLogValve extends AbstractAccessLogValve {
      *                                   used
      */
     @Override
-    protected void stopInternal() throws LifecycleException {
+    protected synchronized void stopInternal() throws LifecycleException {
 
         super.stopInternal();
+
+        Thread thread = asyncWriterThread;
+        if (thread != null) {
+            // The writer thread writes any remaining entries before it exits
+            asyncWriterRunning = false;
+            LockSupport.unpark(thread);
+            try {
+                /*
+                 * The writer needs the lock on this valve to write to the file and the lock is held by the caller of
+                 * stop() so use wait() to release it while waiting for the writer to finish.
+                 */
+                while (thread.isAlive()) {
+                    wait(10);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            asyncWriterThread = null;
+            asyncLogQueue = null;
+        }
+
         close(false);
     }
+
+
+    private enum AsyncOverflowPolicy {
+        BLOCK,
+        DROP,
+        COUNT
+    }
+
+
+    /**
+     * Removes log entries from the queue and writes them to the log file in batches.
+     */
+    private class AsyncWriter implements Runnable {
+
+        private final ByteBuffer buffer = ByteBuffer.allocateDirect(ASYNC_WRITE_BUFFER_SIZE);
+
+        @Override
+        public void run() {
+            MpscRingBuffer<byte[]> queue = asyncLogQueue;
+            while (true) {
+                // Read the flag before draining the queue so no entries are left behind when stopping
+                boolean running = asyncWriterRunning;
+                boolean drained;
+                try {
+                    drained = drain(queue);
+                } catch (Throwable t) {
+                    ExceptionUtils.handleThrowable(t);
+                    log.error(sm.getString("accessLogValve.asyncWriterError"), t);
+                    buffer.clear();
+                    drained = true;
+                }
+                if (!drained) {
+                    if (!running && queue.isEmpty()) {
+                        break;
+                    }
+                    asyncWriterWaiting = true;
+                    if (queue.isEmpty()) {
+                        LockSupport.parkNanos(this, ASYNC_WRITER_IDLE_NANOS);
+                    } else {
+                        // A producer has claimed a slot but not yet added its entry
+                        Thread.onSpinWait();
+                    }
+                    asyncWriterWaiting = false;
+                }
+            }
+        }
+
+        /*
+         * Returns true if any entries were removed from the queue.
+         */
+        private boolean drain(MpscRingBuffer<byte[]> queue) {
+            byte[] entry = queue.poll();
+            if (entry == null) {
+                return false;
+            }
+            rotate();
+            checkLogFile();
+            do {
+                if (entry.length > buffer.remaining()) {
+                    write(buffer.flip());
+                    buffer.clear();
+                    if (entry.length > buffer.capacity()) {
+                        write(ByteBuffer.wrap(entry));
+                        continue;
+                    }
+                }
+                buffer.put(entry);
+            } while ((entry = queue.poll()) != null);
+            write(buffer.flip());
+            buffer.clear();
+            return true;
+        }
+
+        private void write(ByteBuffer data) {
+            synchronized (AccessLogValve.this) {
+                try {
+                    while (channel != null && data.hasRemaining()) {
+                        channel.write(data);
+                    }
+                } catch (IOException ioe) {
+                    log.warn(sm.getString("accessLogValve.asyncWriteFail", Integer.valueOf(data.remaining())), ioe);
+                }
+            }
+        }
+    }
 }
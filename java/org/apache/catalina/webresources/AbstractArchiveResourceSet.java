@@ -21,6 +21,7 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.net.URL;
 import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.Map;
 import java.util.Set;
 import java.util.jar.JarEntry;
@@ -281,6 +282,36 @@ public abstract class AbstractArchiveResourceSet extends AbstractResourceSet {
 
     protected abstract boolean isMultiRelease();
 
+    /*
+     * Returns the web application paths, each ending in '/', of the directories that directly contain the entries of
+     * this archive that are visible via this resource set. Returns null if the entries visible via this resource set
+     * depend on the runtime version as the entries of a multi-release archive can not be indexed by name.
+     */
+    Set<String> getEntryDirectories() {
+        if (isMultiRelease()) {
+            return null;
+        }
+        String prefix = getInternalPath().isEmpty() ? "" : getInternalPath().substring(1) + '/';
+        String webAppMount = getWebAppMount();
+        Set<String> result = new HashSet<>();
+        for (String name : getArchiveEntries(false).keySet()) {
+            if (!name.startsWith(prefix) || name.length() == prefix.length()) {
+                continue;
+            }
+            int end = name.length();
+            if (name.charAt(end - 1) == '/') {
+                end--;
+            }
+            int index = name.lastIndexOf('/', end - 1);
+            if (index < prefix.length()) {
+                result.add(webAppMount + '/');
+            } else {
+                result.add(webAppMount + '/' + name.substring(prefix.length(), index + 1));
+            }
+        }
+        return result;
+    }
+
     protected abstract WebResource createArchiveResource(JarEntry jarEntry, String webAppPath, Manifest manifest);
 
     @Override
@@ -16,8 +16,11 @@
  */
 package org.apache.catalina.webresources;
 
+import java.util.ArrayList;
 import java.util.Comparator;
 import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
 import java.util.TreeSet;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
@@ -32,6 +35,22 @@ import org.apache.tomcat.util.res.StringManager;
 
 public class Cache {
 
+    /**
+     * The policies that may be used to select the entries to evict from the cache.
+     */
+    public enum EvictionPolicy {
+        /**
+         * Window TinyLFU. Entries are admitted to and evicted from the cache based on how recently and how frequently
+         * they have been requested.
+         */
+        TINYLFU,
+        /**
+         * Entries that have not been revalidated within the TTL are evicted, with no regard to how often they are
+         * requested.
+         */
+        TTL
+    }
+
     private static final Log log = LogFactory.getLog(Cache.class);
     protected static final StringManager sm = StringManager.getManager(Cache.class);
 
@@ -43,14 +62,22 @@ public class Cache {
 
     private final StandardRoot root;
     private final AtomicLong size = new AtomicLong(0);
+    private final AtomicLong mappedSize = new AtomicLong(0);
 
     private long ttl = 5000;
     private long maxSize = 10 * 1024 * 1024;
     private int objectMaxSize = (int) maxSize / OBJECT_MAX_SIZE_FACTOR;
+    private long mappedMaxSize = 0;
     private CacheStrategy cacheStrategy;
 
     private final LongAdder lookupCount = new LongAdder();
     private final LongAdder hitCount = new LongAdder();
+    private final LongAdder sizeEvictionCount = new LongAdder();
+    private final LongAdder admissionRejectionCount = new LongAdder();
+    private final LongAdder invalidationCount = new LongAdder();
+
+    // Null if the TTL eviction policy is in use
+    private volatile TinyLfuPolicy policy = new TinyLfuPolicy(maxSize);
 
     private final ConcurrentMap<String,CachedResource> resourceCache = new ConcurrentHashMap<>();
 
@@ -97,28 +124,7 @@ public class Cache {
 
                 // Even if the resource content larger than objectMaxSizeBytes
                 // there is still benefit in caching the resource metadata
-
-                long delta = cacheEntry.getSize();
-                long result = size.addAndGet(delta);
-                if (log.isDebugEnabled()) {
-                    log.debug(sm.getString("cache.sizeTracking.add", Long.toString(delta), cacheEntry, path,
-                            Long.toString(result)));
-                }
-
-                if (size.get() > maxSize) {
-                    // Process resources unordered for speed. Trades cache
-                    // efficiency (younger entries may be evicted before older
-                    // ones) for speed since this is on the critical path for
-                    // request processing
-                    long targetSize = maxSize * (100 - TARGET_FREE_PERCENT_GET) / 100;
-                    long newSize = evict(targetSize, resourceCache.values().iterator());
-                    if (newSize > maxSize) {
-                        // Unable to create sufficient space for this resource
-                        // Remove it from the cache
-                        removeCacheEntry(path);
-                        log.warn(sm.getString("cache.addFail", path, root.getContext().getName()));
-                    }
-                }
+                addCacheEntry(cacheEntry);
             } else {
                 // Another thread added the entry to the cache
                 if (cacheEntry.usesClassLoaderResources() != useClassLoaderResources) {
@@ -144,6 +150,10 @@ public class Cache {
             }
         } else {
             hitCount.increment();
+            TinyLfuPolicy policy = this.policy;
+            if (policy != null) {
+                policy.recordHit(cacheEntry);
+            }
         }
 
         return cacheEntry;
@@ -178,27 +188,7 @@ public class Cache {
                 cacheEntry.validateResources(useClassLoaderResources);
 
                 // Content will not be cached but we still need metadata size
-                long delta = cacheEntry.getSize();
-                long result = size.addAndGet(delta);
-                if (log.isDebugEnabled()) {
-                    log.debug(sm.getString("cache.sizeTracking.add", Long.toString(delta), cacheEntry, path,
-                            Long.toString(result)));
-                }
-
-                if (size.get() > maxSize) {
-                    // Process resources unordered for speed. Trades cache
-                    // efficiency (younger entries may be evicted before older
-                    // ones) for speed since this is on the critical path for
-                    // request processing
-                    long targetSize = maxSize * (100 - TARGET_FREE_PERCENT_GET) / 100;
-                    long newSize = evict(targetSize, resourceCache.values().iterator());
-                    if (newSize > maxSize) {
-                        // Unable to create sufficient space for this resource
-                        // Remove it from the cache
-                        removeCacheEntry(path);
-                        log.warn(sm.getString("cache.addFail", path));
-                    }
-                }
+                addCacheEntry(cacheEntry);
             } else {
                 // Another thread added the entry to the cache
                 // Make sure it is validated
@@ -206,23 +196,84 @@ public class Cache {
             }
         } else {
             hitCount.increment();
+            TinyLfuPolicy policy = this.policy;
+            if (policy != null) {
+                policy.recordHit(cacheEntry);
+            }
         }
 
         return cacheEntry.getWebResources();
     }
 
-    protected void backgroundProcess() {
-        // Create an ordered set of all cached resources with the least recently
-        // used first. This is a background process so we can afford to take the
-        // time to order the elements first
-        TreeSet<CachedResource> orderedResources =
-                new TreeSet<>(Comparator.comparingLong(CachedResource::getNextCheck));
-        orderedResources.addAll(resourceCache.values());
+    /*
+     * Accounts for an entry that has just been added to the cache and evicts entries if the cache is now too large.
+     */
+    private void addCacheEntry(CachedResource cacheEntry) {
+        String path = cacheEntry.getWebappPath();
+        long delta = cacheEntry.getSize();
+        long result = size.addAndGet(delta);
+        if (log.isDebugEnabled()) {
+            log.debug(sm.getString("cache.sizeTracking.add", Long.toString(delta), cacheEntry, path,
+                    Long.toString(result)));
+        }
 
-        Iterator<CachedResource> iter = orderedResources.iterator();
+        TinyLfuPolicy policy = this.policy;
+        if (policy != null) {
+            List<CachedResource> evicted = new ArrayList<>();
+            List<CachedResource> rejected = new ArrayList<>();
+            policy.recordInsert(cacheEntry, delta, evicted, rejected);
+            for (CachedResource victim : evicted) {
+                if (removeCacheEntry(victim)) {
+                    sizeEvictionCount.increment();
+                }
+            }
+            for (CachedResource candidate : rejected) {
+                if (removeCacheEntry(candidate)) {
+                    admissionRejectionCount.increment();
+                }
+            }
+        }
+
+        if (size.get() > maxSize) {
+            long targetSize = maxSize * (100 - TARGET_FREE_PERCENT_GET) / 100;
+            long newSize;
+            if (policy == null) {
+                // Process resources unordered for speed. Trades cache
+                // efficiency (younger entries may be evicted before older
+                // ones) for speed since this is on the critical path for
+                // request processing
+                newSize = evict(targetSize, resourceCache.values().iterator());
+            } else {
+                newSize = evict(targetSize, policy);
+            }
+            if (newSize > maxSize) {
+                // Unable to create sufficient space for this resource
+                // Remove it from the cache
+                if (removeCacheEntry(cacheEntry)) {
+                    sizeEvictionCount.increment();
+                }
+                log.warn(sm.getString("cache.addFail", path, root.getContext().getName()));
+            }
+        }
+    }
 
+    protected void backgroundProcess() {
         long targetSize = maxSize * (100 - TARGET_FREE_PERCENT_BACKGROUND) / 100;
-        long newSize = evict(targetSize, iter);
+        long newSize;
+
+        TinyLfuPolicy policy = this.policy;
+        if (policy == null) {
+            // Create an ordered set of all cached resources with the least recently
+            // used first. This is a background process so we can afford to take the
+            // time to order the elements first
+            TreeSet<CachedResource> orderedResources =
+                    new TreeSet<>(Comparator.comparingLong(CachedResource::getNextCheck));
+            orderedResources.addAll(resourceCache.values());
+
+            newSize = evict(targetSize, orderedResources.iterator());
+        } else {
+            newSize = evict(targetSize, policy);
+        }
 
         if (newSize > targetSize) {
             log.info(sm.getString("cache.backgroundEvictFail", Long.valueOf(TARGET_FREE_PERCENT_BACKGROUND),
@@ -253,7 +304,9 @@ public class Cache {
             }
 
             // Remove the entry from the cache
-            removeCacheEntry(resource.getWebappPath());
+            if (removeCacheEntry(resource)) {
+                sizeEvictionCount.increment();
+            }
 
             newSize = size.get();
         }
@@ -261,20 +314,127 @@ public class Cache {
         return newSize;
     }
 
+    private long evict(long targetSize, TinyLfuPolicy policy) {
+        long newSize = size.get();
+        List<CachedResource> victims = new ArrayList<>();
+        while (newSize > targetSize) {
+            policy.selectVictims(newSize - targetSize, victims);
+            if (victims.isEmpty()) {
+                break;
+            }
+            for (CachedResource victim : victims) {
+                if (removeCacheEntry(victim)) {
+                    sizeEvictionCount.increment();
+                }
+            }
+            victims.clear();
+            newSize = size.get();
+        }
+        return newSize;
+    }
+
+    /*
+     * Removes the entry for the given path because the resource has changed or is no longer valid.
+     */
     void removeCacheEntry(String path) {
         // With concurrent calls for the same path, the entry is only removed
         // once and the cache size is only updated (if required) once.
         CachedResource cachedResource = resourceCache.remove(path);
         if (cachedResource != null) {
-            long delta = cachedResource.getSize();
-            long result = size.addAndGet(-delta);
-            if (log.isDebugEnabled()) {
-                log.debug(sm.getString("cache.sizeTracking.remove", Long.toString(delta), cachedResource, path,
-                        Long.toString(result)));
+            invalidationCount.increment();
+            entryRemoved(cachedResource);
+        }
+    }
+
+    /*
+     * Removes the entries for all the paths that start with the given prefix.
+     */
+    void removeCacheEntries(String pathPrefix) {
+        for (String path : resourceCache.keySet()) {
+            if (path.startsWith(pathPrefix)) {
+                removeCacheEntry(path);
             }
         }
     }
 
+    /*
+     * Removes the given entry if, and only if, it is still the entry for its path.
+     */
+    private boolean removeCacheEntry(CachedResource cachedResource) {
+        if (resourceCache.remove(cachedResource.getWebappPath(), cachedResource)) {
+            entryRemoved(cachedResource);
+            return true;
+        }
+        return false;
+    }
+
+    private void entryRemoved(CachedResource cachedResource) {
+        long delta;
+        long mappedDelta;
+        synchronized (cachedResource) {
+            delta = cachedResource.getSize() + cachedResource.getCompressedSize();
+            mappedDelta = cachedResource.getMappedSize();
+        }
+        if (mappedDelta > 0) {
+            mappedSize.addAndGet(-mappedDelta);
+        }
+        long result = size.addAndGet(-delta);
+        if (log.isDebugEnabled()) {
+            log.debug(sm.getString("cache.sizeTracking.remove", Long.toString(delta), cachedResource,
+                    cachedResource.getWebappPath(), Long.toString(result)));
+        }
+        TinyLfuPolicy policy = this.policy;
+        if (policy != null) {
+            policy.recordRemove(cachedResource);
+        }
+    }
+
+    /*
+     * Called, with the lock on the cache entry held, when a compressed variant is about to be added to a cache entry.
+     * Returns false if the compressed variant should not be retained because the entry is no longer in the cache or
+     * retaining the variant would exceed the maximum size of the cache. Compressed variants never trigger eviction as
+     * they can always be re-created from the cached content.
+     */
+    boolean addCompressedSize(CachedResource cachedResource, long delta) {
+        if (resourceCache.get(cachedResource.getWebappPath()) != cachedResource) {
+            return false;
+        }
+        if (size.get() + delta > maxSize) {
+            return false;
+        }
+        long result = size.addAndGet(delta);
+        if (log.isDebugEnabled()) {
+            log.debug(sm.getString("cache.sizeTracking.add", Long.toString(delta), cachedResource,
+                    cachedResource.getWebappPath(), Long.toString(result)));
+        }
+        return true;
+    }
+
+    /*
+     * Called, with the lock on the cache entry held, before the content of a cache entry is mapped into memory. Returns
+     * false if the content should not be mapped because the entry is no longer in the cache or mapping the content
+     * would exceed the maximum size of mapped content. Mapped content is not counted against the maximum size of the
+     * cache as it does not occupy the heap and never triggers eviction.
+     */
+    boolean addMappedSize(CachedResource cachedResource, long delta) {
+        if (resourceCache.get(cachedResource.getWebappPath()) != cachedResource) {
+            return false;
+        }
+        if (mappedSize.addAndGet(delta) > mappedMaxSize) {
+            mappedSize.addAndGet(-delta);
+            return false;
+        }
+        return true;
+    }
+
+    /*
+     * Called, with the lock on the cache entry held, if mapping the content of the cache entry failed after the size
+     * of the mapping was added.
+     */
+    void removeMappedSize(long delta) {
+        mappedSize.addAndGet(-delta);
+    }
+
     public CacheStrategy getCacheStrategy() {
         return cacheStrategy;
     }
@@ -299,6 +459,32 @@ public class Cache {
     public void setMaxSize(long maxSize) {
         // Internally bytes, externally kilobytes
         this.maxSize = maxSize * 1024;
+        TinyLfuPolicy policy = this.policy;
+        if (policy != null) {
+            policy.setMaxSize(this.maxSize);
+        }
+    }
+
+    public String getEvictionPolicy() {
+        return policy == null ? EvictionPolicy.TTL.name() : EvictionPolicy.TINYLFU.name();
+    }
+
+    /**
+     * Set the policy used to select the entries to evict from the cache. Changing the policy clears the cache.
+     *
+     * @param evictionPolicy The name of the {@link EvictionPolicy}, ignoring case
+     */
+    public void setEvictionPolicy(String evictionPolicy) {
+        EvictionPolicy newPolicy = EvictionPolicy.valueOf(evictionPolicy.toUpperCase(Locale.ENGLISH));
+        if (newPolicy.name().equals(getEvictionPolicy())) {
+            return;
+        }
+        TinyLfuPolicy oldPolicy = policy;
+        policy = newPolicy == EvictionPolicy.TTL ? null : new TinyLfuPolicy(maxSize);
+        if (oldPolicy != null) {
+            oldPolicy.clear();
+        }
+        clear();
     }
 
     public long getLookupCount() {
@@ -309,6 +495,39 @@ public class Cache {
         return hitCount.sum();
     }
 
+    /**
+     * @return the proportion of lookups that were served from the cache or zero if there have been no lookups
+     */
+    public double getHitRatio() {
+        long lookups = lookupCount.sum();
+        if (lookups == 0) {
+            return 0;
+        }
+        return (double) hitCount.sum() / lookups;
+    }
+
+    /**
+     * @return the number of entries evicted to keep the cache within its maximum size
+     */
+    public long getSizeEvictionCount() {
+        return sizeEvictionCount.sum();
+    }
+
+    /**
+     * @return the number of entries evicted because the eviction policy did not admit them to the main region of the
+     *             cache
+     */
+    public long getAdmissionRejectionCount() {
+        return admissionRejectionCount.sum();
+    }
+
+    /**
+     * @return the number of entries removed because the resource changed or was found to be stale
+     */
+    public long getInvalidationCount() {
+        return invalidationCount.sum();
+    }
+
     public void setObjectMaxSize(int objectMaxSize) {
         if (objectMaxSize * 1024L > Integer.MAX_VALUE) {
             log.warn(sm.getString("cache.objectMaxSizeTooBigBytes", Integer.valueOf(objectMaxSize)));
@@ -340,12 +559,31 @@ public class Cache {
         }
     }
 
+    public long getMappedMaxSize() {
+        // Internally bytes, externally kilobytes
+        return mappedMaxSize / 1024;
+    }
+
+    public void setMappedMaxSize(long mappedMaxSize) {
+        // Internally bytes, externally kilobytes
+        this.mappedMaxSize = mappedMaxSize * 1024;
+    }
+
     public void clear() {
         resourceCache.clear();
         size.set(0);
+        mappedSize.set(0);
+        TinyLfuPolicy policy = this.policy;
+        if (policy != null) {
+            policy.clear();
+        }
     }
 
     public long getSize() {
         return size.get() / 1024;
     }
+
+    public long getMappedSize() {
+        return mappedSize.get() / 1024;
+    }
 }
@@ -0,0 +1,196 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.catalina.webresources;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.net.URL;
+import java.security.cert.Certificate;
+import java.util.jar.Manifest;
+
+import org.apache.catalina.WebResource;
+import org.apache.catalina.WebResourceRoot;
+import org.apache.tomcat.util.buf.HexUtils;
+import org.apache.tomcat.util.security.ConcurrentMessageDigest;
+
+/**
+ * A compressed variant of a {@link CachedResource}. The compressed content is held in memory and is cached with the
+ * original resource so it is discarded when the original resource is removed from the cache. Metadata that does not
+ * depend on the content is obtained from the original resource. The variant has its own content length and ETags.
+ */
+public class CachedCompressedResource implements WebResource {
+
+    private final CachedResource cachedResource;
+    private final String encoding;
+    private final byte[] content;
+
+    private volatile String cachedETag = null;
+    private volatile String cachedStrongETag = null;
+
+
+    CachedCompressedResource(CachedResource cachedResource, String encoding, byte[] content) {
+        this.cachedResource = cachedResource;
+        this.encoding = encoding;
+        this.content = content;
+    }
+
+
+    /**
+     * @return the HTTP content coding used to compress the content of this resource
+     */
+    public String getEncoding() {
+        return encoding;
+    }
+
+
+    @Override
+    public long getLastModified() {
+        return cachedResource.getLastModified();
+    }
+
+    @Override
+    public String getLastModifiedHttp() {
+        return cachedResource.getLastModifiedHttp();
+    }
+
+    @Override
+    public boolean exists() {
+        return cachedResource.exists();
+    }
+
+    @Override
+    public boolean isVirtual() {
+        return cachedResource.isVirtual();
+    }
+
+    @Override
+    public boolean isDirectory() {
+        return false;
+    }
+
+    @Override
+    public boolean isFile() {
+        return true;
+    }
+
+    @Override
+    public boolean delete() {
+        // The variant only exists in the cache
+        return false;
+    }
+
+    @Override
+    public String getName() {
+        return cachedResource.getName();
+    }
+
+    @Override
+    public long getContentLength() {
+        return content.length;
+    }
+
+    @Override
+    public String getCanonicalPath() {
+        // There is no file with the compressed content
+        return null;
+    }
+
+    @Override
+    public boolean canRead() {
+        return cachedResource.canRead();
+    }
+
+    @Override
+    public String getWebappPath() {
+        return cachedResource.getWebappPath();
+    }
+
+    @Override
+    public String getETag() {
+        if (cachedETag == null) {
+            String eTag = cachedResource.getETag();
+            if (eTag != null) {
+                // Add the encoding to the opaque tag so the variant has a different ETag to the original resource
+                if (eTag.endsWith("\"")) {
+                    cachedETag = eTag.substring(0, eTag.length() - 1) + "-" + encoding + "\"";
+                } else {
+                    cachedETag = eTag + "-" + encoding;
+                }
+            }
+        }
+        return cachedETag;
+    }
+
+    @Override
+    public String getStrongETag() {
+        if (cachedStrongETag == null) {
+            cachedStrongETag = "\"" + HexUtils.toHexString(ConcurrentMessageDigest.digestSHA256(content)) + "\"";
+        }
+        return cachedStrongETag;
+    }
+
+    @Override
+    public void setMimeType(String mimeType) {
+        cachedResource.setMimeType(mimeType);
+    }
+
+    @Override
+    public String getMimeType() {
+        return cachedResource.getMimeType();
+    }
+
+    @Override
+    public InputStream getInputStream() {
+        return new ByteArrayInputStream(content);
+    }
+
+    @Override
+    public byte[] getContent() {
+        return content;
+    }
+
+    @Override
+    public long getCreation() {
+        return cachedResource.getCreation();
+    }
+
+    @Override
+    public URL getURL() {
+        // A URL would provide access to the uncompressed content
+        return null;
+    }
+
+    @Override
+    public URL getCodeBase() {
+        return cachedResource.getCodeBase();
+    }
+
+    @Override
+    public WebResourceRoot getWebResourceRoot() {
+        return cachedResource.getWebResourceRoot();
+    }
+
+    @Override
+    public Certificate[] getCertificates() {
+        return cachedResource.getCertificates();
+    }
+
+    @Override
+    public Manifest getManifest() {
+        return cachedResource.getManifest();
+    }
+}
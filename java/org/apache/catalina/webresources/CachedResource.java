@@ -17,8 +17,10 @@
 package org.apache.catalina.webresources;
 
 import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
 import java.net.JarURLConnection;
 import java.net.MalformedURLException;
 import java.net.URI;
@@ -26,18 +28,23 @@ import java.net.URISyntaxException;
 import java.net.URL;
 import java.net.URLConnection;
 import java.net.URLStreamHandler;
+import java.nio.ByteBuffer;
 import java.nio.charset.Charset;
 import java.security.Permission;
 import java.security.cert.Certificate;
 import java.text.Collator;
 import java.util.Arrays;
 import java.util.Locale;
+import java.util.Map;
 import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.jar.JarFile;
 import java.util.jar.Manifest;
 
 import org.apache.catalina.WebResource;
 import org.apache.catalina.WebResourceRoot;
+import org.apache.coyote.CompressionCodec;
 import org.apache.juli.logging.Log;
 import org.apache.juli.logging.LogFactory;
 import org.apache.tomcat.util.buf.HexUtils;
@@ -78,6 +85,20 @@ public class CachedResource implements WebResource {
     private volatile Long cachedContentLength = null;
     private volatile String cachedStrongETag = null;
 
+    // Guarded by this for writes
+    private final Map<String,CachedCompressedResource> compressedResources = new ConcurrentHashMap<>();
+    private long compressedSize = 0;
+    // Encodings for which compression did not reduce the size of the content
+    private final Set<String> incompressibleEncodings = ConcurrentHashMap.newKeySet();
+
+    // Guarded by this for writes
+    private volatile ByteBuffer mappedContent = null;
+    private long mappedSize = 0;
+    private boolean mappingFailed = false;
+
+    // Guarded by the lock of the eviction policy of the cache
+    TinyLfuPolicy.Node policyNode;
+
 
     public CachedResource(Cache cache, StandardRoot root, String path, long ttl, int objectMaxSizeBytes,
             boolean usesClassLoaderResources) {
@@ -126,8 +147,9 @@ public class CachedResource implements WebResource {
             return true;
         }
 
-        // Assume resources inside WARs will not change
-        if (!root.isPackedWarFile()) {
+        // Assume resources inside WARs will not change and watched resources
+        // are removed from the cache when they change
+        if (!root.isPackedWarFile() && !root.isWatched()) {
             WebResource webResourceInternal = root.getResourceInternal(webAppPath, useClassLoaderResources);
             if (!webResource.exists() && webResourceInternal.exists()) {
                 return false;
@@ -168,8 +190,9 @@ public class CachedResource implements WebResource {
             return true;
         }
 
-        // Assume resources inside WARs will not change
-        if (root.isPackedWarFile()) {
+        // Assume resources inside WARs will not change and watched resources
+        // are removed from the cache when they change
+        if (root.isPackedWarFile() || root.isWatched()) {
             nextCheck = ttl + now;
             return true;
         } else {
@@ -402,6 +425,93 @@ public class CachedResource implements WebResource {
         return webResource.getWebResourceRoot();
     }
 
+    /**
+     * Obtain a variant of this resource with the content compressed using the given codec. The variant is created the
+     * first time it is requested and is then retained, space permitting, along with this cache entry.
+     *
+     * @param codec The codec to use to compress the content
+     *
+     * @return The compressed variant or {@code null} if the content of this resource is not cached or compression
+     *             would not reduce the size of the content
+     */
+    public CachedCompressedResource getCompressedResource(CompressionCodec codec) {
+        String encoding = codec.getEncoding();
+        CachedCompressedResource result = compressedResources.get(encoding);
+        if (result == null) {
+            if (incompressibleEncodings.contains(encoding)) {
+                return null;
+            }
+            byte[] content = getContent();
+            if (content == null) {
+                return null;
+            }
+            ByteArrayOutputStream baos = new ByteArrayOutputStream(content.length / 2);
+            try (OutputStream os = codec.createOutputStream(baos)) {
+                os.write(content);
+            } catch (IOException ioe) {
+                log.warn(sm.getString("cachedResource.compressFail", webAppPath, encoding), ioe);
+                return null;
+            }
+            result = new CachedCompressedResource(this, encoding, baos.toByteArray());
+            if (result.getContentLength() >= getContentLength()) {
+                // Not worth serving. Don't cache it and don't try again.
+                incompressibleEncodings.add(encoding);
+                return null;
+            }
+
+            synchronized (this) {
+                CachedCompressedResource existing = compressedResources.get(encoding);
+                if (existing != null) {
+                    result = existing;
+                } else if (cache.addCompressedSize(this, result.getContentLength())) {
+                    compressedResources.put(encoding, result);
+                    compressedSize += result.getContentLength();
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Obtain the content of this resource as a buffer backed by a memory mapping of the file that provides the
+     * resource. Only the content of file based resources that is too large to be cached on the heap is mapped and then
+     * only while the total size of the mapped content is within the limit configured for the cache. The mapping is
+     * created the first time it is requested and is retained along with this cache entry.
+     * <p>
+     * The file must not be truncated or rewritten in place while it is mapped. Reading a mapped page that is beyond
+     * the new end of the file triggers an {@link InternalError}.
+     *
+     * @return a new, read-only buffer containing the content of the resource or {@code null} if the content is not
+     *             mapped
+     */
+    public ByteBuffer getMappedContent() {
+        ByteBuffer result = mappedContent;
+        if (result == null) {
+            long contentLength = getContentLength();
+            if (contentLength <= objectMaxSizeBytes || !(webResource instanceof FileResource fileResource)) {
+                return null;
+            }
+            synchronized (this) {
+                result = mappedContent;
+                if (result == null) {
+                    if (mappingFailed || !cache.addMappedSize(this, contentLength)) {
+                        return null;
+                    }
+                    result = fileResource.getMappedContent();
+                    if (result == null || result.capacity() != contentLength) {
+                        // The file could not be mapped or has changed since this entry was validated
+                        cache.removeMappedSize(contentLength);
+                        mappingFailed = true;
+                        return null;
+                    }
+                    mappedSize = contentLength;
+                    mappedContent = result;
+                }
+            }
+        }
+        return result.asReadOnlyBuffer();
+    }
+
     WebResource getWebResource() {
         return webResource;
     }
@@ -431,6 +541,23 @@ public class CachedResource implements WebResource {
     }
 
 
+    /*
+     * The size of the compressed variants of this resource. Callers must hold the lock on this cache entry so the
+     * result is consistent with any compressed variants being added concurrently.
+     */
+    long getCompressedSize() {
+        return compressedSize;
+    }
+
+
+    /*
+     * The size of the mapped content of this resource. Callers must hold the lock on this cache entry.
+     */
+    long getMappedSize() {
+        return mappedSize;
+    }
+
+
     /*
      * Mimics the behaviour of FileURLConnection.getInputStream for a directory. Deliberately uses default locale.
      */
@@ -0,0 +1,151 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.catalina.webresources;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.catalina.WebResourceSet;
+
+/**
+ * An index of the resource sets that provide the resources visible to the web application class loader from the JARs
+ * in /WEB-INF/lib. The index maps each directory (i.e. package) to the resource sets that have entries in that
+ * directory so a class loader lookup only probes those resource sets rather than every JAR. Resource sets that can not
+ * be indexed, such as multi-release JARs, are probed for every lookup. The order of the resource sets is always
+ * preserved.
+ * <p>
+ * The index is immutable. It must be rebuilt if the class resource sets change.
+ */
+final class ClassResourcesIndex {
+
+    private static final String MOUNT = "/WEB-INF/classes";
+
+    private final List<WebResourceSet> unindexed = new ArrayList<>();
+    private final Map<String,List<WebResourceSet>> directories = new HashMap<>();
+
+
+    /**
+     * Build an index for the given resource sets. The entries of each archive are read in parallel if an executor is
+     * provided. The current thread always takes part in reading the entries and tasks that the executor has not
+     * started by the time the current thread runs out of work are cancelled so the index can be built even if every
+     * thread of the executor is busy.
+     *
+     * @param resourceSets The resource sets to index in the order they are searched
+     * @param executor     The executor to use to read the entries of the archives or {@code null} to read them on the
+     *                         current thread
+     *
+     * @throws Exception If the entries of an archive can not be read
+     */
+    ClassResourcesIndex(List<WebResourceSet> resourceSets, ExecutorService executor) throws Exception {
+        int size = resourceSets.size();
+        @SuppressWarnings("unchecked")
+        Set<String>[] entryDirectories = new Set[size];
+        AtomicInteger next = new AtomicInteger();
+        Runnable reader = () -> {
+            int i;
+            while ((i = next.getAndIncrement()) < size) {
+                entryDirectories[i] = getEntryDirectories(resourceSets.get(i));
+            }
+        };
+        List<Future<?>> futures = new ArrayList<>();
+        if (executor != null) {
+            int helpers = Math.min(size, Runtime.getRuntime().availableProcessors()) - 1;
+            for (int i = 0; i < helpers; i++) {
+                futures.add(executor.submit(reader));
+            }
+        }
+        try {
+            reader.run();
+        } finally {
+            for (Future<?> future : futures) {
+                future.cancel(false);
+            }
+        }
+        for (Future<?> future : futures) {
+            try {
+                future.get();
+            } catch (CancellationException e) {
+                // Never started
+            }
+        }
+
+        for (int i = 0; i < size; i++) {
+            WebResourceSet resourceSet = resourceSets.get(i);
+            Set<String> dirs = entryDirectories[i];
+            if (dirs == null) {
+                // Needs to be probed for every lookup, in order
+                unindexed.add(resourceSet);
+                for (List<WebResourceSet> list : directories.values()) {
+                    list.add(resourceSet);
+                }
+            } else {
+                for (String dir : dirs) {
+                    directories.computeIfAbsent(dir, k -> new ArrayList<>(unindexed)).add(resourceSet);
+                }
+            }
+        }
+    }
+
+
+    /**
+     * Obtain the resource sets that may contain the resource at the given path.
+     *
+     * @param path The path of the resource, relative to the root of the web application
+     *
+     * @return the resource sets that may contain the resource, in search order, or {@code null} if the path is not
+     *             covered by the index and every resource set must be searched
+     */
+    List<WebResourceSet> getResourceSets(String path) {
+        int end = path.length();
+        if (path.charAt(end - 1) == '/') {
+            end--;
+        }
+        if (end <= MOUNT.length() + 1 || !path.startsWith(MOUNT) || path.charAt(MOUNT.length()) != '/') {
+            return null;
+        }
+        String dir = path.substring(0, path.lastIndexOf('/', end - 1) + 1);
+        List<WebResourceSet> result = directories.get(dir);
+        if (result == null) {
+            return unindexed;
+        }
+        return result;
+    }
+
+
+    /**
+     * @return the number of directories in the index
+     */
+    int getDirectoryCount() {
+        return directories.size();
+    }
+
+
+    private static Set<String> getEntryDirectories(WebResourceSet resourceSet) {
+        if (resourceSet instanceof AbstractArchiveResourceSet archiveResourceSet &&
+                MOUNT.equals(archiveResourceSet.getWebAppMount())) {
+            return archiveResourceSet.getEntryDirectories();
+        }
+        return null;
+    }
+}
@@ -24,9 +24,13 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.net.MalformedURLException;
 import java.net.URL;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
 import java.nio.charset.Charset;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
 import java.nio.file.attribute.BasicFileAttributes;
 import java.security.cert.Certificate;
 import java.util.concurrent.locks.Lock;
@@ -210,6 +214,28 @@ public class FileResource extends AbstractResource {
         }
     }
 
+    /**
+     * Map the content of this file into memory. The mapping remains valid until the returned buffer is garbage
+     * collected. On some platforms, notably Windows, the file cannot be modified or deleted while it is mapped.
+     *
+     * @return a read-only buffer containing the content of the file or {@code null} if the content could not be mapped
+     */
+    public MappedByteBuffer getMappedContent() {
+        long len = getContentLengthInternal(false);
+        if (needConvert || len < 0 || len > Integer.MAX_VALUE) {
+            // Content requires conversion, is not applicable or is too large to map as a single buffer
+            return null;
+        }
+        try (FileChannel channel = FileChannel.open(resource.toPath(), StandardOpenOption.READ)) {
+            return channel.map(MapMode.READ_ONLY, 0, len);
+        } catch (IOException ioe) {
+            if (getLog().isDebugEnabled()) {
+                getLog().debug(sm.getString("fileResource.getMappedContentFail", getWebappPath()), ioe);
+            }
+            return null;
+        }
+    }
+
     @Override
     public final byte[] getContent() {
         // Use internal version to avoid loop when needConvert is true
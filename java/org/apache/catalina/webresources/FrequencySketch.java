@@ -0,0 +1,137 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.catalina.webresources;
+
+/**
+ * Estimates how often a key has been requested using a count-min sketch of 4-bit counters. Each key maps to one
+ * counter in each of four rows and the estimate is the smallest of those counters so the estimate may be too high but
+ * is never too low. Sixteen counters are packed into each element of the table. Once the number of increments reaches
+ * ten times the size of the table, all counters are halved so that the estimates favour recent requests.
+ * <p>
+ * This class is not thread safe.
+ */
+final class FrequencySketch {
+
+    private static final long[] SEEDS =
+            { 0xc3a5c85c97cb3127L, 0xb492b66fbe98f273L, 0x9ae16a3b2f90404fL, 0xcbf29ce484222325L };
+    private static final long RESET_MASK = 0x7777777777777777L;
+    private static final long ONE_MASK = 0x1111111111111111L;
+
+    private static final int MIN_CAPACITY = 64;
+    private static final int MAX_CAPACITY = 1 << 30;
+
+    static final int MAX_FREQUENCY = 15;
+
+    private long[] table;
+    private int sampleSize;
+    private int additions;
+
+
+    FrequencySketch() {
+        ensureCapacity(MIN_CAPACITY);
+    }
+
+
+    /**
+     * Grow the table, if necessary, so it is able to track the given number of keys accurately. The recorded
+     * frequencies are discarded if the table is resized.
+     *
+     * @param capacity The number of keys to track
+     */
+    void ensureCapacity(int capacity) {
+        int length = Math.max(MIN_CAPACITY, Math.min(MAX_CAPACITY, capacity));
+        if (table != null && table.length >= length) {
+            return;
+        }
+        table = new long[Integer.highestOneBit(length - 1) << 1];
+        sampleSize = 10 * table.length;
+        additions = 0;
+    }
+
+
+    int capacity() {
+        return table.length;
+    }
+
+
+    int frequency(int hashCode) {
+        int hash = spread(hashCode);
+        int start = (hash & 3) << 2;
+        int result = MAX_FREQUENCY;
+        for (int i = 0; i < SEEDS.length; i++) {
+            int count = (int) ((table[indexOf(hash, i)] >>> ((start + i) << 2)) & 0xF);
+            result = Math.min(result, count);
+        }
+        return result;
+    }
+
+
+    void increment(int hashCode) {
+        int hash = spread(hashCode);
+        int start = (hash & 3) << 2;
+        boolean added = false;
+        for (int i = 0; i < SEEDS.length; i++) {
+            added |= incrementAt(indexOf(hash, i), start + i);
+        }
+        if (added && ++additions >= sampleSize) {
+            reset();
+        }
+    }
+
+
+    private boolean incrementAt(int index, int counter) {
+        int offset = counter << 2;
+        long mask = 0xFL << offset;
+        if ((table[index] & mask) != mask) {
+            table[index] += 1L << offset;
+            return true;
+        }
+        return false;
+    }
+
+
+    /*
+     * Halve every counter. The number of additions is reduced by the same amount, allowing for the counters that were
+     * odd and so lost a half when they were halved.
+     */
+    private void reset() {
+        int odd = 0;
+        for (int i = 0; i < table.length; i++) {
+            odd += Long.bitCount(table[i] & ONE_MASK);
+            table[i] = (table[i] >>> 1) & RESET_MASK;
+        }
+        additions = Math.max(0, (additions >>> 1) - (odd >>> 2));
+    }
+
+
+    private int indexOf(int hash, int row) {
+        long result = (hash + SEEDS[row]) * SEEDS[row];
+        result += result >>> 32;
+        return (int) result & (table.length - 1);
+    }
+
+
+    /*
+     * Ensure that keys with similar hash codes, such as paths that differ only in their final character, are spread
+     * across the table.
+     */
+    private static int spread(int hashCode) {
+        int result = ((hashCode >>> 16) ^ hashCode) * 0x45d9f3b;
+        result = ((result >>> 16) ^ result) * 0x45d9f3b;
+        return (result >>> 16) ^ result;
+    }
+}
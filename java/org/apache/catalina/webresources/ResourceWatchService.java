@@ -0,0 +1,244 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.catalina.webresources;
+
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import org.apache.juli.logging.Log;
+import org.apache.juli.logging.LogFactory;
+import org.apache.tomcat.util.ExceptionUtils;
+import org.apache.tomcat.util.res.StringManager;
+
+/**
+ * The {@link WatchService}, and the thread that dispatches the changes it reports, shared by the
+ * {@link ResourceWatcher}s of all the web applications in the JVM. Sharing a single service avoids creating a file
+ * system change notification instance and a thread for each web application. On Linux, for example, the number of
+ * inotify instances per user is limited and the default limit is low. The service is created when the first
+ * {@link ResourceWatcher} is created and closed when the last one is stopped.
+ */
+final class ResourceWatchService implements Runnable {
+
+    private static final Log log = LogFactory.getLog(ResourceWatchService.class);
+    private static final StringManager sm = StringManager.getManager(ResourceWatchService.class);
+
+    // Guarded by ResourceWatchService.class
+    private static ResourceWatchService instance;
+
+    private final WatchService watchService;
+    private final Map<WatchKey,CopyOnWriteArrayList<Registration>> registrations = new ConcurrentHashMap<>();
+    // Guarded by ResourceWatchService.class
+    private final Set<ResourceWatcher> watchers = new HashSet<>();
+    private final Thread thread;
+
+
+    private ResourceWatchService() throws IOException {
+        watchService = FileSystems.getDefault().newWatchService();
+        thread = new Thread(this, "ResourceWatcher");
+        thread.setDaemon(true);
+        // Avoid a reference to a web application class loader
+        thread.setContextClassLoader(ResourceWatchService.class.getClassLoader());
+        thread.start();
+    }
+
+
+    /**
+     * Obtain the shared service, creating it if necessary.
+     *
+     * @param watcher The watcher that will use the service
+     *
+     * @return the shared service
+     *
+     * @throws IOException if the service has to be created and it cannot be created
+     */
+    static ResourceWatchService acquire(ResourceWatcher watcher) throws IOException {
+        synchronized (ResourceWatchService.class) {
+            if (instance == null) {
+                instance = new ResourceWatchService();
+            }
+            instance.watchers.add(watcher);
+            return instance;
+        }
+    }
+
+
+    /**
+     * Stop watching the directories registered by the given watcher. The service is closed once it is no longer used
+     * by any watcher.
+     *
+     * @param watcher The watcher that no longer uses the service
+     */
+    void release(ResourceWatcher watcher) {
+        unregister(watcher, null);
+        boolean close;
+        synchronized (ResourceWatchService.class) {
+            watchers.remove(watcher);
+            close = watchers.isEmpty() && instance == this;
+            if (close) {
+                instance = null;
+            }
+        }
+        if (close) {
+            try {
+                watchService.close();
+            } catch (IOException ioe) {
+                log.warn(sm.getString("resourceWatchService.closeFail"), ioe);
+            }
+            try {
+                thread.join(1000);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+
+    synchronized void register(Path dir, Registration registration) throws IOException {
+        WatchKey key = dir.register(watchService, StandardWatchEventKinds.ENTRY_CREATE,
+                StandardWatchEventKinds.ENTRY_DELETE, StandardWatchEventKinds.ENTRY_MODIFY);
+        registrations.computeIfAbsent(key, k -> new CopyOnWriteArrayList<>()).addIfAbsent(registration);
+    }
+
+
+    /*
+     * Removes the registrations of the watcher for the given directory and all the directories beneath it or, if dir
+     * is null, all the registrations of the watcher. Keys that are left without registrations are cancelled.
+     */
+    synchronized void unregister(ResourceWatcher watcher, Path dir) {
+        for (Map.Entry<WatchKey,CopyOnWriteArrayList<Registration>> entry : registrations.entrySet()) {
+            List<Registration> keyRegistrations = entry.getValue();
+            keyRegistrations.removeIf(registration -> registration.watcher() == watcher &&
+                    (dir == null || registration.dir().startsWith(dir)));
+            if (keyRegistrations.isEmpty()) {
+                entry.getKey().cancel();
+                registrations.remove(entry.getKey());
+            }
+        }
+    }
+
+
+    /*
+     * Returns true if the watcher has registered the given directory to watch the resources within it.
+     */
+    boolean isRegistered(ResourceWatcher watcher, Path dir) {
+        for (List<Registration> keyRegistrations : registrations.values()) {
+            for (Registration registration : keyRegistrations) {
+                if (registration.watcher() == watcher && registration.fileName() == null &&
+                        registration.dir().equals(dir)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+
+    @Override
+    public void run() {
+        try {
+            while (true) {
+                WatchKey key = watchService.take();
+                List<WatchEvent<?>> events = key.pollEvents();
+                List<Registration> keyRegistrations = registrations.get(key);
+                if (keyRegistrations != null) {
+                    dispatch(events, keyRegistrations);
+                }
+                if (!key.reset()) {
+                    keyInvalid(key);
+                }
+            }
+        } catch (ClosedWatchServiceException | InterruptedException e) {
+            // Stopped
+        } catch (Throwable t) {
+            ExceptionUtils.handleThrowable(t);
+            log.error(sm.getString("resourceWatchService.error"), t);
+            // Fall back to revalidating cached resources. Web applications started later will use a new service.
+            List<ResourceWatcher> failed;
+            synchronized (ResourceWatchService.class) {
+                failed = new ArrayList<>(watchers);
+                if (instance == this) {
+                    instance = null;
+                }
+            }
+            for (ResourceWatcher watcher : failed) {
+                watcher.setComplete(false);
+            }
+            try {
+                watchService.close();
+            } catch (IOException ioe) {
+                log.warn(sm.getString("resourceWatchService.closeFail"), ioe);
+            }
+        }
+    }
+
+
+    private void dispatch(List<WatchEvent<?>> events, List<Registration> keyRegistrations) {
+        // A directory may be watched by more than one web application
+        Map<ResourceWatcher,List<Registration>> byWatcher = new LinkedHashMap<>();
+        for (Registration registration : keyRegistrations) {
+            byWatcher.computeIfAbsent(registration.watcher(), k -> new ArrayList<>()).add(registration);
+        }
+        for (Map.Entry<ResourceWatcher,List<Registration>> entry : byWatcher.entrySet()) {
+            try {
+                entry.getKey().processEvents(events, entry.getValue());
+            } catch (Throwable t) {
+                ExceptionUtils.handleThrowable(t);
+                entry.getKey().failed(t);
+            }
+        }
+    }
+
+
+    /*
+     * The directory is no longer accessible. If it has been removed, the removal will normally have been reported for
+     * its parent and its registrations already removed. Otherwise, changes to the resources that it provides can no
+     * longer be reported.
+     */
+    private void keyInvalid(WatchKey key) {
+        List<Registration> keyRegistrations;
+        synchronized (this) {
+            keyRegistrations = registrations.remove(key);
+        }
+        if (keyRegistrations != null) {
+            for (Registration registration : keyRegistrations) {
+                registration.watcher().watchLost(registration.dir());
+            }
+        }
+    }
+
+
+    /*
+     * The directory dir provides the resources under webAppPath for the watcher. If fileName is not null, only the file
+     * with that name is of interest and it provides the resource at webAppPath.
+     */
+    record Registration(ResourceWatcher watcher, Path dir, String webAppPath, String fileName) {
+    }
+}
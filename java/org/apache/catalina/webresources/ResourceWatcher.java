@@ -0,0 +1,262 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.catalina.webresources;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchService;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.List;
+
+import org.apache.catalina.webresources.ResourceWatchService.Registration;
+import org.apache.juli.logging.Log;
+import org.apache.juli.logging.LogFactory;
+import org.apache.tomcat.util.res.StringManager;
+
+/**
+ * Watches the directories that provide the resources of {@link DirResourceSet}s and {@link FileResourceSet}s for
+ * changes using a {@link WatchService} and removes the affected entries from the cache of the {@link StandardRoot} as
+ * changes are reported. While every resource set is watched, cached resources do not need to be revalidated. The
+ * {@link WatchService} and the thread that reports the changes are shared by all web applications (see
+ * {@link ResourceWatchService}).
+ * <p>
+ * Only changes that the file system reports are detected. Network file systems typically do not report changes made
+ * by other hosts.
+ */
+class ResourceWatcher {
+
+    private static final Log log = LogFactory.getLog(ResourceWatcher.class);
+    private static final StringManager sm = StringManager.getManager(ResourceWatcher.class);
+
+    private final StandardRoot root;
+    private final ResourceWatchService service;
+
+    private volatile boolean complete = true;
+
+
+    ResourceWatcher(StandardRoot root) throws IOException {
+        this.root = root;
+        service = ResourceWatchService.acquire(this);
+    }
+
+
+    /**
+     * Watch the resources provided by the given resource set.
+     *
+     * @param resourceSet The resource set to watch
+     *
+     * @return {@code true} if all the changes to the resources provided by the resource set will be reported
+     */
+    boolean watch(AbstractFileResourceSet resourceSet) {
+        if (resourceSet.getAllowLinking()) {
+            // Linked resources may be located anywhere
+            return false;
+        }
+        File fileBase = resourceSet.getFileBase();
+        try {
+            if (resourceSet instanceof FileResourceSet) {
+                Path file = fileBase.toPath().toAbsolutePath();
+                register(file.getParent(), resourceSet.getWebAppMount(), file.getFileName().toString());
+            } else {
+                registerTree(fileBase.toPath().toAbsolutePath(), resourceSet.getWebAppMount(), false);
+            }
+            return true;
+        } catch (IOException ioe) {
+            log.warn(sm.getString("resourceWatcher.registerFail", fileBase, root.getContext().getName()), ioe);
+            return false;
+        }
+    }
+
+
+    /**
+     * @return {@code true} if all changes to the watched resource sets have been reported
+     */
+    boolean isComplete() {
+        return complete;
+    }
+
+
+    void setComplete(boolean complete) {
+        this.complete = complete;
+    }
+
+
+    void stop() {
+        complete = false;
+        service.release(this);
+    }
+
+
+    /*
+     * Called by the service if processing the changes reported for this watcher failed.
+     */
+    void failed(Throwable t) {
+        // Fall back to revalidating cached resources
+        complete = false;
+        log.error(sm.getString("resourceWatcher.error", root.getContext().getName()), t);
+    }
+
+
+    /*
+     * Called by the service if a watched directory is no longer accessible.
+     */
+    void watchLost(Path dir) {
+        if (!Files.isDirectory(dir, LinkOption.NOFOLLOW_LINKS)) {
+            // Removed. The removal has been, or will be, reported for the parent directory.
+            return;
+        }
+        complete = false;
+        log.warn(sm.getString("resourceWatcher.watchLost", dir, root.getContext().getName()));
+    }
+
+
+    /*
+     * Called by the service with the changes reported for a directory that this watcher has registered.
+     */
+    void processEvents(List<WatchEvent<?>> events, List<Registration> keyRegistrations) {
+        for (WatchEvent<?> event : events) {
+            if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+                // Some changes were not reported
+                if (log.isDebugEnabled()) {
+                    log.debug(sm.getString("resourceWatcher.overflow", root.getContext().getName()));
+                }
+                root.resourcesChanged();
+                continue;
+            }
+            String name = event.context().toString();
+            for (Registration registration : keyRegistrations) {
+                if (registration.fileName() != null) {
+                    if (registration.fileName().equals(name)) {
+                        resourceChanged(registration.webAppPath());
+                    }
+                    continue;
+                }
+                String webAppPath = join(registration.webAppPath(), name);
+                Path child = registration.dir().resolve(name);
+                if (event.kind() != StandardWatchEventKinds.ENTRY_MODIFY && service.isRegistered(this, child)) {
+                    /*
+                     * A watched directory has been removed or renamed or, if it has been created, the directory
+                     * previously at this path was renamed without the removal being reported. Either way, nothing
+                     * cached beneath it is valid. The watch key of a renamed directory remains valid and would
+                     * continue to report changes under the old path.
+                     */
+                    directoryRemoved(child, webAppPath);
+                }
+                resourceChanged(webAppPath);
+                if (event.kind() == StandardWatchEventKinds.ENTRY_CREATE) {
+                    if (Files.isDirectory(child, LinkOption.NOFOLLOW_LINKS)) {
+                        try {
+                            registerTree(child, webAppPath, true);
+                        } catch (IOException ioe) {
+                            complete = false;
+                            log.warn(sm.getString("resourceWatcher.registerFail", child, root.getContext().getName()),
+                                    ioe);
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+
+    /*
+     * The entries for the resource and for its parent directory, that lists the resource, are removed from the cache.
+     */
+    private void resourceChanged(String webAppPath) {
+        if (log.isTraceEnabled()) {
+            log.trace("Resource changed [" + webAppPath + "]");
+        }
+        root.resourceChanged(webAppPath);
+        root.resourceChanged(webAppPath + "/");
+        int index = webAppPath.lastIndexOf('/');
+        if (index > 0) {
+            root.resourceChanged(webAppPath.substring(0, index));
+        }
+        root.resourceChanged(webAppPath.substring(0, index + 1));
+    }
+
+
+    /*
+     * Removes the entries for all the resources beneath the directory from the cache and stops watching the directory
+     * and all the directories beneath it.
+     */
+    private void directoryRemoved(Path dir, String webAppPath) {
+        if (log.isTraceEnabled()) {
+            log.trace("Directory removed [" + webAppPath + "]");
+        }
+        service.unregister(this, dir);
+        root.resourceTreeChanged(webAppPath);
+    }
+
+
+    /*
+     * Register the directory and all the directories beneath it. If the directory has just been created, the entries
+     * beneath it may have been created before the directory was registered so they are treated as changed.
+     */
+    private void registerTree(Path dir, String webAppPath, boolean created) throws IOException {
+        Files.walkFileTree(dir, new SimpleFileVisitor<>() {
+            @Override
+            public FileVisitResult preVisitDirectory(Path subDir, BasicFileAttributes attrs) throws IOException {
+                String subDirWebAppPath = webAppPath(subDir);
+                register(subDir, subDirWebAppPath, null);
+                if (created && !subDir.equals(dir)) {
+                    resourceChanged(subDirWebAppPath);
+                }
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+                if (created) {
+                    resourceChanged(webAppPath(file));
+                }
+                return FileVisitResult.CONTINUE;
+            }
+
+            private String webAppPath(Path path) {
+                String result = webAppPath;
+                for (Path element : dir.relativize(path)) {
+                    if (!element.toString().isEmpty()) {
+                        result = join(result, element.toString());
+                    }
+                }
+                return result;
+            }
+        });
+    }
+
+
+    private void register(Path dir, String webAppPath, String fileName) throws IOException {
+        service.register(dir, new Registration(this, dir, webAppPath, fileName));
+    }
+
+
+    private static String join(String webAppPath, String name) {
+        if (webAppPath.endsWith("/")) {
+            return webAppPath + name;
+        }
+        return webAppPath + "/" + name;
+    }
+
+}
@@ -30,13 +30,16 @@ import java.util.List;
 import java.util.Locale;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
 
 import javax.management.ObjectName;
 
+import org.apache.catalina.Container;
 import org.apache.catalina.Context;
 import org.apache.catalina.Host;
 import org.apache.catalina.LifecycleException;
 import org.apache.catalina.LifecycleState;
+import org.apache.catalina.Service;
 import org.apache.catalina.TrackedWebResource;
 import org.apache.catalina.WebResource;
 import org.apache.catalina.WebResourceRoot;
@@ -79,9 +82,13 @@ public class StandardRoot extends LifecycleMBeanBase implements WebResourceRoot
     private ObjectName cacheJmxName = null;
 
     private boolean trackLockedFiles = false;
+    private boolean watchChanges = false;
+    private volatile ResourceWatcher watcher;
     private final Set<TrackedWebResource> trackedResources = ConcurrentHashMap.newKeySet();
 
     private ArchiveIndexStrategy archiveIndexStrategy = ArchiveIndexStrategy.BLOOM;
+    private boolean indexClassResources = true;
+    private volatile ClassResourcesIndex classResourcesIndex;
 
     // Constructs to make iteration over all WebResourceSets simpler
     private final List<WebResourceSet> mainResources = new ArrayList<>();
@@ -267,7 +274,7 @@ public class StandardRoot extends LifecycleMBeanBase implements WebResourceRoot
         WebResource virtual = null;
         WebResource mainEmpty = null;
         for (List<WebResourceSet> list : allResources) {
-            for (WebResourceSet webResourceSet : list) {
+            for (WebResourceSet webResourceSet : getResourceSets(list, path)) {
                 if (!useClassLoaderResources && !webResourceSet.getClassLoaderOnly() ||
                         useClassLoaderResources && !webResourceSet.getStaticOnly()) {
                     result = webResourceSet.getResource(path);
@@ -294,6 +301,23 @@ public class StandardRoot extends LifecycleMBeanBase implements WebResourceRoot
         return mainEmpty;
     }
 
+    /*
+     * Returns the resource sets from the given list that need to be searched for the given path. Unless the list is
+     * the class resources and they have been indexed, that is the whole list.
+     */
+    private List<WebResourceSet> getResourceSets(List<WebResourceSet> list, String path) {
+        if (list == classResources) {
+            ClassResourcesIndex index = classResourcesIndex;
+            if (index != null) {
+                List<WebResourceSet> result = index.getResourceSets(path);
+                if (result != null) {
+                    return result;
+                }
+            }
+        }
+        return list;
+    }
+
     @Override
     public WebResource[] getResources(String path) {
         return getResources(path, false);
@@ -312,7 +336,7 @@ public class StandardRoot extends LifecycleMBeanBase implements WebResourceRoot
     protected WebResource[] getResourcesInternal(String path, boolean useClassLoaderResources) {
         List<WebResource> result = new ArrayList<>();
         for (List<WebResourceSet> list : allResources) {
-            for (WebResourceSet webResourceSet : list) {
+            for (WebResourceSet webResourceSet : getResourceSets(list, path)) {
                 if (useClassLoaderResources || !webResourceSet.getClassLoaderOnly()) {
                     WebResource webResource = webResourceSet.getResource(path);
                     if (webResource.exists()) {
@@ -401,6 +425,9 @@ public class StandardRoot extends LifecycleMBeanBase implements WebResourceRoot
         }
 
         resourceList.add(resourceSet);
+        if (resourceList == classResources) {
+            classResourcesIndex = null;
+        }
     }
 
     @Override
@@ -443,6 +470,7 @@ public class StandardRoot extends LifecycleMBeanBase implements WebResourceRoot
     protected void addClassResources(WebResourceSet webResourceSet) {
         webResourceSet.setRoot(this);
         classResources.add(webResourceSet);
+        classResourcesIndex = null;
     }
 
     @Override
@@ -493,6 +521,26 @@ public class StandardRoot extends LifecycleMBeanBase implements WebResourceRoot
         cache.setTtl(cacheTtl);
     }
 
+    public String getCacheEvictionPolicy() {
+        return cache.getEvictionPolicy();
+    }
+
+    public void setCacheEvictionPolicy(String cacheEvictionPolicy) {
+        cache.setEvictionPolicy(cacheEvictionPolicy);
+    }
+
+    public long getCacheMappedMaxSize() {
+        return cache.getMappedMaxSize();
+    }
+
+    public void setCacheMappedMaxSize(long cacheMappedMaxSize) {
+        cache.setMappedMaxSize(cacheMappedMaxSize);
+    }
+
+    public long getCacheMappedSize() {
+        return cache.getMappedSize();
+    }
+
     @Override
     public long getCacheMaxSize() {
         return cache.getMaxSize();
@@ -531,6 +579,81 @@ public class StandardRoot extends LifecycleMBeanBase implements WebResourceRoot
         return trackLockedFiles;
     }
 
+    /**
+     * Configure whether the directories and files that provide the resources of this web application are watched for
+     * changes. If all the resources are provided by watched directories and files or by archives, which are assumed not
+     * to change, cached resources are not revalidated. Instead, cache entries are removed as changes are reported by
+     * the file system. Changes to this setting take effect when the resources are next started.
+     *
+     * @param watchChanges {@code true} to watch for changes
+     */
+    public void setWatchChanges(boolean watchChanges) {
+        this.watchChanges = watchChanges;
+    }
+
+    public boolean getWatchChanges() {
+        return watchChanges;
+    }
+
+    /*
+     * Returns true if the cache will be notified of every change to the resources of this web application so cached
+     * resources do not need to be revalidated.
+     */
+    protected boolean isWatched() {
+        ResourceWatcher watcher = this.watcher;
+        return watcher != null && watcher.isComplete();
+    }
+
+    /*
+     * Called by the ResourceWatcher when a resource has been changed.
+     */
+    void resourceChanged(String path) {
+        if (isCachingAllowed()) {
+            cache.removeCacheEntry(path);
+        }
+    }
+
+    /*
+     * Called by the ResourceWatcher when a directory has been removed or renamed so all the resources beneath it have
+     * changed.
+     */
+    void resourceTreeChanged(String path) {
+        if (isCachingAllowed()) {
+            cache.removeCacheEntries(path.endsWith("/") ? path : path + "/");
+        }
+    }
+
+    /*
+     * Called by the ResourceWatcher when an unknown set of resources has been changed.
+     */
+    void resourcesChanged() {
+        cache.clear();
+    }
+
+    /**
+     * Configure whether the resources provided by the JARs in /WEB-INF/lib are indexed by directory (i.e. by package)
+     * when the resources are started. With the index, a lookup by the web application class loader only searches the
+     * JARs that contain entries in the same directory as the requested resource rather than every JAR. JARs that can
+     * not be indexed, such as multi-release JARs, are always searched. Changes to this setting take effect when the
+     * resources are next started.
+     *
+     * @param indexClassResources {@code true} to index the class resources
+     */
+    public void setIndexClassResources(boolean indexClassResources) {
+        this.indexClassResources = indexClassResources;
+    }
+
+    public boolean getIndexClassResources() {
+        return indexClassResources;
+    }
+
+    /*
+     * Returns true if the class resources are currently indexed.
+     */
+    boolean isClassResourcesIndexed() {
+        return classResourcesIndex != null;
+    }
+
     @Override
     public void setArchiveIndexStrategy(String archiveIndexStrategy) {
         this.archiveIndexStrategy = ArchiveIndexStrategy.valueOf(archiveIndexStrategy.toUpperCase(Locale.ENGLISH));
@@ -724,11 +847,64 @@ public class StandardRoot extends LifecycleMBeanBase implements WebResourceRoot
             classResource.start();
         }
 
+        if (indexClassResources) {
+            buildClassResourcesIndex();
+        }
+
         cache.enforceObjectMaxSizeLimit();
 
+        if (watchChanges) {
+            startWatcher();
+        }
+
         setState(LifecycleState.STARTING);
     }
 
+    void buildClassResourcesIndex() {
+        long start = System.nanoTime();
+        // Read the entries of the JARs in parallel if possible
+        Service service = Container.getService(context);
+        ExecutorService executor = (service == null || service.getServer() == null) ? null :
+                service.getServer().getUtilityExecutor();
+        try {
+            ClassResourcesIndex index = new ClassResourcesIndex(new ArrayList<>(classResources), executor);
+            classResourcesIndex = index;
+            if (log.isDebugEnabled()) {
+                log.debug(sm.getString("standardRoot.classResourcesIndexed", context.getName(),
+                        Integer.toString(classResources.size()), Integer.toString(index.getDirectoryCount()),
+                        Long.toString((System.nanoTime() - start) / 1000000)));
+            }
+        } catch (Exception e) {
+            log.warn(sm.getString("standardRoot.classResourcesIndexFail", context.getName()), e);
+        }
+    }
+
+    private void startWatcher() {
+        ResourceWatcher watcher;
+        try {
+            watcher = new ResourceWatcher(this);
+        } catch (IOException ioe) {
+            log.warn(sm.getString("standardRoot.watcherFail", context.getName()), ioe);
+            return;
+        }
+        boolean complete = true;
+        for (List<WebResourceSet> list : allResources) {
+            for (WebResourceSet webResourceSet : list) {
+                if (webResourceSet instanceof AbstractFileResourceSet fileResourceSet) {
+                    complete &= watcher.watch(fileResourceSet);
+                } else if (!(webResourceSet instanceof AbstractArchiveResourceSet ||
+                        webResourceSet instanceof EmptyResourceSet)) {
+                    complete = false;
+                }
+            }
+        }
+        watcher.setComplete(complete);
+        if (!complete) {
+            log.info(sm.getString("standardRoot.watcherIncomplete", context.getName()));
+        }
+        this.watcher = watcher;
+    }
+
     protected WebResourceSet createMainResourceSet() {
         String docBase = context.getDocBase();
 
@@ -755,6 +931,14 @@ public class StandardRoot extends LifecycleMBeanBase implements WebResourceRoot
 
     @Override
     protected void stopInternal() throws LifecycleException {
+        classResourcesIndex = null;
+
+        ResourceWatcher watcher = this.watcher;
+        if (watcher != null) {
+            this.watcher = null;
+            watcher.stop();
+        }
+
         for (List<WebResourceSet> list : allResources) {
             for (WebResourceSet webResourceSet : list) {
                 webResourceSet.stop();
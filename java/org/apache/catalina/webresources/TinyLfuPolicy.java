@@ -0,0 +1,362 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.catalina.webresources;
+
+import java.util.List;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Window TinyLFU admission and eviction policy for the {@link Cache}. New entries are placed in a small LRU window.
+ * Entries that overflow the window are only admitted to the main region if they are estimated to have been requested
+ * more often than the entries that would have to be evicted from the main region to make room for them. Otherwise,
+ * the overflowing entry is rejected. The main region is a segmented LRU. Entries enter the probation segment and are
+ * promoted to the protected segment when requested again. This allows a burst of requests for new resources, such as
+ * a crawler sweeping the site, to pass through the cache without displacing the frequently requested resources.
+ * <p>
+ * Request frequencies, including those of resources that are not currently cached, are estimated with a
+ * {@link FrequencySketch}. All operations are O(1) in the number of cached entries. The policy never removes entries
+ * from the cache. Instead, it reports the entries that the cache should remove. Hits are recorded on a best effort
+ * basis and are dropped rather than waiting if another thread is updating the policy.
+ */
+final class TinyLfuPolicy {
+
+    private static final int WINDOW_PERCENT = 1;
+    private static final int PROTECTED_PERCENT = 80;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final FrequencySketch sketch = new FrequencySketch();
+
+    // Guarded by lock
+    private final Segment window = new Segment();
+    private final Segment probation = new Segment();
+    private final Segment protectedSegment = new Segment();
+    private long maxSize;
+    private long windowMaxSize;
+    private long protectedMaxSize;
+
+
+    TinyLfuPolicy(long maxSize) {
+        setMaxSize(maxSize);
+    }
+
+
+    /**
+     * Set the maximum total size of the entries tracked by the policy. A reduced size takes effect as entries are
+     * added.
+     *
+     * @param maxSize The maximum size in bytes
+     */
+    void setMaxSize(long maxSize) {
+        lock.lock();
+        try {
+            this.maxSize = maxSize;
+            windowMaxSize = maxSize * WINDOW_PERCENT / 100;
+            protectedMaxSize = (maxSize - windowMaxSize) * PROTECTED_PERCENT / 100;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+
+    /**
+     * Record the addition of an entry to the cache.
+     *
+     * @param resource The new entry
+     * @param weight   The size of the entry in bytes
+     * @param evicted  The entries that the cache must remove to make room for the new entry will be added to this list
+     * @param rejected The entries that the cache must remove because they were not admitted to the main region will
+     *                     be added to this list
+     */
+    void recordInsert(CachedResource resource, long weight, List<CachedResource> evicted,
+            List<CachedResource> rejected) {
+        lock.lock();
+        try {
+            if (resource.policyNode != null) {
+                // Already removed from the cache
+                return;
+            }
+            Node node = new Node(resource, weight);
+            resource.policyNode = node;
+            sketch.increment(node.hash);
+            sketch.ensureCapacity(window.count + probation.count + protectedSegment.count);
+            window.addLast(node);
+
+            // Always retain the most recent entry in the window
+            while (window.size > windowMaxSize && window.head != window.tail) {
+                Node candidate = window.head;
+                window.remove(candidate);
+                admit(candidate, evicted, rejected);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+
+    /**
+     * Record a request for an entry that was found in the cache. The request is not recorded if another thread is
+     * updating the policy.
+     *
+     * @param resource The entry that was requested
+     */
+    void recordHit(CachedResource resource) {
+        if (!lock.tryLock()) {
+            return;
+        }
+        try {
+            Node node = resource.policyNode;
+            if (node == null || node.segment == null) {
+                return;
+            }
+            sketch.increment(node.hash);
+            if (node.segment == probation) {
+                probation.remove(node);
+                addProtected(node);
+            } else {
+                if (node.segment == window) {
+                    node.requested = true;
+                }
+                node.segment.moveToEnd(node);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+
+    /**
+     * Record the removal of an entry from the cache.
+     *
+     * @param resource The entry that was removed
+     */
+    void recordRemove(CachedResource resource) {
+        lock.lock();
+        try {
+            Node node = resource.policyNode;
+            if (node == null) {
+                // Removed before the insertion was recorded
+                resource.policyNode = Node.REMOVED;
+            } else if (node.segment != null) {
+                node.segment.remove(node);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+
+    /**
+     * Select entries for the cache to remove, least valuable first. Entries are taken from the probation segment, then
+     * from the window and finally from the protected segment. The selected entries are no longer tracked by the
+     * policy.
+     *
+     * @param excess  The total size, in bytes, of the entries to select
+     * @param evicted The selected entries will be added to this list
+     */
+    void selectVictims(long excess, List<CachedResource> evicted) {
+        lock.lock();
+        try {
+            long remaining = excess;
+            Segment[] segments = { probation, window, protectedSegment };
+            for (Segment segment : segments) {
+                while (remaining > 0 && segment.head != null) {
+                    Node victim = segment.head;
+                    segment.remove(victim);
+                    evicted.add(victim.resource);
+                    remaining -= victim.weight;
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+
+    /**
+     * Stop tracking all entries.
+     */
+    void clear() {
+        lock.lock();
+        try {
+            window.clear();
+            probation.clear();
+            protectedSegment.clear();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+
+    int getEntryCount() {
+        lock.lock();
+        try {
+            return window.count + probation.count + protectedSegment.count;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+
+    int frequency(String path) {
+        lock.lock();
+        try {
+            return sketch.frequency(path.hashCode());
+        } finally {
+            lock.unlock();
+        }
+    }
+
+
+    private void addProtected(Node node) {
+        protectedSegment.addLast(node);
+        while (protectedSegment.size > protectedMaxSize) {
+            Node demoted = protectedSegment.head;
+            protectedSegment.remove(demoted);
+            probation.addLast(demoted);
+        }
+    }
+
+
+    /*
+     * The candidate has overflowed the window. Admit it to the main region if it is estimated to be more valuable than
+     * all the entries of the main region that would be evicted to make room for it.
+     */
+    private void admit(Node candidate, List<CachedResource> evicted, List<CachedResource> rejected) {
+        long excess = probation.size + protectedSegment.size + candidate.weight - (maxSize - windowMaxSize);
+        if (excess > 0) {
+            int candidateFrequency = sketch.frequency(candidate.hash);
+            long freed = 0;
+            Node victim = probation.head;
+            boolean inProtected = false;
+            while (freed < excess) {
+                if (victim == null) {
+                    if (inProtected) {
+                        break;
+                    }
+                    inProtected = true;
+                    victim = protectedSegment.head;
+                    continue;
+                }
+                if (sketch.frequency(victim.hash) >= candidateFrequency) {
+                    break;
+                }
+                freed += victim.weight;
+                victim = victim.next;
+            }
+            if (freed < excess) {
+                rejected.add(candidate.resource);
+                return;
+            }
+            // Evict the victims that were examined
+            Node first = probation.head;
+            while (freed > 0) {
+                if (first == null) {
+                    first = protectedSegment.head;
+                }
+                Node next = first.next;
+                first.segment.remove(first);
+                evicted.add(first.resource);
+                freed -= first.weight;
+                first = next;
+            }
+        }
+        if (candidate.requested) {
+            // Requested again while in the window
+            addProtected(candidate);
+        } else {
+            probation.addLast(candidate);
+        }
+    }
+
+
+    static final class Node {
+
+        static final Node REMOVED = new Node(null, 0);
+
+        private final CachedResource resource;
+        private final long weight;
+        private final int hash;
+
+        private Segment segment;
+        private boolean requested;
+        private Node previous;
+        private Node next;
+
+        private Node(CachedResource resource, long weight) {
+            this.resource = resource;
+            this.weight = weight;
+            this.hash = resource == null ? 0 : resource.getWebappPath().hashCode();
+        }
+    }
+
+
+    /*
+     * A doubly linked list of nodes with the least recently used node at the head.
+     */
+    private static final class Segment {
+
+        private Node head;
+        private Node tail;
+        private long size;
+        private int count;
+
+        void addLast(Node node) {
+            node.segment = this;
+            node.previous = tail;
+            node.next = null;
+            if (tail == null) {
+                head = node;
+            } else {
+                tail.next = node;
+            }
+            tail = node;
+            size += node.weight;
+            count++;
+        }
+
+        void remove(Node node) {
+            if (node.previous == null) {
+                head = node.next;
+            } else {
+                node.previous.next = node.next;
+            }
+            if (node.next == null) {
+                tail = node.previous;
+            } else {
+                node.next.previous = node.previous;
+            }
+            node.segment = null;
+            node.previous = null;
+            node.next = null;
+            size -= node.weight;
+            count--;
+        }
+
+        void moveToEnd(Node node) {
+            if (node != tail) {
+                remove(node);
+                addLast(node);
+            }
+        }
+
+        void clear() {
+            while (head != null) {
+                remove(head);
+            }
+        }
+    }
+}
@@ -0,0 +1,71 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.apache.coyote;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * A response compression codec for a single HTTP content coding. Tomcat provides codecs for <code>gzip</code> and
+ * <code>deflate</code>. Codecs for other content codings, such as <code>br</code> or <code>zstd</code>, may be added
+ * by making an implementation available via {@link java.util.ServiceLoader} to the class loader that loaded Tomcat.
+ * <p>
+ * Each {@link CompressionConfig} creates its own instances of the available codecs so implementations may hold
+ * configuration such as the compression level. Implementations must be thread-safe.
+ */
+public interface CompressionCodec {
+
+    /**
+     * The level used when no compression level has been configured for a codec.
+     */
+    int DEFAULT_LEVEL = -1;
+
+    /**
+     * @return the HTTP content coding, such as <code>gzip</code>, implemented by this codec. The value is compared
+     *             case-insensitively.
+     */
+    String getEncoding();
+
+
+    /**
+     * @return the compression level or {@link #DEFAULT_LEVEL} if the codec's default level is used
+     */
+    int getLevel();
+
+
+    /**
+     * Configure the compression level. The range of valid values depends on the codec.
+     *
+     * @param level The compression level or {@link #DEFAULT_LEVEL} to use the codec's default level
+     */
+    void setLevel(int level);
+
+
+    /**
+     * Create a new stream that compresses the data written to it and writes the compressed data to the provided
+     * stream. Calling {@link OutputStream#flush()} on the returned stream must write all the data written so far in a
+     * form that the client is able to decompress. Calling {@link OutputStream#close()} must finish the compressed
+     * data and release any resources used by the stream.
+     *
+     * @param out The stream to which the compressed data should be written
+     *
+     * @return The compressing stream
+     *
+     * @throws IOException If the stream cannot be created
+     */
+    OutputStream createOutputStream(OutputStream out) throws IOException;
+}
@@ -19,9 +19,16 @@ package org.apache.coyote;
 import java.io.IOException;
 import java.io.StringReader;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Enumeration;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.ServiceConfigurationError;
+import java.util.ServiceLoader;
 import java.util.Set;
 import java.util.StringTokenizer;
 import java.util.regex.Pattern;
@@ -47,6 +54,9 @@ public class CompressionConfig {
             "text/javascript,application/javascript,application/json,application/xml";
     private String[] compressibleMimeTypes = null;
     private int compressionMinSize = 2048;
+    private String compressionEncodings = "gzip";
+    private String compressionEncodingLevels = null;
+    private volatile CompressionCodec[] compressionCodecs = null;
 
 
     /**
@@ -173,6 +183,112 @@ public class CompressionConfig {
     }
 
 
+    public String getCompressionEncodings() {
+        return compressionEncodings;
+    }
+
+
+    /**
+     * Set the content codings that may be used to compress responses, in order of server preference. The server
+     * preference is used to select a content coding when the client gives more than one of them the same quality.
+     *
+     * @param compressionEncodings A comma separated list of content codings, such as <code>br,gzip</code>
+     */
+    public void setCompressionEncodings(String compressionEncodings) {
+        this.compressionEncodings = compressionEncodings;
+        compressionCodecs = null;
+    }
+
+
+    public String getCompressionEncodingLevels() {
+        return compressionEncodingLevels;
+    }
+
+
+    /**
+     * Set the compression level to use for each content coding. Content codings without a configured level use the
+     * default level of their codec.
+     *
+     * @param compressionEncodingLevels A comma separated list of <code>encoding=level</code> pairs, such as
+     *                                      <code>gzip=6,br=5</code>
+     */
+    public void setCompressionEncodingLevels(String compressionEncodingLevels) {
+        this.compressionEncodingLevels = compressionEncodingLevels;
+        compressionCodecs = null;
+    }
+
+
+    /**
+     * Obtain the configured compression codecs, in order of server preference. Content codings that are configured
+     * but for which no codec is available are ignored.
+     *
+     * @return The codecs that may be used to compress responses
+     */
+    public CompressionCodec[] getCompressionCodecs() {
+        CompressionCodec[] result = compressionCodecs;
+        if (result != null) {
+            return result;
+        }
+
+        Map<String,CompressionCodec> available = new HashMap<>();
+        available.put("gzip", new GzipCompressionCodec());
+        available.put("deflate", new DeflateCompressionCodec());
+        Iterator<CompressionCodec> iter =
+                ServiceLoader.load(CompressionCodec.class, CompressionConfig.class.getClassLoader()).iterator();
+        while (true) {
+            try {
+                if (!iter.hasNext()) {
+                    break;
+                }
+                CompressionCodec codec = iter.next();
+                available.put(codec.getEncoding().toLowerCase(Locale.ENGLISH), codec);
+            } catch (ServiceConfigurationError e) {
+                log.warn(sm.getString("compressionConfig.codecLoadFail"), e);
+            }
+        }
+
+        Map<String,Integer> levels = new HashMap<>();
+        if (compressionEncodingLevels != null) {
+            StringTokenizer tokens = new StringTokenizer(compressionEncodingLevels, ",");
+            while (tokens.hasMoreTokens()) {
+                String token = tokens.nextToken().trim();
+                if (token.isEmpty()) {
+                    continue;
+                }
+                int equals = token.indexOf('=');
+                try {
+                    levels.put(token.substring(0, equals).trim().toLowerCase(Locale.ENGLISH),
+                            Integer.valueOf(token.substring(equals + 1).trim()));
+                } catch (IndexOutOfBoundsException | NumberFormatException e) {
+                    log.warn(sm.getString("compressionConfig.invalidLevel", token));
+                }
+            }
+        }
+
+        List<CompressionCodec> codecs = new ArrayList<>();
+        StringTokenizer tokens = new StringTokenizer(compressionEncodings, ",");
+        while (tokens.hasMoreTokens()) {
+            String encoding = tokens.nextToken().trim().toLowerCase(Locale.ENGLISH);
+            if (encoding.isEmpty()) {
+                continue;
+            }
+            CompressionCodec codec = available.get(encoding);
+            if (codec == null) {
+                log.warn(sm.getString("compressionConfig.unknownEncoding", encoding));
+                continue;
+            }
+            Integer level = levels.get(encoding);
+            if (level != null) {
+                codec.setLevel(level.intValue());
+            }
+            codecs.add(codec);
+        }
+        result = codecs.toArray(new CompressionCodec[0]);
+        compressionCodecs = result;
+        return result;
+    }
+
+
     /**
      * Determines if compression should be enabled for the given response and if it is, sets any necessary headers to
      * mark it as such.
@@ -183,9 +299,30 @@ public class CompressionConfig {
      * @return {@code true} if compression was enabled for the given response, otherwise {@code false}
      */
     public boolean useCompression(Request request, Response response) {
+        return getCompressionCodec(request, response) != null;
+    }
+
+
+    /**
+     * Determines if compression should be enabled for the given response and if it is, selects the codec to use and
+     * sets any necessary headers to mark the response as compressed. If the client accepts more than one of the
+     * configured content codings, the one with the highest quality is selected. Ties are resolved using the order of
+     * server preference.
+     *
+     * @param request  The request that triggered the response
+     * @param response The response to consider compressing
+     *
+     * @return The codec to use to compress the response or {@code null} if the response should not be compressed
+     */
+    public CompressionCodec getCompressionCodec(Request request, Response response) {
         // Check if compression is enabled
         if (compressionLevel == 0) {
-            return false;
+            return null;
+        }
+
+        CompressionCodec[] codecs = getCompressionCodecs();
+        if (codecs.length == 0) {
+            return null;
         }
 
         boolean useTransferEncoding = false;
@@ -205,7 +342,7 @@ public class CompressionConfig {
                 // Because we are using StringReader, any exception here is a
                 // Tomcat bug.
                 log.warn(sm.getString("compressionConfig.ContentEncodingParseFail"), ioe);
-                return false;
+                return null;
             }
             if (tokens.contains("identity")) {
                 // If identity, do not do content modifications
@@ -214,53 +351,42 @@ public class CompressionConfig {
                     tokens.contains("dcz") || tokens.contains("deflate") || tokens.contains("gzip") ||
                     tokens.contains("pack200-gzip") || tokens.contains("zstd")) {
                 // Content should not be compressed twice
-                return false;
+                return null;
             }
         }
 
         // If force mode, the length and MIME type checks are skipped
-        if (compressionLevel != 2) {
-            // Check if the response is of sufficient length to trigger the compression
-            long contentLength = response.getContentLengthLong();
-            if (contentLength != -1 && contentLength < compressionMinSize) {
-                return false;
-            }
-
-            // Check for compatible MIME-TYPE
-            String[] compressibleMimeTypes = getCompressibleMimeTypes();
-            if (compressibleMimeTypes != null &&
-                    !startsWithStringArray(compressibleMimeTypes, response.getContentType())) {
-                return false;
-            }
+        if (compressionLevel != 2 && !isCompressible(response.getContentType(), response.getContentLengthLong())) {
+            return null;
         }
 
         Enumeration<String> headerValues = request.getMimeHeaders().values("TE");
-        boolean foundGzip = false;
         // TE and accept-encoding seem to have equivalent syntax
-        while (!foundGzip && headerValues.hasMoreElements()) {
+        CodecSelector selector = new CodecSelector(codecs);
+        while (headerValues.hasMoreElements()) {
             List<TE> tes;
             try {
                 tes = TE.parse(new StringReader(headerValues.nextElement()));
             } catch (IOException ioe) {
                 // If there is a problem reading the header, disable compression
-                return false;
+                return null;
             }
 
             for (TE te : tes) {
-                if ("gzip".equalsIgnoreCase(te.getEncoding())) {
-                    useTransferEncoding = true;
-                    foundGzip = true;
-                    break;
-                }
+                selector.accept(te.getEncoding(), te.getQuality());
             }
         }
+        CompressionCodec codec = selector.select();
+        if (codec != null) {
+            useTransferEncoding = true;
+        }
 
         // Check if the resource has a strong ETag
         String eTag = responseHeaders.getHeader("ETag");
         if (!useTransferEncoding && eTag != null && !eTag.trim().startsWith("W/")) {
             // Has an ETag that doesn't start with "W/..." so it must be a
             // strong ETag
-            return false;
+            return null;
         }
 
         if (useContentEncoding && !useTransferEncoding) {
@@ -268,30 +394,17 @@ public class CompressionConfig {
             // Therefore, set the Vary header to keep proxies happy
             ResponseUtil.addVaryFieldName(responseHeaders, "accept-encoding");
 
-            // Check if user-agent supports gzip encoding
-            // Only interested in whether gzip encoding is supported. Other
-            // encodings and weights can be ignored.
-            headerValues = request.getMimeHeaders().values("accept-encoding");
-            while (!foundGzip && headerValues.hasMoreElements()) {
-                List<AcceptEncoding> acceptEncodings;
-                try {
-                    acceptEncodings = AcceptEncoding.parse(new StringReader(headerValues.nextElement()));
-                } catch (IOException ioe) {
-                    // If there is a problem reading the header, disable compression
-                    return false;
-                }
-
-                for (AcceptEncoding acceptEncoding : acceptEncodings) {
-                    if ("gzip".equalsIgnoreCase(acceptEncoding.getEncoding())) {
-                        foundGzip = true;
-                        break;
-                    }
-                }
+            // Select the preferred encoding supported by the user-agent
+            try {
+                codec = selectCodec(codecs, request.getMimeHeaders().values("accept-encoding"));
+            } catch (IOException ioe) {
+                // If there is a problem reading the header, disable compression
+                return null;
             }
         }
 
-        if (!foundGzip) {
-            return false;
+        if (codec == null) {
+            return null;
         }
 
         // If force mode, the browser checks are skipped
@@ -303,7 +416,7 @@ public class CompressionConfig {
                 if (userAgentValueMB != null) {
                     String userAgentValue = userAgentValueMB.toString();
                     if (noCompressionUserAgents.matcher(userAgentValue).matches()) {
-                        return false;
+                        return null;
                     }
                 }
             }
@@ -315,13 +428,55 @@ public class CompressionConfig {
         response.setContentLength(-1);
         if (useTransferEncoding) {
             // Configure the transfer encoding for compressed content
-            responseHeaders.addValue("Transfer-Encoding").setString("gzip");
+            responseHeaders.addValue("Transfer-Encoding").setString(codec.getEncoding());
         } else {
             // Configure the content encoding for compressed content
-            responseHeaders.addValue("Content-Encoding").setString("gzip");
+            responseHeaders.addValue("Content-Encoding").setString(codec.getEncoding());
         }
 
-        return true;
+        return codec;
+    }
+
+
+    /**
+     * Selects the codec to use based on the Accept-Encoding headers provided by the client. The codec with the highest
+     * quality is selected. Ties are resolved using the order of the provided codecs.
+     *
+     * @param codecs       The available codecs in order of server preference
+     * @param headerValues The values of the Accept-Encoding headers
+     *
+     * @return The selected codec or {@code null} if the client did not accept any of the codecs or prefers an
+     *             uncompressed response
+     *
+     * @throws IOException If a header value could not be parsed
+     */
+    public static CompressionCodec selectCodec(CompressionCodec[] codecs, Enumeration<String> headerValues)
+            throws IOException {
+        CodecSelector selector = new CodecSelector(codecs);
+        while (headerValues.hasMoreElements()) {
+            for (AcceptEncoding acceptEncoding : AcceptEncoding.parse(new StringReader(headerValues.nextElement()))) {
+                selector.accept(acceptEncoding.getEncoding(), acceptEncoding.getQuality());
+            }
+        }
+        return selector.select();
+    }
+
+
+    /**
+     * Determines if content of the given type and length is eligible for compression. The content must be at least
+     * the minimum compression size and of one of the compressible MIME types. The compression level and the encodings
+     * accepted by the client are not considered.
+     *
+     * @param contentType   The content type or {@code null} if not known
+     * @param contentLength The content length in bytes or -1 if not known
+     *
+     * @return {@code true} if content of the given type and length may be compressed
+     */
+    public boolean isCompressible(String contentType, long contentLength) {
+        if (contentLength != -1 && contentLength < compressionMinSize) {
+            return false;
+        }
+        return startsWithStringArray(getCompressibleMimeTypes(), contentType);
     }
 
 
@@ -342,4 +497,56 @@ public class CompressionConfig {
         }
         return false;
     }
+
+
+    /*
+     * Selects the codec with the highest quality from the encodings listed by the client. Encodings that are not
+     * listed use the quality of the wildcard, if present. A quality of zero means the encoding is not acceptable.
+     */
+    private static class CodecSelector {
+
+        private final CompressionCodec[] codecs;
+        private final double[] qualities;
+        private double wildcardQuality = -1;
+        private double identityQuality = -1;
+
+        CodecSelector(CompressionCodec[] codecs) {
+            this.codecs = codecs;
+            qualities = new double[codecs.length];
+            Arrays.fill(qualities, -1);
+        }
+
+        void accept(String encoding, double quality) {
+            if ("*".equals(encoding)) {
+                wildcardQuality = quality;
+            } else if ("identity".equalsIgnoreCase(encoding)) {
+                identityQuality = quality;
+            } else {
+                for (int i = 0; i < codecs.length; i++) {
+                    if (codecs[i].getEncoding().equalsIgnoreCase(encoding)) {
+                        qualities[i] = quality;
+                        break;
+                    }
+                }
+            }
+        }
+
+        CompressionCodec select() {
+            CompressionCodec result = null;
+            double bestQuality = 0;
+            for (int i = 0; i < codecs.length; i++) {
+                double quality = qualities[i] < 0 ? wildcardQuality : qualities[i];
+                // Strictly greater so the server's preference is used for ties
+                if (quality > bestQuality) {
+                    result = codecs[i];
+                    bestQuality = quality;
+                }
+            }
+            if (identityQuality > bestQuality) {
+                // The client prefers an uncompressed response
+                return null;
+            }
+            return result;
+        }
+    }
 }
@@ -0,0 +1,75 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.apache.coyote;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+
+/**
+ * Compression codec for the <code>deflate</code> content coding, i.e. the zlib format defined by RFC 1950. Valid levels
+ * are 0 to 9.
+ */
+public class DeflateCompressionCodec implements CompressionCodec {
+
+    private volatile int level = DEFAULT_LEVEL;
+
+
+    @Override
+    public String getEncoding() {
+        return "deflate";
+    }
+
+
+    @Override
+    public int getLevel() {
+        return level;
+    }
+
+
+    @Override
+    public void setLevel(int level) {
+        this.level = level;
+    }
+
+
+    @Override
+    public OutputStream createOutputStream(OutputStream out) throws IOException {
+        return new EndingDeflaterOutputStream(out, new Deflater(level));
+    }
+
+
+    /*
+     * DeflaterOutputStream only ends the Deflater on close if it created the Deflater.
+     */
+    private static class EndingDeflaterOutputStream extends DeflaterOutputStream {
+
+        EndingDeflaterOutputStream(OutputStream out, Deflater deflater) {
+            super(out, deflater, true);
+        }
+
+        @Override
+        public void close() throws IOException {
+            try {
+                super.close();
+            } finally {
+                def.end();
+            }
+        }
+    }
+}
@@ -0,0 +1,65 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.apache.coyote;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Compression codec for the <code>gzip</code> content coding. Valid levels are 0 to 9.
+ */
+public class GzipCompressionCodec implements CompressionCodec {
+
+    private volatile int level = DEFAULT_LEVEL;
+
+
+    @Override
+    public String getEncoding() {
+        return "gzip";
+    }
+
+
+    @Override
+    public int getLevel() {
+        return level;
+    }
+
+
+    @Override
+    public void setLevel(int level) {
+        this.level = level;
+    }
+
+
+    @Override
+    public OutputStream createOutputStream(OutputStream out) throws IOException {
+        return new LevelGZIPOutputStream(out, level);
+    }
+
+
+    private static class LevelGZIPOutputStream extends GZIPOutputStream {
+
+        LevelGZIPOutputStream(OutputStream out, int level) throws IOException {
+            super(out, true);
+            // The header written by the constructor is not compressed so it is safe to set the level here
+            if (level != DEFAULT_LEVEL) {
+                def.setLevel(level);
+            }
+        }
+    }
+}
@@ -33,6 +33,7 @@ import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpUpgradeHandler;
 
 import org.apache.coyote.AbstractProtocol;
+import org.apache.coyote.CompressionCodec;
 import org.apache.coyote.CompressionConfig;
 import org.apache.coyote.ContinueResponseTiming;
 import org.apache.coyote.Processor;
@@ -340,11 +341,34 @@ public abstract class AbstractHttp11Protocol<S> extends AbstractProtocol<S> {
     }
 
 
+    public String getCompressionEncodings() {
+        return compressionConfig.getCompressionEncodings();
+    }
+
+    public void setCompressionEncodings(String compressionEncodings) {
+        compressionConfig.setCompressionEncodings(compressionEncodings);
+    }
+
+
+    public String getCompressionEncodingLevels() {
+        return compressionConfig.getCompressionEncodingLevels();
+    }
+
+    public void setCompressionEncodingLevels(String compressionEncodingLevels) {
+        compressionConfig.setCompressionEncodingLevels(compressionEncodingLevels);
+    }
+
+
     public boolean useCompression(Request request, Response response) {
         return compressionConfig.useCompression(request, response);
     }
 
 
+    public CompressionCodec getCompressionCodec(Request request, Response response) {
+        return compressionConfig.getCompressionCodec(request, response);
+    }
+
+
     private Pattern restrictedUserAgents = null;
 
     /**
@@ -64,6 +64,14 @@ public class Http11NioProtocol extends AbstractHttp11Protocol<NioChannel> {
         return ((NioEndpoint) getEndpoint()).getPollerThreadPriority();
     }
 
+    public void setPollerThreadCount(int pollerThreadCount) {
+        ((NioEndpoint) getEndpoint()).setPollerThreadCount(pollerThreadCount);
+    }
+
+    public int getPollerThreadCount() {
+        return ((NioEndpoint) getEndpoint()).getPollerThreadCount();
+    }
+
 
     @Override
     protected String getNamePrefix() {
@@ -0,0 +1,201 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.apache.coyote.http11.filters;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+
+import org.apache.coyote.CompressionCodec;
+import org.apache.coyote.GzipCompressionCodec;
+import org.apache.coyote.Response;
+import org.apache.coyote.http11.HttpOutputBuffer;
+import org.apache.coyote.http11.OutputFilter;
+import org.apache.juli.logging.Log;
+import org.apache.juli.logging.LogFactory;
+import org.apache.tomcat.util.res.StringManager;
+
+/**
+ * Output filter that compresses the response body using a {@link CompressionCodec}. If no codec is set, gzip is used.
+ */
+public class CompressionOutputFilter implements OutputFilter {
+
+    protected static final Log log = LogFactory.getLog(CompressionOutputFilter.class);
+    private static final StringManager sm = StringManager.getManager(CompressionOutputFilter.class);
+
+    private static final CompressionCodec DEFAULT_CODEC = new GzipCompressionCodec();
+
+
+    // ----------------------------------------------------- Instance Variables
+
+    /**
+     * Next buffer in the pipeline.
+     */
+    protected HttpOutputBuffer buffer;
+
+
+    /**
+     * The codec used to compress the response body.
+     */
+    protected CompressionCodec codec = DEFAULT_CODEC;
+
+
+    /**
+     * Compression output stream.
+     */
+    protected OutputStream compressionStream = null;
+
+
+    /**
+     * Fake internal output stream.
+     */
+    protected final OutputStream fakeOutputStream = new FakeOutputStream();
+
+
+    // ----------------------------------------------------------- Constructors
+
+    public CompressionOutputFilter() {
+    }
+
+
+    public CompressionOutputFilter(CompressionCodec codec) {
+        setCodec(codec);
+    }
+
+
+    // ------------------------------------------------------------- Properties
+
+    public CompressionCodec getCodec() {
+        return codec;
+    }
+
+
+    /**
+     * Set the codec to use to compress the response body. The codec must be set before any data is written.
+     *
+     * @param codec The codec to use or {@code null} to use gzip
+     */
+    public void setCodec(CompressionCodec codec) {
+        this.codec = codec == null ? DEFAULT_CODEC : codec;
+    }
+
+
+    // --------------------------------------------------- OutputBuffer Methods
+
+    @Override
+    public int doWrite(ByteBuffer chunk) throws IOException {
+        if (compressionStream == null) {
+            compressionStream = codec.createOutputStream(fakeOutputStream);
+        }
+        int len = chunk.remaining();
+        if (chunk.hasArray()) {
+            compressionStream.write(chunk.array(), chunk.arrayOffset() + chunk.position(), len);
+            chunk.position(chunk.position() + len);
+        } else {
+            byte[] bytes = new byte[len];
+            chunk.get(bytes);
+            compressionStream.write(bytes, 0, len);
+        }
+        return len;
+    }
+
+
+    @Override
+    public long getBytesWritten() {
+        return buffer.getBytesWritten();
+    }
+
+
+    // --------------------------------------------------- OutputFilter Methods
+
+    /**
+     * {@inheritDoc} Added to allow flushing to happen for the compressed output stream.
+     */
+    @Override
+    public void flush() throws IOException {
+        if (compressionStream != null) {
+            try {
+                if (log.isTraceEnabled()) {
+                    log.trace("Flushing the compression stream!");
+                }
+                compressionStream.flush();
+            } catch (IOException ioe) {
+                if (log.isDebugEnabled()) {
+                    log.debug(sm.getString("compressionOutputFilter.flushFail", codec.getEncoding()), ioe);
+                }
+            }
+        }
+        buffer.flush();
+    }
+
+
+    @Override
+    public void setResponse(Response response) {
+        // NOOP: No need for parameters from response in this filter
+    }
+
+
+    @Override
+    public void setBuffer(HttpOutputBuffer buffer) {
+        this.buffer = buffer;
+    }
+
+
+    @Override
+    public void end() throws IOException {
+        if (compressionStream == null) {
+            compressionStream = codec.createOutputStream(fakeOutputStream);
+        }
+        compressionStream.close();
+        buffer.end();
+    }
+
+
+    @Override
+    public void recycle() {
+        // Set compression stream to null
+        compressionStream = null;
+        codec = DEFAULT_CODEC;
+    }
+
+
+    // ------------------------------------------- FakeOutputStream Inner Class
+
+
+    protected class FakeOutputStream extends OutputStream {
+        protected final ByteBuffer outputChunk = ByteBuffer.allocate(1);
+
+        @Override
+        public void write(int b) throws IOException {
+            outputChunk.put(0, (byte) (b & 0xff));
+            buffer.doWrite(outputChunk);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            buffer.doWrite(ByteBuffer.wrap(b, off, len));
+        }
+
+        @Override
+        public void flush() throws IOException {
+            /* NOOP */}
+
+        @Override
+        public void close() throws IOException {
+            /* NOOP */}
+    }
+}
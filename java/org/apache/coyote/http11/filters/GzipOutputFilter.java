@@ -30,7 +30,11 @@ import org.apache.tomcat.util.res.StringManager;
 
 /**
  * Gzip output filter.
+ *
+ * @deprecated Replaced by {@link CompressionOutputFilter} with {@link org.apache.coyote.GzipCompressionCodec}. Will be
+ *                 removed in Tomcat 13.
  */
+@Deprecated
 public class GzipOutputFilter implements OutputFilter {
 
     protected static final Log log = LogFactory.getLog(GzipOutputFilter.class);
@@ -0,0 +1,81 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.apache.coyote.http11.iouring;
+
+import org.apache.coyote.http11.AbstractHttp11Protocol;
+import org.apache.juli.logging.Log;
+import org.apache.juli.logging.LogFactory;
+import org.apache.tomcat.util.net.iouring.IoUringEndpoint;
+import org.apache.tomcat.util.net.iouring.IoUringSocket;
+
+
+/**
+ * HTTP/1.1 protocol implementation using Linux io_uring.
+ */
+public class Http11IoUringProtocol extends AbstractHttp11Protocol<IoUringSocket> {
+
+    private static final Log log = LogFactory.getLog(Http11IoUringProtocol.class);
+
+
+    public Http11IoUringProtocol() {
+        this(new IoUringEndpoint());
+    }
+
+
+    public Http11IoUringProtocol(IoUringEndpoint endpoint) {
+        super(endpoint);
+    }
+
+
+    @Override
+    protected Log getLog() {
+        return log;
+    }
+
+
+    // -------------------- Pool setup --------------------
+
+    public void setPollerThreadPriority(int threadPriority) {
+        ((IoUringEndpoint) getEndpoint()).setPollerThreadPriority(threadPriority);
+    }
+
+    public int getPollerThreadPriority() {
+        return ((IoUringEndpoint) getEndpoint()).getPollerThreadPriority();
+    }
+
+    public void setSubmissionQueueSize(int submissionQueueSize) {
+        ((IoUringEndpoint) getEndpoint()).setSubmissionQueueSize(submissionQueueSize);
+    }
+
+    public int getSubmissionQueueSize() {
+        return ((IoUringEndpoint) getEndpoint()).getSubmissionQueueSize();
+    }
+
+    public void setReceiveBufferCount(int receiveBufferCount) {
+        ((IoUringEndpoint) getEndpoint()).setReceiveBufferCount(receiveBufferCount);
+    }
+
+    public int getReceiveBufferCount() {
+        return ((IoUringEndpoint) getEndpoint()).getReceiveBufferCount();
+    }
+
+
+    @Override
+    protected String getNamePrefix() {
+        return "http-iouring";
+    }
+}
@@ -0,0 +1,268 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.apache.coyote.http2;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.apache.tomcat.util.ExceptionUtils;
+import org.apache.tomcat.util.collections.MpscRingBuffer;
+import org.apache.tomcat.util.net.SocketWrapperBase;
+
+/**
+ * Queue of frames waiting to be written to the socket of an HTTP/2 connection. A thread that needs to write a frame
+ * adds it to the queue and then tries to obtain the socket lock. The thread that obtains the lock writes every frame in
+ * the queue, including those added by other threads, and then flushes the socket once for the whole batch. Threads that
+ * do not obtain the lock wait for their frame to be written rather than queuing for the lock. This reduces contention
+ * for the socket lock and the number of network writes when many streams on a connection write concurrently.
+ * <p>
+ * Within a batch, frames other than DATA frames are written first, in the order in which they were added to the queue.
+ * DATA frames are then written in the order defined by the RFC 9218 priorities of their streams: most urgent first and,
+ * within an urgency level, non-incremental streams in stream ID order followed by incremental streams in the order in
+ * which their frames were added to the queue. Since a thread waits for its frame to be written before it adds another,
+ * frames for any one stream are always written in order. Any thread holding the socket lock may write the queued
+ * frames by calling {@link #drain()}.
+ */
+class FrameWriteQueue {
+
+    static final int DEFAULT_CAPACITY = 64;
+
+    /*
+     * Lower than any RFC 9218 urgency so frames that are not DATA frames are written before DATA frames.
+     */
+    private static final int NON_DATA_URGENCY = -1;
+
+    private static final Comparator<PendingWrite> WRITE_ORDER =
+            Comparator.comparingInt((PendingWrite pendingWrite) -> pendingWrite.urgency)
+                    .thenComparingInt(pendingWrite -> pendingWrite.incremental ? 1 : 0)
+                    .thenComparingInt(pendingWrite -> pendingWrite.incremental ? 0 : pendingWrite.streamId);
+
+    /*
+     * A thread waiting for its frame to be written is normally woken as soon as the frame has been written. This limits
+     * the wait if the socket lock is released without the queue being drained.
+     */
+    private static final long MAX_WAIT_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+
+    private final ReentrantLock lock;
+    private final FrameWriter flusher;
+    private final MpscRingBuffer<PendingWrite> queue;
+
+    // Only accessed by the thread holding the lock
+    private final PendingWrite[] batch;
+
+    // Only modified by the thread holding the lock
+    private volatile long frameCount = 0;
+    private volatile long flushCount = 0;
+
+
+    FrameWriteQueue(SocketWrapperBase<?> socketWrapper, int capacity) {
+        this(socketWrapper.getLock(), () -> socketWrapper.flush(true), capacity);
+    }
+
+
+    FrameWriteQueue(ReentrantLock lock, FrameWriter flusher, int capacity) {
+        this.lock = lock;
+        this.flusher = flusher;
+        queue = new MpscRingBuffer<>(capacity);
+        batch = new PendingWrite[queue.capacity()];
+    }
+
+
+    /**
+     * Write one or more frames that are not DATA frames. The frames are written either by the current thread or by
+     * another thread that holds the socket lock. This method does not return until the frames have been written and the
+     * socket flushed.
+     *
+     * @param frameWriter Writes the frames to the socket. It will be called by the thread holding the socket lock.
+     *
+     * @throws IOException If an I/O error occurs writing the frames or any frame that was written in the same batch
+     */
+    void write(FrameWriter frameWriter) throws IOException {
+        write(NON_DATA_URGENCY, false, 0, frameWriter);
+    }
+
+
+    /**
+     * Write a DATA frame. The frame is written either by the current thread or by another thread that holds the socket
+     * lock. This method does not return until the frame has been written and the socket flushed.
+     *
+     * @param urgency     The RFC 9218 urgency of the stream
+     * @param incremental The RFC 9218 incremental flag of the stream
+     * @param streamId    The ID of the stream
+     * @param frameWriter Writes the frame to the socket. It will be called by the thread holding the socket lock.
+     *
+     * @throws IOException If an I/O error occurs writing the frame or any frame that was written in the same batch
+     */
+    void write(int urgency, boolean incremental, int streamId, FrameWriter frameWriter) throws IOException {
+        if (lock.isHeldByCurrentThread()) {
+            // Write directly, after any frames that are already queued
+            drain();
+            writeDirect(frameWriter);
+            return;
+        }
+
+        PendingWrite pendingWrite =
+                new PendingWrite(frameWriter, Thread.currentThread(), urgency, incremental, streamId);
+        if (!queue.offer(pendingWrite)) {
+            // Queue is full. Wait for the lock.
+            lock.lock();
+            try {
+                drain();
+                writeDirect(frameWriter);
+            } finally {
+                lock.unlock();
+            }
+            return;
+        }
+
+        while (!pendingWrite.done) {
+            if (lock.tryLock()) {
+                try {
+                    drain();
+                } finally {
+                    lock.unlock();
+                }
+            } else {
+                LockSupport.parkNanos(this, MAX_WAIT_NANOS);
+            }
+        }
+        pendingWrite.throwIfFailed();
+    }
+
+
+    /**
+     * Write all the frames currently in the queue and flush the socket. Errors are reported to the threads that added
+     * the frames. The caller must hold the socket lock.
+     */
+    void drain() {
+        PendingWrite pendingWrite = queue.poll();
+        if (pendingWrite == null) {
+            return;
+        }
+        int count = 0;
+        do {
+            batch[count++] = pendingWrite;
+        } while (count < batch.length && (pendingWrite = queue.poll()) != null);
+        if (count > 1) {
+            // Stable so frames of equal priority remain in the order they were queued
+            Arrays.sort(batch, 0, count, WRITE_ORDER);
+        }
+
+        IOException ioe = null;
+        for (int i = 0; i < count && ioe == null; i++) {
+            try {
+                batch[i].frameWriter.write();
+            } catch (IOException e) {
+                // The connection is unusable. Fail the remainder of the batch.
+                ioe = e;
+            } catch (Throwable t) {
+                ExceptionUtils.handleThrowable(t);
+                batch[i].error = t;
+            }
+        }
+
+        if (ioe == null) {
+            try {
+                flusher.write();
+            } catch (IOException e) {
+                ioe = e;
+            }
+        }
+        frameCount += count;
+        flushCount++;
+
+        for (int i = 0; i < count; i++) {
+            batch[i].complete(ioe);
+            batch[i] = null;
+        }
+    }
+
+
+    /**
+     * @return the number of frames written via this queue
+     */
+    long getFrameCount() {
+        return frameCount;
+    }
+
+
+    /**
+     * @return the number of times the socket has been flushed after writing frames via this queue
+     */
+    long getFlushCount() {
+        return flushCount;
+    }
+
+
+    private void writeDirect(FrameWriter frameWriter) throws IOException {
+        frameCount++;
+        flushCount++;
+        frameWriter.write();
+        flusher.write();
+    }
+
+
+    /**
+     * Writes one or more frames to the socket. Implementations must not flush the socket.
+     */
+    @FunctionalInterface
+    interface FrameWriter {
+        void write() throws IOException;
+    }
+
+
+    private static class PendingWrite {
+
+        private final FrameWriter frameWriter;
+        private final Thread thread;
+        private final int urgency;
+        private final boolean incremental;
+        private final int streamId;
+        private Throwable error;
+        private volatile boolean done = false;
+
+        PendingWrite(FrameWriter frameWriter, Thread thread, int urgency, boolean incremental, int streamId) {
+            this.frameWriter = frameWriter;
+            this.thread = thread;
+            this.urgency = urgency;
+            this.incremental = incremental;
+            this.streamId = streamId;
+        }
+
+        void complete(IOException ioe) {
+            if (error == null) {
+                error = ioe;
+            }
+            done = true;
+            LockSupport.unpark(thread);
+        }
+
+        void throwIfFailed() throws IOException {
+            if (error instanceof IOException) {
+                throw (IOException) error;
+            } else if (error instanceof RuntimeException) {
+                throw (RuntimeException) error;
+            } else if (error instanceof Error) {
+                throw (Error) error;
+            }
+        }
+    }
+}
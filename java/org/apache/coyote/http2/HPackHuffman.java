@@ -423,6 +423,25 @@ public class HPackHuffman {
     }
 
 
+    /**
+     * Encodes the given string as a Huffman encoded string literal.
+     *
+     * @param toEncode       The string to encode
+     * @param forceLowercase If the string should be encoded in lower case
+     *
+     * @return The string literal, including the length prefix, or {@code null} if the encoded version is bigger than
+     *             the original
+     */
+    static byte[] encode(String toEncode, boolean forceLowercase) {
+        // Length prefix plus the encoded string which must not be bigger than the original
+        ByteBuffer buffer = ByteBuffer.allocate(toEncode.length() + 6);
+        if (encode(buffer, toEncode, forceLowercase)) {
+            return Arrays.copyOf(buffer.array(), buffer.position());
+        }
+        return null;
+    }
+
+
     /**
      * Encodes the given string into the buffer. If there is not enough space in the buffer, or the encoded version is
      * bigger than the original it will return false and not modify the buffers position.
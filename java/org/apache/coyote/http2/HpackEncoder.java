@@ -19,6 +19,7 @@ package org.apache.coyote.http2;
 import java.nio.ByteBuffer;
 import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.Deque;
 import java.util.HashMap;
@@ -28,6 +29,7 @@ import java.util.Map;
 
 import org.apache.juli.logging.Log;
 import org.apache.juli.logging.LogFactory;
+import org.apache.tomcat.util.collections.ConcurrentCache;
 import org.apache.tomcat.util.http.MimeHeaders;
 import org.apache.tomcat.util.res.StringManager;
 
@@ -63,6 +65,16 @@ class HpackEncoder {
 
     };
 
+    /*
+     * Encoded string literals for header names and values, shared by all connections. Most responses repeat a small
+     * set of header names and values (content-type, cache-control, server, the current date etc.) and caching the
+     * literals avoids Huffman encoding the same strings for every response on every connection. Only strings that are
+     * eligible for Huffman encoding are cached and long values, which are unlikely to repeat, are excluded.
+     */
+    private static final ConcurrentCache<String,byte[]> ENCODED_NAMES = new ConcurrentCache<>(256);
+    private static final ConcurrentCache<String,byte[]> ENCODED_VALUES = new ConcurrentCache<>(1024);
+    private static final int MAX_CACHED_LENGTH = 128;
+
     private int headersIterator = -1;
     private boolean firstPass = true;
 
@@ -107,9 +119,15 @@ class HpackEncoder {
     private int currentTableSize;
 
     private final HpackHeaderFunction hpackHeaderFunction;
+    private final boolean useEncodedStringCache;
 
     HpackEncoder() {
+        this(true);
+    }
+
+    HpackEncoder(boolean useEncodedStringCache) {
         this.hpackHeaderFunction = DEFAULT_HEADER_FUNCTION;
+        this.useEncodedStringCache = useEncodedStringCache;
     }
 
     /**
@@ -210,34 +228,57 @@ class HpackEncoder {
 
     private void writeHuffmanEncodableName(ByteBuffer target, String headerName) {
         if (hpackHeaderFunction.shouldUseHuffman(headerName)) {
+            if (useEncodedStringCache && headerName.length() <= MAX_CACHED_LENGTH) {
+                target.put(getEncodedString(ENCODED_NAMES, headerName, true));
+                return;
+            }
             if (HPackHuffman.encode(target, headerName, true)) {
                 return;
             }
         }
-        target.put((byte) 0); // to use encodeInteger we need to place the first byte in the buffer.
-        Hpack.encodeInteger(target, headerName.length(), 7);
-        for (int j = 0; j < headerName.length(); ++j) {
-            target.put((byte) Hpack.toLower(headerName.charAt(j)));
-        }
-
+        writeString(target, headerName, true);
     }
 
     private void writeHuffmanEncodableValue(ByteBuffer target, String headerName, String val) {
         if (hpackHeaderFunction.shouldUseHuffman(headerName, val)) {
-            if (!HPackHuffman.encode(target, val, false)) {
-                writeValueString(target, val);
+            if (useEncodedStringCache && val.length() <= MAX_CACHED_LENGTH) {
+                target.put(getEncodedString(ENCODED_VALUES, val, false));
+            } else if (!HPackHuffman.encode(target, val, false)) {
+                writeString(target, val, false);
             }
         } else {
-            writeValueString(target, val);
+            writeString(target, val, false);
         }
     }
 
-    private void writeValueString(ByteBuffer target, String val) {
+    private static void writeString(ByteBuffer target, String val, boolean forceLowercase) {
         target.put((byte) 0); // to use encodeInteger we need to place the first byte in the buffer.
         Hpack.encodeInteger(target, val.length(), 7);
         for (int j = 0; j < val.length(); ++j) {
-            target.put((byte) val.charAt(j));
+            if (forceLowercase) {
+                target.put((byte) Hpack.toLower(val.charAt(j)));
+            } else {
+                target.put((byte) val.charAt(j));
+            }
+        }
+    }
+
+    /*
+     * Returns the string literal for the given string, Huffman encoded if that is shorter, from the shared cache,
+     * encoding and caching it if necessary.
+     */
+    private static byte[] getEncodedString(ConcurrentCache<String,byte[]> cache, String val, boolean forceLowercase) {
+        byte[] encoded = cache.get(val);
+        if (encoded == null) {
+            encoded = HPackHuffman.encode(val, forceLowercase);
+            if (encoded == null) {
+                ByteBuffer buffer = ByteBuffer.allocate(val.length() + 6);
+                writeString(buffer, val, forceLowercase);
+                encoded = Arrays.copyOf(buffer.array(), buffer.position());
+            }
+            cache.put(val, encoded);
         }
+        return encoded;
     }
 
     private void addToDynamicTable(String headerName, String val) {
@@ -256,41 +256,28 @@ public class Http2AsyncUpgradeHandler extends Http2UpgradeHandler {
 
 
     @Override
-    void writeWindowUpdate(AbstractNonZeroStream stream, int increment, boolean applicationInitiated)
-            throws IOException {
-        if (log.isTraceEnabled()) {
-            log.trace(sm.getString("upgradeHandler.windowUpdateConnection", getConnectionId(),
-                    Integer.valueOf(increment)));
+    protected void writeWindowUpdateFrames(int connectionIncrement, AbstractNonZeroStream stream, int streamIncrement,
+            boolean applicationInitiated) throws IOException {
+        List<ByteBuffer> frames = new ArrayList<>(2);
+        if (connectionIncrement > 0) {
+            if (log.isTraceEnabled()) {
+                log.trace(sm.getString("upgradeHandler.windowUpdateConnection", getConnectionId(),
+                        Integer.valueOf(connectionIncrement)));
+            }
+            frames.add(ByteBuffer.wrap(createWindowUpdate(0, connectionIncrement)));
         }
-        // Build window update frame for stream 0
-        byte[] frame = new byte[13];
-        ByteUtil.setThreeBytes(frame, 0, 4);
-        frame[3] = FrameType.WINDOW_UPDATE.getIdByte();
-        ByteUtil.set31Bits(frame, 9, increment);
-        boolean neetToWriteConnectionUpdate = true;
-        // No need to send update from closed stream
-        if (stream instanceof Stream && ((Stream) stream).canWrite()) {
-            int streamIncrement = ((Stream) stream).getWindowUpdateSizeToWrite(increment);
-            if (streamIncrement > 0) {
-                if (log.isTraceEnabled()) {
-                    log.trace(sm.getString("upgradeHandler.windowUpdateStream", getConnectionId(), getIdAsString(),
-                            Integer.valueOf(streamIncrement)));
-                }
-                byte[] frame2 = new byte[13];
-                ByteUtil.setThreeBytes(frame2, 0, 4);
-                frame2[3] = FrameType.WINDOW_UPDATE.getIdByte();
-                ByteUtil.set31Bits(frame2, 9, streamIncrement);
-                ByteUtil.set31Bits(frame2, 5, stream.getIdAsInt());
-                socketWrapper.write(BlockingMode.SEMI_BLOCK, protocol.getWriteTimeout(), TimeUnit.MILLISECONDS, null,
-                        SocketWrapperBase.COMPLETE_WRITE, errorCompletion, ByteBuffer.wrap(frame),
-                        ByteBuffer.wrap(frame2));
-                neetToWriteConnectionUpdate = false;
+        if (streamIncrement > 0) {
+            if (log.isTraceEnabled()) {
+                log.trace(sm.getString("upgradeHandler.windowUpdateStream", getConnectionId(), stream.getIdAsString(),
+                        Integer.valueOf(streamIncrement)));
             }
+            frames.add(ByteBuffer.wrap(createWindowUpdate(stream.getIdAsInt(), streamIncrement)));
         }
-        if (neetToWriteConnectionUpdate) {
-            socketWrapper.write(BlockingMode.SEMI_BLOCK, protocol.getWriteTimeout(), TimeUnit.MILLISECONDS, null,
-                    SocketWrapperBase.COMPLETE_WRITE, errorCompletion, ByteBuffer.wrap(frame));
+        if (frames.isEmpty()) {
+            return;
         }
+        socketWrapper.write(BlockingMode.SEMI_BLOCK, protocol.getWriteTimeout(), TimeUnit.MILLISECONDS, null,
+                SocketWrapperBase.COMPLETE_WRITE, errorCompletion, frames.toArray(new ByteBuffer[0]));
         handleAsyncException();
     }
 
@@ -18,10 +18,13 @@ package org.apache.coyote.http2;
 
 import java.nio.charset.StandardCharsets;
 import java.util.Enumeration;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
 
 import javax.management.ObjectName;
 
 import org.apache.coyote.Adapter;
+import org.apache.coyote.CompressionCodec;
 import org.apache.coyote.ContinueResponseTiming;
 import org.apache.coyote.Processor;
 import org.apache.coyote.Request;
@@ -65,6 +68,8 @@ public class Http2Protocol implements UpgradeProtocol {
     static final int DEFAULT_OVERHEAD_CONTINUATION_THRESHOLD = 1024;
     static final int DEFAULT_OVERHEAD_DATA_THRESHOLD = 1024;
     static final int DEFAULT_OVERHEAD_WINDOW_UPDATE_THRESHOLD = 1024;
+    // 4 MiB
+    static final int DEFAULT_MAX_WINDOW_SIZE = 4 * 1024 * 1024;
 
     private static final String HTTP_UPGRADE_NAME = "h2c";
     private static final String ALPN_NAME = "h2";
@@ -94,12 +99,19 @@ public class Http2Protocol implements UpgradeProtocol {
     private int overheadWindowUpdateThreshold = DEFAULT_OVERHEAD_WINDOW_UPDATE_THRESHOLD;
 
     private boolean initiatePingDisabled = false;
+    private boolean windowAutoTuning = false;
+    private int maxWindowSize = DEFAULT_MAX_WINDOW_SIZE;
     private boolean useSendfile = true;
     // Reference to HTTP/1.1 protocol that this instance is configured under
     private AbstractHttp11Protocol<?> http11Protocol = null;
 
     private final RequestGroupInfo global = new RequestGroupInfo();
 
+    // Flow control window stall statistics, aggregated across all streams
+    private final LongAdder windowStallCount = new LongAdder();
+    private final LongAdder streamWindowStallNanos = new LongAdder();
+    private final LongAdder connectionWindowStallNanos = new LongAdder();
+
     /*
      * Setting discardRequestsAndResponses can have a significant performance impact. The magnitude of the impact is
      * very application dependent but with a simple Spring Boot application[1] returning a short JSON response running
@@ -353,11 +365,79 @@ public class Http2Protocol implements UpgradeProtocol {
     }
 
 
+    public boolean getWindowAutoTuning() {
+        return windowAutoTuning;
+    }
+
+
+    public void setWindowAutoTuning(boolean windowAutoTuning) {
+        this.windowAutoTuning = windowAutoTuning;
+    }
+
+
+    public int getMaxWindowSize() {
+        return maxWindowSize;
+    }
+
+
+    public void setMaxWindowSize(int maxWindowSize) {
+        if (maxWindowSize < ConnectionSettingsBase.DEFAULT_INITIAL_WINDOW_SIZE) {
+            this.maxWindowSize = ConnectionSettingsBase.DEFAULT_INITIAL_WINDOW_SIZE;
+        } else {
+            this.maxWindowSize = maxWindowSize;
+        }
+    }
+
+
+    /**
+     * Record the time a stream spent waiting for flow control window to be allocated. Called once for each stream that
+     * had to wait, when the stream is recycled.
+     *
+     * @param streamNanos     Time, in nanoseconds, spent waiting for the stream flow control window
+     * @param connectionNanos Time, in nanoseconds, spent waiting for the connection flow control window
+     */
+    void recordWindowStall(long streamNanos, long connectionNanos) {
+        windowStallCount.increment();
+        streamWindowStallNanos.add(streamNanos);
+        connectionWindowStallNanos.add(connectionNanos);
+    }
+
+
+    /**
+     * @return The number of streams that have had to wait for flow control window to be allocated before they could
+     *             write response data
+     */
+    public long getWindowStallCount() {
+        return windowStallCount.sum();
+    }
+
+
+    /**
+     * @return The total time, in milliseconds, that streams have spent waiting for the stream flow control window
+     */
+    public long getStreamWindowStallTime() {
+        return TimeUnit.NANOSECONDS.toMillis(streamWindowStallNanos.sum());
+    }
+
+
+    /**
+     * @return The total time, in milliseconds, that streams have spent waiting for the connection flow control window
+     */
+    public long getConnectionWindowStallTime() {
+        return TimeUnit.NANOSECONDS.toMillis(connectionWindowStallNanos.sum());
+    }
+
+
     public boolean useCompression(Request request, Response response) {
         return http11Protocol.useCompression(request, response);
     }
 
 
+    public CompressionCodec getCompressionCodec(Request request, Response response) {
+        return http11Protocol.getCompressionCodec(request, response);
+    }
+
+
     public ContinueResponseTiming getContinueResponseTimingInternal() {
         return http11Protocol.getContinueResponseTimingInternal();
     }
@@ -97,6 +97,7 @@ class Http2UpgradeHandler extends AbstractStream implements InternalHttpUpgradeH
     protected final Http2Protocol protocol;
     private final Adapter adapter;
     protected final SocketWrapperBase<?> socketWrapper;
+    private final FrameWriteQueue frameWriteQueue;
     private volatile SSLSupport sslSupport;
 
     private volatile Http2Parser parser;
@@ -136,6 +137,10 @@ class Http2UpgradeHandler extends AbstractStream implements InternalHttpUpgradeH
 
     // Track 'overhead' frames vs 'request/response' frames
     private final AtomicLong overheadCount;
+
+    // Flow control window auto-tuning. Null if auto-tuning is disabled.
+    private final ReceiveWindow connectionReceiveWindow;
+    private volatile int streamReceiveWindowTarget;
     private volatile int lastNonFinalDataPayload;
     private volatile int lastWindowUpdate;
 
@@ -146,6 +151,7 @@ class Http2UpgradeHandler extends AbstractStream implements InternalHttpUpgradeH
         this.protocol = protocol;
         this.adapter = adapter;
         this.socketWrapper = socketWrapper;
+        frameWriteQueue = new FrameWriteQueue(socketWrapper, FrameWriteQueue.DEFAULT_CAPACITY);
 
         // Defaults to -10 * the count factor.
         // i.e. when the connection opens, 10 'overhead' frames in a row will
@@ -172,6 +178,15 @@ class Http2UpgradeHandler extends AbstractStream implements InternalHttpUpgradeH
 
         pingManager.initiateDisabled = protocol.getInitiatePingDisabled();
 
+        streamReceiveWindowTarget = protocol.getInitialWindowSize();
+        if (protocol.getWindowAutoTuning()) {
+            // Initial size of the connection window once the WINDOW_UPDATE sent with the initial settings is applied
+            connectionReceiveWindow = new ReceiveWindow(
+                    Math.max(protocol.getInitialWindowSize(), ConnectionSettingsBase.DEFAULT_INITIAL_WINDOW_SIZE));
+        } else {
+            connectionReceiveWindow = null;
+        }
+
         // Initial HTTP request becomes stream 1.
         if (coyoteRequest != null) {
             if (log.isTraceEnabled()) {
@@ -386,6 +401,8 @@ class Http2UpgradeHandler extends AbstractStream implements InternalHttpUpgradeH
                                     stream.close(se);
                                 }
                             } finally {
+                                // Write any frames queued by stream threads while this thread held the socket lock
+                                frameWriteQueue.drain();
                                 if (isOverheadLimitExceeded()) {
                                     throw new ConnectionException(
                                             sm.getString("upgradeHandler.tooMuchOverhead", connectionId),
@@ -606,8 +623,7 @@ class Http2UpgradeHandler extends AbstractStream implements InternalHttpUpgradeH
         // may see out of order RST frames which may hard to follow if
         // the client is unaware the RST frames may be received out of
         // order.
-        socketWrapper.getLock().lock();
-        try {
+        frameWriteQueue.write(() -> {
             if (state != null) {
                 boolean active = state.isActive();
                 state.sendReset();
@@ -616,10 +632,7 @@ class Http2UpgradeHandler extends AbstractStream implements InternalHttpUpgradeH
                 }
             }
             socketWrapper.write(true, rstFrame, 0, rstFrame.length);
-            socketWrapper.flush(true);
-        } finally {
-            socketWrapper.getLock().unlock();
-        }
+        });
     }
 
 
@@ -702,30 +715,20 @@ class Http2UpgradeHandler extends AbstractStream implements InternalHttpUpgradeH
         byte[] payloadLength = new byte[3];
         ByteUtil.setThreeBytes(payloadLength, 0, len);
 
-        Lock lock = socketWrapper.getLock();
-        lock.lock();
-        try {
+        frameWriteQueue.write(() -> {
             socketWrapper.write(true, payloadLength, 0, payloadLength.length);
             socketWrapper.write(true, GOAWAY, 0, GOAWAY.length);
             socketWrapper.write(true, fixedPayload, 0, 8);
             if (debugMsg != null) {
                 socketWrapper.write(true, debugMsg, 0, debugMsg.length);
             }
-            socketWrapper.flush(true);
-        } finally {
-            lock.unlock();
-        }
+        });
     }
 
     void writeHeaders(Stream stream, MimeHeaders mimeHeaders, boolean endOfStream, int payloadSize) throws IOException {
-        // This ensures the Stream processing thread has control of the socket.
-        Lock lock = socketWrapper.getLock();
-        lock.lock();
-        try {
-            doWriteHeaders(stream, mimeHeaders, endOfStream, payloadSize);
-        } finally {
-            lock.unlock();
-        }
+        // The headers must be encoded by the thread writing to the socket so the HPACK state matches the order in which
+        // header blocks are sent.
+        frameWriteQueue.write(() -> doWriteHeaders(stream, mimeHeaders, endOfStream, payloadSize));
         stream.sentHeaders();
         if (endOfStream) {
             sentEndOfStream(stream);
@@ -819,18 +822,16 @@ class Http2UpgradeHandler extends AbstractStream implements InternalHttpUpgradeH
         }
         if (writable) {
             ByteUtil.set31Bits(header, 5, stream.getIdAsInt());
-            socketWrapper.getLock().lock();
             try {
-                socketWrapper.write(true, header, 0, header.length);
-                int orgLimit = data.limit();
-                data.limit(data.position() + len);
-                socketWrapper.write(true, data);
-                data.limit(orgLimit);
-                socketWrapper.flush(true);
+                frameWriteQueue.write(stream.getUrgency(), stream.getIncremental(), stream.getIdAsInt(), () -> {
+                    socketWrapper.write(true, header, 0, header.length);
+                    int orgLimit = data.limit();
+                    data.limit(data.position() + len);
+                    socketWrapper.write(true, data);
+                    data.limit(orgLimit);
+                });
             } catch (IOException ioe) {
                 handleAppInitiatedIOException(ioe);
-            } finally {
-                socketWrapper.getLock().unlock();
             }
         }
     }
@@ -862,56 +863,81 @@ class Http2UpgradeHandler extends AbstractStream implements InternalHttpUpgradeH
      */
     void writeWindowUpdate(AbstractNonZeroStream stream, int increment, boolean applicationInitiated)
             throws IOException {
-        if (log.isTraceEnabled()) {
-            log.trace(sm.getString("upgradeHandler.windowUpdateConnection", getConnectionId(),
-                    Integer.valueOf(increment)));
+        int connectionIncrement;
+        if (connectionReceiveWindow == null) {
+            connectionIncrement = increment;
+        } else {
+            connectionIncrement = connectionReceiveWindow.consumed(increment);
+        }
+        int streamIncrement = 0;
+        // No need to send update from closed stream
+        if (stream instanceof Stream && ((Stream) stream).canWrite()) {
+            streamIncrement = ((Stream) stream).getWindowUpdateSizeToWrite(increment);
+        }
+        writeWindowUpdateFrames(connectionIncrement, stream, streamIncrement, applicationInitiated);
+    }
+
+
+    /*
+     * Writes WINDOW_UPDATE frames for the connection and/or the stream. No frame is written for an increment of zero.
+     */
+    protected void writeWindowUpdateFrames(int connectionIncrement, AbstractNonZeroStream stream, int streamIncrement,
+            boolean applicationInitiated) throws IOException {
+        byte[] frame = null;
+        if (connectionIncrement > 0) {
+            if (log.isTraceEnabled()) {
+                log.trace(sm.getString("upgradeHandler.windowUpdateConnection", getConnectionId(),
+                        Integer.valueOf(connectionIncrement)));
+            }
+            frame = createWindowUpdate(0, connectionIncrement);
+        }
+        byte[] streamFrame = null;
+        if (streamIncrement > 0) {
+            if (log.isTraceEnabled()) {
+                log.trace(sm.getString("upgradeHandler.windowUpdateStream", getConnectionId(), stream.getIdAsString(),
+                        Integer.valueOf(streamIncrement)));
+            }
+            streamFrame = createWindowUpdate(stream.getIdAsInt(), streamIncrement);
         }
-        socketWrapper.getLock().lock();
+        if (frame == null && streamFrame == null) {
+            return;
+        }
+        byte[] frameToWrite = frame;
+        byte[] streamFrameToWrite = streamFrame;
         try {
-            // Build window update frame for stream 0
-            byte[] frame = new byte[13];
-            ByteUtil.setThreeBytes(frame, 0, 4);
-            frame[3] = FrameType.WINDOW_UPDATE.getIdByte();
-            ByteUtil.set31Bits(frame, 9, increment);
-            socketWrapper.write(true, frame, 0, frame.length);
-            boolean needFlush = true;
-            // No need to send update from closed stream
-            if (stream instanceof Stream && ((Stream) stream).canWrite()) {
-                int streamIncrement = ((Stream) stream).getWindowUpdateSizeToWrite(increment);
-                if (streamIncrement > 0) {
-                    if (log.isTraceEnabled()) {
-                        log.trace(sm.getString("upgradeHandler.windowUpdateStream", getConnectionId(), getIdAsString(),
-                                Integer.valueOf(streamIncrement)));
-                    }
-                    // Re-use buffer as connection update has already been written
-                    ByteUtil.set31Bits(frame, 5, stream.getIdAsInt());
-                    ByteUtil.set31Bits(frame, 9, streamIncrement);
-                    try {
-                        socketWrapper.write(true, frame, 0, frame.length);
-                        socketWrapper.flush(true);
-                        needFlush = false;
-                    } catch (IOException ioe) {
-                        if (applicationInitiated) {
-                            handleAppInitiatedIOException(ioe);
-                        } else {
-                            throw ioe;
-                        }
-                    }
+            frameWriteQueue.write(() -> {
+                if (frameToWrite != null) {
+                    socketWrapper.write(true, frameToWrite, 0, frameToWrite.length);
                 }
+                if (streamFrameToWrite != null) {
+                    socketWrapper.write(true, streamFrameToWrite, 0, streamFrameToWrite.length);
+                }
+            });
+        } catch (IOException ioe) {
+            if (applicationInitiated) {
+                handleAppInitiatedIOException(ioe);
+            } else {
+                throw ioe;
             }
-            if (needFlush) {
-                socketWrapper.flush(true);
-            }
-        } finally {
-            socketWrapper.getLock().unlock();
         }
     }
 
 
+    static byte[] createWindowUpdate(int streamId, int increment) {
+        byte[] frame = new byte[13];
+        ByteUtil.setThreeBytes(frame, 0, 4);
+        frame[3] = FrameType.WINDOW_UPDATE.getIdByte();
+        ByteUtil.set31Bits(frame, 5, streamId);
+        ByteUtil.set31Bits(frame, 9, increment);
+        return frame;
+    }
+
+
     protected void processWrites() throws IOException {
         Lock lock = socketWrapper.getLock();
         lock.lock();
         try {
+            frameWriteQueue.drain();
             if (socketWrapper.flush(false)) {
                 socketWrapper.registerWriteInterest();
             } else {
@@ -1531,6 +1557,9 @@ class Http2UpgradeHandler extends AbstractStream implements InternalHttpUpgradeH
 
     @Override
     public void endRequestBodyFrame(int streamId, int dataLength) throws Http2Exception, IOException {
+        if (connectionReceiveWindow != null) {
+            connectionReceiveWindow.received(dataLength);
+        }
         AbstractNonZeroStream abstractNonZeroStream = getAbstractNonZeroStream(streamId, true);
         if (abstractNonZeroStream instanceof Stream) {
             ((Stream) abstractNonZeroStream).getInputBuffer().onDataAvailable();
@@ -1541,19 +1570,55 @@ class Http2UpgradeHandler extends AbstractStream implements InternalHttpUpgradeH
             // written to the original stream and, effectively, swallowed.
             // Therefore, need to notify that those bytes were swallowed here.
             if (dataLength > 0) {
-                onSwallowedDataFramePayload(streamId, dataLength);
+                onSwallowedUnreadData(streamId, dataLength);
             }
         }
+        if (connectionReceiveWindow != null) {
+            tuneReceiveWindows(abstractNonZeroStream);
+        }
     }
 
 
     @Override
     public void onSwallowedDataFramePayload(int streamId, int swallowedDataBytesCount) throws IOException {
+        if (connectionReceiveWindow != null) {
+            connectionReceiveWindow.received(swallowedDataBytesCount);
+        }
+        onSwallowedUnreadData(streamId, swallowedDataBytesCount);
+    }
+
+
+    /*
+     * Data that had been received for a stream has been discarded without being read by the application.
+     */
+    void onSwallowedUnreadData(int streamId, int swallowedDataBytesCount) throws IOException {
         AbstractNonZeroStream abstractNonZeroStream = getAbstractNonZeroStream(streamId);
         writeWindowUpdate(abstractNonZeroStream, swallowedDataBytesCount, false);
     }
 
 
+    /*
+     * Called by the thread processing the connection, after a DATA frame has been received, when window auto-tuning is
+     * enabled.
+     */
+    private void tuneReceiveWindows(AbstractNonZeroStream stream) throws IOException {
+        int connectionIncrement = connectionReceiveWindow.flushIfClientBlocked();
+        int streamIncrement = 0;
+        if (stream instanceof Stream) {
+            // Apply any growth of the connection window to the stream
+            streamIncrement = ((Stream) stream).growReceiveWindow(streamReceiveWindowTarget);
+        }
+        writeWindowUpdateFrames(connectionIncrement, stream, streamIncrement, false);
+
+        // Start a new BDP sample if one is not in progress
+        if (!protocol.getInitiatePingDisabled() && !connectionReceiveWindow.isSampling() &&
+                connectionReceiveWindow.getSize() < protocol.getMaxWindowSize()) {
+            pingManager.sendPing(true);
+            connectionReceiveWindow.startSample(pingManager.sequence);
+        }
+    }
+
+
     @Override
     public HeaderEmitter headersStart(int streamId, boolean headersEndStream) throws Http2Exception, IOException {
 
@@ -1738,13 +1803,7 @@ class Http2UpgradeHandler extends AbstractStream implements InternalHttpUpgradeH
                 log.warn(sm.getString("upgradeHandler.unexpectedAck", connectionId, getIdAsString()));
             }
         } else {
-            socketWrapper.getLock().lock();
-            try {
-                socketWrapper.write(true, SETTINGS_ACK, 0, SETTINGS_ACK.length);
-                socketWrapper.flush(true);
-            } finally {
-                socketWrapper.getLock().unlock();
-            }
+            frameWriteQueue.write(() -> socketWrapper.write(true, SETTINGS_ACK, 0, SETTINGS_ACK.length));
         }
     }
 
@@ -1753,6 +1812,18 @@ class Http2UpgradeHandler extends AbstractStream implements InternalHttpUpgradeH
     public void pingReceive(byte[] payload, boolean ack) throws IOException {
         if (!ack) {
             increaseOverheadCount(FrameType.PING);
+        } else if (connectionReceiveWindow != null) {
+            int increment =
+                    connectionReceiveWindow.endSample(ByteUtil.get31Bits(payload, 4), protocol.getMaxWindowSize());
+            if (increment > 0) {
+                int size = connectionReceiveWindow.getSize();
+                if (log.isDebugEnabled()) {
+                    log.debug(sm.getString("upgradeHandler.windowAutoTune", connectionId, Integer.valueOf(size)));
+                }
+                // Streams are grown as they receive data
+                streamReceiveWindowTarget = size;
+                writeWindowUpdateFrames(increment, null, 0, false);
+            }
         }
         pingManager.receivePing(payload, ack);
     }
@@ -1926,14 +1997,10 @@ class Http2UpgradeHandler extends AbstractStream implements InternalHttpUpgradeH
 
             } else {
                 // Client originated ping. Echo it back.
-                socketWrapper.getLock().lock();
-                try {
+                frameWriteQueue.write(() -> {
                     socketWrapper.write(true, PING_ACK, 0, PING_ACK.length);
                     socketWrapper.write(true, payload, 0, payload.length);
-                    socketWrapper.flush(true);
-                } finally {
-                    socketWrapper.getLock().unlock();
-                }
+                });
             }
         }
 
@@ -2008,9 +2075,9 @@ class Http2UpgradeHandler extends AbstractStream implements InternalHttpUpgradeH
         @Override
         public void endFrame() throws IOException {
             try {
+                // Flushed by the FrameWriteQueue once the header block is complete
                 socketWrapper.write(true, header, 0, header.length);
                 socketWrapper.write(true, payload);
-                socketWrapper.flush(true);
             } catch (IOException ioe) {
                 handleAppInitiatedIOException(ioe);
             }
@@ -0,0 +1,148 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.apache.coyote.http2;
+
+/**
+ * Tracks the flow control window that Tomcat advertises to the client for a connection when window auto-tuning is
+ * enabled.
+ * <p>
+ * Rather than returning each consumed chunk of data to the client immediately, WINDOW_UPDATE increments are batched
+ * until a quarter of the window has been consumed. If the client is close to exhausting the window, any consumed data
+ * is returned immediately so batching can never stall the connection.
+ * <p>
+ * The size of the window is adjusted based on an estimate of the bandwidth-delay product (BDP) of the connection. A
+ * sample is started by sending a PING frame. The data received until the PING is acknowledged is the data the client
+ * was able to send in one round trip. If that is close to the size of the window then the window, rather than the
+ * network, is limiting throughput and the window is doubled, up to a configured maximum.
+ */
+class ReceiveWindow {
+
+    private int size;
+    // Bytes received from the client that have not yet been returned to the client with a WINDOW_UPDATE
+    private int unreturned;
+    // Bytes consumed that have not yet been returned to the client with a WINDOW_UPDATE
+    private int pending;
+
+    // Zero if no sample is in progress
+    private int samplePingSequence;
+    private long sampleBytes;
+
+
+    ReceiveWindow(int size) {
+        this.size = size;
+    }
+
+
+    synchronized int getSize() {
+        return size;
+    }
+
+
+    /**
+     * Record data received from the client.
+     *
+     * @param length The number of bytes received, including any padding
+     */
+    synchronized void received(int length) {
+        unreturned += length;
+        if (samplePingSequence != 0) {
+            sampleBytes += length;
+        }
+    }
+
+
+    /**
+     * Record data consumed by the application or discarded by Tomcat.
+     *
+     * @param length The number of bytes consumed
+     *
+     * @return The increment to send to the client in a WINDOW_UPDATE frame. Zero if the update should be delayed.
+     */
+    synchronized int consumed(int length) {
+        pending += length;
+        if (pending >= size / 4 || isClientBlocked()) {
+            return flush();
+        }
+        return 0;
+    }
+
+
+    /**
+     * @return The increment to send to the client in a WINDOW_UPDATE frame if the client is close to exhausting the
+     *             window, else zero.
+     */
+    synchronized int flushIfClientBlocked() {
+        if (pending > 0 && isClientBlocked()) {
+            return flush();
+        }
+        return 0;
+    }
+
+
+    synchronized boolean isSampling() {
+        return samplePingSequence != 0;
+    }
+
+
+    /**
+     * Start a BDP sample.
+     *
+     * @param pingSequence The sequence number of the PING frame that marks the start of the sample
+     */
+    synchronized void startSample(int pingSequence) {
+        samplePingSequence = pingSequence;
+        sampleBytes = 0;
+    }
+
+
+    /**
+     * End the current BDP sample, if any, and grow the window if the sample shows that the window is limiting
+     * throughput.
+     *
+     * @param pingSequence The sequence number of the acknowledged PING frame
+     * @param maxSize      The maximum size of the window
+     *
+     * @return The increase in the size of the window or zero if the size has not changed
+     */
+    synchronized int endSample(int pingSequence, int maxSize) {
+        if (samplePingSequence == 0 || pingSequence < samplePingSequence) {
+            return 0;
+        }
+        samplePingSequence = 0;
+        // Grow once the client is able to use two thirds of the window in a single round trip
+        if (size >= maxSize || sampleBytes * 3 < size * 2L) {
+            return 0;
+        }
+        int newSize = (int) Math.min(maxSize, Math.max(sampleBytes, size) * 2L);
+        int increment = newSize - size;
+        size = newSize;
+        return increment;
+    }
+
+
+    private boolean isClientBlocked() {
+        return size - unreturned <= size / 4;
+    }
+
+
+    private int flush() {
+        int result = pending;
+        unreturned = Math.max(0, unreturned - pending);
+        pending = 0;
+        return result;
+    }
+}
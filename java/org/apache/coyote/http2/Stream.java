@@ -25,6 +25,7 @@ import java.util.HashSet;
 import java.util.Locale;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReentrantLock;
@@ -840,6 +841,16 @@ class Stream extends AbstractNonZeroStream implements HeaderEmitter {
         if (log.isTraceEnabled()) {
             log.trace(sm.getString("stream.recycle.first", getConnectionId(), getIdAsString()));
         }
+        long streamStallNanos = getStreamWindowStallNanos();
+        long connectionStallNanos = getConnectionWindowStallNanos();
+        if (streamStallNanos > 0 || connectionStallNanos > 0) {
+            if (log.isDebugEnabled()) {
+                log.debug(sm.getString("stream.windowStall", getConnectionId(), getIdAsString(),
+                        Long.valueOf(TimeUnit.NANOSECONDS.toMillis(streamStallNanos)),
+                        Long.valueOf(TimeUnit.NANOSECONDS.toMillis(connectionStallNanos))));
+            }
+            handler.getProtocol().recordWindowStall(streamStallNanos, connectionStallNanos);
+        }
         coyoteRequest.recycle();
         coyoteResponse.recycle();
         handler.getProtocol().pushRequestAndResponse(coyoteRequest);
@@ -862,9 +873,43 @@ class Stream extends AbstractNonZeroStream implements HeaderEmitter {
     }
 
 
+    /**
+     * @return The time, in nanoseconds, that this stream has spent waiting for an allocation to the stream flow control
+     *             window before it could write response data
+     */
+    long getStreamWindowStallNanos() {
+        return allocationManager.getStreamStallNanos();
+    }
+
+
+    /**
+     * @return The time, in nanoseconds, that this stream has spent waiting for an allocation to the connection flow
+     *             control window before it could write response data
+     */
+    long getConnectionWindowStallNanos() {
+        return allocationManager.getConnectionStallNanos();
+    }
+
+
+    /*
+     * Grows the flow control window that Tomcat advertises to the client for this stream. Returns the increment that
+     * needs to be sent to the client.
+     */
+    int growReceiveWindow(int size) {
+        if (isInputFinished()) {
+            return 0;
+        }
+        return inputBuffer.growReceiveWindow(size);
+    }
+
+
     int getWindowUpdateSizeToWrite(int increment) {
         int result;
         int threshold = handler.getProtocol().getOverheadWindowUpdateThreshold();
+        if (handler.getProtocol().getWindowAutoTuning()) {
+            // Batch updates until a quarter of the window has been consumed
+            threshold = Math.max(threshold, inputBuffer.getReceiveWindowSize() / 4);
+        }
         synchronized (pendingWindowUpdateForStreamLock) {
             if (increment > threshold) {
                 result = increment + pendingWindowUpdateForStream;
@@ -1151,6 +1196,10 @@ class Stream extends AbstractNonZeroStream implements HeaderEmitter {
 
         abstract void insertReplayedBody(ByteChunk body);
 
+        abstract int getReceiveWindowSize();
+
+        abstract int growReceiveWindow(int size);
+
         protected abstract boolean timeoutRead(long now);
     }
 
@@ -1182,6 +1231,8 @@ class Stream extends AbstractNonZeroStream implements HeaderEmitter {
         private volatile long readTimeoutExpiry;
         private volatile boolean closed;
         private volatile boolean resetReceived;
+        // Zero until the window is grown by auto-tuning
+        private volatile int receiveWindowSize;
 
         @Override
         public final int doRead(ApplicationBufferHandler applicationBufferHandler) throws IOException {
@@ -1194,65 +1245,80 @@ class Stream extends AbstractNonZeroStream implements HeaderEmitter {
             // set to null between the call to ensureBuffersExist() above and
             // the sync below. The checks just before and just inside the sync
             // ensure we don't get any NPEs reported.
-            ByteBuffer tmpInBuffer = inBuffer;
-            if (tmpInBuffer == null) {
-                return -1;
-            }
-            // Ensure that only one thread accesses inBuffer at a time
-            synchronized (tmpInBuffer) {
-                if (inBuffer == null) {
+            // If window auto-tuning is enabled, inBuffer may also be replaced
+            // with a larger buffer. If that happens, the read is retried with
+            // the new buffer.
+            read: while (true) {
+                ByteBuffer tmpInBuffer = inBuffer;
+                if (tmpInBuffer == null) {
                     return -1;
                 }
-                boolean canRead = false;
-                while (inBuffer.position() == 0 && (canRead = isActive() && !isInputFinished())) {
-                    // Need to block until some data is written
-                    try {
-                        if (log.isTraceEnabled()) {
-                            log.trace(sm.getString("stream.inputBuffer.empty"));
-                        }
+                // Ensure that only one thread accesses inBuffer at a time
+                synchronized (tmpInBuffer) {
+                    if (inBuffer != tmpInBuffer) {
+                        continue;
+                    }
+                    boolean canRead = false;
+                    while (tmpInBuffer.position() == 0 && (canRead = isActive() && !isInputFinished())) {
+                        // Need to block until some data is written
+                        try {
+                            if (log.isTraceEnabled()) {
+                                log.trace(sm.getString("stream.inputBuffer.empty"));
+                            }
 
-                        long readTimeout = handler.getProtocol().getStreamReadTimeout();
-                        if (readTimeout < 0) {
-                            inBuffer.wait();
-                        } else {
-                            inBuffer.wait(readTimeout);
-                        }
+                            long readTimeout = handler.getProtocol().getStreamReadTimeout();
+                            if (readTimeout < 0) {
+                                tmpInBuffer.wait();
+                            } else {
+                                tmpInBuffer.wait(readTimeout);
+                            }
 
-                        if (resetReceived) {
-                            throw new IOException(sm.getString("stream.inputBuffer.reset"));
-                        }
+                            if (resetReceived) {
+                                throw new IOException(sm.getString("stream.inputBuffer.reset"));
+                            }
 
-                        if (inBuffer.position() == 0 && isActive() && !isInputFinished()) {
-                            String msg = sm.getString("stream.inputBuffer.readTimeout");
-                            StreamException se = new StreamException(msg, Http2Error.ENHANCE_YOUR_CALM, getIdAsInt());
-                            // Trigger a reset once control returns to Tomcat
-                            coyoteResponse.setError();
-                            streamOutputBuffer.reset = se;
-                            throw new CloseNowException(msg, se);
+                            if (inBuffer != tmpInBuffer) {
+                                continue read;
+                            }
+
+                            if (tmpInBuffer.position() == 0 && isActive() && !isInputFinished()) {
+                                String msg = sm.getString("stream.inputBuffer.readTimeout");
+                                StreamException se =
+                                        new StreamException(msg, Http2Error.ENHANCE_YOUR_CALM, getIdAsInt());
+                                // Trigger a reset once control returns to Tomcat
+                                coyoteResponse.setError();
+                                streamOutputBuffer.reset = se;
+                                throw new CloseNowException(msg, se);
+                            }
+                        } catch (InterruptedException e) {
+                            // Possible shutdown / rst or similar. Use an
+                            // IOException to signal to the client that further I/O
+                            // isn't possible for this Stream.
+                            throw new IOException(e);
                         }
-                    } catch (InterruptedException e) {
-                        // Possible shutdown / rst or similar. Use an
-                        // IOException to signal to the client that further I/O
-                        // isn't possible for this Stream.
-                        throw new IOException(e);
                     }
-                }
 
-                if (inBuffer.position() > 0) {
-                    // Data is available in the inBuffer. Copy it to the
-                    // outBuffer.
-                    inBuffer.flip();
-                    written = inBuffer.remaining();
-                    if (log.isTraceEnabled()) {
-                        log.trace(sm.getString("stream.inputBuffer.copy", Integer.toString(written)));
+                    if (tmpInBuffer.position() > 0) {
+                        // Data is available in the inBuffer. Copy it to the
+                        // outBuffer.
+                        tmpInBuffer.flip();
+                        written = tmpInBuffer.remaining();
+                        if (log.isTraceEnabled()) {
+                            log.trace(sm.getString("stream.inputBuffer.copy", Integer.toString(written)));
+                        }
+                        if (outBuffer.length < written) {
+                            // inBuffer has grown
+                            outBuffer = new byte[tmpInBuffer.capacity()];
+                        }
+                        tmpInBuffer.get(outBuffer, 0, written);
+                        tmpInBuffer.clear();
+                        break;
+                    } else if (!canRead) {
+                        return -1;
+                    } else {
+                        // Should never happen
+                        throw new IllegalStateException();
                     }
-                    inBuffer.get(outBuffer, 0, written);
-                    inBuffer.clear();
-                } else if (!canRead) {
-                    return -1;
-                } else {
-                    // Should never happen
-                    throw new IllegalStateException();
                 }
             }
 
@@ -1380,12 +1446,60 @@ class Stream extends AbstractNonZeroStream implements HeaderEmitter {
         }
 
 
+        @Override
+        final int getReceiveWindowSize() {
+            int size = receiveWindowSize;
+            if (size == 0) {
+                // The client must obey Tomcat's window size when sending so
+                // this is the initial window size set by Tomcat that the client
+                // uses (i.e. the local setting is required here).
+                size = handler.getLocalSettings().getInitialWindowSize();
+            }
+            return size;
+        }
+
+
+        /*
+         * Called by the thread processing the connection, after data has been added to inBuffer. The caller holds no
+         * locks. This method obtains readStateLock and then, while holding it, the monitor of inBuffer.
+         */
+        @Override
+        final int growReceiveWindow(int size) {
+            readStateLock.lock();
+            try {
+                int currentSize = getReceiveWindowSize();
+                if (closed || size <= currentSize) {
+                    return 0;
+                }
+                ByteBuffer oldInBuffer = inBuffer;
+                if (oldInBuffer != null) {
+                    synchronized (oldInBuffer) {
+                        if (oldInBuffer.capacity() != currentSize) {
+                            // Replayed request body
+                            return 0;
+                        }
+                        ByteBuffer newInBuffer = ByteBuffer.allocate(size);
+                        oldInBuffer.flip();
+                        newInBuffer.put(oldInBuffer);
+                        inBuffer = newInBuffer;
+                        // Any thread waiting to read needs to switch to the new buffer
+                        oldInBuffer.notifyAll();
+                    }
+                }
+                receiveWindowSize = size;
+                return size - currentSize;
+            } finally {
+                readStateLock.unlock();
+            }
+        }
+
+
         private void ensureBuffersExist() {
             if (inBuffer == null && !closed) {
                 // The client must obey Tomcat's window size when sending so
                 // this is the initial window size set by Tomcat that the client
                 // uses (i.e. the local setting is required here).
-                int size = handler.getLocalSettings().getInitialWindowSize();
+                int size = getReceiveWindowSize();
                 readStateLock.lock();
                 try {
                     if (inBuffer == null && !closed) {
@@ -1470,7 +1584,7 @@ class Stream extends AbstractNonZeroStream implements HeaderEmitter {
                 // - if inside the sync it can trigger a deadlock
                 // https://markmail.org/message/vbglzkvj6wxlhh3p
                 if (unreadByteCount > 0) {
-                    handler.onSwallowedDataFramePayload(getIdAsInt(), unreadByteCount);
+                    handler.onSwallowedUnreadData(getIdAsInt(), unreadByteCount);
                 }
             }
         }
@@ -1543,6 +1657,18 @@ class Stream extends AbstractNonZeroStream implements HeaderEmitter {
         }
 
 
+        @Override
+        int getReceiveWindowSize() {
+            return handler.getLocalSettings().getInitialWindowSize();
+        }
+
+        @Override
+        int growReceiveWindow(int size) {
+            // The request body has already been read
+            return 0;
+        }
+
+
         @Override
         protected boolean timeoutRead(long now) {
             // Reading from a saved request. Will never time out.
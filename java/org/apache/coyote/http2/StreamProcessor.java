@@ -33,13 +33,14 @@ import jakarta.servlet.http.HttpServletResponse;
 import org.apache.coyote.AbstractProcessor;
 import org.apache.coyote.ActionCode;
 import org.apache.coyote.Adapter;
+import org.apache.coyote.CompressionCodec;
 import org.apache.coyote.ContinueResponseTiming;
 import org.apache.coyote.ErrorState;
 import org.apache.coyote.NonPipeliningProcessor;
 import org.apache.coyote.Request;
 import org.apache.coyote.RequestGroupInfo;
 import org.apache.coyote.Response;
-import org.apache.coyote.http11.filters.GzipOutputFilter;
+import org.apache.coyote.http11.filters.CompressionOutputFilter;
 import org.apache.juli.logging.Log;
 import org.apache.juli.logging.LogFactory;
 import org.apache.tomcat.util.buf.ByteChunk;
@@ -208,10 +209,14 @@ class StreamProcessor extends AbstractProcessor implements NonPipeliningProcesso
         // Compression can't be used with sendfile
         // Need to check for compression (and set headers appropriately) before
         // adding headers below
-        if (noSendfile && protocol != null && protocol.useCompression(coyoteRequest, coyoteResponse)) {
+        CompressionCodec compressionCodec = null;
+        if (noSendfile && protocol != null) {
+            compressionCodec = protocol.getCompressionCodec(coyoteRequest, coyoteResponse);
+        }
+        if (compressionCodec != null) {
             // Enable compression. Headers will have been set. Need to configure
             // output filter at this point.
-            stream.addOutputFilter(new GzipOutputFilter());
+            stream.addOutputFilter(new CompressionOutputFilter(compressionCodec));
         }
 
         // Check to see if a response body is present
@@ -58,6 +58,11 @@ class WindowAllocationManager {
 
     private int waitingFor = NONE;
 
+    // Time spent waiting for allocations. Guarded by stream.windowAllocationLock.
+    private long waitStartNanos;
+    private long streamStallNanos;
+    private long connectionStallNanos;
+
     WindowAllocationManager(Stream stream) {
         this.stream = stream;
     }
@@ -118,6 +123,34 @@ class WindowAllocationManager {
     }
 
 
+    /**
+     * @return The total time, in nanoseconds, that the stream has spent waiting for an allocation to the stream flow
+     *             control window
+     */
+    long getStreamStallNanos() {
+        stream.windowAllocationLock.lock();
+        try {
+            return streamStallNanos;
+        } finally {
+            stream.windowAllocationLock.unlock();
+        }
+    }
+
+
+    /**
+     * @return The total time, in nanoseconds, that the stream has spent waiting for an allocation to the connection
+     *             flow control window
+     */
+    long getConnectionStallNanos() {
+        stream.windowAllocationLock.lock();
+        try {
+            return connectionStallNanos;
+        } finally {
+            stream.windowAllocationLock.unlock();
+        }
+    }
+
+
     boolean isWaitingForStream() {
         return isWaitingFor(STREAM);
     }
@@ -147,6 +180,7 @@ class WindowAllocationManager {
             }
 
             waitingFor = waitTarget;
+            waitStartNanos = System.nanoTime();
             long startNanos = -1;
 
             // Loop to handle spurious wake-ups
@@ -165,6 +199,7 @@ class WindowAllocationManager {
                         }
                         timeoutRemaining = timeout - elapsedMillis;
                         if (timeoutRemaining <= 0) {
+                            recordStall();
                             return;
                         }
                     }
@@ -182,6 +217,7 @@ class WindowAllocationManager {
         try {
             if (waitingFor == NONE) {
                 waitingFor = waitTarget;
+                waitStartNanos = System.nanoTime();
             } else if (waitingFor == waitTarget) {
                 // NO-OP
                 // Non-blocking post-processing may attempt to flush
@@ -210,6 +246,7 @@ class WindowAllocationManager {
                 // are handled correctly (only the first should trigger a call
                 // to stream.notify()). Additional notify() calls may trigger
                 // unexpected timeouts.
+                recordStall();
                 waitingFor = NONE;
                 Response response = stream.getCoyoteResponse();
                 if (response != null) {
@@ -238,4 +275,19 @@ class WindowAllocationManager {
             stream.windowAllocationLock.unlock();
         }
     }
+
+
+    /*
+     * Caller must hold stream.windowAllocationLock. The wait start is reset so a notification that arrives after a
+     * timeout does not count the same period twice.
+     */
+    private void recordStall() {
+        long now = System.nanoTime();
+        if (waitingFor == STREAM) {
+            streamStallNanos += now - waitStartNanos;
+        } else {
+            connectionStallNanos += now - waitStartNanos;
+        }
+        waitStartNanos = now;
+    }
 }
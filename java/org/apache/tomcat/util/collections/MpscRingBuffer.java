@@ -0,0 +1,127 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.tomcat.util.collections;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * A bounded, lock-free queue for use with multiple producer threads and a single consumer thread. Producers claim a
+ * slot with a single compare-and-set and never block. The queue is backed by a fixed size array so, once created, it
+ * generates no garbage.
+ * <p>
+ * Only one thread may call {@link #poll()} at any one time.
+ *
+ * @param <T> The type of object managed by this queue
+ */
+public class MpscRingBuffer<T> {
+
+    private final AtomicReferenceArray<T> slots;
+    private final int mask;
+    private final AtomicLong tail = new AtomicLong(0);
+    private volatile long head = 0;
+
+
+    /**
+     * Create a new queue.
+     *
+     * @param capacity The minimum capacity of the queue. The actual capacity will be the next power of two.
+     */
+    public MpscRingBuffer(int capacity) {
+        if (capacity < 1 || capacity > 1 << 30) {
+            throw new IllegalArgumentException();
+        }
+        int size = Integer.highestOneBit(capacity);
+        if (size < capacity) {
+            size = size << 1;
+        }
+        slots = new AtomicReferenceArray<>(size);
+        mask = size - 1;
+    }
+
+
+    /**
+     * Add an object to the tail of the queue, if there is space.
+     *
+     * @param t The object to add
+     *
+     * @return {@code true} if the object was added, {@code false} if the queue was full
+     */
+    public boolean offer(T t) {
+        while (true) {
+            long current = tail.get();
+            if (current - head > mask) {
+                // Full
+                return false;
+            }
+            if (tail.compareAndSet(current, current + 1)) {
+                // The slot was cleared by the consumer before head was advanced past it
+                slots.lazySet((int) current & mask, t);
+                return true;
+            }
+        }
+    }
+
+
+    /**
+     * Remove the object at the head of the queue. Must only be called by the single consumer thread.
+     *
+     * @return The object at the head of the queue or {@code null} if the queue is empty or the producer that claimed
+     *             the slot at the head of the queue has not yet completed adding its object
+     */
+    public T poll() {
+        long current = head;
+        int index = (int) current & mask;
+        T result = slots.get(index);
+        if (result == null) {
+            return null;
+        }
+        slots.lazySet(index, null);
+        head = current + 1;
+        return result;
+    }
+
+
+    /**
+     * @return the number of objects in the queue. The value is an estimate if the queue is being modified concurrently.
+     */
+    public int size() {
+        long result = tail.get() - head;
+        if (result < 0) {
+            return 0;
+        }
+        return (int) Math.min(result, capacity());
+    }
+
+
+    /**
+     * @return {@code true} if the queue is empty. A slot that has been claimed but to which an object has not yet been
+     *             added makes the queue non-empty, so a consumer will not stop polling while a producer is still
+     *             filling a slot.
+     */
+    public boolean isEmpty() {
+        return tail.get() == head;
+    }
+
+
+    /**
+     * @return the capacity of the queue
+     */
+    public int capacity() {
+        return mask + 1;
+    }
+}
@@ -87,6 +87,10 @@ public class SynchronizedStack<T> {
         index = -1;
     }
 
+    public synchronized int size() {
+        return index + 1;
+    }
+
     public synchronized void setLimit(int limit) {
         this.limit = limit;
     }
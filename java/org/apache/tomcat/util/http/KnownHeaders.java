@@ -0,0 +1,160 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.apache.tomcat.util.http;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Locale;
+
+import org.apache.tomcat.util.buf.Ascii;
+
+/**
+ * Table of the HTTP header names that appear in most requests and/or are looked up by the container for most requests.
+ * <p>
+ * Each known header name is assigned an index when the header is added to {@link MimeHeaders}. Subsequent look-ups by
+ * name then only need to compare indexes rather than compare every header name character by character. If the header
+ * name uses exactly the commonly used spelling (canonical or lower case), the name is also converted to a String
+ * constant so obtaining the header name as a String does not allocate.
+ */
+final class KnownHeaders {
+
+    static final int UNKNOWN = -1;
+
+    /*
+     * The commonly used spelling of each header. The lower case spelling (used by HTTP/2 and HTTP/3 and a number of
+     * HTTP/1.1 clients) is derived from these.
+     */
+    private static final String[] CANONICAL_NAMES = { "Accept", "Accept-Charset", "Accept-Encoding", "Accept-Language",
+            "Authorization", "Cache-Control", "Connection", "Content-Encoding", "Content-Length", "Content-Type",
+            "Cookie", "Expect", "Forwarded", "Host", "HTTP2-Settings", "If-Match", "If-Modified-Since",
+            "If-None-Match", "If-Range", "If-Unmodified-Since", "Keep-Alive", "Origin", "Pragma", "Priority", "Range",
+            "Referer", "Sec-Fetch-Dest", "Sec-Fetch-Mode", "Sec-Fetch-Site", "Sec-Fetch-User",
+            "Sec-WebSocket-Extensions", "Sec-WebSocket-Key", "Sec-WebSocket-Protocol", "Sec-WebSocket-Version", "TE",
+            "Transfer-Encoding", "Upgrade", "Upgrade-Insecure-Requests", "User-Agent", "Via", "X-Forwarded-For",
+            "X-Forwarded-Host", "X-Forwarded-Proto", "X-Requested-With" };
+
+    private static final String[] LOWER_CASE_NAMES = new String[CANONICAL_NAMES.length];
+    private static final byte[][] CANONICAL_BYTES = new byte[CANONICAL_NAMES.length][];
+    private static final byte[][] LOWER_CASE_BYTES = new byte[CANONICAL_NAMES.length][];
+
+    /*
+     * Indexes of the known headers, grouped by header name length.
+     */
+    private static final int[][] INDEXES_BY_LENGTH;
+
+    static {
+        int maxLength = 0;
+        for (int i = 0; i < CANONICAL_NAMES.length; i++) {
+            LOWER_CASE_NAMES[i] = CANONICAL_NAMES[i].toLowerCase(Locale.ENGLISH);
+            CANONICAL_BYTES[i] = CANONICAL_NAMES[i].getBytes(StandardCharsets.ISO_8859_1);
+            LOWER_CASE_BYTES[i] = LOWER_CASE_NAMES[i].getBytes(StandardCharsets.ISO_8859_1);
+            maxLength = Math.max(maxLength, CANONICAL_NAMES[i].length());
+        }
+        int[][] indexesByLength = new int[maxLength + 1][0];
+        for (int i = 0; i < CANONICAL_NAMES.length; i++) {
+            int length = CANONICAL_NAMES[i].length();
+            int[] indexes = Arrays.copyOf(indexesByLength[length], indexesByLength[length].length + 1);
+            indexes[indexes.length - 1] = i;
+            indexesByLength[length] = indexes;
+        }
+        INDEXES_BY_LENGTH = indexesByLength;
+    }
+
+
+    private KnownHeaders() {
+        // Utility class - hide default constructor
+    }
+
+
+    /**
+     * Obtain the index of the known header with the given name.
+     *
+     * @param buf   The buffer containing the ISO-8859-1 encoded header name
+     * @param start The first byte of the header name
+     * @param len   The number of bytes in the header name
+     *
+     * @return The index of the header or {@link #UNKNOWN} if the header is not a known header
+     */
+    static int indexOf(byte[] buf, int start, int len) {
+        if (len >= INDEXES_BY_LENGTH.length) {
+            return UNKNOWN;
+        }
+        for (int index : INDEXES_BY_LENGTH[len]) {
+            byte[] lowerCase = LOWER_CASE_BYTES[index];
+            int i = 0;
+            while (i < len && Ascii.toLower(buf[start + i]) == lowerCase[i]) {
+                i++;
+            }
+            if (i == len) {
+                return index;
+            }
+        }
+        return UNKNOWN;
+    }
+
+
+    /**
+     * Obtain the index of the known header with the given name.
+     *
+     * @param name The header name
+     *
+     * @return The index of the header or {@link #UNKNOWN} if the header is not a known header
+     */
+    static int indexOf(String name) {
+        if (name == null) {
+            return UNKNOWN;
+        }
+        int len = name.length();
+        if (len >= INDEXES_BY_LENGTH.length) {
+            return UNKNOWN;
+        }
+        for (int index : INDEXES_BY_LENGTH[len]) {
+            byte[] lowerCase = LOWER_CASE_BYTES[index];
+            int i = 0;
+            char c;
+            while (i < len && (c = name.charAt(i)) < 128 && Ascii.toLower(c) == lowerCase[i]) {
+                i++;
+            }
+            if (i == len) {
+                return index;
+            }
+        }
+        return UNKNOWN;
+    }
+
+
+    /**
+     * Obtain the String constant for the known header with the given index if the provided bytes use exactly the same
+     * spelling as that String constant.
+     *
+     * @param index The index of the known header
+     * @param buf   The buffer containing the ISO-8859-1 encoded header name
+     * @param start The first byte of the header name
+     * @param len   The number of bytes in the header name
+     *
+     * @return The String constant or {@code null} if the header name does not use one of the commonly used spellings
+     */
+    static String toStringExact(int index, byte[] buf, int start, int len) {
+        if (Arrays.equals(buf, start, start + len, LOWER_CASE_BYTES[index], 0, len)) {
+            return LOWER_CASE_NAMES[index];
+        }
+        if (Arrays.equals(buf, start, start + len, CANONICAL_BYTES[index], 0, len)) {
+            return CANONICAL_NAMES[index];
+        }
+        return null;
+    }
+}
@@ -171,6 +171,7 @@ public class MimeHeaders {
             MimeHeaderField mhf = createHeader();
             mhf.getName().duplicate(source.getName(i));
             mhf.getValue().duplicate(source.getValue(i));
+            mhf.setKnownIndex(source.headers[i].getKnownIndex());
         }
     }
 
@@ -213,15 +214,12 @@ public class MimeHeaders {
      * @return the header index
      */
     public int findHeader(String name, int starting) {
-        // We can use a hash - but it's not clear how much
-        // benefit you can get - there is an overhead
-        // and the number of headers is small (4-5 ?)
-        // Another problem is that we'll pay the overhead
-        // of constructing the hashtable
-
-        // A custom search tree may be better
+        // The number of headers is small so a linear search is used. For
+        // known headers (the majority of look-ups) only the known header
+        // indexes need to be compared.
+        int knownIndex = KnownHeaders.indexOf(name);
         for (int i = starting; i < count; i++) {
-            if (headers[i].getName().equalsIgnoreCase(name)) {
+            if (headers[i].nameEquals(name, knownIndex)) {
                 return i;
             }
         }
@@ -283,6 +281,7 @@ public class MimeHeaders {
     public MessageBytes addValue(String name) {
         MimeHeaderField mh = createHeader();
         mh.getName().setString(name);
+        mh.setKnownIndex(KnownHeaders.indexOf(name));
         return mh.getValue();
     }
 
@@ -298,7 +297,18 @@ public class MimeHeaders {
      */
     public MessageBytes addValue(byte[] b, int startN, int len) {
         MimeHeaderField mhf = createHeader();
-        mhf.getName().setBytes(b, startN, len);
+        int knownIndex = KnownHeaders.indexOf(b, startN, len);
+        String knownName = null;
+        if (knownIndex != KnownHeaders.UNKNOWN) {
+            knownName = KnownHeaders.toStringExact(knownIndex, b, startN, len);
+        }
+        if (knownName == null) {
+            mhf.getName().setBytes(b, startN, len);
+        } else {
+            // Avoids a conversion (and the associated allocation) if the name is requested as a String
+            mhf.getName().setString(knownName);
+        }
+        mhf.setKnownIndex(knownIndex);
         return mhf.getValue();
     }
 
@@ -310,10 +320,11 @@ public class MimeHeaders {
      * @return the message bytes container for the value
      */
     public MessageBytes setValue(String name) {
+        int knownIndex = KnownHeaders.indexOf(name);
         for (int i = 0; i < count; i++) {
-            if (headers[i].getName().equalsIgnoreCase(name)) {
+            if (headers[i].nameEquals(name, knownIndex)) {
                 for (int j = i + 1; j < count; j++) {
-                    if (headers[j].getName().equalsIgnoreCase(name)) {
+                    if (headers[j].nameEquals(name, knownIndex)) {
                         removeHeader(j--);
                     }
                 }
@@ -322,6 +333,7 @@ public class MimeHeaders {
         }
         MimeHeaderField mh = createHeader();
         mh.getName().setString(name);
+        mh.setKnownIndex(knownIndex);
         return mh.getValue();
     }
 
@@ -336,8 +348,9 @@ public class MimeHeaders {
      * @return the value
      */
     public MessageBytes getValue(String name) {
+        int knownIndex = KnownHeaders.indexOf(name);
         for (int i = 0; i < count; i++) {
-            if (headers[i].getName().equalsIgnoreCase(name)) {
+            if (headers[i].nameEquals(name, knownIndex)) {
                 return headers[i].getValue();
             }
         }
@@ -356,8 +369,9 @@ public class MimeHeaders {
      */
     public MessageBytes getUniqueValue(String name) {
         MessageBytes result = null;
+        int knownIndex = KnownHeaders.indexOf(name);
         for (int i = 0; i < count; i++) {
-            if (headers[i].getName().equalsIgnoreCase(name)) {
+            if (headers[i].nameEquals(name, knownIndex)) {
                 if (result == null) {
                     result = headers[i].getValue();
                 } else {
@@ -381,8 +395,9 @@ public class MimeHeaders {
      * @param name the name of the header field to be removed
      */
     public void removeHeader(String name) {
+        int knownIndex = KnownHeaders.indexOf(name);
         for (int i = 0; i < count; i++) {
-            if (headers[i].getName().equalsIgnoreCase(name)) {
+            if (headers[i].nameEquals(name, knownIndex)) {
                 removeHeader(i--);
             }
         }
@@ -514,6 +529,7 @@ class MimeHeaderField {
 
     private final MessageBytes nameB = MessageBytes.newInstance();
     private final MessageBytes valueB = MessageBytes.newInstance();
+    private int knownIndex = KnownHeaders.UNKNOWN;
 
     /**
      * Creates a new, uninitialized header field.
@@ -525,6 +541,7 @@ class MimeHeaderField {
     public void recycle() {
         nameB.recycle();
         valueB.recycle();
+        knownIndex = KnownHeaders.UNKNOWN;
     }
 
     public MessageBytes getName() {
@@ -535,6 +552,29 @@ class MimeHeaderField {
         return valueB;
     }
 
+    int getKnownIndex() {
+        return knownIndex;
+    }
+
+    void setKnownIndex(int knownIndex) {
+        this.knownIndex = knownIndex;
+    }
+
+    /**
+     * Does the name of this header match the given name (ignoring case)?
+     *
+     * @param name       The header name to compare against
+     * @param knownIndex The {@link KnownHeaders} index of the given name
+     *
+     * @return {@code true} if the names match, otherwise {@code false}
+     */
+    boolean nameEquals(String name, int knownIndex) {
+        if (knownIndex == KnownHeaders.UNKNOWN) {
+            return nameB.equalsIgnoreCase(name);
+        }
+        return this.knownIndex == knownIndex;
+    }
+
     @Override
     public String toString() {
         return nameB + ": " + valueB;
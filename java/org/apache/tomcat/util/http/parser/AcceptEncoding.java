@@ -64,9 +64,8 @@ public class AcceptEncoding {
                 quality = HttpParser.readWeight(input, ',');
             }
 
-            if (quality > 0) {
-                result.add(new AcceptEncoding(encoding, quality));
-            }
+            // Retain entries with a quality of zero as they exclude encodings that would otherwise match "*"
+            result.add(new AcceptEncoding(encoding, quality));
         } while (true);
 
         return result;
@@ -69,17 +69,22 @@ public class HttpHeaderParser {
      */
     public HeaderParseStatus parseHeader() throws IOException {
 
+        // The source may replace the buffer when it is filled so the local
+        // reference must be refreshed after every call to fillHeaderBuffer()
+        ByteBuffer buf = source.getHeaderByteBuffer();
+
         while (headerParsePos == HeaderParsePosition.HEADER_START) {
 
             // Read new bytes if needed
-            if (source.getHeaderByteBuffer().position() >= source.getHeaderByteBuffer().limit()) {
+            if (buf.position() >= buf.limit()) {
                 if (!source.fillHeaderBuffer()) {
                     return HeaderParseStatus.NEED_MORE_DATA;
                 }
+                buf = source.getHeaderByteBuffer();
             }
 
             prevChr = chr;
-            chr = source.getHeaderByteBuffer().get();
+            chr = buf.get();
 
             if (chr == CR && prevChr != CR) {
                 // Possible start of CRLF - process the next byte.
@@ -91,10 +96,10 @@ public class HttpHeaderParser {
             } else {
                 if (prevChr == CR) {
                     // Must have read two bytes (first was CR, second was not LF)
-                    source.getHeaderByteBuffer().position(source.getHeaderByteBuffer().position() - 2);
+                    buf.position(buf.position() - 2);
                 } else {
                     // Must have only read one byte
-                    source.getHeaderByteBuffer().position(source.getHeaderByteBuffer().position() - 1);
+                    buf.position(buf.position() - 1);
                 }
                 break;
             }
@@ -102,7 +107,7 @@ public class HttpHeaderParser {
 
         if (headerParsePos == HeaderParsePosition.HEADER_START) {
             // Mark the current buffer position
-            headerData.start = source.getHeaderByteBuffer().position();
+            headerData.start = buf.position();
             headerData.lineStart = headerData.start;
             headerParsePos = HeaderParsePosition.HEADER_NAME;
         }
@@ -115,14 +120,15 @@ public class HttpHeaderParser {
         while (headerParsePos == HeaderParsePosition.HEADER_NAME) {
 
             // Read new bytes if needed
-            if (source.getHeaderByteBuffer().position() >= source.getHeaderByteBuffer().limit()) {
+            if (buf.position() >= buf.limit()) {
                 if (!source.fillHeaderBuffer()) {
                     return HeaderParseStatus.NEED_MORE_DATA;
                 }
+                buf = source.getHeaderByteBuffer();
             }
 
-            int pos = source.getHeaderByteBuffer().position();
-            chr = source.getHeaderByteBuffer().get();
+            int pos = buf.position();
+            chr = buf.get();
             if (chr == COLON) {
                 if (headerData.start == pos) {
                     // Zero length header name - not valid.
@@ -130,9 +136,8 @@ public class HttpHeaderParser {
                     return skipLine();
                 }
                 headerParsePos = HeaderParsePosition.HEADER_VALUE_START;
-                headerData.headerValue = headers.addValue(source.getHeaderByteBuffer().array(), headerData.start,
-                        pos - headerData.start);
-                pos = source.getHeaderByteBuffer().position();
+                headerData.headerValue = headers.addValue(buf.array(), headerData.start, pos - headerData.start);
+                pos = buf.position();
                 // Mark the current buffer position
                 headerData.start = pos;
                 headerData.realPos = pos;
@@ -142,7 +147,7 @@ public class HttpHeaderParser {
                 // Non-token characters are illegal in header names
                 // Parsing continues so the error can be reported in context
                 headerData.lastSignificantChar = pos;
-                source.getHeaderByteBuffer().position(source.getHeaderByteBuffer().position() - 1);
+                buf.position(buf.position() - 1);
                 // skipLine() will handle the error
                 return skipLine();
             }
@@ -165,16 +170,17 @@ public class HttpHeaderParser {
                 // Skipping spaces
                 while (true) {
                     // Read new bytes if needed
-                    if (source.getHeaderByteBuffer().position() >= source.getHeaderByteBuffer().limit()) {
+                    if (buf.position() >= buf.limit()) {
                         if (!source.fillHeaderBuffer()) {
                             return HeaderParseStatus.NEED_MORE_DATA;
                         }
+                        buf = source.getHeaderByteBuffer();
                     }
 
-                    chr = source.getHeaderByteBuffer().get();
+                    chr = buf.get();
                     if (chr != SP && chr != HT) {
                         headerParsePos = HeaderParsePosition.HEADER_VALUE;
-                        source.getHeaderByteBuffer().position(source.getHeaderByteBuffer().position() - 1);
+                        buf.position(buf.position() - 1);
                         // Avoids prevChr = chr at start of header value
                         // parsing which causes problems when chr is CR
                         // (in the case of an empty header value)
@@ -190,14 +196,15 @@ public class HttpHeaderParser {
                 while (!eol) {
 
                     // Read new bytes if needed
-                    if (source.getHeaderByteBuffer().position() >= source.getHeaderByteBuffer().limit()) {
+                    if (buf.position() >= buf.limit()) {
                         if (!source.fillHeaderBuffer()) {
                             return HeaderParseStatus.NEED_MORE_DATA;
                         }
+                        buf = source.getHeaderByteBuffer();
                     }
 
                     prevChr = chr;
-                    chr = source.getHeaderByteBuffer().get();
+                    chr = buf.get();
                     if (chr == CR && prevChr != CR) {
                         // CR is only permitted at the start of a CRLF sequence.
                         // Possible start of CRLF - process the next byte.
@@ -213,10 +220,10 @@ public class HttpHeaderParser {
                         // Invalid value - also need to delete header
                         return skipLine();
                     } else if (chr == SP || chr == HT) {
-                        source.getHeaderByteBuffer().put(headerData.realPos, chr);
+                        buf.put(headerData.realPos, chr);
                         headerData.realPos++;
                     } else {
-                        source.getHeaderByteBuffer().put(headerData.realPos, chr);
+                        buf.put(headerData.realPos, chr);
                         headerData.realPos++;
                         headerData.lastSignificantChar = headerData.realPos;
                     }
@@ -230,13 +237,14 @@ public class HttpHeaderParser {
                 headerParsePos = HeaderParsePosition.HEADER_MULTI_LINE;
             }
             // Read new bytes if needed
-            if (source.getHeaderByteBuffer().position() >= source.getHeaderByteBuffer().limit()) {
+            if (buf.position() >= buf.limit()) {
                 if (!source.fillHeaderBuffer()) {
                     return HeaderParseStatus.NEED_MORE_DATA;
                 }
+                buf = source.getHeaderByteBuffer();
             }
 
-            byte peek = source.getHeaderByteBuffer().get(source.getHeaderByteBuffer().position());
+            byte peek = buf.get(buf.position());
             if (headerParsePos == HeaderParsePosition.HEADER_MULTI_LINE) {
                 if (peek != SP && peek != HT) {
                     headerParsePos = HeaderParsePosition.HEADER_START;
@@ -244,14 +252,14 @@ public class HttpHeaderParser {
                 } else {
                     // Copying one extra space in the buffer (since there must
                     // be at least one space inserted between the lines)
-                    source.getHeaderByteBuffer().put(headerData.realPos, peek);
+                    buf.put(headerData.realPos, peek);
                     headerData.realPos++;
                     headerParsePos = HeaderParsePosition.HEADER_VALUE_START;
                 }
             }
         }
         // Set the header value
-        headerData.headerValue.setBytes(source.getHeaderByteBuffer().array(), headerData.start,
+        headerData.headerValue.setBytes(buf.array(), headerData.start,
                 headerData.lastSignificantChar - headerData.start);
         headerData.recycle();
         return HeaderParseStatus.HAVE_MORE_HEADERS;
@@ -261,6 +269,7 @@ public class HttpHeaderParser {
     private HeaderParseStatus skipLine() throws IOException {
         // Parse the rest of the invalid header so we can construct a useful
         // exception and/or debug message.
+        ByteBuffer buf = source.getHeaderByteBuffer();
         headerParsePos = HeaderParsePosition.HEADER_SKIPLINE;
         boolean eol = false;
 
@@ -268,15 +277,16 @@ public class HttpHeaderParser {
         while (!eol) {
 
             // Read new bytes if needed
-            if (source.getHeaderByteBuffer().position() >= source.getHeaderByteBuffer().limit()) {
+            if (buf.position() >= buf.limit()) {
                 if (!source.fillHeaderBuffer()) {
                     return HeaderParseStatus.NEED_MORE_DATA;
                 }
+                buf = source.getHeaderByteBuffer();
             }
 
-            int pos = source.getHeaderByteBuffer().position();
+            int pos = buf.position();
             prevChr = chr;
-            chr = source.getHeaderByteBuffer().get();
+            chr = buf.get();
             if (chr == CR) {
                 // Skip
             } else if (chr == LF) {
@@ -290,7 +300,7 @@ public class HttpHeaderParser {
         }
 
         throw new IllegalArgumentException(sm.getString("httpHeaderParser.invalidHeader",
-                HeaderUtil.toPrintableString(source.getHeaderByteBuffer().array(), headerData.lineStart,
+                HeaderUtil.toPrintableString(buf.array(), headerData.lineStart,
                         headerData.lastSignificantChar - headerData.lineStart + 1)));
     }
 
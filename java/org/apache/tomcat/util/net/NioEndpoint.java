@@ -51,6 +51,7 @@ import java.util.Set;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.Semaphore;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
 
 import javax.net.ssl.SSLEngine;
@@ -103,6 +104,11 @@ public class NioEndpoint extends AbstractNetworkChannelEndpoint<NioChannel,Socke
      */
     private SynchronizedStack<NioChannel> nioChannels;
 
+    /**
+     * Pool of direct buffers shared by all connections, if enabled
+     */
+    private volatile SocketBufferPool sharedBufferPool;
+
     private SocketAddress previousAcceptedSocketRemoteAddress = null;
     private long previousAcceptedSocketNanoTime = 0;
 
@@ -176,9 +182,29 @@ public class NioEndpoint extends AbstractNetworkChannelEndpoint<NioChannel,Socke
     }
 
     /**
-     * The socket poller.
+     * Number of poller threads. New connections are distributed across the pollers in turn so that no single
+     * selector has to handle every connection.
      */
-    private Poller poller = null;
+    private int pollerThreadCount = 1;
+
+    public void setPollerThreadCount(int pollerThreadCount) {
+        if (pollerThreadCount < 1) {
+            throw new IllegalArgumentException(
+                    sm.getString("endpoint.nio.invalidPollerThreadCount", Integer.toString(pollerThreadCount)));
+        }
+        this.pollerThreadCount = pollerThreadCount;
+    }
+
+    public int getPollerThreadCount() {
+        return pollerThreadCount;
+    }
+
+
+    /**
+     * The socket pollers.
+     */
+    private volatile Poller[] pollers = null;
+    private final AtomicInteger pollerRotater = new AtomicInteger(0);
 
 
     // --------------------------------------------------------- Public Methods
@@ -190,11 +216,71 @@ public class NioEndpoint extends AbstractNetworkChannelEndpoint<NioChannel,Socke
      *             the socket
      */
     public int getKeepAliveCount() {
-        if (poller == null) {
+        Poller[] pollers = this.pollers;
+        if (pollers == null) {
             return 0;
-        } else {
-            return poller.getKeyCount();
         }
+        int sum = 0;
+        for (Poller poller : pollers) {
+            sum += poller.getKeyCount();
+        }
+        return sum;
+    }
+
+
+    /**
+     * Number of keys registered with each poller.
+     *
+     * @return The number of keys registered with the selector of each poller or an empty array if the endpoint is not
+     *             running
+     */
+    public int[] getPollerKeyCounts() {
+        Poller[] pollers = this.pollers;
+        if (pollers == null) {
+            return new int[0];
+        }
+        int[] result = new int[pollers.length];
+        for (int i = 0; i < pollers.length; i++) {
+            result[i] = pollers[i].getKeyCount();
+        }
+        return result;
+    }
+
+
+    /**
+     * Number of events waiting in the event queue of each poller.
+     *
+     * @return The current depth of the event queue of each poller or an empty array if the endpoint is not running
+     */
+    public int[] getPollerEventQueueSizes() {
+        Poller[] pollers = this.pollers;
+        if (pollers == null) {
+            return new int[0];
+        }
+        int[] result = new int[pollers.length];
+        for (int i = 0; i < pollers.length; i++) {
+            result[i] = pollers[i].getEventQueueSize();
+        }
+        return result;
+    }
+
+
+    /**
+     * Number of times each poller's selector has been woken up to process newly added events.
+     *
+     * @return The number of selector wake-ups of each poller since it was started or an empty array if the endpoint
+     *             is not running
+     */
+    public long[] getPollerWakeupCounts() {
+        Poller[] pollers = this.pollers;
+        if (pollers == null) {
+            return new long[0];
+        }
+        long[] result = new long[pollers.length];
+        for (int i = 0; i < pollers.length; i++) {
+            result[i] = pollers[i].getWakeupCount();
+        }
+        return result;
     }
 
 
@@ -210,6 +296,52 @@ public class NioEndpoint extends AbstractNetworkChannelEndpoint<NioChannel,Socke
     }
 
 
+    /**
+     * Total size of the idle buffers held by the shared buffer pool.
+     *
+     * @return The total capacity in bytes of the idle buffers or -1 if the shared buffer pool is not in use
+     */
+    public long getSharedBufferPoolIdleBytes() {
+        SocketBufferPool pool = sharedBufferPool;
+        return pool == null ? -1 : pool.getIdleBytes();
+    }
+
+
+    /**
+     * Number of idle buffers held by the shared buffer pool in each size class.
+     *
+     * @return The number of idle buffers in each size class, starting with the smallest, or an empty array if the
+     *             shared buffer pool is not in use
+     */
+    public int[] getSharedBufferPoolIdleCounts() {
+        SocketBufferPool pool = sharedBufferPool;
+        return pool == null ? new int[0] : pool.getIdleCounts();
+    }
+
+
+    /**
+     * Number of buffers currently borrowed from the shared buffer pool.
+     *
+     * @return The number of borrowed buffers or -1 if the shared buffer pool is not in use
+     */
+    public long getSharedBufferPoolBorrowedCount() {
+        SocketBufferPool pool = sharedBufferPool;
+        return pool == null ? -1 : pool.getBorrowedCount();
+    }
+
+
+    /**
+     * Number of buffers allocated by the shared buffer pool.
+     *
+     * @return The number of buffers allocated since the endpoint was started or -1 if the shared buffer pool is not in
+     *             use
+     */
+    public long getSharedBufferPoolAllocatedCount() {
+        SocketBufferPool pool = sharedBufferPool;
+        return pool == null ? -1 : pool.getAllocatedCount();
+    }
+
+
     // ----------------------------------------------- Public Lifecycle Methods
 
     /**
@@ -219,8 +351,6 @@ public class NioEndpoint extends AbstractNetworkChannelEndpoint<NioChannel,Socke
     public void bind() throws Exception {
         initServerSocket();
 
-        setStopLatch(new CountDownLatch(1));
-
         // Initialize SSL if needed
         initialiseSsl();
     }
@@ -289,6 +419,9 @@ public class NioEndpoint extends AbstractNetworkChannelEndpoint<NioChannel,Socke
             if (actualBufferPool != 0) {
                 nioChannels = new SynchronizedStack<>(SynchronizedStack.DEFAULT_SIZE, actualBufferPool);
             }
+            if (socketProperties.getSharedBufferPool()) {
+                sharedBufferPool = new SocketBufferPool(socketProperties.getSharedBufferPoolSize());
+            }
 
             // Create worker collection
             if (getExecutor() == null) {
@@ -297,12 +430,24 @@ public class NioEndpoint extends AbstractNetworkChannelEndpoint<NioChannel,Socke
 
             initializeConnectionLatch();
 
-            // Start poller thread
-            poller = new Poller();
-            Thread pollerThread = new Thread(poller, getName() + "-Poller");
-            pollerThread.setPriority(threadPriority);
-            pollerThread.setDaemon(true);
-            pollerThread.start();
+            // Start poller threads
+            Poller[] pollers = new Poller[getPollerThreadCount()];
+            for (int i = 0; i < pollers.length; i++) {
+                pollers[i] = new Poller();
+            }
+            // One count per poller, sized here as the poller count may have changed since the last start
+            setStopLatch(new CountDownLatch(pollers.length));
+            this.pollers = pollers;
+            for (int i = 0; i < pollers.length; i++) {
+                String threadName = getName() + "-Poller";
+                if (pollers.length > 1) {
+                    threadName = threadName + "-" + i;
+                }
+                Thread pollerThread = new Thread(pollers[i], threadName);
+                pollerThread.setPriority(threadPriority);
+                pollerThread.setDaemon(true);
+                pollerThread.start();
+            }
 
             startAcceptorThread();
         }
@@ -325,9 +470,12 @@ public class NioEndpoint extends AbstractNetworkChannelEndpoint<NioChannel,Socke
              */
             int acceptorWaitMilliSeconds = 100 + 2 * getSocketProperties().getUnlockTimeout();
             acceptor.stopMillis(acceptorWaitMilliSeconds);
-            if (poller != null) {
-                poller.destroy();
-                poller = null;
+            Poller[] pollers = this.pollers;
+            if (pollers != null) {
+                for (Poller poller : pollers) {
+                    poller.destroy();
+                }
+                this.pollers = null;
             }
             try {
                 if (!getStopLatch().await(selectorTimeout + 100, TimeUnit.MILLISECONDS)) {
@@ -348,6 +496,10 @@ public class NioEndpoint extends AbstractNetworkChannelEndpoint<NioChannel,Socke
                 }
                 nioChannels = null;
             }
+            if (sharedBufferPool != null) {
+                sharedBufferPool.clear();
+                sharedBufferPool = null;
+            }
             if (processorCache != null) {
                 processorCache.clear();
                 processorCache = null;
@@ -438,8 +590,21 @@ public class NioEndpoint extends AbstractNetworkChannelEndpoint<NioChannel,Socke
     }
 
 
+    /**
+     * Obtain the poller that the next new connection should be registered with. Connections are assigned to the
+     * pollers in turn.
+     *
+     * @return The poller or {@code null} if the endpoint is not running
+     */
     protected Poller getPoller() {
-        return poller;
+        Poller[] pollers = this.pollers;
+        if (pollers == null) {
+            return null;
+        }
+        if (pollers.length == 1) {
+            return pollers[0];
+        }
+        return pollers[Math.floorMod(pollerRotater.getAndIncrement(), pollers.length)];
     }
 
 
@@ -471,8 +636,15 @@ public class NioEndpoint extends AbstractNetworkChannelEndpoint<NioChannel,Socke
                 channel = nioChannels.pop();
             }
             if (channel == null) {
-                SocketBufferHandler bufhandler = new SocketBufferHandler(socketProperties.getAppReadBufSize(),
-                        socketProperties.getAppWriteBufSize(), socketProperties.getDirectBuffer());
+                SocketBufferHandler bufhandler;
+                SocketBufferPool pool = sharedBufferPool;
+                if (pool == null) {
+                    bufhandler = new SocketBufferHandler(socketProperties.getAppReadBufSize(),
+                            socketProperties.getAppWriteBufSize(), socketProperties.getDirectBuffer());
+                } else {
+                    bufhandler = new SocketBufferHandler(socketProperties.getAppReadBufSize(),
+                            socketProperties.getAppWriteBufSize(), pool);
+                }
                 channel = createChannel(bufhandler);
             }
             NioSocketWrapper newWrapper = new NioSocketWrapper(channel, this);
@@ -490,7 +662,7 @@ public class NioEndpoint extends AbstractNetworkChannelEndpoint<NioChannel,Socke
             socketWrapper.setReadTimeout(getConnectionTimeout());
             socketWrapper.setWriteTimeout(getConnectionTimeout());
             socketWrapper.setKeepAliveLeft(NioEndpoint.this.getMaxKeepAliveRequests());
-            poller.register(socketWrapper);
+            socketWrapper.getPoller().register(socketWrapper);
             return true;
         } catch (Throwable t) {
             ExceptionUtils.handleThrowable(t);
@@ -624,6 +796,7 @@ public class NioEndpoint extends AbstractNetworkChannelEndpoint<NioChannel,Socke
         private long nextExpiration = 0;
 
         private final AtomicLong wakeupCounter = new AtomicLong(0);
+        private final AtomicLong wakeupCount = new AtomicLong(0);
 
         private volatile int keyCount = 0;
 
@@ -635,6 +808,14 @@ public class NioEndpoint extends AbstractNetworkChannelEndpoint<NioChannel,Socke
             return selector.keys().size();
         }
 
+        public int getEventQueueSize() {
+            return events.size();
+        }
+
+        public long getWakeupCount() {
+            return wakeupCount.get();
+        }
+
         public Selector getSelector() {
             return selector;
         }
@@ -653,6 +834,7 @@ public class NioEndpoint extends AbstractNetworkChannelEndpoint<NioChannel,Socke
         private void addEvent(PollerEvent event) {
             events.offer(event);
             if (wakeupCounter.incrementAndGet() == 0) {
+                wakeupCount.incrementAndGet();
                 selector.wakeup();
             }
         }
@@ -1254,6 +1436,8 @@ public class NioEndpoint extends AbstractNetworkChannelEndpoint<NioChannel,Socke
                     getSocket().close(true);
                 }
                 if (getEndpoint().running) {
+                    // Cached channels do not retain buffers borrowed from the shared pool
+                    getSocket().getBufHandler().release();
                     if (nioChannels == null || !nioChannels.push(getSocket())) {
                         getSocket().free();
                     }
@@ -1733,8 +1917,7 @@ public class NioEndpoint extends AbstractNetworkChannelEndpoint<NioChannel,Socke
              * connection. That can result in a stale cached value which in turn can result in unintentionally closing
              * currently active connections.
              */
-            Poller poller = NioEndpoint.this.poller;
-            if (poller == null) {
+            if (pollers == null) {
                 socketWrapper.close();
                 return;
             }
@@ -1779,6 +1962,9 @@ public class NioEndpoint extends AbstractNetworkChannelEndpoint<NioChannel,Socke
                             Objects.requireNonNullElse(event, SocketEvent.OPEN_READ));
                     if (state == SocketState.CLOSED) {
                         socketWrapper.close();
+                    } else if (state == SocketState.OPEN) {
+                        // Between requests. Return the buffers to the shared pool, if any, while idle.
+                        socketWrapper.getSocketBufferHandler().releaseIfEmpty();
                     }
                 } else if (handshake == -1) {
                     getHandler().process(socketWrapper, SocketEvent.CONNECT_FAIL);
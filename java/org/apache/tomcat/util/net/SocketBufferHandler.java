@@ -23,7 +23,7 @@ import org.apache.tomcat.util.buf.ByteBufferUtils;
 
 public class SocketBufferHandler {
 
-    static SocketBufferHandler EMPTY = new SocketBufferHandler(0, 0, false) {
+    public static final SocketBufferHandler EMPTY = new SocketBufferHandler(0, 0, false) {
         @Override
         public void expand(int newSize) {
         }
@@ -47,8 +47,19 @@ public class SocketBufferHandler {
 
     private final boolean direct;
 
+    /*
+     * When a pool is used, the buffers are only borrowed from the pool when they are first needed and the buffer
+     * fields are null while the buffers are not borrowed.
+     */
+    private final SocketBufferPool pool;
+    private volatile int readBufferSize;
+    private volatile int writeBufferSize;
+
     public SocketBufferHandler(int readBufferSize, int writeBufferSize, boolean direct) {
         this.direct = direct;
+        this.pool = null;
+        this.readBufferSize = readBufferSize;
+        this.writeBufferSize = writeBufferSize;
         if (direct) {
             readBuffer = ByteBuffer.allocateDirect(readBufferSize);
             writeBuffer = ByteBuffer.allocateDirect(writeBufferSize);
@@ -59,6 +70,47 @@ public class SocketBufferHandler {
     }
 
 
+    /**
+     * Create a handler that borrows its buffers from the given pool when they are required and returns them to the
+     * pool when {@link #release()} or {@link #releaseIfEmpty()} is called. The buffers are always direct.
+     *
+     * @param readBufferSize  The minimum size of the read buffer
+     * @param writeBufferSize The minimum size of the write buffer
+     * @param pool            The pool from which to borrow the buffers
+     */
+    public SocketBufferHandler(int readBufferSize, int writeBufferSize, SocketBufferPool pool) {
+        this.direct = true;
+        this.pool = pool;
+        this.readBufferSize = readBufferSize;
+        this.writeBufferSize = writeBufferSize;
+    }
+
+
+    public boolean isPooled() {
+        return pool != null;
+    }
+
+
+    private ByteBuffer readBuffer() {
+        ByteBuffer result = readBuffer;
+        if (result == null) {
+            result = pool.borrow(readBufferSize);
+            readBuffer = result;
+        }
+        return result;
+    }
+
+
+    private ByteBuffer writeBuffer() {
+        ByteBuffer result = writeBuffer;
+        if (result == null) {
+            result = pool.borrow(writeBufferSize);
+            writeBuffer = result;
+        }
+        return result;
+    }
+
+
     public void configureReadBufferForWrite() {
         setReadBufferConfiguredForWrite(true);
     }
@@ -72,6 +124,7 @@ public class SocketBufferHandler {
     private void setReadBufferConfiguredForWrite(boolean readBufferConFiguredForWrite) {
         // NO-OP if buffer is already in correct state
         if (this.readBufferConfiguredForWrite != readBufferConFiguredForWrite) {
+            ByteBuffer readBuffer = readBuffer();
             if (readBufferConFiguredForWrite) {
                 // Switching to write
                 int remaining = readBuffer.remaining();
@@ -90,12 +143,15 @@ public class SocketBufferHandler {
 
 
     public ByteBuffer getReadBuffer() {
-        return readBuffer;
+        return readBuffer();
     }
 
 
     public boolean isReadBufferEmpty() {
-        if (readBufferConfiguredForWrite) {
+        ByteBuffer readBuffer = this.readBuffer;
+        if (readBuffer == null) {
+            return true;
+        } else if (readBufferConfiguredForWrite) {
             return readBuffer.position() == 0;
         } else {
             return readBuffer.remaining() == 0;
@@ -106,8 +162,9 @@ public class SocketBufferHandler {
     public void unReadReadBuffer(ByteBuffer returnedData) {
         if (isReadBufferEmpty()) {
             configureReadBufferForWrite();
-            readBuffer.put(returnedData);
+            readBuffer().put(returnedData);
         } else {
+            ByteBuffer readBuffer = this.readBuffer;
             int bytesReturned = returnedData.remaining();
             if (readBufferConfiguredForWrite) {
                 // Writes always start at position zero
@@ -165,6 +222,7 @@ public class SocketBufferHandler {
     private void setWriteBufferConfiguredForWrite(boolean writeBufferConfiguredForWrite) {
         // NO-OP if buffer is already in correct state
         if (this.writeBufferConfiguredForWrite != writeBufferConfiguredForWrite) {
+            ByteBuffer writeBuffer = writeBuffer();
             if (writeBufferConfiguredForWrite) {
                 // Switching to write
                 int remaining = writeBuffer.remaining();
@@ -185,7 +243,10 @@ public class SocketBufferHandler {
 
 
     public boolean isWriteBufferWritable() {
-        if (writeBufferConfiguredForWrite) {
+        ByteBuffer writeBuffer = this.writeBuffer;
+        if (writeBuffer == null) {
+            return writeBufferSize > 0;
+        } else if (writeBufferConfiguredForWrite) {
             return writeBuffer.hasRemaining();
         } else {
             return writeBuffer.remaining() == 0;
@@ -194,12 +255,15 @@ public class SocketBufferHandler {
 
 
     public ByteBuffer getWriteBuffer() {
-        return writeBuffer;
+        return writeBuffer();
     }
 
 
     public boolean isWriteBufferEmpty() {
-        if (writeBufferConfiguredForWrite) {
+        ByteBuffer writeBuffer = this.writeBuffer;
+        if (writeBuffer == null) {
+            return true;
+        } else if (writeBufferConfiguredForWrite) {
             return writeBuffer.position() == 0;
         } else {
             return writeBuffer.remaining() == 0;
@@ -208,6 +272,10 @@ public class SocketBufferHandler {
 
 
     public void reset() {
+        if (pool != null) {
+            release();
+            return;
+        }
         readBuffer.clear();
         readBufferConfiguredForWrite = true;
         writeBuffer.clear();
@@ -216,14 +284,79 @@ public class SocketBufferHandler {
 
 
     public void expand(int newSize) {
+        if (pool != null) {
+            readBufferSize = Math.max(readBufferSize, newSize);
+            writeBufferSize = Math.max(writeBufferSize, newSize);
+            if (readBuffer != null && readBuffer.capacity() < newSize) {
+                configureReadBufferForWrite();
+                ByteBuffer newBuffer = pool.borrow(newSize);
+                readBuffer.flip();
+                newBuffer.put(readBuffer);
+                pool.release(readBuffer);
+                readBuffer = newBuffer;
+            }
+            if (writeBuffer != null && writeBuffer.capacity() < newSize) {
+                configureWriteBufferForWrite();
+                ByteBuffer newBuffer = pool.borrow(newSize);
+                writeBuffer.flip();
+                newBuffer.put(writeBuffer);
+                pool.release(writeBuffer);
+                writeBuffer = newBuffer;
+            }
+            return;
+        }
         configureReadBufferForWrite();
         readBuffer = ByteBufferUtils.expand(readBuffer, newSize);
         configureWriteBufferForWrite();
         writeBuffer = ByteBufferUtils.expand(writeBuffer, newSize);
     }
 
+
+    /**
+     * Return the buffers to the pool if both of them are empty. This is a NO-OP if the buffers are not pooled. The
+     * buffers will be borrowed again from the pool when they are next required.
+     *
+     * @return {@code true} if the handler no longer holds any buffers borrowed from the pool
+     */
+    public boolean releaseIfEmpty() {
+        if (pool == null) {
+            return false;
+        }
+        if (isReadBufferEmpty() && isWriteBufferEmpty()) {
+            release();
+            return true;
+        }
+        return false;
+    }
+
+
+    /**
+     * Return the buffers to the pool, discarding any data they contain. This is a NO-OP if the buffers are not pooled.
+     * The buffers will be borrowed again from the pool when they are next required.
+     */
+    public void release() {
+        if (pool == null) {
+            return;
+        }
+        ByteBuffer readBuffer = this.readBuffer;
+        if (readBuffer != null) {
+            this.readBuffer = null;
+            pool.release(readBuffer);
+        }
+        readBufferConfiguredForWrite = true;
+        ByteBuffer writeBuffer = this.writeBuffer;
+        if (writeBuffer != null) {
+            this.writeBuffer = null;
+            pool.release(writeBuffer);
+        }
+        writeBufferConfiguredForWrite = true;
+    }
+
+
     public void free() {
-        if (direct) {
+        if (pool != null) {
+            release();
+        } else if (direct) {
             ByteBufferUtils.cleanDirectBuffer(readBuffer);
             ByteBufferUtils.cleanDirectBuffer(writeBuffer);
         }
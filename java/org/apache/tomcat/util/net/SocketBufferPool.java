@@ -0,0 +1,167 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.apache.tomcat.util.net;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.tomcat.util.collections.SynchronizedStack;
+
+/**
+ * A pool of direct {@link ByteBuffer}s that is shared by all the connections of an endpoint. Buffers are grouped into
+ * size classes where each class holds buffers with a capacity that is a power of two. A request for a buffer is
+ * satisfied from the smallest class that is large enough. Requests larger than the largest class are allocated
+ * directly and are not retained when released.
+ * <p>
+ * The total capacity of the idle buffers retained by the pool is limited. Buffers released when the limit has been
+ * reached are discarded and left for the garbage collector.
+ */
+public class SocketBufferPool {
+
+    private static final int MIN_SHIFT = 10;
+    private static final int MAX_SHIFT = 24;
+
+    public static final int MIN_CLASS_SIZE = 1 << MIN_SHIFT;
+    public static final int MAX_CLASS_SIZE = 1 << MAX_SHIFT;
+
+    private final SynchronizedStack<ByteBuffer>[] classes;
+    private final long maxIdleBytes;
+
+    private final AtomicLong idleBytes = new AtomicLong(0);
+    private final AtomicLong borrowedCount = new AtomicLong(0);
+    private final AtomicLong allocatedCount = new AtomicLong(0);
+
+
+    /**
+     * Create a new pool.
+     *
+     * @param maxIdleBytes The maximum total capacity, in bytes, of the idle buffers that will be retained by the pool.
+     *                         -1 means unlimited.
+     */
+    @SuppressWarnings("unchecked")
+    public SocketBufferPool(long maxIdleBytes) {
+        this.maxIdleBytes = maxIdleBytes;
+        classes = new SynchronizedStack[MAX_SHIFT - MIN_SHIFT + 1];
+        for (int i = 0; i < classes.length; i++) {
+            classes[i] = new SynchronizedStack<>();
+        }
+    }
+
+
+    /**
+     * Obtain a cleared buffer with at least the given capacity.
+     *
+     * @param size The minimum capacity of the buffer
+     *
+     * @return The buffer. Its capacity will be the size of the size class that was used to satisfy the request.
+     */
+    public ByteBuffer borrow(int size) {
+        borrowedCount.incrementAndGet();
+        int index = classIndex(size);
+        if (index >= classes.length) {
+            allocatedCount.incrementAndGet();
+            return ByteBuffer.allocateDirect(size);
+        }
+        ByteBuffer buffer = classes[index].pop();
+        if (buffer == null) {
+            allocatedCount.incrementAndGet();
+            return ByteBuffer.allocateDirect(MIN_CLASS_SIZE << index);
+        }
+        idleBytes.addAndGet(-buffer.capacity());
+        return buffer;
+    }
+
+
+    /**
+     * Return a buffer, previously obtained from {@link #borrow(int)}, to the pool. The buffer must not be used by the
+     * caller once it has been released.
+     *
+     * @param buffer The buffer to return
+     */
+    public void release(ByteBuffer buffer) {
+        borrowedCount.decrementAndGet();
+        int capacity = buffer.capacity();
+        if (capacity > MAX_CLASS_SIZE || Integer.bitCount(capacity) != 1 || capacity < MIN_CLASS_SIZE) {
+            // Not pooled
+            return;
+        }
+        if (idleBytes.addAndGet(capacity) > maxIdleBytes && maxIdleBytes > -1) {
+            // Pool is full
+            idleBytes.addAndGet(-capacity);
+            return;
+        }
+        buffer.clear();
+        classes[classIndex(capacity)].push(buffer);
+    }
+
+
+    /**
+     * Discard all the idle buffers held by the pool.
+     */
+    public void clear() {
+        for (SynchronizedStack<ByteBuffer> sizeClass : classes) {
+            ByteBuffer buffer;
+            while ((buffer = sizeClass.pop()) != null) {
+                idleBytes.addAndGet(-buffer.capacity());
+            }
+        }
+    }
+
+
+    /**
+     * @return the total capacity, in bytes, of the idle buffers currently held by the pool
+     */
+    public long getIdleBytes() {
+        return idleBytes.get();
+    }
+
+
+    /**
+     * @return the number of idle buffers currently held by the pool in each size class, starting with the smallest
+     */
+    public int[] getIdleCounts() {
+        int[] result = new int[classes.length];
+        for (int i = 0; i < classes.length; i++) {
+            result[i] = classes[i].size();
+        }
+        return result;
+    }
+
+
+    /**
+     * @return the number of buffers that are currently borrowed from the pool
+     */
+    public long getBorrowedCount() {
+        return borrowedCount.get();
+    }
+
+
+    /**
+     * @return the number of buffers that the pool has allocated since it was created
+     */
+    public long getAllocatedCount() {
+        return allocatedCount.get();
+    }
+
+
+    private static int classIndex(int size) {
+        if (size <= MIN_CLASS_SIZE) {
+            return 0;
+        }
+        return 32 - Integer.numberOfLeadingZeros(size - 1) - MIN_SHIFT;
+    }
+}
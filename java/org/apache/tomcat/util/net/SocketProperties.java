@@ -23,6 +23,7 @@ import java.net.SocketException;
 import java.net.StandardSocketOptions;
 import java.nio.channels.AsynchronousServerSocketChannel;
 import java.nio.channels.AsynchronousSocketChannel;
+import java.nio.channels.NetworkChannel;
 
 import javax.management.ObjectName;
 
@@ -68,6 +69,19 @@ public class SocketProperties {
      */
     protected boolean directSslBuffer = false;
 
+    /**
+     * Enable/disable borrowing the application read and write buffers from a pool of direct buffers shared by all
+     * connections. The buffers are only held by a connection while it has data to read or write. Default value is
+     * disabled.
+     */
+    protected boolean sharedBufferPool = false;
+
+    /**
+     * The maximum total size in bytes of the idle buffers retained by the shared buffer pool. -1 means unlimited.
+     * Default value is 64MiB.
+     */
+    protected long sharedBufferPoolSize = 64 * 1024 * 1024;
+
     /**
      * Socket receive buffer size in bytes (SO_RCVBUF). JVM default used if not set.
      */
@@ -260,6 +274,51 @@ public class SocketProperties {
         }
     }
 
+    /**
+     * Configure a connected socket that is neither a {@link Socket} nor a channel provided by the JRE.
+     *
+     * @param socket The socket to configure
+     *
+     * @throws IOException If an option is not supported or cannot be set
+     */
+    public void setProperties(NetworkChannel socket) throws IOException {
+        if (rxBufSize != null) {
+            socket.setOption(StandardSocketOptions.SO_RCVBUF, rxBufSize);
+        }
+        if (txBufSize != null) {
+            socket.setOption(StandardSocketOptions.SO_SNDBUF, txBufSize);
+        }
+        if (soKeepAlive != null) {
+            socket.setOption(StandardSocketOptions.SO_KEEPALIVE, soKeepAlive);
+        }
+        if (soReuseAddress != null) {
+            socket.setOption(StandardSocketOptions.SO_REUSEADDR, soReuseAddress);
+        }
+        if (soLingerOn != null && soLingerTime != null) {
+            socket.setOption(StandardSocketOptions.SO_LINGER,
+                    soLingerOn.booleanValue() ? soLingerTime : Integer.valueOf(-1));
+        }
+        if (tcpNoDelay != null) {
+            socket.setOption(StandardSocketOptions.TCP_NODELAY, tcpNoDelay);
+        }
+    }
+
+    /**
+     * Configure a listening socket that is neither a {@link ServerSocket} nor a channel provided by the JRE.
+     *
+     * @param socket The socket to configure
+     *
+     * @throws IOException If an option is not supported or cannot be set
+     */
+    public void setServerProperties(NetworkChannel socket) throws IOException {
+        if (rxBufSize != null) {
+            socket.setOption(StandardSocketOptions.SO_RCVBUF, rxBufSize);
+        }
+        if (soReuseAddress != null) {
+            socket.setOption(StandardSocketOptions.SO_REUSEADDR, soReuseAddress);
+        }
+    }
+
     public boolean getDirectBuffer() {
         return directBuffer;
     }
@@ -268,6 +327,14 @@ public class SocketProperties {
         return directSslBuffer;
     }
 
+    public boolean getSharedBufferPool() {
+        return sharedBufferPool;
+    }
+
+    public long getSharedBufferPoolSize() {
+        return sharedBufferPoolSize;
+    }
+
     public boolean getOoBInline() {
         return ooBInline.booleanValue();
     }
@@ -400,6 +467,14 @@ public class SocketProperties {
         this.directSslBuffer = directSslBuffer;
     }
 
+    public void setSharedBufferPool(boolean sharedBufferPool) {
+        this.sharedBufferPool = sharedBufferPool;
+    }
+
+    public void setSharedBufferPoolSize(long sharedBufferPoolSize) {
+        this.sharedBufferPoolSize = sharedBufferPoolSize;
+    }
+
     public void setSoLingerOn(boolean soLingerOn) {
         this.soLingerOn = Boolean.valueOf(soLingerOn);
     }
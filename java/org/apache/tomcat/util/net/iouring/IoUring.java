@@ -0,0 +1,441 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.apache.tomcat.util.net.iouring;
+
+import java.io.IOException;
+import java.lang.foreign.Arena;
+import java.lang.foreign.MemorySegment;
+
+import static java.lang.foreign.ValueLayout.JAVA_BYTE;
+import static java.lang.foreign.ValueLayout.JAVA_INT;
+import static java.lang.foreign.ValueLayout.JAVA_LONG;
+import static java.lang.foreign.ValueLayout.JAVA_SHORT;
+
+import org.apache.tomcat.util.res.StringManager;
+
+/**
+ * A minimal io_uring instance. Only the operations required by {@link IoUringEndpoint} are supported. Instances are
+ * not thread safe. All methods, apart from {@link #close()}, must be called by the same thread.
+ * <p>
+ * Submission queue entries are prepared with the {@code prep*} methods and are passed to the kernel in a single system
+ * call by {@link #submit(int)}. Completions are then read directly from the shared completion queue by
+ * {@link #forEachCompletion(CompletionHandler)} without any further system calls.
+ */
+final class IoUring {
+
+    private static final StringManager sm = StringManager.getManager(IoUring.class);
+
+    // Setup flags
+    private static final int IORING_SETUP_CQSIZE = 1 << 3;
+    private static final int IORING_SETUP_CLAMP = 1 << 4;
+    private static final int IORING_SETUP_COOP_TASKRUN = 1 << 8;
+
+    // Features
+    private static final int IORING_FEAT_SINGLE_MMAP = 1 << 0;
+    private static final int IORING_FEAT_NODROP = 1 << 1;
+    private static final int IORING_FEAT_FAST_POLL = 1 << 5;
+
+    // Enter flags
+    private static final int IORING_ENTER_GETEVENTS = 1 << 0;
+
+    // mmap offsets
+    private static final long IORING_OFF_SQ_RING = 0L;
+    private static final long IORING_OFF_CQ_RING = 0x8000000L;
+    private static final long IORING_OFF_SQES = 0x10000000L;
+
+    // Opcodes
+    private static final byte IORING_OP_POLL_ADD = 6;
+    private static final byte IORING_OP_TIMEOUT = 11;
+    private static final byte IORING_OP_ASYNC_CANCEL = 14;
+    private static final byte IORING_OP_RECV = 27;
+    private static final byte IORING_OP_PROVIDE_BUFFERS = 31;
+
+    // Submission queue entry flags
+    private static final byte IOSQE_BUFFER_SELECT = 1 << 5;
+
+    // Completion queue entry flags
+    private static final int IORING_CQE_F_BUFFER = 1 << 0;
+    private static final int IORING_CQE_BUFFER_SHIFT = 16;
+
+    static final int POLLIN = 0x0001;
+    static final int POLLOUT = 0x0004;
+
+    // struct io_uring_params
+    private static final int PARAMS_SIZE = 120;
+    private static final int PARAMS_SQ_ENTRIES = 0;
+    private static final int PARAMS_CQ_ENTRIES = 4;
+    private static final int PARAMS_FLAGS = 8;
+    private static final int PARAMS_FEATURES = 20;
+    private static final int PARAMS_SQ_OFF = 40;
+    private static final int PARAMS_CQ_OFF = 80;
+
+    // struct io_sqring_offsets / io_cqring_offsets (relative to PARAMS_SQ_OFF / PARAMS_CQ_OFF)
+    private static final int OFF_HEAD = 0;
+    private static final int OFF_TAIL = 4;
+    private static final int OFF_RING_MASK = 8;
+    private static final int OFF_SQ_ARRAY = 24;
+    private static final int OFF_CQES = 20;
+
+    // struct io_uring_sqe
+    private static final int SQE_SIZE = 64;
+    private static final int SQE_OPCODE = 0;
+    private static final int SQE_FLAGS = 1;
+    private static final int SQE_FD = 4;
+    private static final int SQE_OFF = 8;
+    private static final int SQE_ADDR = 16;
+    private static final int SQE_LEN = 24;
+    private static final int SQE_OP_FLAGS = 28;
+    private static final int SQE_USER_DATA = 32;
+    private static final int SQE_BUF_GROUP = 40;
+
+    // struct io_uring_cqe
+    private static final int CQE_SIZE = 16;
+    private static final int CQE_USER_DATA = 0;
+    private static final int CQE_RES = 8;
+    private static final int CQE_FLAGS = 12;
+
+
+    private final int ringFd;
+
+    private final MemorySegment sqRing;
+    private final MemorySegment cqRing;
+    private final MemorySegment sqes;
+
+    private final int sqEntries;
+    private final int sqMask;
+    private final long sqHeadOffset;
+    private final long sqTailOffset;
+
+    private final int cqEntries;
+    private final int cqMask;
+    private final long cqHeadOffset;
+    private final long cqTailOffset;
+    private final long cqesOffset;
+
+    // Only accessed by the thread using the ring
+    private int sqTail;
+    private int cqHead;
+    private int pending;
+
+    private volatile boolean closed = false;
+
+
+    /**
+     * Create a new io_uring instance.
+     *
+     * @param entries   The requested size of the submission queue
+     * @param cqEntries The requested size of the completion queue. This should be large enough to hold a completion
+     *                      for every operation that may be outstanding at the same time.
+     *
+     * @throws IOException If the instance cannot be created
+     */
+    IoUring(int entries, int cqEntries) throws IOException {
+        MemorySegment sqRingSegment = null;
+        MemorySegment cqRingSegment = null;
+        int fd;
+        int features;
+        try (Arena arena = Arena.ofConfined()) {
+            MemorySegment params = arena.allocate(PARAMS_SIZE, 8);
+            int flags = IORING_SETUP_CQSIZE | IORING_SETUP_CLAMP | IORING_SETUP_COOP_TASKRUN;
+            try {
+                fd = setup(entries, cqEntries, flags, params);
+            } catch (IOException ioe) {
+                // Cooperative task running requires Linux 5.19
+                flags &= ~IORING_SETUP_COOP_TASKRUN;
+                fd = setup(entries, cqEntries, flags, params);
+            }
+            features = params.get(JAVA_INT, PARAMS_FEATURES);
+            sqEntries = params.get(JAVA_INT, PARAMS_SQ_ENTRIES);
+            this.cqEntries = params.get(JAVA_INT, PARAMS_CQ_ENTRIES);
+            try {
+                // Fast poll and provided buffers require Linux 5.7. Completion queue overflow protection 5.5.
+                if ((features & IORING_FEAT_NODROP) == 0 || (features & IORING_FEAT_FAST_POLL) == 0) {
+                    throw new IOException(sm.getString("ioUring.kernelTooOld"));
+                }
+                long sqArrayOffset = params.get(JAVA_INT, PARAMS_SQ_OFF + OFF_SQ_ARRAY);
+                long sqRingSize = sqArrayOffset + sqEntries * 4L;
+                cqesOffset = params.get(JAVA_INT, PARAMS_CQ_OFF + OFF_CQES);
+                long cqRingSize = cqesOffset + (long) this.cqEntries * CQE_SIZE;
+                if ((features & IORING_FEAT_SINGLE_MMAP) != 0) {
+                    sqRingSegment = Native.mmap(Math.max(sqRingSize, cqRingSize), fd, IORING_OFF_SQ_RING);
+                    cqRingSegment = sqRingSegment;
+                } else {
+                    sqRingSegment = Native.mmap(sqRingSize, fd, IORING_OFF_SQ_RING);
+                    cqRingSegment = Native.mmap(cqRingSize, fd, IORING_OFF_CQ_RING);
+                }
+                sqes = Native.mmap((long) sqEntries * SQE_SIZE, fd, IORING_OFF_SQES);
+
+                sqHeadOffset = params.get(JAVA_INT, PARAMS_SQ_OFF + OFF_HEAD);
+                sqTailOffset = params.get(JAVA_INT, PARAMS_SQ_OFF + OFF_TAIL);
+                sqMask = sqRingSegment.get(JAVA_INT, params.get(JAVA_INT, PARAMS_SQ_OFF + OFF_RING_MASK));
+                cqHeadOffset = params.get(JAVA_INT, PARAMS_CQ_OFF + OFF_HEAD);
+                cqTailOffset = params.get(JAVA_INT, PARAMS_CQ_OFF + OFF_TAIL);
+                cqMask = cqRingSegment.get(JAVA_INT, params.get(JAVA_INT, PARAMS_CQ_OFF + OFF_RING_MASK));
+
+                // Submission queue entries are always used in order so the indirection array is an identity mapping
+                for (int i = 0; i < sqEntries; i++) {
+                    sqRingSegment.set(JAVA_INT, sqArrayOffset + i * 4L, i);
+                }
+            } catch (IOException ioe) {
+                if (sqRingSegment != null) {
+                    Native.munmap(sqRingSegment);
+                }
+                if (cqRingSegment != null && cqRingSegment != sqRingSegment) {
+                    Native.munmap(cqRingSegment);
+                }
+                Native.close(fd);
+                throw ioe;
+            }
+        }
+        this.ringFd = fd;
+        this.sqRing = sqRingSegment;
+        this.cqRing = cqRingSegment;
+        sqTail = sqRing.get(JAVA_INT, sqTailOffset);
+        cqHead = cqRing.get(JAVA_INT, cqHeadOffset);
+    }
+
+
+    private static int setup(int entries, int cqEntries, int flags, MemorySegment params) throws IOException {
+        params.fill((byte) 0);
+        params.set(JAVA_INT, PARAMS_FLAGS, flags);
+        params.set(JAVA_INT, PARAMS_CQ_ENTRIES, cqEntries);
+        return Native.ioUringSetup(entries, params);
+    }
+
+
+    int getSubmissionQueueSize() {
+        return sqEntries;
+    }
+
+
+    int getCompletionQueueSize() {
+        return cqEntries;
+    }
+
+
+    // ------------------------------------------------------- Submission
+
+    /*
+     * Obtain the offset of the next free submission queue entry. Returns -1 if the submission queue is full in which
+     * case submit() needs to be called before trying again.
+     */
+    private long nextSqe() {
+        int head = Native.getIntAcquire(sqRing, sqHeadOffset);
+        if (sqTail - head >= sqEntries) {
+            return -1;
+        }
+        long sqe = (long) (sqTail & sqMask) * SQE_SIZE;
+        for (int i = 0; i < SQE_SIZE; i += 8) {
+            sqes.set(JAVA_LONG, sqe + i, 0);
+        }
+        sqTail++;
+        pending++;
+        return sqe;
+    }
+
+
+    boolean prepPollAdd(int fd, int events, long userData) {
+        long sqe = nextSqe();
+        if (sqe < 0) {
+            return false;
+        }
+        sqes.set(JAVA_BYTE, sqe + SQE_OPCODE, IORING_OP_POLL_ADD);
+        sqes.set(JAVA_INT, sqe + SQE_FD, fd);
+        sqes.set(JAVA_INT, sqe + SQE_OP_FLAGS, events);
+        sqes.set(JAVA_LONG, sqe + SQE_USER_DATA, userData);
+        return true;
+    }
+
+
+    /**
+     * Prepare the hand over of a set of equally sized buffers to the kernel. The buffers are then used, one at a time,
+     * by receive operations prepared with {@link #prepRecv(int, int, int, long)} for the same buffer group.
+     *
+     * @param buffers     The memory of the first buffer to provide
+     * @param count       The number of consecutive buffers to provide
+     * @param bufferSize  The size of each buffer
+     * @param bufferGroup The buffer group to add the buffers to
+     * @param firstId     The buffer ID of the first buffer. The remaining buffers use consecutive IDs.
+     */
+    boolean prepProvideBuffers(MemorySegment buffers, int count, int bufferSize, int bufferGroup, int firstId,
+            long userData) {
+        long sqe = nextSqe();
+        if (sqe < 0) {
+            return false;
+        }
+        sqes.set(JAVA_BYTE, sqe + SQE_OPCODE, IORING_OP_PROVIDE_BUFFERS);
+        sqes.set(JAVA_INT, sqe + SQE_FD, count);
+        sqes.set(JAVA_LONG, sqe + SQE_OFF, firstId);
+        sqes.set(JAVA_LONG, sqe + SQE_ADDR, buffers.address());
+        sqes.set(JAVA_INT, sqe + SQE_LEN, bufferSize);
+        sqes.set(JAVA_LONG, sqe + SQE_USER_DATA, userData);
+        sqes.set(JAVA_SHORT, sqe + SQE_BUF_GROUP, (short) bufferGroup);
+        return true;
+    }
+
+
+    /**
+     * Prepare a receive into a buffer selected by the kernel from the given buffer group once data is available. The
+     * ID of the buffer used is passed to the {@link CompletionHandler} via the completion flags. If the buffer group
+     * is empty when data arrives, the receive completes with {@code -ENOBUFS}.
+     */
+    boolean prepRecv(int fd, int bufferSize, int bufferGroup, long userData) {
+        long sqe = nextSqe();
+        if (sqe < 0) {
+            return false;
+        }
+        sqes.set(JAVA_BYTE, sqe + SQE_OPCODE, IORING_OP_RECV);
+        sqes.set(JAVA_BYTE, sqe + SQE_FLAGS, IOSQE_BUFFER_SELECT);
+        sqes.set(JAVA_INT, sqe + SQE_FD, fd);
+        sqes.set(JAVA_INT, sqe + SQE_LEN, bufferSize);
+        sqes.set(JAVA_LONG, sqe + SQE_USER_DATA, userData);
+        sqes.set(JAVA_SHORT, sqe + SQE_BUF_GROUP, (short) bufferGroup);
+        return true;
+    }
+
+
+    /**
+     * Prepare a relative timeout that will complete with {@code -ETIME} once it expires.
+     *
+     * @param timespec A struct __kernel_timespec that must remain valid until the timeout completes
+     */
+    boolean prepTimeout(MemorySegment timespec, long userData) {
+        long sqe = nextSqe();
+        if (sqe < 0) {
+            return false;
+        }
+        sqes.set(JAVA_BYTE, sqe + SQE_OPCODE, IORING_OP_TIMEOUT);
+        sqes.set(JAVA_INT, sqe + SQE_FD, -1);
+        sqes.set(JAVA_LONG, sqe + SQE_ADDR, timespec.address());
+        sqes.set(JAVA_INT, sqe + SQE_LEN, 1);
+        sqes.set(JAVA_LONG, sqe + SQE_USER_DATA, userData);
+        return true;
+    }
+
+
+    boolean prepCancel(long targetUserData, long userData) {
+        long sqe = nextSqe();
+        if (sqe < 0) {
+            return false;
+        }
+        sqes.set(JAVA_BYTE, sqe + SQE_OPCODE, IORING_OP_ASYNC_CANCEL);
+        sqes.set(JAVA_INT, sqe + SQE_FD, -1);
+        sqes.set(JAVA_LONG, sqe + SQE_ADDR, targetUserData);
+        sqes.set(JAVA_LONG, sqe + SQE_USER_DATA, userData);
+        return true;
+    }
+
+
+    /**
+     * @return the number of prepared entries that have not yet been submitted to the kernel
+     */
+    int getPending() {
+        return pending;
+    }
+
+
+    /**
+     * Submit all prepared entries to the kernel and optionally wait for completions, all in a single system call.
+     *
+     * @param minComplete The minimum number of completions to wait for
+     *
+     * @return the number of entries submitted or a negative errno value if the call was interrupted ({@code -EINTR})
+     *             or the kernel is temporarily unable to accept new entries ({@code -EAGAIN} or {@code -EBUSY}) in
+     *             which case completions need to be processed before trying again
+     *
+     * @throws IOException If the system call fails for any other reason
+     */
+    int submit(int minComplete) throws IOException {
+        if (pending > 0) {
+            Native.setIntRelease(sqRing, sqTailOffset, sqTail);
+        }
+        if (pending == 0 && minComplete == 0) {
+            return 0;
+        }
+        int result = Native.ioUringEnter(ringFd, pending, minComplete, minComplete > 0 ? IORING_ENTER_GETEVENTS : 0);
+        if (result >= 0) {
+            pending -= result;
+        } else if (result != -Native.EINTR && result != -Native.EAGAIN && result != -Native.EBUSY) {
+            throw Native.exception("io_uring_enter", -result);
+        }
+        return result;
+    }
+
+
+    // ------------------------------------------------------- Completion
+
+    /**
+     * Process all the available completions. The handler may call this method (e.g. if it needs to submit new entries
+     * while the submission queue is full) in which case the nested call processes the remaining completions.
+     *
+     * @param handler The handler to pass each completion to
+     *
+     * @return the number of completions processed
+     */
+    int forEachCompletion(CompletionHandler handler) {
+        int tail = Native.getIntAcquire(cqRing, cqTailOffset);
+        int count = 0;
+        while (tail - cqHead > 0) {
+            long offset = cqesOffset + (long) (cqHead & cqMask) * CQE_SIZE;
+            long userData = cqRing.get(JAVA_LONG, offset + CQE_USER_DATA);
+            int res = cqRing.get(JAVA_INT, offset + CQE_RES);
+            int flags = cqRing.get(JAVA_INT, offset + CQE_FLAGS);
+            cqHead++;
+            count++;
+            // Release the entry before calling the handler as the handler may submit new entries
+            Native.setIntRelease(cqRing, cqHeadOffset, cqHead);
+            int bufferId = (flags & IORING_CQE_F_BUFFER) == 0 ? -1 : flags >>> IORING_CQE_BUFFER_SHIFT;
+            handler.completed(userData, res, bufferId);
+            if (tail - cqHead <= 0) {
+                tail = Native.getIntAcquire(cqRing, cqTailOffset);
+            }
+        }
+        return count;
+    }
+
+
+    void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        Native.munmap(sqes);
+        if (cqRing != sqRing) {
+            Native.munmap(cqRing);
+        }
+        Native.munmap(sqRing);
+        try {
+            Native.close(ringFd);
+        } catch (IOException ignore) {
+            // Nothing further can be done
+        }
+    }
+
+
+    @FunctionalInterface
+    interface CompletionHandler {
+
+        /**
+         * Process a completion.
+         *
+         * @param userData The user data of the submission queue entry that completed
+         * @param result   The result of the operation. Negative values are errno values.
+         * @param bufferId The ID of the provided buffer that was used by the operation or -1 if none was used
+         */
+        void completed(long userData, int result, int bufferId);
+    }
+}
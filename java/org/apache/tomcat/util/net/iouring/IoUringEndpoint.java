@@ -0,0 +1,1883 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.apache.tomcat.util.net.iouring;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.lang.foreign.Arena;
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.ValueLayout;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.SocketTimeoutException;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.CompletionHandler;
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.juli.logging.Log;
+import org.apache.juli.logging.LogFactory;
+import org.apache.tomcat.util.ExceptionUtils;
+import org.apache.tomcat.util.collections.SynchronizedQueue;
+import org.apache.tomcat.util.collections.SynchronizedStack;
+import org.apache.tomcat.util.net.AbstractEndpoint;
+import org.apache.tomcat.util.net.AbstractEndpoint.Handler.SocketState;
+import org.apache.tomcat.util.net.ApplicationBufferHandler;
+import org.apache.tomcat.util.net.SSLSupport;
+import org.apache.tomcat.util.net.SendfileDataBase;
+import org.apache.tomcat.util.net.SendfileState;
+import org.apache.tomcat.util.net.SocketBufferHandler;
+import org.apache.tomcat.util.net.SocketEvent;
+import org.apache.tomcat.util.net.SocketProcessorBase;
+import org.apache.tomcat.util.net.SocketWrapperBase;
+
+/**
+ * Linux io_uring endpoint. A single Poller thread owns an io_uring instance and, on each loop, submits all the pending
+ * receive, poll, cancel and buffer operations and waits for completions using a single system call. Data is received
+ * by the kernel directly into a pool of buffers that are provided to the kernel in advance so that idle connections do
+ * not tie up a buffer while they wait for data. Writes are performed directly by the processing thread and only use
+ * the io_uring instance to wait for the socket to become writable when the socket send buffer is full.
+ * <p>
+ * This endpoint requires Linux 5.7 or later on x86_64 or aarch64 and Java 22 or later. TLS and sendfile are not
+ * supported.
+ */
+public class IoUringEndpoint extends AbstractEndpoint<IoUringSocket,IoUringSocket> {
+
+
+    // -------------------------------------------------------------- Constants
+
+    private static final Log log = LogFactory.getLog(IoUringEndpoint.class);
+
+    public static final int OP_REGISTER = 0x100; // register interest op
+    public static final int OP_READ = 0x1;
+    public static final int OP_WRITE = 0x4;
+    public static final int OP_CLOSE = 0x200;
+
+    /*
+     * User data for the completions that are not associated with a connection. Completions for connections use the
+     * slot of the connection and the operation (read or write).
+     */
+    private static final long USER_DATA_IGNORE = 0;
+    private static final long USER_DATA_WAKEUP = 1;
+    private static final long USER_DATA_TIMER = 2;
+    private static final long USER_DATA_PROVIDE = 3;
+    private static final int USER_DATA_OP_READ = 1;
+    private static final int USER_DATA_OP_WRITE = 2;
+
+    private static final int BUFFER_GROUP = 0;
+
+    /*
+     * Maximum time to wait for outstanding operations to complete when stopping.
+     */
+    private static final long STOP_DRAIN_MILLIS = 1000;
+
+
+    // ----------------------------------------------------------------- Fields
+
+    private volatile IoUringServerSocket serverSock = null;
+
+    private volatile CountDownLatch stopLatch = null;
+
+    /**
+     * Cache for poller events
+     */
+    private SynchronizedStack<PollerEvent> eventCache;
+
+    /**
+     * Cache for socket buffers
+     */
+    private SynchronizedStack<SocketBufferHandler> bufferHandlers;
+
+
+    // ------------------------------------------------------------- Properties
+
+    /**
+     * Priority of the poller thread.
+     */
+    private int pollerThreadPriority = Thread.NORM_PRIORITY;
+
+    public void setPollerThreadPriority(int pollerThreadPriority) {
+        this.pollerThreadPriority = pollerThreadPriority;
+    }
+
+    public int getPollerThreadPriority() {
+        return pollerThreadPriority;
+    }
+
+
+    /**
+     * Size of the io_uring submission queue. This is the maximum number of operations that may be submitted to the
+     * kernel in a single system call.
+     */
+    private int submissionQueueSize = 1024;
+
+    public void setSubmissionQueueSize(int submissionQueueSize) {
+        this.submissionQueueSize = submissionQueueSize;
+    }
+
+    public int getSubmissionQueueSize() {
+        return submissionQueueSize;
+    }
+
+
+    /**
+     * Number of receive buffers, each of size socket.appReadBufSize, provided to the kernel. These buffers are only
+     * used by connections with data waiting to be processed. If all the buffers are in use, connections wait for data
+     * to become available and then read it directly rather than having the kernel read it into a provided buffer.
+     */
+    private int receiveBufferCount = 1024;
+
+    public void setReceiveBufferCount(int receiveBufferCount) {
+        this.receiveBufferCount = receiveBufferCount;
+    }
+
+    public int getReceiveBufferCount() {
+        return receiveBufferCount;
+    }
+
+
+    /**
+     * Poller thread.
+     */
+    private volatile Poller poller = null;
+
+
+    /**
+     * Sendfile is not supported by this endpoint.
+     *
+     * @return Always {@code false}
+     */
+    @Override
+    public boolean getUseSendfile() {
+        return false;
+    }
+
+
+    // ----------------------------------------------- Public Lifecycle Methods
+
+    /**
+     * Initialize the endpoint.
+     */
+    @Override
+    public void bind() throws Exception {
+        if (!Native.isSupportedPlatform()) {
+            throw new IllegalStateException(sm.getString("endpoint.iouring.unsupportedPlatform"));
+        }
+        if (isSSLEnabled()) {
+            throw new IllegalArgumentException(sm.getString("endpoint.iouring.noSsl"));
+        }
+        initServerSocket();
+    }
+
+
+    protected void initServerSocket() throws Exception {
+        IoUringServerSocket socket = IoUringServerSocket.open(getAddress());
+        try {
+            // Match the default used by the JRE for server sockets
+            socket.setOption(StandardSocketOptions.SO_REUSEADDR, Boolean.TRUE);
+            socketProperties.setServerProperties(socket);
+            InetAddress address = getAddress();
+            if (address == null) {
+                address = InetAddress.getByAddress(new byte[4]);
+            }
+            socket.bind(new InetSocketAddress(address, getPortWithOffset()), getAcceptCount());
+        } catch (IOException ioe) {
+            socket.close();
+            throw ioe;
+        }
+        serverSock = socket;
+    }
+
+
+    /**
+     * Start the io_uring endpoint, creating the acceptor and poller threads.
+     */
+    @Override
+    public void startInternal() throws Exception {
+
+        if (!running) {
+            // Create the poller first as this is where any problems with io_uring will be reported
+            Poller poller = new Poller();
+
+            running = true;
+            paused = false;
+
+            if (socketProperties.getProcessorCache() != 0) {
+                processorCache =
+                        new SynchronizedStack<>(SynchronizedStack.DEFAULT_SIZE, socketProperties.getProcessorCache());
+            }
+            if (socketProperties.getEventCache() != 0) {
+                eventCache = new SynchronizedStack<>(SynchronizedStack.DEFAULT_SIZE, socketProperties.getEventCache());
+            }
+            int actualBufferPool = socketProperties.getActualBufferPool(0);
+            if (actualBufferPool != 0) {
+                bufferHandlers = new SynchronizedStack<>(SynchronizedStack.DEFAULT_SIZE, actualBufferPool);
+            }
+
+            // Create worker collection
+            if (getExecutor() == null) {
+                createExecutor();
+            }
+
+            initializeConnectionLatch();
+
+            // Start poller thread
+            stopLatch = new CountDownLatch(1);
+            this.poller = poller;
+            Thread pollerThread = new Thread(poller, getName() + "-Poller");
+            pollerThread.setPriority(pollerThreadPriority);
+            pollerThread.setDaemon(true);
+            pollerThread.start();
+
+            startAcceptorThread();
+        }
+    }
+
+
+    /**
+     * Stop the endpoint. This will cause all processing threads to stop.
+     */
+    @Override
+    public void stopInternal() {
+        if (!paused) {
+            pause();
+        }
+        if (running) {
+            running = false;
+            /*
+             * Need to wait for the acceptor to unlock but not too long. 100ms plus twice the unlock timeout should be
+             * plenty of time for the acceptor to unlock without being an excessively long wait if the unlock fails.
+             */
+            int acceptorWaitMilliSeconds = 100 + 2 * getSocketProperties().getUnlockTimeout();
+            acceptor.stopMillis(acceptorWaitMilliSeconds);
+            if (poller != null) {
+                poller.destroy();
+                poller = null;
+            }
+            try {
+                if (!stopLatch.await(socketProperties.getTimeoutInterval() + STOP_DRAIN_MILLIS + 100,
+                        TimeUnit.MILLISECONDS)) {
+                    log.warn(sm.getString("endpoint.iouring.stopLatchAwaitFail"));
+                }
+            } catch (InterruptedException e) {
+                log.warn(sm.getString("endpoint.iouring.stopLatchAwaitInterrupted"), e);
+            }
+            shutdownExecutor();
+            if (eventCache != null) {
+                eventCache.clear();
+                eventCache = null;
+            }
+            if (bufferHandlers != null) {
+                SocketBufferHandler bufferHandler;
+                while ((bufferHandler = bufferHandlers.pop()) != null) {
+                    bufferHandler.free();
+                }
+                bufferHandlers = null;
+            }
+            if (processorCache != null) {
+                processorCache.clear();
+                processorCache = null;
+            }
+        }
+    }
+
+
+    /**
+     * Close the server socket.
+     */
+    @Override
+    public void unbind() throws Exception {
+        if (log.isTraceEnabled()) {
+            log.trace("Destroy initiated for " + new InetSocketAddress(getAddress(), getPortWithOffset()));
+        }
+        if (running) {
+            stop();
+        }
+        try {
+            doCloseServerSocket();
+        } catch (IOException ioe) {
+            getLog().warn(sm.getString("endpoint.serverSocket.closeFailed", getName()), ioe);
+        }
+        super.unbind();
+        if (getHandler() != null) {
+            getHandler().recycle();
+        }
+        if (log.isTraceEnabled()) {
+            log.trace("Destroy completed for " + new InetSocketAddress(getAddress(), getPortWithOffset()));
+        }
+    }
+
+
+    @Override
+    protected void doCloseServerSocket() throws IOException {
+        if (serverSock != null) {
+            // Closing the server socket also unblocks the acceptor
+            serverSock.close();
+        }
+        serverSock = null;
+    }
+
+
+    // ------------------------------------------------------ Protected Methods
+
+    @Override
+    protected InetSocketAddress getLocalAddress() throws IOException {
+        IoUringServerSocket serverSock = this.serverSock;
+        if (serverSock == null) {
+            return null;
+        }
+        return serverSock.getLocalAddress();
+    }
+
+
+    protected Poller getPoller() {
+        return poller;
+    }
+
+
+    @Override
+    protected SocketProcessorBase<IoUringSocket> createSocketProcessor(SocketWrapperBase<IoUringSocket> socketWrapper,
+            SocketEvent event) {
+        return new SocketProcessor(socketWrapper, event);
+    }
+
+
+    /**
+     * Process the specified connection.
+     *
+     * @param socket The socket
+     *
+     * @return <code>true</code> if the socket was correctly configured and processing may continue, <code>false</code>
+     *             if the socket needs to be close immediately
+     */
+    @Override
+    protected boolean setSocketOptions(IoUringSocket socket) {
+        IoUringSocketWrapper socketWrapper = null;
+        try {
+            SocketBufferHandler bufferHandler = null;
+            if (bufferHandlers != null) {
+                bufferHandler = bufferHandlers.pop();
+            }
+            if (bufferHandler == null) {
+                bufferHandler = new SocketBufferHandler(socketProperties.getAppReadBufSize(),
+                        socketProperties.getAppWriteBufSize(), true);
+            } else {
+                bufferHandler.reset();
+            }
+            IoUringSocketWrapper newWrapper = new IoUringSocketWrapper(socket, bufferHandler, this);
+            connections.put(socket, newWrapper);
+            socketWrapper = newWrapper;
+
+            // Set socket properties
+            socketProperties.setProperties(socket);
+
+            socketWrapper.setReadTimeout(getConnectionTimeout());
+            socketWrapper.setWriteTimeout(getConnectionTimeout());
+            socketWrapper.setKeepAliveLeft(IoUringEndpoint.this.getMaxKeepAliveRequests());
+            poller.register(socketWrapper);
+            return true;
+        } catch (Throwable t) {
+            ExceptionUtils.handleThrowable(t);
+            try {
+                log.error(sm.getString("endpoint.socketOptionsError"), t);
+            } catch (Throwable tt) {
+                ExceptionUtils.handleThrowable(tt);
+            }
+            if (socketWrapper == null) {
+                destroySocket(socket);
+            }
+        }
+        // Tell to close the socket if needed
+        return false;
+    }
+
+
+    @Override
+    protected void destroySocket(IoUringSocket socket) {
+        countDownConnection();
+        try {
+            socket.close();
+        } catch (IOException ioe) {
+            if (log.isDebugEnabled()) {
+                log.debug(sm.getString("endpoint.err.close"), ioe);
+            }
+        }
+    }
+
+
+    @Override
+    protected IoUringSocket serverSocketAccept() throws Exception {
+        IoUringServerSocket serverSock = this.serverSock;
+        if (serverSock == null) {
+            throw new ClosedChannelException();
+        }
+        return serverSock.accept();
+    }
+
+
+    @Override
+    protected Log getLog() {
+        return log;
+    }
+
+
+    private static long userData(int slot, int op) {
+        return ((long) (slot + 1) << 2) | op;
+    }
+
+
+    // ----------------------------------------------------- Poller Inner Classes
+
+    /**
+     * PollerEvent, cacheable object for poller events to avoid GC
+     */
+    public static class PollerEvent {
+
+        private IoUringSocketWrapper socketWrapper;
+        private int interestOps;
+
+        public PollerEvent(IoUringSocketWrapper socketWrapper, int intOps) {
+            reset(socketWrapper, intOps);
+        }
+
+        public void reset(IoUringSocketWrapper socketWrapper, int intOps) {
+            this.socketWrapper = socketWrapper;
+            interestOps = intOps;
+        }
+
+        public IoUringSocketWrapper getSocketWrapper() {
+            return socketWrapper;
+        }
+
+        public int getInterestOps() {
+            return interestOps;
+        }
+
+        public void reset() {
+            reset(null, 0);
+        }
+
+        @Override
+        public String toString() {
+            return "Poller event: socket [" + socketWrapper.getSocket() + "], socketWrapper [" + socketWrapper +
+                    "], interestOps [" + interestOps + "]";
+        }
+    }
+
+
+    /**
+     * Poller class. All the operations on the io_uring instance are performed by the poller thread.
+     */
+    public class Poller implements Runnable {
+
+        private final IoUring ring;
+        private final int wakeupFd;
+        private final Arena arena;
+        private final MemorySegment timespec;
+        private final MemorySegment receiveBuffers;
+        private final int receiveBufferSize;
+        private final IoUring.CompletionHandler completionHandler = this::completed;
+
+        private final SynchronizedQueue<PollerEvent> events = new SynchronizedQueue<>();
+
+        private volatile boolean close = false;
+        // Optimize expiration handling
+        private long nextExpiration = 0;
+
+        private final AtomicLong wakeupCounter = new AtomicLong(0);
+        private final Object wakeupLock = new Object();
+        private boolean wakeupClosed = false;
+
+        /*
+         * Receive buffers that have been emptied by the processing threads and need to be provided to the kernel again.
+         */
+        private final int[] releasedBuffers;
+        private int releasedBufferCount = 0;
+
+        // The remaining fields are only accessed by the poller thread
+
+        private IoUringSocketWrapper[] slots = new IoUringSocketWrapper[64];
+        private int slotLimit = 0;
+        private int[] freeSlots = new int[64];
+        private int freeSlotCount = 0;
+        private int inFlight = 0;
+        private boolean receiveBuffersAvailable = true;
+        private boolean wakeupArmed = false;
+        private boolean timerArmed = false;
+        private int[] releasedBuffersCopy;
+
+        public Poller() throws IOException {
+            int maxConnections = getMaxConnections();
+            if (maxConnections < 1) {
+                maxConnections = Integer.MAX_VALUE / 4;
+            }
+            /*
+             * Each connection has at most one read and one write outstanding plus any cancellations for those
+             * operations. The ring limits the size of the completion queue to the maximum supported by the kernel.
+             */
+            ring = new IoUring(submissionQueueSize, (int) Math.min(Integer.MAX_VALUE, 4L * maxConnections + 64));
+            Arena arena = null;
+            int wakeupFd = -1;
+            try {
+                wakeupFd = Native.eventfd();
+                arena = Arena.ofShared();
+                timespec = arena.allocate(16, 8);
+                receiveBufferSize = socketProperties.getAppReadBufSize();
+                int count = Math.max(0, Math.min(receiveBufferCount, 0x8000));
+                receiveBuffers = arena.allocate(Math.max(1, (long) count * receiveBufferSize), 4096);
+                releasedBuffers = new int[count];
+                releasedBuffersCopy = new int[count];
+                if (count == 0) {
+                    receiveBuffersAvailable = false;
+                } else {
+                    provideBuffers(0, count);
+                }
+            } catch (IOException | RuntimeException e) {
+                if (arena != null) {
+                    arena.close();
+                }
+                if (wakeupFd != -1) {
+                    Native.close(wakeupFd);
+                }
+                ring.close();
+                throw e;
+            }
+            this.arena = arena;
+            this.wakeupFd = wakeupFd;
+        }
+
+        /**
+         * Destroy the poller.
+         */
+        protected void destroy() {
+            close = true;
+            wakeup();
+        }
+
+        private void addEvent(PollerEvent event) {
+            events.offer(event);
+            if (wakeupCounter.incrementAndGet() == 0) {
+                wakeup();
+            }
+        }
+
+        private void wakeup() {
+            // Only contended when the poller is stopping
+            synchronized (wakeupLock) {
+                if (!wakeupClosed) {
+                    Native.eventfdWrite(wakeupFd);
+                }
+            }
+        }
+
+        private PollerEvent createPollerEvent(IoUringSocketWrapper socketWrapper, int interestOps) {
+            PollerEvent r = null;
+            if (eventCache != null) {
+                r = eventCache.pop();
+            }
+            if (r == null) {
+                r = new PollerEvent(socketWrapper, interestOps);
+            } else {
+                r.reset(socketWrapper, interestOps);
+            }
+            return r;
+        }
+
+        /**
+         * Add specified socket and associated pool to the poller.
+         *
+         * @param socketWrapper to add to the poller
+         * @param interestOps   Operations for which to register this socket with the Poller
+         */
+        public void add(IoUringSocketWrapper socketWrapper, int interestOps) {
+            PollerEvent pollerEvent = createPollerEvent(socketWrapper, interestOps);
+            addEvent(pollerEvent);
+            if (close) {
+                processSocket(socketWrapper, SocketEvent.STOP, false);
+            }
+        }
+
+        /**
+         * Registers a newly created socket with the poller.
+         *
+         * @param socketWrapper The socket wrapper
+         */
+        public void register(final IoUringSocketWrapper socketWrapper) {
+            socketWrapper.interestOps(OP_READ);
+            addEvent(createPollerEvent(socketWrapper, OP_REGISTER));
+        }
+
+        /*
+         * Queue the closure of the socket. The socket is closed by the poller so the file descriptor can't be re-used
+         * while the poller still has operations in progress for it.
+         */
+        private void close(IoUringSocketWrapper socketWrapper) {
+            if (close) {
+                try {
+                    socketWrapper.getSocket().close();
+                } catch (IOException ioe) {
+                    if (log.isDebugEnabled()) {
+                        log.debug(sm.getString("endpoint.err.close"), ioe);
+                    }
+                }
+            }
+            addEvent(createPollerEvent(socketWrapper, OP_CLOSE));
+        }
+
+        /**
+         * Processes events in the event queue of the Poller.
+         *
+         * @return <code>true</code> if some events were processed, <code>false</code> if queue was empty
+         */
+        public boolean events() {
+            boolean result = false;
+
+            PollerEvent pe;
+            for (int i = 0, size = events.size(); i < size && (pe = events.poll()) != null; i++) {
+                result = true;
+                IoUringSocketWrapper socketWrapper = pe.getSocketWrapper();
+                int interestOps = pe.getInterestOps();
+                try {
+                    if (interestOps == OP_CLOSE) {
+                        closeSocket(socketWrapper);
+                    } else if (socketWrapper.closing || socketWrapper.isClosed()) {
+                        // Socket has been closed. The close event will follow.
+                    } else if (interestOps == OP_REGISTER) {
+                        allocateSlot(socketWrapper);
+                        submitRead(socketWrapper);
+                    } else if (socketWrapper.slot == -1) {
+                        // Not registered. Can only happen during shutdown.
+                        socketWrapper.close();
+                    } else {
+                        if ((interestOps & OP_READ) != 0) {
+                            submitRead(socketWrapper);
+                        }
+                        if ((interestOps & OP_WRITE) != 0) {
+                            submitWrite(socketWrapper);
+                        }
+                    }
+                } catch (IOException ioe) {
+                    log.error(sm.getString("endpoint.iouring.submitFail"), ioe);
+                    socketWrapper.close();
+                }
+                if (running && eventCache != null) {
+                    pe.reset();
+                    eventCache.push(pe);
+                }
+            }
+
+            return result;
+        }
+
+        /**
+         * Poller thread entry point: submits the pending operations, waits for completions and processes them.
+         */
+        @Override
+        public void run() {
+            // Loop until destroy() is called
+            while (true) {
+
+                boolean hasEvents = false;
+                int completions = 0;
+
+                try {
+                    if (!close) {
+                        hasEvents = events();
+                        armWakeup();
+                        armTimer(socketProperties.getTimeoutInterval());
+                        returnReleasedBuffers();
+                        if (wakeupCounter.getAndSet(-1) > 0) {
+                            // If we are here, means we have other stuff to do
+                            // Submit the pending operations without waiting
+                            ring.submit(0);
+                        } else {
+                            ring.submit(1);
+                        }
+                        wakeupCounter.set(0);
+                    }
+                    if (close) {
+                        closeAll();
+                        break;
+                    }
+                    completions = ring.forEachCompletion(completionHandler);
+                } catch (Throwable x) {
+                    ExceptionUtils.handleThrowable(x);
+                    log.error(sm.getString("endpoint.iouring.pollerError"), x);
+                    continue;
+                }
+
+                // Process timeouts
+                timeout(completions, hasEvents);
+            }
+
+            ring.close();
+            synchronized (wakeupLock) {
+                wakeupClosed = true;
+                try {
+                    Native.close(wakeupFd);
+                } catch (IOException ioe) {
+                    log.warn(sm.getString("endpoint.err.close"), ioe);
+                }
+            }
+            arena.close();
+            stopLatch.countDown();
+        }
+
+        /*
+         * Close all the connections and wait, for a limited time, for the kernel to finish with the receive buffers
+         * before they are released.
+         */
+        private void closeAll() throws IOException {
+            events();
+            for (int i = 0; i < slotLimit; i++) {
+                IoUringSocketWrapper socketWrapper = slots[i];
+                if (socketWrapper != null && !socketWrapper.closing) {
+                    socketWrapper.interestOps(0);
+                    socketWrapper.close();
+                }
+            }
+            events();
+            long deadline = System.currentTimeMillis() + STOP_DRAIN_MILLIS;
+            timerArmed = false;
+            while ((inFlight > 0 || ring.getPending() > 0) && System.currentTimeMillis() < deadline) {
+                // Don't wait for longer than the remaining time
+                armTimer(Math.max(1, deadline - System.currentTimeMillis()));
+                ring.submit(1);
+                ring.forEachCompletion(completionHandler);
+            }
+        }
+
+        /*
+         * Process a single completion.
+         */
+        private void completed(long userData, int result, int bufferId) {
+            if (userData == USER_DATA_IGNORE) {
+                return;
+            } else if (userData == USER_DATA_WAKEUP) {
+                wakeupArmed = false;
+                Native.eventfdRead(wakeupFd);
+                return;
+            } else if (userData == USER_DATA_TIMER) {
+                timerArmed = false;
+                return;
+            } else if (userData == USER_DATA_PROVIDE) {
+                if (result < 0) {
+                    log.error(sm.getString("endpoint.iouring.provideFail", Native.strerror(-result)));
+                }
+                return;
+            }
+            int slot = (int) (userData >>> 2) - 1;
+            IoUringSocketWrapper socketWrapper = slots[slot];
+            inFlight--;
+            try {
+                if ((userData & USER_DATA_OP_READ) != 0) {
+                    socketWrapper.readInFlight = false;
+                    readCompleted(socketWrapper, result, bufferId);
+                } else {
+                    socketWrapper.writeInFlight = false;
+                    writeCompleted(socketWrapper, result);
+                }
+            } catch (IOException ioe) {
+                log.error(sm.getString("endpoint.iouring.submitFail"), ioe);
+                socketWrapper.close();
+            }
+            if (socketWrapper.closing && !socketWrapper.readInFlight && !socketWrapper.writeInFlight) {
+                freeSlot(socketWrapper);
+            }
+        }
+
+        private void readCompleted(IoUringSocketWrapper socketWrapper, int result, int bufferId) throws IOException {
+            if (socketWrapper.closing || socketWrapper.readCancelled) {
+                socketWrapper.readCancelled = false;
+                if (bufferId >= 0) {
+                    provideBuffers(bufferId, 1);
+                }
+                if (!socketWrapper.closing && socketWrapper.interestOpsHas(OP_READ)) {
+                    // Read interest was registered again after the timeout
+                    submitRead(socketWrapper);
+                }
+                return;
+            }
+            if (result == -Native.ENOBUFS) {
+                // No receive buffer was available when data arrived. Read directly from the socket.
+                receiveBuffersAvailable = false;
+                submitRead(socketWrapper);
+                return;
+            } else if (result == -Native.EINTR || result == -Native.EAGAIN) {
+                submitRead(socketWrapper);
+                return;
+            }
+            if (socketWrapper.readIsPoll) {
+                // The socket is readable or there is an error which will be reported when the socket is read
+                if (bufferId >= 0) {
+                    provideBuffers(bufferId, 1);
+                }
+            } else if (result > 0) {
+                if (!socketWrapper.received(bufferId, result)) {
+                    // Closed by a processing thread in the meantime
+                    provideBuffers(bufferId, 1);
+                    return;
+                }
+            } else if (result == 0) {
+                socketWrapper.receivedEndOfStream();
+            } else {
+                socketWrapper.receivedError(Native.exception("recv", -result));
+            }
+            socketWrapper.interestOps(socketWrapper.interestOps() & ~OP_READ);
+            if (!socketWrapper.readReady()) {
+                socketWrapper.close();
+            }
+        }
+
+        private void writeCompleted(IoUringSocketWrapper socketWrapper, int result) throws IOException {
+            if (socketWrapper.closing || socketWrapper.writeCancelled) {
+                socketWrapper.writeCancelled = false;
+                if (!socketWrapper.closing && socketWrapper.interestOpsHas(OP_WRITE)) {
+                    submitWrite(socketWrapper);
+                }
+                return;
+            }
+            if (result == -Native.EINTR || result == -Native.EAGAIN) {
+                submitWrite(socketWrapper);
+                return;
+            }
+            socketWrapper.interestOps(socketWrapper.interestOps() & ~OP_WRITE);
+            if (!socketWrapper.writeReady()) {
+                socketWrapper.close();
+            }
+        }
+
+        private void submitRead(IoUringSocketWrapper socketWrapper) throws IOException {
+            socketWrapper.interestOps(socketWrapper.interestOps() | OP_READ);
+            if (socketWrapper.readInFlight) {
+                return;
+            }
+            if (socketWrapper.hasReceived()) {
+                // Data received previously has yet to be read
+                socketWrapper.interestOps(socketWrapper.interestOps() & ~OP_READ);
+                if (!socketWrapper.readReady()) {
+                    socketWrapper.close();
+                }
+                return;
+            }
+            int fd = socketWrapper.getSocket().getFd();
+            long userData = userData(socketWrapper.slot, USER_DATA_OP_READ);
+            boolean useReceiveBuffer = receiveBuffersAvailable;
+            if (useReceiveBuffer) {
+                while (!ring.prepRecv(fd, receiveBufferSize, BUFFER_GROUP, userData)) {
+                    flush();
+                }
+            } else {
+                while (!ring.prepPollAdd(fd, IoUring.POLLIN, userData)) {
+                    flush();
+                }
+            }
+            socketWrapper.readIsPoll = !useReceiveBuffer;
+            socketWrapper.readInFlight = true;
+            inFlight++;
+        }
+
+        private void submitWrite(IoUringSocketWrapper socketWrapper) throws IOException {
+            socketWrapper.interestOps(socketWrapper.interestOps() | OP_WRITE);
+            if (socketWrapper.writeInFlight) {
+                return;
+            }
+            long userData = userData(socketWrapper.slot, USER_DATA_OP_WRITE);
+            while (!ring.prepPollAdd(socketWrapper.getSocket().getFd(), IoUring.POLLOUT, userData)) {
+                flush();
+            }
+            socketWrapper.writeInFlight = true;
+            inFlight++;
+        }
+
+        private void cancel(IoUringSocketWrapper socketWrapper) throws IOException {
+            if (socketWrapper.readInFlight) {
+                while (!ring.prepCancel(userData(socketWrapper.slot, USER_DATA_OP_READ), USER_DATA_IGNORE)) {
+                    flush();
+                }
+            }
+            if (socketWrapper.writeInFlight) {
+                while (!ring.prepCancel(userData(socketWrapper.slot, USER_DATA_OP_WRITE), USER_DATA_IGNORE)) {
+                    flush();
+                }
+            }
+        }
+
+        private void closeSocket(IoUringSocketWrapper socketWrapper) throws IOException {
+            if (socketWrapper.slot != -1 && !socketWrapper.closing) {
+                socketWrapper.closing = true;
+                cancel(socketWrapper);
+                // Make sure the cancellations are seen by the kernel before the socket is closed
+                flush();
+                if (!socketWrapper.readInFlight && !socketWrapper.writeInFlight) {
+                    freeSlot(socketWrapper);
+                }
+            }
+            try {
+                socketWrapper.getSocket().close();
+            } catch (IOException ioe) {
+                if (log.isDebugEnabled()) {
+                    log.debug(sm.getString("endpoint.err.close"), ioe);
+                }
+            }
+        }
+
+        private void provideBuffers(int firstId, int count) throws IOException {
+            MemorySegment buffers = receiveBuffers.asSlice((long) firstId * receiveBufferSize);
+            while (!ring.prepProvideBuffers(buffers, count, receiveBufferSize, BUFFER_GROUP, firstId,
+                    USER_DATA_PROVIDE)) {
+                flush();
+            }
+            receiveBuffersAvailable = true;
+        }
+
+        private void returnReleasedBuffers() throws IOException {
+            int count;
+            synchronized (releasedBuffers) {
+                count = releasedBufferCount;
+                System.arraycopy(releasedBuffers, 0, releasedBuffersCopy, 0, count);
+                releasedBufferCount = 0;
+            }
+            if (count == 0) {
+                return;
+            }
+            // Provide consecutive buffer IDs with a single operation
+            Arrays.sort(releasedBuffersCopy, 0, count);
+            int first = releasedBuffersCopy[0];
+            int length = 1;
+            for (int i = 1; i < count; i++) {
+                if (releasedBuffersCopy[i] == first + length) {
+                    length++;
+                } else {
+                    provideBuffers(first, length);
+                    first = releasedBuffersCopy[i];
+                    length = 1;
+                }
+            }
+            provideBuffers(first, length);
+        }
+
+        /*
+         * Called by the processing threads once all the data in a receive buffer has been read.
+         */
+        private void releaseBuffer(int bufferId) {
+            synchronized (releasedBuffers) {
+                releasedBuffers[releasedBufferCount++] = bufferId;
+            }
+        }
+
+        private void copyReceived(int bufferId, int offset, ByteBuffer to, int length) {
+            MemorySegment.copy(receiveBuffers, ValueLayout.JAVA_BYTE, (long) bufferId * receiveBufferSize + offset,
+                    MemorySegment.ofBuffer(to), ValueLayout.JAVA_BYTE, 0, length);
+            to.position(to.position() + length);
+        }
+
+        private void armWakeup() throws IOException {
+            if (!wakeupArmed) {
+                while (!ring.prepPollAdd(wakeupFd, IoUring.POLLIN, USER_DATA_WAKEUP)) {
+                    flush();
+                }
+                wakeupArmed = true;
+            }
+        }
+
+        private void armTimer(long millis) throws IOException {
+            if (!timerArmed) {
+                timespec.set(ValueLayout.JAVA_LONG, 0, millis / 1000);
+                timespec.set(ValueLayout.JAVA_LONG, 8, (millis % 1000) * 1000000);
+                while (!ring.prepTimeout(timespec, USER_DATA_TIMER)) {
+                    flush();
+                }
+                timerArmed = true;
+            }
+        }
+
+        /*
+         * Submit the prepared operations to make space in the submission queue.
+         */
+        private void flush() throws IOException {
+            if (ring.submit(0) < 0) {
+                // The kernel needs the completion queue to be processed first
+                ring.forEachCompletion(completionHandler);
+            }
+        }
+
+        private void allocateSlot(IoUringSocketWrapper socketWrapper) {
+            int slot;
+            if (freeSlotCount > 0) {
+                slot = freeSlots[--freeSlotCount];
+            } else {
+                if (slotLimit == slots.length) {
+                    slots = Arrays.copyOf(slots, slots.length * 2);
+                }
+                slot = slotLimit++;
+            }
+            slots[slot] = socketWrapper;
+            socketWrapper.slot = slot;
+        }
+
+        private void freeSlot(IoUringSocketWrapper socketWrapper) {
+            int slot = socketWrapper.slot;
+            if (slot == -1) {
+                return;
+            }
+            slots[slot] = null;
+            socketWrapper.slot = -1;
+            if (freeSlotCount == freeSlots.length) {
+                freeSlots = Arrays.copyOf(freeSlots, freeSlots.length * 2);
+            }
+            freeSlots[freeSlotCount++] = slot;
+        }
+
+        protected void timeout(int completions, boolean hasEvents) {
+            long now = System.currentTimeMillis();
+            // This method is called on every loop of the Poller. Don't process
+            // timeouts on every loop of the Poller since that would create too
+            // much load and timeouts can afford to wait a few seconds.
+            if (nextExpiration > 0 && (completions > 0 || hasEvents) && (now < nextExpiration) && !close) {
+                return;
+            }
+            for (int i = 0; i < slotLimit; i++) {
+                IoUringSocketWrapper socketWrapper = slots[i];
+                if (socketWrapper == null || socketWrapper.closing) {
+                    continue;
+                }
+                try {
+                    if (socketWrapper.interestOpsHas(OP_READ) || socketWrapper.interestOpsHas(OP_WRITE)) {
+                        boolean readTimeout = false;
+                        boolean writeTimeout = false;
+                        // Check for read timeout
+                        if (socketWrapper.interestOpsHas(OP_READ)) {
+                            long delta = now - socketWrapper.getLastRead();
+                            long timeout = socketWrapper.getReadTimeout();
+                            if (timeout > 0 && delta > timeout) {
+                                readTimeout = true;
+                            }
+                        }
+                        // Check for write timeout
+                        if (!readTimeout && socketWrapper.interestOpsHas(OP_WRITE)) {
+                            long delta = now - socketWrapper.getLastWrite();
+                            long timeout = socketWrapper.getWriteTimeout();
+                            if (timeout > 0 && delta > timeout) {
+                                writeTimeout = true;
+                            }
+                        }
+                        if (readTimeout || writeTimeout) {
+                            // Avoid duplicate timeout calls
+                            socketWrapper.interestOps(0);
+                            cancel(socketWrapper);
+                            socketWrapper.readCancelled = socketWrapper.readInFlight;
+                            socketWrapper.writeCancelled = socketWrapper.writeInFlight;
+                            socketWrapper.setError(new SocketTimeoutException());
+                            if (!socketWrapper.timedOut(readTimeout, writeTimeout)) {
+                                socketWrapper.close();
+                            }
+                        }
+                    }
+                } catch (IOException ioe) {
+                    log.error(sm.getString("endpoint.iouring.submitFail"), ioe);
+                    socketWrapper.close();
+                }
+            }
+            nextExpiration = System.currentTimeMillis() + socketProperties.getTimeoutInterval();
+        }
+    }
+
+
+    // --------------------------------------------------- Socket Wrapper Class
+
+    public static class IoUringSocketWrapper extends SocketWrapperBase<IoUringSocket> {
+
+        private final IoUringEndpoint endpoint;
+        private final Poller poller;
+
+        private volatile int interestOps = 0;
+        private volatile long lastRead = System.currentTimeMillis();
+        private volatile long lastWrite = lastRead;
+
+        private final Object readLock;
+        private volatile boolean readBlocking = false;
+        private final Object writeLock;
+        private volatile boolean writeBlocking = false;
+
+        // Only accessed by the poller thread
+        private int slot = -1;
+        private boolean closing = false;
+        private boolean readInFlight = false;
+        private boolean readIsPoll = false;
+        private boolean readCancelled = false;
+        private boolean writeInFlight = false;
+        private boolean writeCancelled = false;
+
+        // Data received by the poller that has yet to be read. Guarded by receivedLock.
+        private final Object receivedLock = new Object();
+        private int receivedBufferId = -1;
+        private int receivedOffset;
+        private int receivedLength;
+        private boolean receivedEndOfStream = false;
+        private IOException receivedError = null;
+
+        public IoUringSocketWrapper(IoUringSocket socket, SocketBufferHandler bufferHandler,
+                IoUringEndpoint endpoint) {
+            super(socket, endpoint);
+            this.endpoint = endpoint;
+            poller = endpoint.getPoller();
+            socketBufferHandler = bufferHandler;
+            readLock = (readPending == null) ? new Object() : readPending;
+            writeLock = (writePending == null) ? new Object() : writePending;
+        }
+
+        public Poller getPoller() {
+            return poller;
+        }
+
+        public int interestOps() {
+            return interestOps;
+        }
+
+        public int interestOps(int ops) {
+            this.interestOps = ops;
+            return ops;
+        }
+
+        public boolean interestOpsHas(int targetOp) {
+            return (this.interestOps() & targetOp) == targetOp;
+        }
+
+        public void updateLastWrite() {
+            lastWrite = System.currentTimeMillis();
+        }
+
+        public long getLastWrite() {
+            return lastWrite;
+        }
+
+        public void updateLastRead() {
+            lastRead = System.currentTimeMillis();
+        }
+
+        public long getLastRead() {
+            return lastRead;
+        }
+
+
+        private boolean received(int bufferId, int length) {
+            synchronized (receivedLock) {
+                // doClose() releases the buffer while holding the lock
+                if (isClosed()) {
+                    return false;
+                }
+                receivedBufferId = bufferId;
+                receivedOffset = 0;
+                receivedLength = length;
+                return true;
+            }
+        }
+
+
+        private void receivedEndOfStream() {
+            synchronized (receivedLock) {
+                receivedEndOfStream = true;
+            }
+        }
+
+
+        private void receivedError(IOException error) {
+            synchronized (receivedLock) {
+                receivedError = error;
+            }
+        }
+
+
+        private boolean hasReceived() {
+            synchronized (receivedLock) {
+                return receivedBufferId != -1 || receivedEndOfStream || receivedError != null;
+            }
+        }
+
+
+        /*
+         * Called by the poller once the socket has data to read. Returns false if the socket needs to be closed.
+         */
+        private boolean readReady() {
+            if (readOperation != null) {
+                return ((IoUringOperationState<?>) readOperation).processOperation();
+            } else if (readBlocking) {
+                synchronized (readLock) {
+                    readBlocking = false;
+                    readLock.notify();
+                }
+                return true;
+            } else {
+                return endpoint.processSocket(this, SocketEvent.OPEN_READ, true);
+            }
+        }
+
+
+        /*
+         * Called by the poller once the socket can be written to. Returns false if the socket needs to be closed.
+         */
+        private boolean writeReady() {
+            if (writeOperation != null) {
+                return ((IoUringOperationState<?>) writeOperation).processOperation();
+            } else if (writeBlocking) {
+                synchronized (writeLock) {
+                    writeBlocking = false;
+                    writeLock.notify();
+                }
+                return true;
+            } else {
+                return endpoint.processSocket(this, SocketEvent.OPEN_WRITE, true);
+            }
+        }
+
+
+        /*
+         * Called by the poller when a read or write times out. Returns false if the socket needs to be closed.
+         */
+        private boolean timedOut(boolean readTimeout, boolean writeTimeout) {
+            if (readTimeout && readOperation != null) {
+                return ((IoUringOperationState<?>) readOperation).processOperation();
+            } else if (writeTimeout && writeOperation != null) {
+                return ((IoUringOperationState<?>) writeOperation).processOperation();
+            } else {
+                return endpoint.processSocket(this, SocketEvent.ERROR, true);
+            }
+        }
+
+
+        @Override
+        public boolean isReadyForRead() throws IOException {
+            socketBufferHandler.configureReadBufferForRead();
+
+            if (socketBufferHandler.getReadBuffer().remaining() > 0) {
+                return true;
+            }
+
+            fillReadBuffer(false);
+
+            return socketBufferHandler.getReadBuffer().position() > 0;
+        }
+
+
+        @Override
+        public int read(boolean block, byte[] b, int off, int len) throws IOException {
+            int nRead = populateReadBuffer(b, off, len);
+            if (nRead > 0) {
+                return nRead;
+            }
+
+            // Fill the read buffer as best we can.
+            nRead = fillReadBuffer(block);
+            updateLastRead();
+
+            // Fill as much of the remaining byte array as possible with the
+            // data that was just read
+            if (nRead > 0) {
+                socketBufferHandler.configureReadBufferForRead();
+                nRead = Math.min(nRead, len);
+                socketBufferHandler.getReadBuffer().get(b, off, nRead);
+            }
+            return nRead;
+        }
+
+
+        @Override
+        public int read(boolean block, ByteBuffer to) throws IOException {
+            int nRead = populateReadBuffer(to);
+            if (nRead > 0) {
+                return nRead;
+            }
+
+            // The socket read buffer capacity is socket.appReadBufSize
+            int limit = socketBufferHandler.getReadBuffer().capacity();
+            if (to.remaining() >= limit) {
+                to.limit(to.position() + limit);
+                nRead = fillReadBuffer(block, to);
+                if (log.isTraceEnabled()) {
+                    log.trace("Socket: [" + this + "], Read direct from socket: [" + nRead + "]");
+                }
+                updateLastRead();
+            } else {
+                // Fill the read buffer as best we can.
+                nRead = fillReadBuffer(block);
+                if (log.isTraceEnabled()) {
+                    log.trace("Socket: [" + this + "], Read into buffer: [" + nRead + "]");
+                }
+                updateLastRead();
+
+                // Fill as much of the remaining byte array as possible with the
+                // data that was just read
+                if (nRead > 0) {
+                    nRead = populateReadBuffer(to);
+                }
+            }
+            return nRead;
+        }
+
+
+        @Override
+        protected void doClose() {
+            if (log.isTraceEnabled()) {
+                log.trace("Calling [" + getEndpoint() + "].closeSocket([" + this + "])");
+            }
+            try {
+                endpoint.connections.remove(getSocket());
+                synchronized (receivedLock) {
+                    if (receivedBufferId != -1) {
+                        poller.releaseBuffer(receivedBufferId);
+                        receivedBufferId = -1;
+                    }
+                }
+                SynchronizedStack<SocketBufferHandler> bufferHandlers = endpoint.bufferHandlers;
+                if (!endpoint.running || bufferHandlers == null || !bufferHandlers.push(socketBufferHandler)) {
+                    socketBufferHandler.free();
+                }
+            } catch (Throwable t) {
+                ExceptionUtils.handleThrowable(t);
+                if (log.isDebugEnabled()) {
+                    log.error(sm.getString("endpoint.debug.channelCloseFail"), t);
+                }
+            } finally {
+                socketBufferHandler = SocketBufferHandler.EMPTY;
+                nonBlockingWriteBuffer.clear();
+                poller.close(this);
+            }
+        }
+
+
+        private int fillReadBuffer(boolean block) throws IOException {
+            socketBufferHandler.configureReadBufferForWrite();
+            return fillReadBuffer(block, socketBufferHandler.getReadBuffer());
+        }
+
+
+        private int fillReadBuffer(boolean block, ByteBuffer buffer) throws IOException {
+            int n;
+            if (isClosed()) {
+                throw new ClosedChannelException();
+            }
+            if (block) {
+                long timeout = getReadTimeout();
+                long startNanos = 0;
+                do {
+                    if (startNanos > 0) {
+                        long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos);
+                        if (elapsedMillis == 0) {
+                            elapsedMillis = 1;
+                        }
+                        timeout -= elapsedMillis;
+                        if (timeout <= 0) {
+                            throw new SocketTimeoutException();
+                        }
+                    }
+                    synchronized (readLock) {
+                        n = doRead(buffer);
+                        if (n == -1) {
+                            throw new EOFException();
+                        } else if (n == 0) {
+                            // Ensure a spurious wake-up doesn't trigger a duplicate registration
+                            if (!readBlocking) {
+                                readBlocking = true;
+                                registerReadInterest();
+                            }
+                            try {
+                                if (timeout > 0) {
+                                    startNanos = System.nanoTime();
+                                    readLock.wait(timeout);
+                                } else {
+                                    readLock.wait();
+                                }
+                            } catch (InterruptedException ignore) {
+                                /*
+                                 * Most likely the Poller signalling there is data to read but could be spurious. Exit
+                                 * the wait, check status and proceed accordingly.
+                                 */
+                            }
+                        }
+                    }
+                } while (n == 0);
+            } else {
+                n = doRead(buffer);
+                if (n == -1) {
+                    throw new EOFException();
+                }
+            }
+            return n;
+        }
+
+
+        /*
+         * Read any data already received by the poller before reading directly from the socket.
+         */
+        private int doRead(ByteBuffer to) throws IOException {
+            synchronized (receivedLock) {
+                if (receivedBufferId != -1) {
+                    int n = Math.min(to.remaining(), receivedLength);
+                    try {
+                        poller.copyReceived(receivedBufferId, receivedOffset, to, n);
+                    } catch (IllegalStateException ise) {
+                        // The poller has stopped and released the receive buffers
+                        throw new ClosedChannelException();
+                    }
+                    receivedOffset += n;
+                    receivedLength -= n;
+                    if (receivedLength == 0) {
+                        poller.releaseBuffer(receivedBufferId);
+                        receivedBufferId = -1;
+                    }
+                    return n;
+                }
+                if (receivedError != null) {
+                    throw receivedError;
+                }
+                if (receivedEndOfStream) {
+                    return -1;
+                }
+            }
+            return getSocket().read(to);
+        }
+
+
+        @Override
+        protected boolean flushNonBlocking() throws IOException {
+            boolean dataLeft = !socketBufferHandler.isWriteBufferEmpty();
+
+            // Write to the socket, if there is anything to write
+            if (dataLeft) {
+                doWrite(false);
+                dataLeft = !socketBufferHandler.isWriteBufferEmpty();
+            }
+
+            if (!dataLeft && !nonBlockingWriteBuffer.isEmpty()) {
+                dataLeft = nonBlockingWriteBuffer.write(this, false);
+
+                if (!dataLeft && !socketBufferHandler.isWriteBufferEmpty()) {
+                    doWrite(false);
+                    dataLeft = !socketBufferHandler.isWriteBufferEmpty();
+                }
+            }
+
+            return dataLeft;
+        }
+
+
+        @Override
+        protected void doWrite(boolean block, ByteBuffer buffer) throws IOException {
+            int n;
+            if (isClosed()) {
+                throw new ClosedChannelException();
+            }
+            if (block) {
+                if (previousIOException != null) {
+                    /*
+                     * Socket has previously timed out.
+                     *
+                     * Blocking writes assume that buffer is always fully written so there is no code checking for
+                     * incomplete writes, retaining the unwritten data and attempting to write it as part of a
+                     * subsequent write call.
+                     *
+                     * Because of the above, when a timeout is triggered we need to skip subsequent attempts to write as
+                     * otherwise it will appear to the client as if some data was dropped just before the connection is
+                     * lost. It is better if the client just sees the dropped connection.
+                     */
+                    throw new IOException(previousIOException);
+                }
+                long timeout = getWriteTimeout();
+                long startNanos = 0;
+                do {
+                    if (startNanos > 0) {
+                        long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos);
+                        if (elapsedMillis == 0) {
+                            elapsedMillis = 1;
+                        }
+                        timeout -= elapsedMillis;
+                        if (timeout <= 0) {
+                            previousIOException = new SocketTimeoutException();
+                            throw previousIOException;
+                        }
+                    }
+                    synchronized (writeLock) {
+                        n = getSocket().write(buffer);
+                        if (n == 0 && buffer.hasRemaining()) {
+                            // Ensure a spurious wake-up doesn't trigger a duplicate registration
+                            if (!writeBlocking) {
+                                writeBlocking = true;
+                                registerWriteInterest();
+                            }
+                            try {
+                                if (timeout > 0) {
+                                    startNanos = System.nanoTime();
+                                    writeLock.wait(timeout);
+                                } else {
+                                    writeLock.wait();
+                                }
+                            } catch (InterruptedException ignore) {
+                                /*
+                                 * Most likely the Poller signalling that data can be written but could be spurious.
+                                 * Exit the wait, check status and proceed accordingly.
+                                 */
+                            }
+                        } else if (startNanos > 0) {
+                            // If something was written, reset timeout
+                            timeout = getWriteTimeout();
+                            startNanos = 0;
+                        }
+                    }
+                } while (buffer.hasRemaining());
+            } else {
+                do {
+                    n = getSocket().write(buffer);
+                } while (n > 0 && buffer.hasRemaining());
+                // If there is data left in the buffer the socket will be registered for
+                // write further up the stack. This is to ensure the socket is only
+                // registered for write once as both container and user code can trigger
+                // write registration.
+            }
+            updateLastWrite();
+        }
+
+
+        @Override
+        public void registerReadInterest() {
+            if (log.isTraceEnabled()) {
+                log.trace(sm.getString("endpoint.debug.registerRead", this));
+            }
+            getPoller().add(this, OP_READ);
+        }
+
+
+        @Override
+        public void registerWriteInterest() {
+            if (log.isTraceEnabled()) {
+                log.trace(sm.getString("endpoint.debug.registerWrite", this));
+            }
+            getPoller().add(this, OP_WRITE);
+        }
+
+
+        @Override
+        public SendfileDataBase createSendfileData(String filename, long pos, long length) {
+            throw new UnsupportedOperationException(sm.getString("endpoint.iouring.noSendfile"));
+        }
+
+
+        @Override
+        public SendfileState processSendfile(SendfileDataBase sendfileData) {
+            return SendfileState.ERROR;
+        }
+
+
+        @Override
+        protected void populateRemoteAddr() {
+            InetSocketAddress address = getRemoteAddress();
+            if (address != null) {
+                remoteAddr = address.getAddress().getHostAddress();
+            }
+        }
+
+
+        @Override
+        protected void populateRemoteHost() {
+            InetSocketAddress address = getRemoteAddress();
+            if (address != null) {
+                remoteHost = address.getAddress().getHostName();
+                if (remoteAddr == null) {
+                    remoteAddr = address.getAddress().getHostAddress();
+                }
+            }
+        }
+
+
+        @Override
+        protected void populateRemotePort() {
+            InetSocketAddress address = getRemoteAddress();
+            if (address != null) {
+                remotePort = address.getPort();
+            }
+        }
+
+
+        @Override
+        protected void populateLocalName() {
+            InetSocketAddress address = getLocalAddress();
+            if (address != null) {
+                localName = address.getAddress().getHostName();
+            }
+        }
+
+
+        @Override
+        protected void populateLocalAddr() {
+            InetSocketAddress address = getLocalAddress();
+            if (address != null) {
+                localAddr = address.getAddress().getHostAddress();
+            }
+        }
+
+
+        @Override
+        protected void populateLocalPort() {
+            InetSocketAddress address = getLocalAddress();
+            if (address != null) {
+                localPort = address.getPort();
+            }
+        }
+
+
+        private InetSocketAddress getRemoteAddress() {
+            try {
+                return getSocket().getRemoteAddress();
+            } catch (IOException ioe) {
+                if (log.isDebugEnabled()) {
+                    log.debug(sm.getString("endpoint.iouring.addressFail", this), ioe);
+                }
+                return null;
+            }
+        }
+
+
+        private InetSocketAddress getLocalAddress() {
+            try {
+                return getSocket().getLocalAddress();
+            } catch (IOException ioe) {
+                if (log.isDebugEnabled()) {
+                    log.debug(sm.getString("endpoint.iouring.addressFail", this), ioe);
+                }
+                return null;
+            }
+        }
+
+
+        @Override
+        public SSLSupport getSslSupport() {
+            return null;
+        }
+
+
+        @Override
+        public void doClientAuth(SSLSupport sslSupport) throws IOException {
+            // NO-OP. TLS is not supported.
+        }
+
+
+        @Override
+        public void setAppReadBufHandler(ApplicationBufferHandler handler) {
+            // NO-OP. Only required for TLS.
+        }
+
+        @Override
+        protected <A> OperationState<A> newOperationState(boolean read, ByteBuffer[] buffers, int offset, int length,
+                BlockingMode block, long timeout, TimeUnit unit, A attachment, CompletionCheck check,
+                CompletionHandler<Long,? super A> handler, Semaphore semaphore,
+                VectoredIOCompletionHandler<A> completion) {
+            return new IoUringOperationState<>(read, buffers, offset, length, block, timeout, unit, attachment, check,
+                    handler, semaphore, completion);
+        }
+
+        private class IoUringOperationState<A> extends OperationState<A> {
+            private volatile boolean inline = true;
+
+            private IoUringOperationState(boolean read, ByteBuffer[] buffers, int offset, int length,
+                    BlockingMode block, long timeout, TimeUnit unit, A attachment, CompletionCheck check,
+                    CompletionHandler<Long,? super A> handler, Semaphore semaphore,
+                    VectoredIOCompletionHandler<A> completion) {
+                super(read, buffers, offset, length, block, timeout, unit, attachment, check, handler, semaphore,
+                        completion);
+            }
+
+            @Override
+            protected boolean isInline() {
+                return inline;
+            }
+
+            /*
+             * Allows the poller to continue the operation.
+             */
+            private boolean processOperation() {
+                return process();
+            }
+
+            @Override
+            public void run() {
+                // Perform the IO operation
+                // Called from the poller to continue the IO operation
+                long nBytes = 0;
+                if (getError() == null) {
+                    try {
+                        synchronized (this) {
+                            if (!completionDone) {
+                                // This filters out same notification until processing
+                                // of the current one is done
+                                if (log.isTraceEnabled()) {
+                                    log.trace("Skip concurrent " + (read ? "read" : "write") + " notification");
+                                }
+                                return;
+                            }
+                            if (read) {
+                                // Read from main buffer first
+                                if (!socketBufferHandler.isReadBufferEmpty()) {
+                                    // There is still data inside the main read buffer, it needs to be read first
+                                    socketBufferHandler.configureReadBufferForRead();
+                                    for (int i = 0; i < length && !socketBufferHandler.isReadBufferEmpty(); i++) {
+                                        nBytes += transfer(socketBufferHandler.getReadBuffer(), buffers[offset + i]);
+                                    }
+                                }
+                                if (nBytes == 0) {
+                                    nBytes = scatteringRead();
+                                    updateLastRead();
+                                }
+                            } else {
+                                boolean doWrite = true;
+                                // Write from main buffer first
+                                if (!socketBufferHandler.isWriteBufferEmpty()) {
+                                    // There is still data inside the main write buffer, it needs to be written first
+                                    socketBufferHandler.configureWriteBufferForRead();
+                                    do {
+                                        nBytes = getSocket().write(socketBufferHandler.getWriteBuffer());
+                                    } while (!socketBufferHandler.isWriteBufferEmpty() && nBytes > 0);
+                                    if (!socketBufferHandler.isWriteBufferEmpty()) {
+                                        doWrite = false;
+                                    }
+                                    // Preserve a negative value since it is an error
+                                    if (nBytes > 0) {
+                                        nBytes = 0;
+                                    }
+                                }
+                                if (doWrite) {
+                                    long n;
+                                    do {
+                                        n = gatheringWrite();
+                                        nBytes += n;
+                                    } while (n > 0);
+                                    updateLastWrite();
+                                }
+                            }
+                            if (nBytes != 0 || (!buffersArrayHasRemaining(buffers, offset, length) &&
+                                    (read || socketBufferHandler.isWriteBufferEmpty()))) {
+                                completionDone = false;
+                            }
+                        }
+                    } catch (IOException ioe) {
+                        setError(ioe);
+                    }
+                }
+                if (nBytes > 0 || (nBytes == 0 && !buffersArrayHasRemaining(buffers, offset, length) &&
+                        (read || socketBufferHandler.isWriteBufferEmpty()))) {
+                    // The bytes processed are only updated in the completion handler
+                    completion.completed(Long.valueOf(nBytes), this);
+                } else if (nBytes < 0 || getError() != null) {
+                    IOException error = getError();
+                    if (error == null) {
+                        error = new EOFException();
+                    }
+                    completion.failed(error, this);
+                } else {
+                    // As soon as the operation uses the poller, it is no longer inline
+                    inline = false;
+                    if (read) {
+                        registerReadInterest();
+                    } else {
+                        registerWriteInterest();
+                    }
+                }
+            }
+
+            private long scatteringRead() throws IOException {
+                long total = 0;
+                for (int i = 0; i < length; i++) {
+                    ByteBuffer buffer = buffers[offset + i];
+                    if (!buffer.hasRemaining()) {
+                        continue;
+                    }
+                    int n = doRead(buffer);
+                    if (n == -1) {
+                        return total == 0 ? -1 : total;
+                    }
+                    total += n;
+                    if (buffer.hasRemaining()) {
+                        break;
+                    }
+                }
+                return total;
+            }
+
+            private long gatheringWrite() throws IOException {
+                long total = 0;
+                for (int i = 0; i < length; i++) {
+                    ByteBuffer buffer = buffers[offset + i];
+                    if (!buffer.hasRemaining()) {
+                        continue;
+                    }
+                    total += getSocket().write(buffer);
+                    if (buffer.hasRemaining()) {
+                        break;
+                    }
+                }
+                return total;
+            }
+        }
+    }
+
+
+    // ---------------------------------------------- SocketProcessor Inner Class
+
+    /**
+     * This class is the equivalent of the Worker, but will simply use in an external Executor thread pool.
+     */
+    protected class SocketProcessor extends SocketProcessorBase<IoUringSocket> {
+
+        public SocketProcessor(SocketWrapperBase<IoUringSocket> socketWrapper, SocketEvent event) {
+            super(socketWrapper, event);
+        }
+
+        @Override
+        protected void doRun() {
+            Poller poller = IoUringEndpoint.this.poller;
+            if (poller == null) {
+                socketWrapper.close();
+                return;
+            }
+
+            try {
+                SocketState state = getHandler().process(socketWrapper,
+                        Objects.requireNonNullElse(event, SocketEvent.OPEN_READ));
+                if (state == SocketState.CLOSED) {
+                    socketWrapper.close();
+                }
+            } catch (VirtualMachineError vme) {
+                ExceptionUtils.handleThrowable(vme);
+            } catch (Throwable t) {
+                log.error(sm.getString("endpoint.processing.fail"), t);
+                socketWrapper.close();
+            } finally {
+                socketWrapper = null;
+                event = null;
+                // return to cache
+                if (running && processorCache != null) {
+                    processorCache.push(this);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,228 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.apache.tomcat.util.net.iouring;
+
+import java.io.IOException;
+import java.net.Inet4Address;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.net.SocketOption;
+import java.net.StandardSocketOptions;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.NetworkChannel;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A listening TCP socket that is accessed directly via its file descriptor. Connections are accepted with a blocking
+ * call. Closing the socket unblocks any thread that is waiting for a new connection.
+ */
+public class IoUringServerSocket implements NetworkChannel {
+
+    private final int fd;
+    private final int family;
+
+    private volatile boolean open = true;
+
+    /*
+     * The file descriptor is only released once no thread is using it so it can't be re-used for a different file
+     * while a thread is blocked in accept().
+     */
+    private final AtomicInteger users = new AtomicInteger();
+    private final AtomicBoolean released = new AtomicBoolean();
+
+
+    private IoUringServerSocket(int fd, int family) {
+        this.fd = fd;
+        this.family = family;
+    }
+
+
+    /**
+     * Create a new, unbound, server socket.
+     *
+     * @param address The address the socket will be bound to. If {@code null} the socket will accept IPv4 and IPv6
+     *                    connections if the system supports IPv6.
+     *
+     * @return The new server socket
+     *
+     * @throws IOException If the socket cannot be created
+     */
+    public static IoUringServerSocket open(InetAddress address) throws IOException {
+        if (address instanceof Inet4Address) {
+            return new IoUringServerSocket(Native.socket(Native.AF_INET), Native.AF_INET);
+        }
+        int fd;
+        try {
+            fd = Native.socket(Native.AF_INET6);
+        } catch (IOException ioe) {
+            if (address == null) {
+                // No IPv6 support
+                return new IoUringServerSocket(Native.socket(Native.AF_INET), Native.AF_INET);
+            }
+            throw ioe;
+        }
+        if (address == null) {
+            // Accept IPv4 connections as well
+            try {
+                Native.setIntOption(fd, Native.IPPROTO_IPV6, Native.IPV6_V6ONLY, 0);
+            } catch (IOException ioe) {
+                Native.close(fd);
+                throw ioe;
+            }
+        }
+        return new IoUringServerSocket(fd, Native.AF_INET6);
+    }
+
+
+    @Override
+    public NetworkChannel bind(SocketAddress local) throws IOException {
+        return bind(local, 0);
+    }
+
+
+    public IoUringServerSocket bind(SocketAddress local, int backlog) throws IOException {
+        InetSocketAddress address = (InetSocketAddress) local;
+        if (address.getAddress().isAnyLocalAddress()) {
+            // Use the wildcard address that matches the socket
+            byte[] wildcard = new byte[family == Native.AF_INET ? 4 : 16];
+            address = new InetSocketAddress(InetAddress.getByAddress(wildcard), address.getPort());
+        }
+        acquire();
+        try {
+            Native.bind(fd, address, backlog < 1 ? 50 : backlog);
+        } finally {
+            release();
+        }
+        return this;
+    }
+
+
+    /**
+     * Wait for, and then accept, a new connection.
+     *
+     * @return The new connection
+     *
+     * @throws IOException If the socket is closed while waiting or an error occurs
+     */
+    public IoUringSocket accept() throws IOException {
+        acquire();
+        try {
+            return new IoUringSocket(Native.accept(fd));
+        } catch (IOException ioe) {
+            if (!open) {
+                throw new ClosedChannelException();
+            }
+            throw ioe;
+        } finally {
+            release();
+        }
+    }
+
+
+    @Override
+    public boolean isOpen() {
+        return open;
+    }
+
+
+    @Override
+    public void close() throws IOException {
+        if (!open) {
+            return;
+        }
+        open = false;
+        // Unblock any thread that is waiting in accept()
+        Native.shutdown(fd);
+        releaseFd();
+    }
+
+
+    @Override
+    public InetSocketAddress getLocalAddress() throws IOException {
+        acquire();
+        try {
+            return Native.getLocalAddress(fd);
+        } finally {
+            release();
+        }
+    }
+
+
+    @Override
+    public <T> NetworkChannel setOption(SocketOption<T> name, T value) throws IOException {
+        acquire();
+        try {
+            IoUringSocket.setOption(fd, name, value);
+        } finally {
+            release();
+        }
+        return this;
+    }
+
+
+    @Override
+    public <T> T getOption(SocketOption<T> name) throws IOException {
+        acquire();
+        try {
+            return IoUringSocket.getOption(fd, name);
+        } finally {
+            release();
+        }
+    }
+
+
+    @Override
+    public Set<SocketOption<?>> supportedOptions() {
+        return Set.of(StandardSocketOptions.SO_RCVBUF, StandardSocketOptions.SO_REUSEADDR);
+    }
+
+
+    private void acquire() throws ClosedChannelException {
+        users.incrementAndGet();
+        if (!open) {
+            release();
+            throw new ClosedChannelException();
+        }
+    }
+
+
+    private void release() {
+        if (users.decrementAndGet() == 0 && !open) {
+            releaseFd();
+        }
+    }
+
+
+    private void releaseFd() {
+        if (users.get() == 0 && released.compareAndSet(false, true)) {
+            try {
+                Native.close(fd);
+            } catch (IOException ignore) {
+                // Nothing further can be done
+            }
+        }
+    }
+
+
+    @Override
+    public String toString() {
+        return super.toString() + ":" + fd;
+    }
+}
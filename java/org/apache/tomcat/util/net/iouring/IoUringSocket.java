@@ -0,0 +1,213 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.apache.tomcat.util.net.iouring;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.net.SocketOption;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.ByteChannel;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.NetworkChannel;
+import java.util.Set;
+
+import org.apache.tomcat.util.res.StringManager;
+
+/**
+ * A connected TCP socket that is accessed directly via its file descriptor. Reads and writes are always non-blocking.
+ * Waiting for a socket to become readable or writable is performed by the io_uring instance of the
+ * {@link IoUringEndpoint}.
+ */
+public class IoUringSocket implements ByteChannel, NetworkChannel {
+
+    private static final StringManager sm = StringManager.getManager(IoUringSocket.class);
+
+    static final Set<SocketOption<?>> SUPPORTED_OPTIONS = Set.of(StandardSocketOptions.SO_RCVBUF,
+            StandardSocketOptions.SO_SNDBUF, StandardSocketOptions.SO_KEEPALIVE, StandardSocketOptions.SO_REUSEADDR,
+            StandardSocketOptions.SO_LINGER, StandardSocketOptions.TCP_NODELAY);
+
+    private final int fd;
+
+    // Guarded by this
+    private boolean open = true;
+
+
+    IoUringSocket(int fd) {
+        this.fd = fd;
+    }
+
+
+    int getFd() {
+        return fd;
+    }
+
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * The read never blocks.
+     *
+     * @return the number of bytes read, possibly zero, or -1 if the end of stream has been reached
+     */
+    @Override
+    public synchronized int read(ByteBuffer dst) throws IOException {
+        if (!open) {
+            throw new ClosedChannelException();
+        }
+        return Native.recv(fd, dst);
+    }
+
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * The write never blocks.
+     *
+     * @return the number of bytes written, possibly zero
+     */
+    @Override
+    public synchronized int write(ByteBuffer src) throws IOException {
+        if (!open) {
+            throw new ClosedChannelException();
+        }
+        return Native.send(fd, src);
+    }
+
+
+    @Override
+    public synchronized boolean isOpen() {
+        return open;
+    }
+
+
+    @Override
+    public void close() throws IOException {
+        synchronized (this) {
+            if (!open) {
+                return;
+            }
+            open = false;
+        }
+        Native.close(fd);
+    }
+
+
+    @Override
+    public NetworkChannel bind(SocketAddress local) throws IOException {
+        throw new UnsupportedOperationException(sm.getString("ioUringSocket.connected"));
+    }
+
+
+    @Override
+    public synchronized InetSocketAddress getLocalAddress() throws IOException {
+        if (!open) {
+            throw new ClosedChannelException();
+        }
+        return Native.getLocalAddress(fd);
+    }
+
+
+    public synchronized InetSocketAddress getRemoteAddress() throws IOException {
+        if (!open) {
+            throw new ClosedChannelException();
+        }
+        return Native.getRemoteAddress(fd);
+    }
+
+
+    @Override
+    public synchronized <T> NetworkChannel setOption(SocketOption<T> name, T value) throws IOException {
+        if (!open) {
+            throw new ClosedChannelException();
+        }
+        setOption(fd, name, value);
+        return this;
+    }
+
+
+    @Override
+    public synchronized <T> T getOption(SocketOption<T> name) throws IOException {
+        if (!open) {
+            throw new ClosedChannelException();
+        }
+        return getOption(fd, name);
+    }
+
+
+    @Override
+    public Set<SocketOption<?>> supportedOptions() {
+        return SUPPORTED_OPTIONS;
+    }
+
+
+    @Override
+    public String toString() {
+        return super.toString() + ":" + fd;
+    }
+
+
+    static <T> void setOption(int fd, SocketOption<T> name, T value) throws IOException {
+        if (name == StandardSocketOptions.SO_LINGER) {
+            int seconds = ((Integer) value).intValue();
+            Native.setLinger(fd, seconds >= 0, Math.max(seconds, 0));
+        } else {
+            int intValue;
+            if (value instanceof Boolean) {
+                intValue = ((Boolean) value).booleanValue() ? 1 : 0;
+            } else {
+                intValue = ((Integer) value).intValue();
+            }
+            Native.setIntOption(fd, level(name), option(name), intValue);
+        }
+    }
+
+
+    @SuppressWarnings("unchecked")
+    static <T> T getOption(int fd, SocketOption<T> name) throws IOException {
+        if (name == StandardSocketOptions.SO_LINGER) {
+            return (T) Integer.valueOf(Native.getLinger(fd));
+        }
+        int value = Native.getIntOption(fd, level(name), option(name));
+        if (name.type() == Boolean.class) {
+            return (T) Boolean.valueOf(value != 0);
+        }
+        return (T) Integer.valueOf(value);
+    }
+
+
+    private static int level(SocketOption<?> name) {
+        return name == StandardSocketOptions.TCP_NODELAY ? Native.IPPROTO_TCP : Native.SOL_SOCKET;
+    }
+
+
+    private static int option(SocketOption<?> name) {
+        if (name == StandardSocketOptions.SO_RCVBUF) {
+            return Native.SO_RCVBUF;
+        } else if (name == StandardSocketOptions.SO_SNDBUF) {
+            return Native.SO_SNDBUF;
+        } else if (name == StandardSocketOptions.SO_KEEPALIVE) {
+            return Native.SO_KEEPALIVE;
+        } else if (name == StandardSocketOptions.SO_REUSEADDR) {
+            return Native.SO_REUSEADDR;
+        } else if (name == StandardSocketOptions.TCP_NODELAY) {
+            return Native.TCP_NODELAY;
+        }
+        throw new UnsupportedOperationException(sm.getString("ioUringSocket.unsupportedOption", name));
+    }
+}
@@ -0,0 +1,650 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.apache.tomcat.util.net.iouring;
+
+import java.io.IOException;
+import java.lang.foreign.Arena;
+import java.lang.foreign.FunctionDescriptor;
+import java.lang.foreign.Linker;
+import java.lang.foreign.MemoryLayout;
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.SymbolLookup;
+import java.lang.foreign.ValueLayout;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.VarHandle;
+import java.net.Inet6Address;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.UnknownHostException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+
+import static java.lang.foreign.ValueLayout.ADDRESS;
+import static java.lang.foreign.ValueLayout.JAVA_INT;
+import static java.lang.foreign.ValueLayout.JAVA_LONG;
+
+import org.apache.tomcat.util.res.StringManager;
+
+/**
+ * The C library functions and Linux system calls used by the io_uring endpoint. The values of the constants are those
+ * used by Linux on x86_64 and aarch64. Other architectures are not supported.
+ */
+final class Native {
+
+    private static final StringManager sm = StringManager.getManager(Native.class);
+
+    static final int EINTR = 4;
+    static final int EAGAIN = 11;
+    static final int ENOMEM = 12;
+    static final int EBUSY = 16;
+    static final int EINVAL = 22;
+    static final int ETIME = 62;
+    static final int ENOBUFS = 105;
+    static final int ECANCELED = 125;
+
+    static final int AF_INET = 2;
+    static final int AF_INET6 = 10;
+    static final int SOCK_STREAM = 1;
+    static final int SOCK_CLOEXEC = 0x80000;
+
+    static final int SOL_SOCKET = 1;
+    static final int SO_REUSEADDR = 2;
+    static final int SO_SNDBUF = 7;
+    static final int SO_RCVBUF = 8;
+    static final int SO_KEEPALIVE = 9;
+    static final int SO_LINGER = 13;
+    static final int IPPROTO_TCP = 6;
+    static final int TCP_NODELAY = 1;
+    static final int IPPROTO_IPV6 = 41;
+    static final int IPV6_V6ONLY = 26;
+
+    static final int MSG_DONTWAIT = 0x40;
+    static final int MSG_NOSIGNAL = 0x4000;
+    static final int SHUT_RDWR = 2;
+
+    static final int EFD_NONBLOCK = 0x800;
+    static final int EFD_CLOEXEC = 0x80000;
+
+    static final int PROT_READ = 1;
+    static final int PROT_WRITE = 2;
+    static final int MAP_SHARED = 1;
+    static final int MAP_POPULATE = 0x8000;
+
+    /*
+     * Large enough for struct sockaddr_in6.
+     */
+    static final int SOCKADDR_SIZE = 28;
+
+    private static final int SYS_IO_URING_SETUP = 425;
+    private static final int SYS_IO_URING_ENTER = 426;
+
+    /*
+     * Size of the per thread native buffer used to read into and write from heap buffers.
+     */
+    private static final int SCRATCH_SIZE = 16 * 1024;
+
+    private static final Linker LINKER = Linker.nativeLinker();
+    private static final SymbolLookup LOOKUP = LINKER.defaultLookup();
+    private static final Linker.Option CAPTURE_ERRNO = Linker.Option.captureCallState("errno");
+    private static final long ERRNO_OFFSET =
+            Linker.Option.captureStateLayout().byteOffset(MemoryLayout.PathElement.groupElement("errno"));
+
+    private static final MethodHandle SYSCALL = downcall("syscall",
+            FunctionDescriptor.of(JAVA_LONG, JAVA_LONG, JAVA_LONG, JAVA_LONG, JAVA_LONG, JAVA_LONG, JAVA_LONG,
+                    JAVA_LONG),
+            CAPTURE_ERRNO, Linker.Option.firstVariadicArg(1));
+    private static final MethodHandle SOCKET =
+            downcall("socket", FunctionDescriptor.of(JAVA_INT, JAVA_INT, JAVA_INT, JAVA_INT), CAPTURE_ERRNO);
+    private static final MethodHandle SETSOCKOPT = downcall("setsockopt",
+            FunctionDescriptor.of(JAVA_INT, JAVA_INT, JAVA_INT, JAVA_INT, ADDRESS, JAVA_INT), CAPTURE_ERRNO);
+    private static final MethodHandle GETSOCKOPT = downcall("getsockopt",
+            FunctionDescriptor.of(JAVA_INT, JAVA_INT, JAVA_INT, JAVA_INT, ADDRESS, ADDRESS), CAPTURE_ERRNO);
+    private static final MethodHandle BIND =
+            downcall("bind", FunctionDescriptor.of(JAVA_INT, JAVA_INT, ADDRESS, JAVA_INT), CAPTURE_ERRNO);
+    private static final MethodHandle LISTEN =
+            downcall("listen", FunctionDescriptor.of(JAVA_INT, JAVA_INT, JAVA_INT), CAPTURE_ERRNO);
+    private static final MethodHandle ACCEPT4 = downcall("accept4",
+            FunctionDescriptor.of(JAVA_INT, JAVA_INT, ADDRESS, ADDRESS, JAVA_INT), CAPTURE_ERRNO);
+    private static final MethodHandle GETSOCKNAME =
+            downcall("getsockname", FunctionDescriptor.of(JAVA_INT, JAVA_INT, ADDRESS, ADDRESS), CAPTURE_ERRNO);
+    private static final MethodHandle GETPEERNAME =
+            downcall("getpeername", FunctionDescriptor.of(JAVA_INT, JAVA_INT, ADDRESS, ADDRESS), CAPTURE_ERRNO);
+    private static final MethodHandle RECV = downcall("recv",
+            FunctionDescriptor.of(JAVA_LONG, JAVA_INT, ADDRESS, JAVA_LONG, JAVA_INT), CAPTURE_ERRNO);
+    private static final MethodHandle SEND = downcall("send",
+            FunctionDescriptor.of(JAVA_LONG, JAVA_INT, ADDRESS, JAVA_LONG, JAVA_INT), CAPTURE_ERRNO);
+    private static final MethodHandle READ =
+            downcall("read", FunctionDescriptor.of(JAVA_LONG, JAVA_INT, ADDRESS, JAVA_LONG), CAPTURE_ERRNO);
+    private static final MethodHandle WRITE =
+            downcall("write", FunctionDescriptor.of(JAVA_LONG, JAVA_INT, ADDRESS, JAVA_LONG), CAPTURE_ERRNO);
+    private static final MethodHandle SHUTDOWN =
+            downcall("shutdown", FunctionDescriptor.of(JAVA_INT, JAVA_INT, JAVA_INT), CAPTURE_ERRNO);
+    private static final MethodHandle CLOSE =
+            downcall("close", FunctionDescriptor.of(JAVA_INT, JAVA_INT), CAPTURE_ERRNO);
+    private static final MethodHandle EVENTFD =
+            downcall("eventfd", FunctionDescriptor.of(JAVA_INT, JAVA_INT, JAVA_INT), CAPTURE_ERRNO);
+    private static final MethodHandle MMAP = downcall("mmap",
+            FunctionDescriptor.of(ADDRESS, ADDRESS, JAVA_LONG, JAVA_INT, JAVA_INT, JAVA_INT, JAVA_LONG),
+            CAPTURE_ERRNO);
+    private static final MethodHandle MUNMAP =
+            downcall("munmap", FunctionDescriptor.of(JAVA_INT, ADDRESS, JAVA_LONG), CAPTURE_ERRNO);
+    private static final MethodHandle STRERROR = downcall("strerror", FunctionDescriptor.of(ADDRESS, JAVA_INT));
+
+    /*
+     * Captured errno and the scratch buffer for each thread that calls into native code. These are only allocated
+     * once per thread and the memory is released when the thread terminates.
+     */
+    private static final ThreadLocal<MemorySegment> CALL_STATE =
+            ThreadLocal.withInitial(() -> Arena.ofAuto().allocate(Linker.Option.captureStateLayout()));
+    private static final ThreadLocal<MemorySegment> SCRATCH =
+            ThreadLocal.withInitial(() -> Arena.ofAuto().allocate(SCRATCH_SIZE, 8));
+
+
+    private Native() {
+        // Hide default constructor
+    }
+
+
+    private static MethodHandle downcall(String name, FunctionDescriptor descriptor, Linker.Option... options) {
+        MemorySegment address =
+                LOOKUP.find(name).orElseThrow(() -> new UnsatisfiedLinkError(sm.getString("native.noSymbol", name)));
+        return LINKER.downcallHandle(address, descriptor, options);
+    }
+
+
+    // ------------------------------------------------------------- io_uring
+
+    static int ioUringSetup(int entries, MemorySegment params) throws IOException {
+        return (int) check("io_uring_setup",
+                syscall(SYS_IO_URING_SETUP, entries, params.address(), 0, 0, 0, 0));
+    }
+
+
+    /**
+     * Submit and/or wait for completions.
+     *
+     * @return the number of submitted entries or a negative errno value. EINTR and EAGAIN/EBUSY are reported to the
+     *             caller rather than thrown as they are expected under load.
+     */
+    static int ioUringEnter(int ringFd, int toSubmit, int minComplete, int flags) {
+        return (int) syscall(SYS_IO_URING_ENTER, ringFd, toSubmit, minComplete, flags, 0, 0);
+    }
+
+
+    /*
+     * Returns the result of the system call or -errno.
+     */
+    private static long syscall(long number, long arg1, long arg2, long arg3, long arg4, long arg5, long arg6) {
+        MemorySegment state = CALL_STATE.get();
+        try {
+            long result = (long) SYSCALL.invokeExact(state, number, arg1, arg2, arg3, arg4, arg5, arg6);
+            if (result < 0) {
+                return -errno(state);
+            }
+            return result;
+        } catch (Throwable t) {
+            throw new AssertionError(t);
+        }
+    }
+
+
+    static MemorySegment mmap(long length, int fd, long offset) throws IOException {
+        MemorySegment state = CALL_STATE.get();
+        MemorySegment result;
+        try {
+            result = (MemorySegment) MMAP.invokeExact(state, MemorySegment.NULL, length, PROT_READ | PROT_WRITE,
+                    MAP_SHARED | MAP_POPULATE, fd, offset);
+        } catch (Throwable t) {
+            throw new AssertionError(t);
+        }
+        if (result.address() == -1) {
+            throw exception("mmap", errno(state));
+        }
+        return result.reinterpret(length);
+    }
+
+
+    static void munmap(MemorySegment segment) {
+        try {
+            int result = (int) MUNMAP.invokeExact(CALL_STATE.get(), segment, segment.byteSize());
+            assert result == 0;
+        } catch (Throwable t) {
+            throw new AssertionError(t);
+        }
+    }
+
+
+    // -------------------------------------------------------------- Sockets
+
+    static int socket(int family) throws IOException {
+        MemorySegment state = CALL_STATE.get();
+        try {
+            return check("socket", (int) SOCKET.invokeExact(state, family, SOCK_STREAM | SOCK_CLOEXEC, 0), state);
+        } catch (IOException ioe) {
+            throw ioe;
+        } catch (Throwable t) {
+            throw new AssertionError(t);
+        }
+    }
+
+
+    static void setIntOption(int fd, int level, int option, int value) throws IOException {
+        MemorySegment state = CALL_STATE.get();
+        MemorySegment scratch = SCRATCH.get();
+        scratch.set(JAVA_INT, 0, value);
+        try {
+            check("setsockopt", (int) SETSOCKOPT.invokeExact(state, fd, level, option, scratch, 4), state);
+        } catch (IOException ioe) {
+            throw ioe;
+        } catch (Throwable t) {
+            throw new AssertionError(t);
+        }
+    }
+
+
+    static int getIntOption(int fd, int level, int option) throws IOException {
+        MemorySegment state = CALL_STATE.get();
+        MemorySegment scratch = SCRATCH.get();
+        scratch.set(JAVA_INT, 0, 0);
+        scratch.set(JAVA_INT, 8, 4);
+        try {
+            check("getsockopt",
+                    (int) GETSOCKOPT.invokeExact(state, fd, level, option, scratch, scratch.asSlice(8, 4)), state);
+        } catch (IOException ioe) {
+            throw ioe;
+        } catch (Throwable t) {
+            throw new AssertionError(t);
+        }
+        return scratch.get(JAVA_INT, 0);
+    }
+
+
+    static void setLinger(int fd, boolean on, int seconds) throws IOException {
+        MemorySegment state = CALL_STATE.get();
+        MemorySegment scratch = SCRATCH.get();
+        scratch.set(JAVA_INT, 0, on ? 1 : 0);
+        scratch.set(JAVA_INT, 4, seconds);
+        try {
+            check("setsockopt", (int) SETSOCKOPT.invokeExact(state, fd, SOL_SOCKET, SO_LINGER, scratch, 8), state);
+        } catch (IOException ioe) {
+            throw ioe;
+        } catch (Throwable t) {
+            throw new AssertionError(t);
+        }
+    }
+
+
+    static int getLinger(int fd) throws IOException {
+        MemorySegment state = CALL_STATE.get();
+        MemorySegment scratch = SCRATCH.get();
+        scratch.set(JAVA_INT, 8, 8);
+        try {
+            check("getsockopt",
+                    (int) GETSOCKOPT.invokeExact(state, fd, SOL_SOCKET, SO_LINGER, scratch, scratch.asSlice(8, 4)),
+                    state);
+        } catch (IOException ioe) {
+            throw ioe;
+        } catch (Throwable t) {
+            throw new AssertionError(t);
+        }
+        return scratch.get(JAVA_INT, 0) == 0 ? -1 : scratch.get(JAVA_INT, 4);
+    }
+
+
+    static void bind(int fd, InetSocketAddress address, int backlog) throws IOException {
+        MemorySegment state = CALL_STATE.get();
+        MemorySegment scratch = SCRATCH.get();
+        int length = toSockaddr(address, scratch);
+        try {
+            check("bind", (int) BIND.invokeExact(state, fd, scratch, length), state);
+            check("listen", (int) LISTEN.invokeExact(state, fd, backlog), state);
+        } catch (IOException ioe) {
+            throw ioe;
+        } catch (Throwable t) {
+            throw new AssertionError(t);
+        }
+    }
+
+
+    /**
+     * Accept a new connection, blocking until one is available.
+     *
+     * @param fd The listening socket
+     *
+     * @return The new connection
+     *
+     * @throws IOException If the accept fails, including if the listening socket has been shut down
+     */
+    static int accept(int fd) throws IOException {
+        MemorySegment state = CALL_STATE.get();
+        int result;
+        do {
+            try {
+                result = (int) ACCEPT4.invokeExact(state, fd, MemorySegment.NULL, MemorySegment.NULL, SOCK_CLOEXEC);
+            } catch (Throwable t) {
+                throw new AssertionError(t);
+            }
+        } while (result < 0 && errno(state) == EINTR);
+        return check("accept", result, state);
+    }
+
+
+    static InetSocketAddress getLocalAddress(int fd) throws IOException {
+        return getAddress(GETSOCKNAME, "getsockname", fd);
+    }
+
+
+    static InetSocketAddress getRemoteAddress(int fd) throws IOException {
+        return getAddress(GETPEERNAME, "getpeername", fd);
+    }
+
+
+    private static InetSocketAddress getAddress(MethodHandle handle, String name, int fd) throws IOException {
+        MemorySegment state = CALL_STATE.get();
+        MemorySegment scratch = SCRATCH.get();
+        MemorySegment length = scratch.asSlice(SOCKADDR_SIZE + 4, 4);
+        length.set(JAVA_INT, 0, SOCKADDR_SIZE);
+        try {
+            check(name, (int) handle.invokeExact(state, fd, scratch, length), state);
+        } catch (IOException ioe) {
+            throw ioe;
+        } catch (Throwable t) {
+            throw new AssertionError(t);
+        }
+        return fromSockaddr(scratch);
+    }
+
+
+    /**
+     * Non-blocking read from a socket.
+     *
+     * @param fd     The socket
+     * @param buffer The buffer to read into
+     *
+     * @return The number of bytes read, zero if no data is available or -1 for end of stream
+     *
+     * @throws IOException If the read fails
+     */
+    static int recv(int fd, ByteBuffer buffer) throws IOException {
+        int remaining = buffer.remaining();
+        if (remaining == 0) {
+            return 0;
+        }
+        MemorySegment state = CALL_STATE.get();
+        MemorySegment target;
+        if (buffer.isDirect()) {
+            target = MemorySegment.ofBuffer(buffer);
+        } else {
+            target = SCRATCH.get();
+            remaining = Math.min(remaining, SCRATCH_SIZE);
+        }
+        long result;
+        do {
+            try {
+                result = (long) RECV.invokeExact(state, fd, target, (long) remaining, MSG_DONTWAIT);
+            } catch (Throwable t) {
+                throw new AssertionError(t);
+            }
+        } while (result < 0 && errno(state) == EINTR);
+        if (result > 0) {
+            int n = (int) result;
+            if (!buffer.isDirect()) {
+                MemorySegment.copy(target, 0, MemorySegment.ofBuffer(buffer), 0, n);
+            }
+            buffer.position(buffer.position() + n);
+            return n;
+        } else if (result == 0) {
+            return -1;
+        } else if (errno(state) == EAGAIN) {
+            return 0;
+        }
+        throw exception("recv", errno(state));
+    }
+
+
+    /**
+     * Non-blocking write to a socket.
+     *
+     * @param fd     The socket
+     * @param buffer The buffer to write from
+     *
+     * @return The number of bytes written which may be zero if the socket send buffer is full
+     *
+     * @throws IOException If the write fails
+     */
+    static int send(int fd, ByteBuffer buffer) throws IOException {
+        int remaining = buffer.remaining();
+        if (remaining == 0) {
+            return 0;
+        }
+        MemorySegment state = CALL_STATE.get();
+        MemorySegment source;
+        if (buffer.isDirect()) {
+            source = MemorySegment.ofBuffer(buffer);
+        } else {
+            source = SCRATCH.get();
+            remaining = Math.min(remaining, SCRATCH_SIZE);
+            MemorySegment.copy(MemorySegment.ofBuffer(buffer), 0, source, 0, remaining);
+        }
+        long result;
+        do {
+            try {
+                result = (long) SEND.invokeExact(state, fd, source, (long) remaining, MSG_DONTWAIT | MSG_NOSIGNAL);
+            } catch (Throwable t) {
+                throw new AssertionError(t);
+            }
+        } while (result < 0 && errno(state) == EINTR);
+        if (result >= 0) {
+            int n = (int) result;
+            buffer.position(buffer.position() + n);
+            return n;
+        } else if (errno(state) == EAGAIN) {
+            return 0;
+        }
+        throw exception("send", errno(state));
+    }
+
+
+    static void shutdown(int fd) {
+        try {
+            int result = (int) SHUTDOWN.invokeExact(CALL_STATE.get(), fd, SHUT_RDWR);
+            // Failure is expected if the connection has already been closed by the peer
+            assert result == 0 || result == -1;
+        } catch (Throwable t) {
+            throw new AssertionError(t);
+        }
+    }
+
+
+    static void close(int fd) throws IOException {
+        MemorySegment state = CALL_STATE.get();
+        try {
+            // Linux always releases the file descriptor so EINTR must not be retried
+            if ((int) CLOSE.invokeExact(state, fd) < 0 && errno(state) != EINTR) {
+                throw exception("close", errno(state));
+            }
+        } catch (IOException ioe) {
+            throw ioe;
+        } catch (Throwable t) {
+            throw new AssertionError(t);
+        }
+    }
+
+
+    // ------------------------------------------------------------- eventfd
+
+    static int eventfd() throws IOException {
+        MemorySegment state = CALL_STATE.get();
+        try {
+            return check("eventfd", (int) EVENTFD.invokeExact(state, 0, EFD_NONBLOCK | EFD_CLOEXEC), state);
+        } catch (IOException ioe) {
+            throw ioe;
+        } catch (Throwable t) {
+            throw new AssertionError(t);
+        }
+    }
+
+
+    static void eventfdWrite(int fd) {
+        MemorySegment scratch = SCRATCH.get();
+        scratch.set(JAVA_LONG, 0, 1);
+        try {
+            // Can only fail if the counter overflows which means a wake-up is already pending
+            long result = (long) WRITE.invokeExact(CALL_STATE.get(), fd, scratch, 8L);
+            assert result == 8 || result == -1;
+        } catch (Throwable t) {
+            throw new AssertionError(t);
+        }
+    }
+
+
+    static void eventfdRead(int fd) {
+        try {
+            // Fails with EAGAIN if the counter is already zero which is fine
+            long result = (long) READ.invokeExact(CALL_STATE.get(), fd, SCRATCH.get(), 8L);
+            assert result == 8 || result == -1;
+        } catch (Throwable t) {
+            throw new AssertionError(t);
+        }
+    }
+
+
+    // ---------------------------------------------------------------- Errors
+
+    static String strerror(int errno) {
+        MemorySegment message;
+        try {
+            message = (MemorySegment) STRERROR.invokeExact(errno);
+        } catch (Throwable t) {
+            throw new AssertionError(t);
+        }
+        if (message.address() == 0) {
+            return Integer.toString(errno);
+        }
+        // Avoid MemorySegment.getString() as the method name differs between Java 21 and Java 22
+        message = message.reinterpret(Integer.MAX_VALUE);
+        int length = 0;
+        while (message.get(ValueLayout.JAVA_BYTE, length) != 0) {
+            length++;
+        }
+        byte[] bytes = new byte[length];
+        MemorySegment.copy(message, ValueLayout.JAVA_BYTE, 0, bytes, 0, length);
+        return new String(bytes, StandardCharsets.ISO_8859_1);
+    }
+
+
+    static IOException exception(String function, int errno) {
+        return new IOException(sm.getString("native.error", function, strerror(errno), Integer.valueOf(errno)));
+    }
+
+
+    private static int errno(MemorySegment state) {
+        return state.get(JAVA_INT, ERRNO_OFFSET);
+    }
+
+
+    private static int check(String function, int result, MemorySegment state) throws IOException {
+        if (result < 0) {
+            throw exception(function, errno(state));
+        }
+        return result;
+    }
+
+
+    private static long check(String function, long result) throws IOException {
+        if (result < 0) {
+            throw exception(function, (int) -result);
+        }
+        return result;
+    }
+
+
+    // -------------------------------------------------------- Socket address
+
+    private static int toSockaddr(InetSocketAddress address, MemorySegment target) throws IOException {
+        target.asSlice(0, SOCKADDR_SIZE).fill((byte) 0);
+        InetAddress inetAddress = address.getAddress();
+        if (inetAddress == null) {
+            throw new IOException(sm.getString("native.unresolved", address));
+        }
+        byte[] bytes = inetAddress.getAddress();
+        int port = address.getPort();
+        target.set(ValueLayout.JAVA_BYTE, 2, (byte) (port >> 8));
+        target.set(ValueLayout.JAVA_BYTE, 3, (byte) port);
+        if (bytes.length == 4) {
+            target.set(ValueLayout.JAVA_SHORT, 0, (short) AF_INET);
+            MemorySegment.copy(bytes, 0, target, ValueLayout.JAVA_BYTE, 4, 4);
+            return 16;
+        } else {
+            target.set(ValueLayout.JAVA_SHORT, 0, (short) AF_INET6);
+            MemorySegment.copy(bytes, 0, target, ValueLayout.JAVA_BYTE, 8, 16);
+            if (inetAddress instanceof Inet6Address inet6Address) {
+                target.set(JAVA_INT, 24, inet6Address.getScopeId());
+            }
+            return SOCKADDR_SIZE;
+        }
+    }
+
+
+    private static InetSocketAddress fromSockaddr(MemorySegment source) throws IOException {
+        int family = source.get(ValueLayout.JAVA_SHORT, 0);
+        int port = ((source.get(ValueLayout.JAVA_BYTE, 2) & 0xFF) << 8) | (source.get(ValueLayout.JAVA_BYTE, 3) & 0xFF);
+        byte[] bytes;
+        if (family == AF_INET) {
+            bytes = new byte[4];
+            MemorySegment.copy(source, ValueLayout.JAVA_BYTE, 4, bytes, 0, 4);
+        } else if (family == AF_INET6) {
+            bytes = new byte[16];
+            MemorySegment.copy(source, ValueLayout.JAVA_BYTE, 8, bytes, 0, 16);
+        } else {
+            throw new IOException(sm.getString("native.unknownFamily", Integer.valueOf(family)));
+        }
+        try {
+            return new InetSocketAddress(InetAddress.getByAddress(bytes), port);
+        } catch (UnknownHostException e) {
+            // Can't happen as the address has a valid length
+            throw new IOException(e);
+        }
+    }
+
+
+    // ------------------------------------------------------------- Platform
+
+    static boolean isSupportedPlatform() {
+        String os = System.getProperty("os.name", "").toLowerCase(Locale.ENGLISH);
+        String arch = System.getProperty("os.arch", "").toLowerCase(Locale.ENGLISH);
+        return os.startsWith("linux") && (arch.equals("amd64") || arch.equals("x86_64") || arch.equals("aarch64"));
+    }
+
+
+    /*
+     * Memory ordering for the ring buffers that are shared with the kernel. Plain accesses combined with explicit
+     * fences are used as the VarHandle API for memory segments differs between Java 21 and Java 22.
+     */
+    static int getIntAcquire(MemorySegment segment, long offset) {
+        int value = segment.get(JAVA_INT, offset);
+        VarHandle.acquireFence();
+        return value;
+    }
+
+
+    static void setIntRelease(MemorySegment segment, long offset, int value) {
+        VarHandle.releaseFence();
+        segment.set(JAVA_INT, offset, value);
+    }
+}
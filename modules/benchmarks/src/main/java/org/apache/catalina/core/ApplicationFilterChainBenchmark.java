@@ -0,0 +1,139 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.apache.catalina.core;
+
+import java.io.IOException;
+import java.lang.reflect.Proxy;
+import java.util.concurrent.TimeUnit;
+
+import jakarta.servlet.Filter;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.GenericServlet;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.ServletRequest;
+import jakarta.servlet.ServletResponse;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import org.apache.tomcat.SimpleInstanceManager;
+import org.apache.tomcat.util.descriptor.web.FilterDef;
+
+/**
+ * Measures the overhead of {@link ApplicationFilterChain#doFilter(ServletRequest, ServletResponse)} for a chain of
+ * pass-through filters in front of a servlet that does nothing.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ApplicationFilterChainBenchmark {
+
+    @Param({ "0", "5", "20" })
+    public int filterCount;
+
+    private ApplicationFilterChain chain;
+    private ServletRequest request;
+    private ServletResponse response;
+
+
+    @Setup
+    public void setup() throws Exception {
+        StandardEngine engine = new StandardEngine();
+        engine.setName("Benchmark");
+        StandardHost host = new StandardHost();
+        host.setName("localhost");
+        host.setParent(engine);
+        StandardContext context = new StandardContext();
+        context.setName("");
+        context.setPath("");
+        context.setParent(host);
+        context.setInstanceManager(new SimpleInstanceManager());
+
+        chain = new ApplicationFilterChain();
+        for (int i = 0; i < filterCount; i++) {
+            FilterDef filterDef = new FilterDef();
+            filterDef.setFilterName("filter" + i);
+            filterDef.setFilter(new PassThroughFilter());
+            filterDef.setAsyncSupported("true");
+            chain.addFilter(new ApplicationFilterConfig(context, filterDef));
+        }
+        chain.setServlet(new NoOpServlet());
+
+        request = createStub(HttpServletRequest.class);
+        response = createStub(HttpServletResponse.class);
+    }
+
+
+    @Benchmark
+    public void doFilter() throws Exception {
+        chain.reuse();
+        chain.doFilter(request, response);
+    }
+
+
+    private static <T> T createStub(Class<T> type) {
+        return type.cast(Proxy.newProxyInstance(ApplicationFilterChainBenchmark.class.getClassLoader(),
+                new Class<?>[] { type }, (proxy, method, args) -> defaultValue(method.getReturnType())));
+    }
+
+
+    private static Object defaultValue(Class<?> type) {
+        if (type == boolean.class) {
+            return Boolean.FALSE;
+        } else if (type == int.class) {
+            return Integer.valueOf(0);
+        } else if (type == long.class) {
+            return Long.valueOf(0);
+        }
+        return null;
+    }
+
+
+    public static class PassThroughFilter implements Filter {
+
+        @Override
+        public void doFilter(ServletRequest request, ServletResponse response, FilterChain chain)
+                throws IOException, ServletException {
+            chain.doFilter(request, response);
+        }
+    }
+
+
+    public static class NoOpServlet extends GenericServlet {
+
+        private static final long serialVersionUID = 1L;
+
+        @Override
+        public void service(ServletRequest req, ServletResponse res) {
+            // NO-OP
+        }
+    }
+}
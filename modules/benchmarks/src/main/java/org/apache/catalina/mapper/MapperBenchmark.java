@@ -0,0 +1,138 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.apache.catalina.mapper;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import org.apache.catalina.Context;
+import org.apache.catalina.Host;
+import org.apache.catalina.Wrapper;
+import org.apache.catalina.core.StandardContext;
+import org.apache.catalina.core.StandardHost;
+import org.apache.catalina.core.StandardWrapper;
+import org.apache.tomcat.util.buf.MessageBytes;
+
+/**
+ * Measures {@link Mapper#map(MessageBytes, MessageBytes, String, MappingData)} for a host with a configurable number
+ * of contexts, each with a typical mix of exact, prefix, extension and default servlet mappings plus a configurable
+ * number of additional exact and prefix mappings. The URIs cover each of the servlet specification mapping rules in
+ * turn.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MapperBenchmark {
+
+    private static final String HOST_NAME = "www.example.org";
+
+    @Param({ "10", "500" })
+    public int contextCount;
+
+    @Param({ "0", "200" })
+    public int extraMappingCount;
+
+    @Param({ "/app7/api/status", "/app7/api/users/42", "/app7/views/index.jsp", "/app7/images/logo.png" })
+    public String requestUri;
+
+    private Mapper mapper;
+    private MessageBytes host;
+    private MessageBytes uri;
+    private MappingData mappingData;
+
+
+    @Setup
+    public void setup() {
+        mapper = new Mapper();
+
+        Host hostObject = new StandardHost();
+        hostObject.setName(HOST_NAME);
+        mapper.addHost(HOST_NAME, new String[0], hostObject);
+        mapper.setDefaultHostName(HOST_NAME);
+
+        mapper.addContextVersion(HOST_NAME, hostObject, "", "0", createContext("ROOT"), new String[0], null,
+                createWrappers("ROOT", extraMappingCount));
+        for (int i = 0; i < contextCount; i++) {
+            String name = "app" + i;
+            mapper.addContextVersion(HOST_NAME, hostObject, "/" + name, "0", createContext(name),
+                    new String[] { "index.jsp" }, null, createWrappers(name, extraMappingCount));
+        }
+
+        host = MessageBytes.newInstance();
+        host.setString(HOST_NAME);
+        uri = MessageBytes.newInstance();
+        uri.setString(requestUri);
+        uri.toChars();
+        mappingData = new MappingData();
+    }
+
+
+    @Benchmark
+    public Object map() throws Exception {
+        mappingData.recycle();
+        mapper.map(host, uri, null, mappingData);
+        return mappingData.wrapper;
+    }
+
+
+    private static Context createContext(String name) {
+        Context context = new StandardContext();
+        context.setName(name);
+        return context;
+    }
+
+
+    private static List<WrapperMappingInfo> createWrappers(String contextName, int extraMappingCount) {
+        List<WrapperMappingInfo> wrappers = new ArrayList<>();
+        wrappers.add(new WrapperMappingInfo("/", createWrapper(contextName + "-default"), false, false));
+        wrappers.add(new WrapperMappingInfo("/api/status", createWrapper(contextName + "-status"), false, false));
+        wrappers.add(new WrapperMappingInfo("/api/*", createWrapper(contextName + "-api"), false, false));
+        wrappers.add(new WrapperMappingInfo("/admin/*", createWrapper(contextName + "-admin"), false, false));
+        wrappers.add(new WrapperMappingInfo("/ws/*", createWrapper(contextName + "-ws"), false, false));
+        wrappers.add(new WrapperMappingInfo("*.jsp", createWrapper(contextName + "-jsp"), false, false));
+        wrappers.add(new WrapperMappingInfo("*.do", createWrapper(contextName + "-do"), false, false));
+        for (int i = 0; i < extraMappingCount; i++) {
+            Wrapper wrapper = createWrapper(contextName + "-extra" + i);
+            wrappers.add(new WrapperMappingInfo("/api/v" + (i % 10) + "/resource" + i, wrapper, false, false));
+            wrappers.add(new WrapperMappingInfo("/api/v" + (i % 10) + "/resource" + i + "/*", wrapper, false, false));
+        }
+        return wrappers;
+    }
+
+
+    private static Wrapper createWrapper(String name) {
+        Wrapper wrapper = new StandardWrapper();
+        wrapper.setName(name);
+        return wrapper;
+    }
+}
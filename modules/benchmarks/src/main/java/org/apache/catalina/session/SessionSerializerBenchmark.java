@@ -0,0 +1,116 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.apache.catalina.session;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import org.apache.catalina.core.StandardContext;
+
+/**
+ * Measures writing and reading a session with {@link JavaSessionSerializer} and {@link CompactSessionSerializer}. The
+ * session has a mix of string, boxed primitive and collection attributes. The size of the serialized session is
+ * printed during the setup of each trial.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SessionSerializerBenchmark {
+
+    @Param({ "java", "compact" })
+    public String serializer;
+
+    @Param({ "5", "50" })
+    public int attributeCount;
+
+    private StandardManager manager;
+    private StandardSession session;
+    private byte[] serialized;
+
+
+    @Setup
+    public void setup() throws Exception {
+        manager = new StandardManager();
+        manager.setContext(new StandardContext());
+        if ("compact".equals(serializer)) {
+            manager.setSessionSerializer(new CompactSessionSerializer());
+        }
+
+        session = new StandardSession(manager);
+        session.setValid(true);
+        session.setCreationTime(System.currentTimeMillis());
+        session.setMaxInactiveInterval(1800);
+        session.setId("0123456789ABCDEF0123456789ABCDEF", false);
+        for (int i = 0; i < attributeCount; i++) {
+            switch (i % 5) {
+                case 0 -> session.setAttribute("string" + i, "value" + i);
+                case 1 -> session.setAttribute("integer" + i, Integer.valueOf(i));
+                case 2 -> session.setAttribute("long" + i, Long.valueOf(System.nanoTime()));
+                case 3 -> session.setAttribute("boolean" + i, Boolean.valueOf(i % 2 == 0));
+                default -> {
+                    List<String> list = new ArrayList<>();
+                    list.add("item" + i);
+                    session.setAttribute("list" + i, list);
+                }
+            }
+        }
+
+        serialized = write();
+        System.out.println("Serialized session size: " + serialized.length + " bytes");
+    }
+
+
+    @Benchmark
+    public byte[] write() throws IOException {
+        ByteArrayOutputStream baos = new ByteArrayOutputStream(1024);
+        try (ObjectOutputStream oos = new ObjectOutputStream(baos)) {
+            session.writeObjectData(oos);
+        }
+        return baos.toByteArray();
+    }
+
+
+    @Benchmark
+    public StandardSession read() throws IOException, ClassNotFoundException {
+        StandardSession result = new StandardSession(manager);
+        try (ObjectInputStream ois = new ObjectInputStream(new ByteArrayInputStream(serialized))) {
+            result.readObjectData(ois);
+        }
+        return result;
+    }
+}
@@ -0,0 +1,161 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.catalina.webresources;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import org.apache.catalina.core.StandardContext;
+
+/**
+ * Replays a request trace against the static resource {@link Cache} with each eviction policy. The trace mixes
+ * requests for resources with a Zipf distributed popularity with a crawler that requests every resource in turn. The
+ * hit ratio and eviction counts achieved by each policy are printed at the end of each trial.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CacheBenchmark {
+
+    private static final int RESOURCE_COUNT = 5000;
+    private static final int TRACE_LENGTH = 100_000;
+    // Percentage of the requests made by the crawler
+    private static final int CRAWLER_PERCENT = 20;
+    private static final double ZIPF_EXPONENT = 0.9;
+
+    @Param({ "tinylfu", "ttl" })
+    public String evictionPolicy;
+
+    // Size of the cache as a percentage of the total size of the resources
+    @Param({ "10" })
+    public int cachePercent;
+
+    // Retain a reference so the level is not lost
+    private final Logger cacheLogger = Logger.getLogger(Cache.class.getName());
+
+    private File dir;
+    private Cache cache;
+    private String[] trace;
+
+
+    @Setup
+    public void setup() throws Exception {
+        // The TTL policy logs a warning each time a resource cannot be cached
+        cacheLogger.setLevel(Level.SEVERE);
+
+        Random random = new Random(42);
+        dir = Files.createTempDirectory("cache-benchmark").toFile();
+        long totalSize = 0;
+        String[] paths = new String[RESOURCE_COUNT];
+        for (int i = 0; i < RESOURCE_COUNT; i++) {
+            byte[] content = new byte[512 + random.nextInt(16 * 1024)];
+            Files.write(new File(dir, "resource" + i).toPath(), content);
+            paths[i] = "/resource" + i;
+            totalSize += content.length;
+        }
+
+        StandardRoot root = new StandardRoot(new StandardContext());
+        DirResourceSet main = new DirResourceSet(root, "/", dir.getAbsolutePath(), "/");
+        main.start();
+        root.setMainResources(main);
+
+        cache = new Cache(root);
+        cache.setEvictionPolicy(evictionPolicy);
+        cache.setMaxSize(totalSize * cachePercent / 100 / 1024);
+        cache.enforceObjectMaxSizeLimit();
+
+        // Cumulative Zipf distribution. The popularity of a resource is unrelated to its name.
+        double[] cumulative = new double[RESOURCE_COUNT];
+        double sum = 0;
+        for (int i = 0; i < RESOURCE_COUNT; i++) {
+            sum += 1 / Math.pow(i + 1, ZIPF_EXPONENT);
+            cumulative[i] = sum;
+        }
+        String[] byPopularity = paths.clone();
+        for (int i = byPopularity.length - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            String tmp = byPopularity[i];
+            byPopularity[i] = byPopularity[j];
+            byPopularity[j] = tmp;
+        }
+
+        trace = new String[TRACE_LENGTH];
+        int crawlerPosition = 0;
+        for (int i = 0; i < TRACE_LENGTH; i++) {
+            if (random.nextInt(100) < CRAWLER_PERCENT) {
+                trace[i] = paths[crawlerPosition++ % RESOURCE_COUNT];
+            } else {
+                int index = Arrays.binarySearch(cumulative, random.nextDouble() * sum);
+                if (index < 0) {
+                    index = -index - 1;
+                }
+                trace[i] = byPopularity[Math.min(index, RESOURCE_COUNT - 1)];
+            }
+        }
+    }
+
+
+    @TearDown
+    public void tearDown() throws IOException {
+        System.out.println();
+        System.out.println("Eviction policy [" + cache.getEvictionPolicy() + "] hit ratio [" +
+                String.format("%.3f", Double.valueOf(cache.getHitRatio())) + "] size evictions [" +
+                cache.getSizeEvictionCount() + "] admission rejections [" + cache.getAdmissionRejectionCount() +
+                "] invalidations [" + cache.getInvalidationCount() + "]");
+        cache.clear();
+        File[] files = dir.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                Files.delete(file.toPath());
+            }
+        }
+        Files.delete(dir.toPath());
+    }
+
+
+    @Benchmark
+    @OperationsPerInvocation(TRACE_LENGTH)
+    public void replay(Blackhole blackhole) {
+        for (String path : trace) {
+            blackhole.consume(cache.getResource(path, false));
+        }
+    }
+}
@@ -0,0 +1,131 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.catalina.webresources;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.jar.JarEntry;
+import java.util.jar.JarOutputStream;
+import java.util.stream.Stream;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import org.apache.catalina.WebResourceRoot.ResourceSetType;
+import org.apache.catalina.WebResourceSet;
+import org.apache.catalina.core.StandardContext;
+
+/**
+ * Looks up every class in a web application with many JARs in /WEB-INF/lib, as the web application class loader does
+ * at start-up, along with a lookup for a class that does not exist in each package. The lookups bypass the static
+ * resource cache. Compare the results with and without the index of the class resources.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ClassResourcesIndexBenchmark {
+
+    private static final int CLASSES_PER_JAR = 20;
+
+    @Param({ "300" })
+    public int jarCount;
+
+    @Param({ "true", "false" })
+    public boolean indexed;
+
+    private Path dir;
+    private StandardRoot root;
+    private String[] lookups;
+
+
+    @Setup
+    public void setup() throws Exception {
+        dir = Files.createTempDirectory("class-resources-index-benchmark");
+        Path main = Files.createDirectory(dir.resolve("main"));
+        Path lib = Files.createDirectory(dir.resolve("lib"));
+
+        root = new StandardRoot(new StandardContext());
+        DirResourceSet mainResources = new DirResourceSet(root, "/", main.toString(), "/");
+        mainResources.start();
+        root.setMainResources(mainResources);
+
+        List<String> paths = new ArrayList<>();
+        for (int i = 0; i < jarCount; i++) {
+            File jar = lib.resolve("lib" + i + ".jar").toFile();
+            try (JarOutputStream jos = new JarOutputStream(new FileOutputStream(jar))) {
+                for (int j = 0; j < CLASSES_PER_JAR; j++) {
+                    String name = "org/example/lib" + i + "/Class" + j + ".class";
+                    jos.putNextEntry(new JarEntry(name));
+                    jos.write(new byte[64]);
+                    jos.closeEntry();
+                    paths.add("/WEB-INF/classes/" + name);
+                }
+            }
+            paths.add("/WEB-INF/classes/org/example/lib" + i + "/Missing.class");
+            root.createWebResourceSet(ResourceSetType.CLASSES_JAR, "/WEB-INF/classes", jar.getAbsolutePath(), null,
+                    "/");
+        }
+        for (WebResourceSet classResources : root.getClassResources()) {
+            classResources.start();
+        }
+        if (indexed) {
+            root.buildClassResourcesIndex();
+        }
+        lookups = paths.toArray(new String[0]);
+    }
+
+
+    @TearDown
+    public void tearDown() throws Exception {
+        for (WebResourceSet classResources : root.getClassResources()) {
+            classResources.destroy();
+        }
+        try (Stream<Path> paths = Files.walk(dir)) {
+            for (Path path : paths.sorted(Comparator.reverseOrder()).toList()) {
+                Files.delete(path);
+            }
+        }
+    }
+
+
+    @Benchmark
+    public void lookupAll(Blackhole blackhole) {
+        for (String path : lookups) {
+            blackhole.consume(root.getResourceInternal(path, true));
+        }
+    }
+}
@@ -0,0 +1,121 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.apache.coyote;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ServiceLoader;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the cost of compressing a typical text response with each {@link CompressionCodec}. The codecs provided
+ * with Tomcat are always available. Additional codecs (e.g. br or zstd) are measured if they are on the class path and
+ * registered with {@link ServiceLoader}. The compressed size is reported on standard out during setup so the ratio can
+ * be compared with the throughput.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CompressionCodecBenchmark {
+
+    @Param({ "gzip", "deflate" })
+    public String encoding;
+
+    @Param({ "-1", "1", "9" })
+    public int level;
+
+    @Param({ "16384", "262144" })
+    public int size;
+
+    private CompressionCodec codec;
+    private byte[] data;
+    private final ByteArrayOutputStream target = new ByteArrayOutputStream();
+
+
+    @Setup
+    public void setup() throws IOException {
+        for (CompressionCodec candidate : ServiceLoader.load(CompressionCodec.class)) {
+            if (candidate.getEncoding().equalsIgnoreCase(encoding)) {
+                codec = candidate;
+            }
+        }
+        if (codec == null) {
+            if ("gzip".equals(encoding)) {
+                codec = new GzipCompressionCodec();
+            } else if ("deflate".equals(encoding)) {
+                codec = new DeflateCompressionCodec();
+            } else {
+                throw new IllegalStateException("No codec for [" + encoding + "]");
+            }
+        }
+        codec.setLevel(level);
+
+        // JSON like content that compresses in a similar way to a typical API response
+        StringBuilder sb = new StringBuilder(size);
+        int i = 0;
+        while (sb.length() < size) {
+            sb.append("{\"id\":").append(i).append(",\"name\":\"item-").append(i * 31 % 977);
+            sb.append("\",\"status\":\"").append(i % 3 == 0 ? "ACTIVE" : "INACTIVE").append("\"},");
+            i++;
+        }
+        data = sb.substring(0, size).getBytes(StandardCharsets.UTF_8);
+
+        System.out.println("[" + encoding + "] level [" + level + "] compressed [" + size + "] bytes to [" +
+                compress() + "] bytes");
+    }
+
+
+    @Benchmark
+    public int compress() throws IOException {
+        target.reset();
+        try (OutputStream os = codec.createOutputStream(target)) {
+            os.write(data);
+        }
+        return target.size();
+    }
+
+
+    @Benchmark
+    public int compressChunked() throws IOException {
+        target.reset();
+        // Simulate a response that is flushed every 8k
+        try (OutputStream os = codec.createOutputStream(target)) {
+            for (int off = 0; off < data.length; off += 8192) {
+                os.write(data, off, Math.min(8192, data.length - off));
+                os.flush();
+            }
+        }
+        return target.size();
+    }
+}
@@ -0,0 +1,161 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.apache.coyote.http2;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import org.apache.tomcat.util.http.MimeHeaders;
+
+/**
+ * Measures HPACK encoding of typical response headers and decoding of typical request headers. The "first" benchmarks
+ * use a new encoder / decoder for each header block so nothing is found in the dynamic table (the first response /
+ * request on a connection). The "repeat" benchmarks re-use a warmed up encoder / decoder (subsequent requests on the
+ * same connection). The encoder benchmarks are run with and without the encoded string literal cache that is shared by
+ * all connections.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class HpackBenchmark {
+
+    @Param({ "true", "false" })
+    public boolean encodedStringCache;
+
+    private MimeHeaders responseHeaders;
+    private ByteBuffer target;
+    private HpackEncoder warmEncoder;
+
+    private ByteBuffer firstRequestBlock;
+    private ByteBuffer repeatRequestBlock;
+    private HpackDecoder warmDecoder;
+    private final NoOpHeaderEmitter emitter = new NoOpHeaderEmitter();
+
+
+    @Setup
+    public void setup() throws HpackException {
+        responseHeaders = new MimeHeaders();
+        responseHeaders.addValue(":status").setString("200");
+        responseHeaders.addValue("content-type").setString("application/json;charset=UTF-8");
+        responseHeaders.addValue("content-length").setString("1234");
+        responseHeaders.addValue("date").setString("Sun, 18 Oct 2026 10:00:00 GMT");
+        responseHeaders.addValue("cache-control").setString("no-cache, no-store, must-revalidate");
+        responseHeaders.addValue("vary").setString("accept-encoding");
+        responseHeaders.addValue("x-content-type-options").setString("nosniff");
+        responseHeaders.addValue("strict-transport-security").setString("max-age=31536000; includeSubDomains");
+
+        target = ByteBuffer.allocate(4096);
+        warmEncoder = new HpackEncoder(encodedStringCache);
+        encode(warmEncoder, responseHeaders, target);
+
+        MimeHeaders requestHeaders = new MimeHeaders();
+        requestHeaders.addValue(":method").setString("GET");
+        requestHeaders.addValue(":scheme").setString("https");
+        requestHeaders.addValue(":authority").setString("www.example.org");
+        requestHeaders.addValue(":path").setString("/api/v1/orders?page=2");
+        requestHeaders.addValue("accept").setString("application/json");
+        requestHeaders.addValue("accept-encoding").setString("gzip, deflate, br");
+        requestHeaders.addValue("user-agent").setString("grpc-java-netty/1.66.0");
+        requestHeaders.addValue("cookie").setString("JSESSIONID=8D2C5C3A0D3F4B1E9A7C6E5D4C3B2A19");
+
+        HpackEncoder requestEncoder = new HpackEncoder();
+        firstRequestBlock = encode(requestEncoder, requestHeaders, ByteBuffer.allocate(4096));
+        repeatRequestBlock = encode(requestEncoder, requestHeaders, ByteBuffer.allocate(4096));
+
+        warmDecoder = new HpackDecoder();
+        warmDecoder.setHeaderEmitter(emitter);
+        warmDecoder.decode(firstRequestBlock.duplicate());
+    }
+
+
+    @Benchmark
+    public int encodeFirst() {
+        target.clear();
+        new HpackEncoder(encodedStringCache).encode(responseHeaders, target);
+        return target.position();
+    }
+
+
+    @Benchmark
+    public int encodeRepeat() {
+        target.clear();
+        warmEncoder.encode(responseHeaders, target);
+        return target.position();
+    }
+
+
+    @Benchmark
+    public int decodeFirst() throws HpackException {
+        HpackDecoder decoder = new HpackDecoder();
+        decoder.setHeaderEmitter(emitter);
+        decoder.decode(firstRequestBlock.duplicate());
+        return emitter.count;
+    }
+
+
+    @Benchmark
+    public int decodeRepeat() throws HpackException {
+        warmDecoder.setHeaderEmitter(emitter);
+        warmDecoder.decode(repeatRequestBlock.duplicate());
+        return emitter.count;
+    }
+
+
+    private static ByteBuffer encode(HpackEncoder encoder, MimeHeaders headers, ByteBuffer buffer) {
+        if (encoder.encode(headers, buffer) != HpackEncoder.State.COMPLETE) {
+            throw new IllegalStateException();
+        }
+        buffer.flip();
+        return buffer;
+    }
+
+
+    private static class NoOpHeaderEmitter implements HpackDecoder.HeaderEmitter {
+
+        private int count;
+
+        @Override
+        public void emitHeader(String name, String value) {
+            count++;
+        }
+
+        @Override
+        public void setHeaderException(StreamException streamException) {
+            // NO-OP
+        }
+
+        @Override
+        public void validateHeaders() {
+            // NO-OP
+        }
+    }
+}
@@ -0,0 +1,84 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.apache.tomcat.util.http;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+import jakarta.servlet.http.Cookie;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the parsing of a typical {@code Cookie} request header and the generation of a typical {@code Set-Cookie}
+ * response header by {@link Rfc6265CookieProcessor}.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CookieProcessorBenchmark {
+
+    private static final byte[] COOKIE_HEADER =
+            ("JSESSIONID=8D2C5C3A0D3F4B1E9A7C6E5D4C3B2A19; theme=dark; lang=en-GB; " +
+                    "_ga=GA1.2.1234567890.1700000000; consent=\"analytics,marketing\"")
+                    .getBytes(StandardCharsets.ISO_8859_1);
+
+    private Rfc6265CookieProcessor cookieProcessor;
+    private MimeHeaders headers;
+    private ServerCookies serverCookies;
+    private Cookie sessionCookie;
+
+
+    @Setup
+    public void setup() {
+        cookieProcessor = new Rfc6265CookieProcessor();
+        headers = new MimeHeaders();
+        headers.addValue("Cookie").setBytes(COOKIE_HEADER, 0, COOKIE_HEADER.length);
+        serverCookies = new ServerCookies(4);
+
+        sessionCookie = new Cookie("JSESSIONID", "8D2C5C3A0D3F4B1E9A7C6E5D4C3B2A19");
+        sessionCookie.setPath("/app");
+        sessionCookie.setHttpOnly(true);
+        sessionCookie.setSecure(true);
+    }
+
+
+    @Benchmark
+    public int parseCookieHeader() {
+        serverCookies.recycle();
+        cookieProcessor.parseCookieHeader(headers, serverCookies);
+        return serverCookies.getCookieCount();
+    }
+
+
+    @Benchmark
+    public String generateHeader() {
+        return cookieProcessor.generateHeader(sessionCookie, null);
+    }
+}
@@ -0,0 +1,85 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.apache.tomcat.util.http;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the decoding of {@code application/x-www-form-urlencoded} data by {@link Parameters}. The data is copied
+ * before each invocation as %nn decoding takes place in place.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ParametersBenchmark {
+
+    @Param({ "5", "50" })
+    public int parameterCount;
+
+    @Param({ "false", "true" })
+    public boolean encoded;
+
+    private byte[] template;
+    private byte[] data;
+    private Parameters parameters;
+
+
+    @Setup
+    public void setup() {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < parameterCount; i++) {
+            if (i > 0) {
+                sb.append('&');
+            }
+            sb.append("param").append(i).append('=');
+            if (encoded) {
+                sb.append("caf%C3%A9+au+lait%2C+s%27il+vous+pla%C3%AEt");
+            } else {
+                sb.append("value").append(i);
+            }
+        }
+        template = sb.toString().getBytes(StandardCharsets.ISO_8859_1);
+        data = new byte[template.length];
+        parameters = new Parameters();
+    }
+
+
+    @Benchmark
+    public String processParameters() {
+        System.arraycopy(template, 0, data, 0, template.length);
+        parameters.recycle();
+        parameters.setCharset(StandardCharsets.UTF_8);
+        parameters.processParameters(data, 0, data.length);
+        return parameters.getParameter("param0");
+    }
+}
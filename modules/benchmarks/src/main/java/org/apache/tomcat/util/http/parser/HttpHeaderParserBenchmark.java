@@ -0,0 +1,124 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.apache.tomcat.util.http.parser;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import org.apache.tomcat.util.http.MimeHeaders;
+import org.apache.tomcat.util.http.parser.HttpHeaderParser.HeaderDataSource;
+import org.apache.tomcat.util.http.parser.HttpHeaderParser.HeaderParseStatus;
+
+/**
+ * Measures the parsing of a typical set of browser request headers. This is the parser used by
+ * {@code Http11InputBuffer} once the request line has been read so the buffer is presented to the parser exactly as
+ * the HTTP/1.1 connector would present it for a request that arrived in a single read.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class HttpHeaderParserBenchmark implements HeaderDataSource {
+
+    private static final byte[] HEADERS = ("Host: www.example.org\r\n" +
+            "User-Agent: Mozilla/5.0 (X11; Linux x86_64; rv:128.0) Gecko/20100101 Firefox/128.0\r\n" +
+            "Accept: text/html,application/xhtml+xml,application/xml;q=0.9,*/*;q=0.8\r\n" +
+            "Accept-Language: en-GB,en;q=0.5\r\n" +
+            "Accept-Encoding: gzip, deflate, br, zstd\r\n" +
+            "Connection: keep-alive\r\n" +
+            "Cookie: JSESSIONID=8D2C5C3A0D3F4B1E9A7C6E5D4C3B2A19; theme=dark; lang=en\r\n" +
+            "Upgrade-Insecure-Requests: 1\r\n" +
+            "Sec-Fetch-Dest: document\r\n" +
+            "Sec-Fetch-Mode: navigate\r\n" +
+            "Sec-Fetch-Site: none\r\n" +
+            "Priority: u=0, i\r\n" +
+            "\r\n").getBytes(StandardCharsets.ISO_8859_1);
+
+    private ByteBuffer buffer;
+    private MimeHeaders headers;
+    private HttpHeaderParser parser;
+
+
+    @Setup
+    public void setup() {
+        buffer = ByteBuffer.wrap(HEADERS.clone());
+        headers = new MimeHeaders();
+        parser = new HttpHeaderParser(this, headers, true);
+    }
+
+
+    @Benchmark
+    public int parseHeaders() throws IOException {
+        parse();
+        return headers.size();
+    }
+
+
+    @Benchmark
+    public void parseHeadersAndRead(Blackhole bh) throws IOException {
+        parse();
+        // The headers most frequently read by the container for every request
+        bh.consume(headers.getHeader("host"));
+        bh.consume(headers.getHeader("connection"));
+        bh.consume(headers.getHeader("accept-encoding"));
+        bh.consume(headers.getHeader("content-length"));
+        bh.consume(headers.getHeader("transfer-encoding"));
+    }
+
+
+    private void parse() throws IOException {
+        headers.recycle();
+        parser.recycle();
+        buffer.position(0);
+        HeaderParseStatus status;
+        do {
+            status = parser.parseHeader();
+        } while (status == HeaderParseStatus.HAVE_MORE_HEADERS);
+        if (status != HeaderParseStatus.DONE) {
+            throw new IllegalStateException();
+        }
+    }
+
+
+    @Override
+    public boolean fillHeaderBuffer() throws IOException {
+        // All the header data is always in the buffer
+        return false;
+    }
+
+
+    @Override
+    public ByteBuffer getHeaderByteBuffer() {
+        return buffer;
+    }
+}
@@ -18,8 +18,14 @@ package org.apache.catalina.ha.session;
 
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
 import java.io.ObjectInputStream;
 import java.io.ObjectOutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
 
 import org.junit.Assert;
 import org.junit.Test;
@@ -70,4 +76,297 @@ public class TestDeltaRequest {
         Assert.assertEquals("One", copySession.getAttribute("A"));
         Assert.assertEquals("Two", copySession.getAttribute("B"));
     }
+
+
+    @Test
+    public void testAttributeDiff() throws Exception {
+        Manager manager = new StandardManager();
+        manager.setContext(new TesterContext());
+        DeltaSession session = createSession(manager);
+        DeltaSession copySession = createSession(manager);
+
+        TesterDiffableList list = new TesterDiffableList();
+        for (int i = 0; i < 1000; i++) {
+            list.add("value-" + i);
+        }
+        session.setAttribute("list", list);
+        int fullSize = replicate(session, copySession);
+        Assert.assertFalse(list.isDirty());
+        TesterDiffableList copy = (TesterDiffableList) copySession.getAttribute("list");
+        Assert.assertEquals(list.getValues(), copy.getValues());
+
+        // Multiple modifications within a request are sent as a single diff
+        list.add("a");
+        session.setAttribute("list", list);
+        list.add("b");
+        session.setAttribute("list", list);
+        int diffSize = replicate(session, copySession);
+        Assert.assertFalse(list.isDirty());
+        Assert.assertSame(copy, copySession.getAttribute("list"));
+        Assert.assertEquals(list.getValues(), copy.getValues());
+        Assert.assertTrue("Diff size [" + diffSize + "] full size [" + fullSize + "]", diffSize * 10 < fullSize);
+
+        // A replacement value is sent in full
+        TesterDiffableList replacement = new TesterDiffableList();
+        replacement.add("c");
+        session.setAttribute("list", replacement);
+        replacement.add("d");
+        session.setAttribute("list", replacement);
+        replicate(session, copySession);
+        Assert.assertEquals(List.of("c", "d"), ((TesterDiffableList) copySession.getAttribute("list")).getValues());
+    }
+
+
+    @Test
+    public void testAttributeDiffConcurrentModification() throws Exception {
+        Manager manager = new StandardManager();
+        manager.setContext(new TesterContext());
+        DeltaSession session = createSession(manager);
+        DeltaSession copySession = createSession(manager);
+
+        TesterDiffableList list = new TesterDiffableList();
+        session.setAttribute("list", list);
+        replicate(session, copySession);
+        TesterDiffableList copy = (TesterDiffableList) copySession.getAttribute("list");
+
+        // Changes made while the diff is being taken must not be lost
+        Thread writer = new Thread(() -> {
+            for (int i = 0; i < 20000; i++) {
+                list.add("value-" + i);
+                session.setAttribute("list", list);
+            }
+        });
+        writer.start();
+        while (writer.isAlive()) {
+            replicate(session, copySession);
+        }
+        writer.join();
+        replicate(session, copySession);
+
+        Assert.assertFalse(list.isDirty());
+        Assert.assertEquals(list.getValues(), copy.getValues());
+    }
+
+
+    @Test
+    public void testAttributeDiffLost() throws Exception {
+        Manager manager = new StandardManager();
+        manager.setContext(new TesterContext());
+        DeltaSession session = createSession(manager);
+        DeltaSession copySession = createSession(manager);
+
+        TesterDiffableList list = new TesterDiffableList();
+        list.add("a");
+        session.setAttribute("list", list);
+        replicate(session, copySession);
+        TesterDiffableList copy = (TesterDiffableList) copySession.getAttribute("list");
+
+        list.add("b");
+        session.setAttribute("list", list);
+        replicate(session, copySession);
+        Assert.assertEquals(List.of("a", "b"), copy.getValues());
+        Assert.assertTrue(copySession.takeFailedAttributeDiffs().isEmpty());
+
+        // The delta request is lost
+        list.add("c");
+        session.setAttribute("list", list);
+        session.replaceDeltaRequest(new DeltaRequest()).serialize();
+
+        // The next diff is not applied to the stale value
+        list.add("d");
+        session.setAttribute("list", list);
+        replicate(session, copySession);
+        Assert.assertEquals(List.of("a", "b"), copy.getValues());
+
+        heal(session, copySession);
+        Assert.assertEquals(List.of("a", "b", "c", "d"),
+                ((TesterDiffableList) copySession.getAttribute("list")).getValues());
+
+        // Diffs are applied again
+        list.add("e");
+        session.setAttribute("list", list);
+        replicate(session, copySession);
+        Assert.assertTrue(copySession.takeFailedAttributeDiffs().isEmpty());
+        Assert.assertEquals(list.getValues(), ((TesterDiffableList) copySession.getAttribute("list")).getValues());
+    }
+
+
+    @Test
+    public void testAttributeDiffApplyFailure() throws Exception {
+        Manager manager = new StandardManager();
+        manager.setContext(new TesterContext());
+        DeltaSession session = createSession(manager);
+        DeltaSession copySession = createSession(manager);
+
+        TesterDiffableList list = new TesterDiffableList();
+        session.setAttribute("list", list);
+        replicate(session, copySession);
+
+        list.add(TesterDiffableList.FAIL_APPLY);
+        session.setAttribute("list", list);
+        replicate(session, copySession);
+        Assert.assertEquals(List.of(), ((TesterDiffableList) copySession.getAttribute("list")).getValues());
+
+        heal(session, copySession);
+        Assert.assertEquals(list.getValues(), ((TesterDiffableList) copySession.getAttribute("list")).getValues());
+    }
+
+
+    @Test
+    public void testAttributeDiffMissingAttribute() throws Exception {
+        Manager manager = new StandardManager();
+        manager.setContext(new TesterContext());
+        DeltaSession session = createSession(manager);
+        DeltaSession copySession = createSession(manager);
+
+        TesterDiffableList list = new TesterDiffableList();
+        session.setAttribute("list", list);
+        replicate(session, copySession);
+        copySession.removeAttribute("list", false, false);
+
+        list.add("a");
+        session.setAttribute("list", list);
+        replicate(session, copySession);
+        Assert.assertNull(copySession.getAttribute("list"));
+
+        heal(session, copySession);
+        Assert.assertEquals(List.of("a"), ((TesterDiffableList) copySession.getAttribute("list")).getValues());
+    }
+
+
+    @Test
+    public void testAttributeTakeDiffFailure() throws Exception {
+        Manager manager = new StandardManager();
+        manager.setContext(new TesterContext());
+        DeltaSession session = createSession(manager);
+        DeltaSession copySession = createSession(manager);
+
+        TesterDiffableList list = new TesterDiffableList();
+        session.setAttribute("list", list);
+        replicate(session, copySession);
+        TesterDiffableList copy = (TesterDiffableList) copySession.getAttribute("list");
+
+        // The entire value is replicated instead
+        list.add(TesterDiffableList.FAIL_TAKE);
+        session.setAttribute("list", list);
+        replicate(session, copySession);
+        Assert.assertTrue(copySession.takeFailedAttributeDiffs().isEmpty());
+        Assert.assertNotSame(copy, copySession.getAttribute("list"));
+        Assert.assertEquals(list.getValues(), ((TesterDiffableList) copySession.getAttribute("list")).getValues());
+    }
+
+
+    @Test
+    public void testAttributeDiffCoalescing() {
+        TesterDiffableList list = new TesterDiffableList();
+        DeltaRequest request = new DeltaRequest("1234", false);
+        request.setAttribute("list", list);
+        Assert.assertFalse(request.setAttributeDiff("list", list, 1));
+        Assert.assertFalse(request.setAttributeDiff("list", list, 1));
+        Assert.assertEquals(1, request.getSize());
+
+        request.reset();
+        Assert.assertTrue(request.setAttributeDiff("list", list, 1));
+        Assert.assertFalse(request.setAttributeDiff("list", list, 2));
+        Assert.assertEquals(1, request.getSize());
+
+        // Recording all actions does not record duplicate diffs
+        request = new DeltaRequest("1234", true);
+        request.setAttributeDiff("list", list, 1);
+        request.setAttributeDiff("list", list, 2);
+        request.setAttribute("other", "value");
+        Assert.assertEquals(2, request.getSize());
+    }
+
+
+    private static DeltaSession createSession(Manager manager) {
+        DeltaSession session = new DeltaSession(manager);
+        session.setValid(true);
+        session.setId("1234", false);
+        return session;
+    }
+
+
+    private static int replicate(DeltaSession session, DeltaSession copySession) throws Exception {
+        DeltaRequest request = session.replaceDeltaRequest(new DeltaRequest());
+        byte[] bytes = request.serialize();
+        DeltaRequest copyRequest = new DeltaRequest();
+        try (ObjectInputStream ois = new ObjectInputStream(new ByteArrayInputStream(bytes))) {
+            copyRequest.readExternal(ois);
+        }
+        copyRequest.execute(copySession, false);
+        return bytes.length;
+    }
+
+
+    /*
+     * Performs the part of the DeltaManager's handling of a request for the entire values of the attributes for which
+     * the replicated diffs could not be applied.
+     */
+    private static void heal(DeltaSession session, DeltaSession copySession) throws Exception {
+        Set<String> failed = copySession.takeFailedAttributeDiffs();
+        Assert.assertEquals(Set.of("list"), failed);
+        session.resendAttributes(failed);
+        replicate(session, copySession);
+        Assert.assertTrue(copySession.takeFailedAttributeDiffs().isEmpty());
+    }
+
+
+    private static class TesterDiffableList implements DiffableAttribute {
+
+        private static final long serialVersionUID = 1L;
+
+        static final String FAIL_APPLY = "fail-apply";
+        static final String FAIL_TAKE = "fail-take";
+
+        private final List<String> values = new ArrayList<>();
+        // Number of values that have been replicated
+        private transient int replicated;
+
+        public synchronized void add(String value) {
+            values.add(value);
+        }
+
+        public synchronized List<String> getValues() {
+            return new ArrayList<>(values);
+        }
+
+        public synchronized boolean isDirty() {
+            return replicated < values.size();
+        }
+
+        @Override
+        public synchronized byte[] takeDiff() throws IOException {
+            if (!isDirty()) {
+                return new byte[0];
+            }
+            if (values.contains(FAIL_TAKE)) {
+                throw new IOException();
+            }
+            ByteArrayOutputStream baos = new ByteArrayOutputStream();
+            try (DataOutputStream dos = new DataOutputStream(baos)) {
+                dos.writeInt(values.size() - replicated);
+                for (String value : values.subList(replicated, values.size())) {
+                    dos.writeUTF(value);
+                }
+            }
+            replicated = values.size();
+            return baos.toByteArray();
+        }
+
+        @Override
+        public synchronized void applyDiff(byte[] diff, int offset, int length) throws IOException {
+            try (DataInputStream dis = new DataInputStream(new ByteArrayInputStream(diff, offset, length))) {
+                int count = dis.readInt();
+                for (int i = 0; i < count; i++) {
+                    String value = dis.readUTF();
+                    if (FAIL_APPLY.equals(value)) {
+                        throw new IOException();
+                    }
+                    values.add(value);
+                }
+            }
+            replicated = values.size();
+        }
+    }
 }
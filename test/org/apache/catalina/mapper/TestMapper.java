@@ -277,6 +277,61 @@ public class TestMapper extends LoggingBaseTest {
         Assert.assertTrue(mappingData.redirectPath.isNull());
     }
 
+    @Test
+    public void testMapWithCache() throws Exception {
+        mapper.setCacheSize(64);
+
+        // Populate the cache. The alias shares the cache of the host.
+        testMap();
+        Assert.assertEquals(1, mapper.getCacheHitCount());
+        Assert.assertEquals(3, mapper.getCacheMissCount());
+
+        // Results should be the same when obtained from the cache
+        testMap();
+        Assert.assertEquals(5, mapper.getCacheHitCount());
+        Assert.assertEquals(3, mapper.getCacheMissCount());
+
+        // Changes to the mappings must clear the cache
+        MappingData mappingData = new MappingData();
+        MessageBytes host = MessageBytes.newInstance();
+        host.setString("iowejoiejfoiew");
+        MessageBytes uri = MessageBytes.newInstance();
+        uri.setString("/foo/bar/blah/bobou/foo");
+        uri.toChars();
+        uri.getCharChunk().setLimit(-1);
+
+        mapper.map(host, uri, null, mappingData);
+        Assert.assertEquals("wrapper5", mappingData.wrapper.getName());
+        Assert.assertEquals(6, mapper.getCacheHitCount());
+
+        mapper.addWrapper("iowejoiejfoiew", "/foo/bar", "0", "/blah/bobou/foo", createWrapper("wrapper8"), false,
+                false);
+
+        mappingData.recycle();
+        mapper.map(host, uri, null, mappingData);
+        Assert.assertEquals("context2", mappingData.context.getName());
+        Assert.assertEquals("wrapper8", mappingData.wrapper.getName());
+        Assert.assertEquals("/blah/bobou/foo", mappingData.wrapperPath.toString());
+        Assert.assertTrue(mappingData.pathInfo.isNull());
+        Assert.assertEquals(6, mapper.getCacheHitCount());
+        Assert.assertEquals(4, mapper.getCacheMissCount());
+
+        mapper.removeWrapper("iowejoiejfoiew", "/foo/bar", "0", "/blah/bobou/foo");
+
+        mappingData.recycle();
+        mapper.map(host, uri, null, mappingData);
+        Assert.assertEquals("wrapper5", mappingData.wrapper.getName());
+        Assert.assertEquals("/foo", mappingData.pathInfo.toString());
+
+        // Disable the cache
+        mapper.setCacheSize(0);
+        mappingData.recycle();
+        mapper.map(host, uri, null, mappingData);
+        Assert.assertEquals("wrapper5", mappingData.wrapper.getName());
+        Assert.assertEquals(0, mapper.getCacheHitCount());
+        Assert.assertEquals(0, mapper.getCacheMissCount());
+    }
+
     @Test
     public void testAddRemoveContextVersion() throws Exception {
         final String hostName = "iowejoiejfoiew";
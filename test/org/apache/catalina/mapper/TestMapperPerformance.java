@@ -16,9 +16,17 @@
  */
 package org.apache.catalina.mapper;
 
+import java.util.ArrayList;
+import java.util.List;
+
 import org.junit.Assert;
 import org.junit.Test;
 
+import org.apache.catalina.Host;
+import org.apache.catalina.Wrapper;
+import org.apache.catalina.core.StandardContext;
+import org.apache.catalina.core.StandardHost;
+import org.apache.catalina.core.StandardWrapper;
 import org.apache.tomcat.util.buf.MessageBytes;
 
 /*
@@ -53,11 +61,61 @@ public class TestMapperPerformance extends TestMapper {
     }
 
     private long testPerformanceImpl(String requestedHostName) throws Exception {
+        return testPerformanceImpl(requestedHostName, "/foo/bar/blah/bobou/foo");
+    }
+
+    @Test
+    public void testPerformanceLargeMapping() throws Exception {
+        // Hundreds of contexts each with a large number of mappings
+        String hostName = "large.example.org";
+        Host host = new StandardHost();
+        host.setName(hostName);
+        mapper.addHost(hostName, new String[0], host);
+
+        Wrapper wrapper = new StandardWrapper();
+        wrapper.setName("wrapper");
+        List<WrapperMappingInfo> wrappers = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            wrappers.add(new WrapperMappingInfo("/exact/path" + i, wrapper, false, false));
+            wrappers.add(new WrapperMappingInfo("/api/v" + (i % 10) + "/resource" + i + "/*", wrapper, false, false));
+        }
+        for (int i = 0; i < 20; i++) {
+            wrappers.add(new WrapperMappingInfo("*.ext" + i, wrapper, false, false));
+        }
+        wrappers.add(new WrapperMappingInfo("/", wrapper, false, false));
+
+        for (int i = 0; i < 500; i++) {
+            String path = "/app" + i;
+            StandardContext context = new StandardContext();
+            context.setName(path);
+            mapper.addContextVersion(hostName, host, path, "0", context, new String[0], null, wrappers);
+        }
+
+        String[] uris = new String[] { "/app250/exact/path150", "/app499/api/v3/resource193/some/path/info",
+                "/app0/static/scripts/file.ext19", "/app333/unmapped/path", "/unknown/context" };
+
+        // Takes ~1s for each URI on a typical developer machine. The limit is
+        // generous to avoid false failures on slower / busier machines.
+        final long maxTime = 10000;
+        for (String uri : uris) {
+            long time = testPerformanceImpl(hostName, uri);
+            log.info("URI [" + uri + "], Time [" + time + "]ms");
+            if (time >= maxTime) {
+                // Rerun to reject occasional failures, e.g. because of gc
+                log.warn("testPerformanceLargeMapping() test completed in " + time + " ms");
+                time = testPerformanceImpl(hostName, uri);
+                log.warn("testPerformanceLargeMapping() test rerun completed in " + time + " ms");
+            }
+            Assert.assertTrue(String.valueOf(time), time < maxTime);
+        }
+    }
+
+    private long testPerformanceImpl(String requestedHostName, String requestedUri) throws Exception {
         MappingData mappingData = new MappingData();
         MessageBytes host = MessageBytes.newInstance();
         host.setString(requestedHostName);
         MessageBytes uri = MessageBytes.newInstance();
-        uri.setString("/foo/bar/blah/bobou/foo");
+        uri.setString(requestedUri);
         uri.toChars();
         uri.getCharChunk().setLimit(-1);
 
@@ -66,8 +124,6 @@ public class TestMapperPerformance extends TestMapper {
             mappingData.recycle();
             mapper.map(host, uri, null, mappingData);
         }
-        long time = System.currentTimeMillis() - start;
-        return time;
+        return System.currentTimeMillis() - start;
     }
-
 }
@@ -16,18 +16,24 @@
  */
 package org.apache.catalina.servlets;
 
+import java.io.ByteArrayInputStream;
 import java.io.File;
 import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.OutputStreamWriter;
 import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
 import java.text.SimpleDateFormat;
+import java.util.Arrays;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
 import java.util.TimeZone;
+import java.util.zip.GZIPInputStream;
 
 import jakarta.servlet.http.HttpServletResponse;
 
@@ -40,6 +46,7 @@ import org.apache.catalina.Wrapper;
 import org.apache.catalina.startup.SimpleHttpClient;
 import org.apache.catalina.startup.Tomcat;
 import org.apache.catalina.startup.TomcatBaseTest;
+import org.apache.catalina.webresources.StandardRoot;
 import org.apache.coyote.http11.AbstractHttp11Protocol;
 import org.apache.tomcat.util.buf.ByteChunk;
 import org.apache.tomcat.util.descriptor.web.ErrorPage;
@@ -683,6 +690,129 @@ public class TestDefaultServlet extends TomcatBaseTest {
         }
     }
 
+    /*
+     * Verify compressing resources and caching the compressed content.
+     */
+    @Test
+    public void testCompressedCache() throws Exception {
+
+        Tomcat tomcat = getTomcatInstance();
+
+        File appDir = new File("test/webapp");
+        byte[] original = Files.readAllBytes(new File(appDir, "index.shtml").toPath());
+
+        Context ctxt = tomcat.addContext("", appDir.getAbsolutePath());
+        Wrapper defaultServlet = Tomcat.addServlet(ctxt, "default", DefaultServlet.class.getName());
+        defaultServlet.addInitParameter("compressionEncodings", "deflate,gzip");
+        defaultServlet.addInitParameter("compressionMinSize", "1024");
+
+        ctxt.addServletMappingDecoded("/", "default");
+        ctxt.addMimeMapping("html", "text/html");
+        ctxt.addMimeMapping("shtml", "text/html");
+
+        tomcat.start();
+
+        String path = "http://localhost:" + getPort() + "/index.shtml";
+
+        // Compressed with the preferred encoding
+        Map<String,List<String>> reqHeaders = new HashMap<>();
+        reqHeaders.put("Accept-Encoding", List.of("deflate;q=0.5, gzip"));
+        Map<String,List<String>> resHeaders = new HashMap<>();
+        ByteChunk out = new ByteChunk();
+        int rc = getUrl(path, out, reqHeaders, resHeaders);
+        Assert.assertEquals(HttpServletResponse.SC_OK, rc);
+        Assert.assertEquals("gzip", getSingleHeader("Content-Encoding", resHeaders));
+        Assert.assertEquals("accept-encoding", getSingleHeader("vary", resHeaders));
+        Assert.assertEquals(Integer.toString(out.getLength()), getSingleHeader("Content-Length", resHeaders));
+        try (InputStream is = new GZIPInputStream(new ByteArrayInputStream(out.getBytes(), 0, out.getLength()))) {
+            Assert.assertArrayEquals(original, is.readAllBytes());
+        }
+        String eTag = getSingleHeader("ETag", resHeaders);
+        Assert.assertTrue(eTag, eTag.endsWith("-gzip\""));
+
+        // Conditional request uses the ETag of the compressed version
+        reqHeaders.put("If-None-Match", List.of(eTag));
+        resHeaders.clear();
+        out.recycle();
+        rc = getUrl(path, out, reqHeaders, resHeaders);
+        Assert.assertEquals(HttpServletResponse.SC_NOT_MODIFIED, rc);
+
+        // No compression requested
+        reqHeaders.clear();
+        resHeaders.clear();
+        out.recycle();
+        rc = getUrl(path, out, reqHeaders, resHeaders);
+        Assert.assertEquals(HttpServletResponse.SC_OK, rc);
+        Assert.assertNull(getSingleHeader("Content-Encoding", resHeaders));
+        Assert.assertEquals("accept-encoding", getSingleHeader("vary", resHeaders));
+        Assert.assertArrayEquals(original, Arrays.copyOfRange(out.getBytes(), 0, out.getLength()));
+        Assert.assertNotEquals(eTag, getSingleHeader("ETag", resHeaders));
+
+        // Too small to compress
+        reqHeaders.put("Accept-Encoding", List.of("gzip"));
+        resHeaders.clear();
+        out.recycle();
+        rc = getUrl("http://localhost:" + getPort() + "/404.html", out, reqHeaders, resHeaders);
+        Assert.assertEquals(HttpServletResponse.SC_OK, rc);
+        Assert.assertNull(getSingleHeader("Content-Encoding", resHeaders));
+    }
+
+    /*
+     * Verify serving the content of a large resource that has been mapped into memory by the cache.
+     */
+    @Test
+    public void testMappedContent() throws Exception {
+
+        Tomcat tomcat = getTomcatInstance();
+        Assert.assertTrue(tomcat.getConnector().setProperty("useSendfile", "false"));
+
+        File appDir = new File(getTemporaryDirectory(), "mapped");
+        Assert.assertTrue(appDir.mkdirs());
+        byte[] original = new byte[100 * 1024];
+        for (int i = 0; i < original.length; i++) {
+            original[i] = (byte) i;
+        }
+        Files.write(new File(appDir, "large.bin").toPath(), original);
+
+        Context ctxt = tomcat.addContext("", appDir.getAbsolutePath());
+        StandardRoot root = new StandardRoot(ctxt);
+        root.setCacheObjectMaxSize(1);
+        root.setCacheMappedMaxSize(1024);
+        ctxt.setResources(root);
+        Tomcat.addServlet(ctxt, "default", DefaultServlet.class.getName());
+        ctxt.addServletMappingDecoded("/", "default");
+
+        tomcat.start();
+
+        String path = "http://localhost:" + getPort() + "/large.bin";
+
+        Map<String,List<String>> reqHeaders = new HashMap<>();
+        ByteChunk out = new ByteChunk();
+        int rc = getUrl(path, out, reqHeaders, null);
+        Assert.assertEquals(HttpServletResponse.SC_OK, rc);
+        Assert.assertArrayEquals(original, Arrays.copyOfRange(out.getBytes(), 0, out.getLength()));
+        Assert.assertEquals(100, root.getCacheMappedSize());
+
+        // Single range
+        reqHeaders.put("Range", List.of("bytes=1000-1999"));
+        out.recycle();
+        rc = getUrl(path, out, reqHeaders, null);
+        Assert.assertEquals(HttpServletResponse.SC_PARTIAL_CONTENT, rc);
+        Assert.assertArrayEquals(Arrays.copyOfRange(original, 1000, 2000),
+                Arrays.copyOfRange(out.getBytes(), 0, out.getLength()));
+
+        // Multiple ranges
+        reqHeaders.put("Range", List.of("bytes=0-9,50000-50009"));
+        out.recycle();
+        rc = getUrl(path, out, reqHeaders, null);
+        Assert.assertEquals(HttpServletResponse.SC_PARTIAL_CONTENT, rc);
+        String body = new String(out.getBytes(), 0, out.getLength(), StandardCharsets.ISO_8859_1);
+        Assert.assertTrue(body.contains("Content-Range: bytes 0-9/" + original.length + CRLF + CRLF +
+                new String(original, 0, 10, StandardCharsets.ISO_8859_1)));
+        Assert.assertTrue(body.contains("Content-Range: bytes 50000-50009/" + original.length + CRLF + CRLF +
+                new String(original, 50000, 10, StandardCharsets.ISO_8859_1)));
+    }
+
     private static class TestCompressedClient extends SimpleHttpClient {
 
         TestCompressedClient(int port) {
@@ -0,0 +1,256 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.catalina.session;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InvalidObjectException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.StreamCorruptedException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import org.apache.catalina.authenticator.Constants;
+import org.apache.catalina.core.StandardContext;
+import org.apache.catalina.realm.GenericPrincipal;
+
+public class TestCompactSessionSerializer {
+
+    @Test
+    public void testRoundTrip() throws Exception {
+        StandardManager manager = createManager(new CompactSessionSerializer());
+        StandardSession s1 = createSession(manager);
+        s1.setAttribute("string", "value01");
+        s1.setAttribute("integer", Integer.valueOf(42));
+        s1.setAttribute("long", Long.valueOf(-1));
+        s1.setAttribute("boolean", Boolean.TRUE);
+        s1.setAttribute("double", Double.valueOf(1.5));
+        s1.setAttribute("bytes", new byte[] { 1, 2, 3 });
+        s1.setAttribute("list", new ArrayList<>(List.of("a", "b")));
+
+        StandardSession s2 = serializeThenDeserialize(s1, manager, manager);
+
+        Assert.assertEquals(s1.getId(), s2.getId());
+        Assert.assertEquals(s1.getCreationTime(), s2.getCreationTime());
+        Assert.assertEquals(s1.getLastAccessedTimeInternal(), s2.getLastAccessedTimeInternal());
+        Assert.assertEquals(s1.getThisAccessedTimeInternal(), s2.getThisAccessedTimeInternal());
+        Assert.assertEquals(s1.getMaxInactiveInterval(), s2.getMaxInactiveInterval());
+        Assert.assertEquals(Boolean.valueOf(s1.isNew()), Boolean.valueOf(s2.isNew()));
+        Assert.assertTrue(s2.isValidInternal());
+        Assert.assertEquals("value01", s2.getAttribute("string"));
+        Assert.assertEquals(Integer.valueOf(42), s2.getAttribute("integer"));
+        Assert.assertEquals(Long.valueOf(-1), s2.getAttribute("long"));
+        Assert.assertEquals(Boolean.TRUE, s2.getAttribute("boolean"));
+        Assert.assertEquals(Double.valueOf(1.5), s2.getAttribute("double"));
+        Assert.assertArrayEquals(new byte[] { 1, 2, 3 }, (byte[]) s2.getAttribute("bytes"));
+        Assert.assertEquals(List.of("a", "b"), s2.getAttribute("list"));
+    }
+
+
+    @Test
+    public void testLongString() throws Exception {
+        StandardManager manager = createManager(new CompactSessionSerializer());
+        StandardSession s1 = createSession(manager);
+        char[] chars = new char[70000];
+        Arrays.fill(chars, '\u20ac');
+        String value = new String(chars);
+        s1.setAttribute("string", value);
+
+        StandardSession s2 = serializeThenDeserialize(s1, manager, manager);
+
+        Assert.assertEquals(value, s2.getAttribute("string"));
+    }
+
+
+    @Test
+    public void testNonSerializable() throws Exception {
+        StandardManager manager = createManager(new CompactSessionSerializer());
+        StandardSession s1 = createSession(manager);
+        s1.setAttribute("before", "value01");
+        List<Object> nested = new ArrayList<>();
+        nested.add(new Object());
+        s1.setAttribute("nested", nested);
+        s1.setAttribute("nonSerializable", new Object());
+        s1.setAttribute("after", Integer.valueOf(1));
+
+        StandardSession s2 = serializeThenDeserialize(s1, manager, manager);
+
+        Assert.assertEquals("value01", s2.getAttribute("before"));
+        Assert.assertEquals(Integer.valueOf(1), s2.getAttribute("after"));
+        Assert.assertNull(s2.getAttribute("nested"));
+        Assert.assertNull(s2.getAttribute("nonSerializable"));
+    }
+
+
+    @Test
+    public void testPersistAuthentication() throws Exception {
+        StandardManager manager = createManager(new CompactSessionSerializer());
+        manager.setPersistAuthentication(true);
+        StandardSession s1 = createSession(manager);
+        s1.setAuthType("FORM");
+        s1.setPrincipal(new GenericPrincipal("user", List.of("role")));
+        s1.setNote(Constants.SESSION_ID_NOTE, "expected");
+
+        StandardSession s2 = serializeThenDeserialize(s1, manager, manager);
+
+        Assert.assertEquals("FORM", s2.getAuthType());
+        Assert.assertEquals("user", s2.getPrincipal().getName());
+        Assert.assertEquals("expected", s2.getNote(Constants.SESSION_ID_NOTE));
+        Assert.assertNull(s2.getNote(Constants.FORM_REQUEST_NOTE));
+    }
+
+
+    @Test
+    public void testReadJavaSerialization() throws Exception {
+        StandardManager javaManager = createManager(new JavaSessionSerializer());
+        StandardManager compactManager = createManager(new CompactSessionSerializer());
+        StandardSession s1 = createSession(javaManager);
+        s1.setAttribute("string", "value01");
+
+        StandardSession s2 = serializeThenDeserialize(s1, javaManager, compactManager);
+
+        Assert.assertEquals(s1.getId(), s2.getId());
+        Assert.assertEquals(s1.getCreationTime(), s2.getCreationTime());
+        Assert.assertEquals("value01", s2.getAttribute("string"));
+    }
+
+
+    @Test
+    public void testSmallerThanJavaSerialization() throws Exception {
+        StandardManager javaManager = createManager(new JavaSessionSerializer());
+        StandardManager compactManager = createManager(new CompactSessionSerializer());
+        StandardSession s1 = createSession(javaManager);
+        s1.setAttribute("string", "value01");
+        s1.setAttribute("integer", Integer.valueOf(42));
+        byte[] java = serialize(s1);
+        s1.setManager(compactManager);
+        byte[] compact = serialize(s1);
+
+        Assert.assertTrue(compact.length + " >= " + java.length, compact.length < java.length);
+    }
+
+
+    @Test
+    public void testCustomCodec() throws Exception {
+        CompactSessionSerializer serializer = new CompactSessionSerializer();
+        serializer.setAttributeCodec(new UpperCaseCodec());
+        StandardManager manager = createManager(serializer);
+        StandardSession s1 = createSession(manager);
+        s1.setAttribute("string", "value01");
+
+        StandardSession s2 = serializeThenDeserialize(s1, manager, manager);
+
+        Assert.assertEquals("VALUE01", s2.getAttribute("string"));
+    }
+
+
+    @Test(expected = InvalidObjectException.class)
+    public void testUnsupportedVersion() throws Exception {
+        StandardManager manager = createManager(new CompactSessionSerializer());
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        try (ObjectOutputStream oos = new ObjectOutputStream(baos)) {
+            oos.writeInt(CompactSessionSerializer.MAGIC);
+            oos.writeByte(CompactSessionSerializer.VERSION + 1);
+        }
+        StandardSession dest = new StandardSession(manager);
+        dest.readObjectData(new ObjectInputStream(new ByteArrayInputStream(baos.toByteArray())));
+    }
+
+
+    @Test(expected = StreamCorruptedException.class)
+    public void testNegativeByteArrayLength() throws Exception {
+        doTestByteArrayLength(-1);
+    }
+
+
+    @Test(expected = StreamCorruptedException.class)
+    public void testByteArrayLengthTooLarge() throws Exception {
+        doTestByteArrayLength(Integer.MAX_VALUE - 8);
+    }
+
+
+    private static void doTestByteArrayLength(int length) throws Exception {
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        try (ObjectOutputStream oos = new ObjectOutputStream(baos)) {
+            // TYPE_BYTE_ARRAY
+            oos.writeByte(6);
+            oos.writeInt(length);
+            oos.write(new byte[16]);
+        }
+        try (ObjectInputStream ois = new ObjectInputStream(new ByteArrayInputStream(baos.toByteArray()))) {
+            new StandardSessionAttributeCodec().readValue(ois);
+        }
+    }
+
+
+    private static StandardManager createManager(SessionSerializer serializer) {
+        StandardManager manager = new StandardManager();
+        manager.setContext(new StandardContext());
+        manager.setSessionSerializer(serializer);
+        return manager;
+    }
+
+
+    private static StandardSession createSession(StandardManager manager) {
+        StandardSession session = new StandardSession(manager);
+        session.setValid(true);
+        session.setNew(true);
+        session.setCreationTime(1000);
+        session.setMaxInactiveInterval(1800);
+        session.setId("ABCDEF", false);
+        return session;
+    }
+
+
+    private static byte[] serialize(StandardSession source) throws IOException {
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        try (ObjectOutputStream oos = new ObjectOutputStream(baos)) {
+            source.writeObjectData(oos);
+        }
+        return baos.toByteArray();
+    }
+
+
+    private static StandardSession serializeThenDeserialize(StandardSession source, StandardManager sourceManager,
+            StandardManager destManager) throws IOException, ClassNotFoundException {
+        source.setManager(sourceManager);
+        byte[] data = serialize(source);
+
+        StandardSession dest = new StandardSession(destManager);
+        dest.readObjectData(new ObjectInputStream(new ByteArrayInputStream(data)));
+        return dest;
+    }
+
+
+    private static class UpperCaseCodec extends StandardSessionAttributeCodec {
+
+        @Override
+        public void writeValue(Object value, ObjectOutputStream stream) throws IOException {
+            if (value instanceof String) {
+                super.writeValue(((String) value).toUpperCase(), stream);
+            } else {
+                super.writeValue(value, stream);
+            }
+        }
+    }
+}
@@ -0,0 +1,160 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.catalina.session;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import org.apache.catalina.Context;
+import org.apache.catalina.Host;
+import org.apache.catalina.Session;
+import org.apache.tomcat.unittest.TesterContext;
+import org.apache.tomcat.unittest.TesterHost;
+
+public class TestOffHeapStore {
+
+    private OffHeapManager manager;
+    private OffHeapStore store;
+
+
+    @Before
+    public void setUp() throws Exception {
+        manager = new OffHeapManager();
+        store = (OffHeapStore) manager.getStore();
+
+        Host host = new TesterHost();
+        Context context = new TesterContext();
+        context.setParent(host);
+        manager.setContext(context);
+
+        manager.start();
+    }
+
+
+    @After
+    public void tearDown() throws Exception {
+        manager.stop();
+        manager.destroy();
+    }
+
+
+    @Test
+    public void testSaveLoadRemove() throws Exception {
+        Session session = manager.createSession(null);
+        session.getSession().setAttribute("name", "value");
+        char[] chars = new char[100000];
+        Arrays.fill(chars, 'x');
+        session.getSession().setAttribute("large", new String(chars));
+
+        store.save(session);
+        Assert.assertEquals(1, store.getSize());
+        Assert.assertTrue(store.getUsedBytes() > 100000);
+        Assert.assertTrue(store.getReservedBytes() >= store.getUsedBytes());
+
+        Session loaded = store.load(session.getIdInternal());
+        Assert.assertNotNull(loaded);
+        Assert.assertEquals("value", loaded.getSession().getAttribute("name"));
+        Assert.assertEquals(new String(chars), loaded.getSession().getAttribute("large"));
+        Assert.assertEquals(1, store.getLoadCount());
+        Assert.assertEquals(1, manager.getSwapInCount());
+
+        store.remove(session.getIdInternal());
+        Assert.assertEquals(0, store.getSize());
+        Assert.assertEquals(0, store.getUsedBytes());
+        Assert.assertEquals(0, manager.getOffHeapUsedBytes());
+        Assert.assertNull(store.load(session.getIdInternal()));
+    }
+
+
+    @Test
+    public void testSaveReplacesPrevious() throws Exception {
+        Session session = manager.createSession(null);
+        session.getSession().setAttribute("name", "value1");
+        store.save(session);
+        long usedBytes = store.getUsedBytes();
+
+        session.getSession().setAttribute("name", "value2");
+        store.save(session);
+        Assert.assertEquals(1, store.getSize());
+        Assert.assertEquals(usedBytes, store.getUsedBytes());
+        Assert.assertEquals("value2", store.load(session.getIdInternal()).getSession().getAttribute("name"));
+    }
+
+
+    @Test
+    public void testExpiredKeys() throws Exception {
+        StandardSession expired = (StandardSession) manager.createSession(null);
+        expired.setMaxInactiveInterval(1);
+        expired.lastAccessedTime = System.currentTimeMillis() - 5000;
+        expired.thisAccessedTime = expired.lastAccessedTime;
+        store.save(expired);
+
+        Session current = manager.createSession(null);
+        store.save(current);
+
+        Assert.assertArrayEquals(new String[] { expired.getIdInternal() }, store.expiredKeys());
+    }
+
+
+    @Test
+    public void testSwapOutAndIn() throws Exception {
+        manager.setMaxIdleSwap(0);
+        Session session = manager.createSession(null);
+        session.getSession().setAttribute("name", "value");
+        String id = session.getIdInternal();
+
+        manager.processPersistenceChecks();
+        Assert.assertEquals(0, manager.getActiveSessions());
+        Assert.assertTrue(manager.getOffHeapUsedBytes() > 0);
+
+        Session swappedIn = manager.findSession(id);
+        Assert.assertNotNull(swappedIn);
+        Assert.assertEquals("value", swappedIn.getSession().getAttribute("name"));
+        Assert.assertEquals(1, manager.getActiveSessions());
+        Assert.assertEquals(1, manager.getSwapInCount());
+        Assert.assertEquals(0, manager.getOffHeapUsedBytes());
+    }
+
+
+    @Test
+    public void testAllocatorReuse() {
+        OffHeapBlockAllocator allocator = new OffHeapBlockAllocator(0);
+
+        ByteBuffer block = allocator.allocate(100);
+        Assert.assertTrue(block.isDirect());
+        Assert.assertEquals(128, block.capacity());
+        Assert.assertEquals(100, block.limit());
+        Assert.assertEquals(128, allocator.getUsedBytes());
+        Assert.assertEquals(OffHeapBlockAllocator.MAX_BLOCK_SIZE, allocator.getReservedBytes());
+
+        allocator.free(block);
+        Assert.assertEquals(0, allocator.getUsedBytes());
+        Assert.assertSame(block, allocator.allocate(65));
+
+        // Larger than the largest size class
+        ByteBuffer large = allocator.allocate(OffHeapBlockAllocator.MAX_BLOCK_SIZE + 1);
+        Assert.assertEquals(OffHeapBlockAllocator.MAX_BLOCK_SIZE + 1, large.capacity());
+        allocator.free(large);
+        Assert.assertEquals(128, allocator.getUsedBytes());
+        Assert.assertEquals(OffHeapBlockAllocator.MAX_BLOCK_SIZE, allocator.getReservedBytes());
+    }
+}
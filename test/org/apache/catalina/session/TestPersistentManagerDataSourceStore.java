@@ -20,6 +20,8 @@ import java.io.IOException;
 import java.sql.Connection;
 import java.sql.DriverManager;
 import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.concurrent.atomic.AtomicInteger;
 
 import jakarta.servlet.ServletException;
@@ -32,10 +34,13 @@ import org.junit.Assert;
 import org.junit.Test;
 
 import org.apache.catalina.Context;
+import org.apache.catalina.Host;
 import org.apache.catalina.LifecycleException;
 import org.apache.catalina.Session;
 import org.apache.catalina.startup.Tomcat;
 import org.apache.catalina.startup.TomcatBaseTest;
+import org.apache.tomcat.unittest.TesterContext;
+import org.apache.tomcat.unittest.TesterHost;
 
 public class TestPersistentManagerDataSourceStore extends TomcatBaseTest {
 
@@ -144,6 +149,83 @@ public class TestPersistentManagerDataSourceStore extends TomcatBaseTest {
         store.clear();
     }
 
+    @Test
+    public void testBatchedSwapOut() throws Exception {
+        PersistentManager manager = createManager("batchswaptest");
+        DataSourceStore store = (DataSourceStore) manager.getStore();
+        manager.setMaxIdleSwap(0);
+
+        List<String> ids = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            Session session = manager.createSession(null);
+            session.getSession().setAttribute("index", Integer.valueOf(i));
+            ids.add(session.getIdInternal());
+        }
+
+        manager.processPersistenceChecks();
+        Assert.assertEquals(0, manager.getActiveSessions());
+        Assert.assertEquals(50, store.getSize());
+
+        List<Session> loaded = store.loadAll(ids.subList(10, 30));
+        Assert.assertEquals(20, loaded.size());
+        for (Session session : loaded) {
+            int index = ids.indexOf(session.getIdInternal());
+            Assert.assertEquals(Integer.valueOf(index), session.getSession().getAttribute("index"));
+        }
+
+        Session swappedIn = manager.findSession(ids.get(7));
+        Assert.assertEquals(Integer.valueOf(7), swappedIn.getSession().getAttribute("index"));
+        Assert.assertEquals(1, manager.getActiveSessions());
+
+        store.removeAll(ids);
+        Assert.assertEquals(0, store.getSize());
+
+        manager.setSaveOnRestart(false);
+        manager.stop();
+    }
+
+    @Test
+    public void testBatchedExpiry() throws Exception {
+        PersistentManager manager = createManager("batchexpirytest");
+        DataSourceStore store = (DataSourceStore) manager.getStore();
+
+        List<Session> sessions = new ArrayList<>();
+        for (int i = 0; i < 40; i++) {
+            Session session = manager.createSession(null);
+            session.setMaxInactiveInterval(i % 2 == 0 ? 1 : 3600);
+            sessions.add(session);
+        }
+        store.saveAll(sessions);
+        Assert.assertEquals(40, store.getSize());
+
+        waitForClockUpdate();
+        Thread.sleep(1100);
+        store.processExpires();
+        Assert.assertEquals(20, store.getSize());
+        for (String id : store.keys()) {
+            Assert.assertEquals(3600, manager.findSession(id).getMaxInactiveInterval());
+        }
+
+        store.clear();
+        manager.setSaveOnRestart(false);
+        manager.stop();
+    }
+
+    private PersistentManager createManager(String name) throws LifecycleException {
+        PersistentManager manager = new PersistentManager();
+        DerbyDataSourceStore store = new DerbyDataSourceStore(name);
+        store.setSessionTable("tomcatsessions");
+        store.setBatchSize(16);
+        manager.setStore(store);
+
+        Host host = new TesterHost();
+        Context context = new TesterContext();
+        context.setParent(host);
+        manager.setContext(context);
+        manager.start();
+        return manager;
+    }
+
     private static class DummyServlet extends HttpServlet {
 
         private static final long serialVersionUID = -3696433049266123995L;
@@ -16,8 +16,19 @@
  */
 package org.apache.catalina.session;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
 
 import jakarta.servlet.ServletException;
@@ -198,6 +209,101 @@ public class TestPersistentManagerIntegration extends TomcatBaseTest {
                 store.getSavedIds());
     }
 
+    @Test
+    public void testConcurrentBatches() throws Exception {
+        Tomcat tomcat = getTomcatInstance();
+        Context ctx = getProgrammaticRootContext();
+
+        PersistentManager manager = new PersistentManager();
+        ConcurrentStore store = new ConcurrentStore();
+        store.setBatchSize(10);
+        store.setMaxConcurrentBatches(3);
+        manager.setStore(store);
+        ctx.setManager(manager);
+        tomcat.start();
+
+        List<Session> sessions = new ArrayList<>();
+        List<String> ids = new ArrayList<>();
+        for (int i = 0; i < 30; i++) {
+            Session session = manager.createSession(null);
+            session.getSession().setAttribute("index", Integer.valueOf(i));
+            sessions.add(session);
+            ids.add(session.getIdInternal());
+        }
+
+        manager.swapOut(sessions);
+
+        // Each batch waits for another batch to start
+        Assert.assertTrue(store.threads.size() > 1);
+        Assert.assertEquals(0, manager.getActiveSessions());
+        Assert.assertEquals(30, store.getSize());
+        Session session = manager.findSession(ids.get(12));
+        Assert.assertEquals(Integer.valueOf(12), session.getSession().getAttribute("index"));
+        store.clear();
+    }
+
+    private static class ConcurrentStore extends StoreBase {
+
+        private final CountDownLatch started = new CountDownLatch(2);
+        private final Set<Thread> threads = ConcurrentHashMap.newKeySet();
+        private final Map<String,byte[]> sessions = new ConcurrentHashMap<>();
+
+        @Override
+        public void saveAll(List<? extends Session> sessions) throws IOException {
+            threads.add(Thread.currentThread());
+            started.countDown();
+            try {
+                started.await(10, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                throw new IOException(e);
+            }
+            super.saveAll(sessions);
+        }
+
+        @Override
+        public int getSize() {
+            return sessions.size();
+        }
+
+        @Override
+        public String[] keys() {
+            return sessions.keySet().toArray(new String[0]);
+        }
+
+        @Override
+        public Session load(String id) throws ClassNotFoundException, IOException {
+            byte[] data = sessions.get(id);
+            if (data == null) {
+                return null;
+            }
+            try (ObjectInputStream ois = new ObjectInputStream(new ByteArrayInputStream(data))) {
+                StandardSession session = (StandardSession) manager.createEmptySession();
+                session.readObjectData(ois);
+                session.setManager(manager);
+                return session;
+            }
+        }
+
+        @Override
+        public void remove(String id) {
+            sessions.remove(id);
+        }
+
+        @Override
+        public void clear() {
+            sessions.clear();
+        }
+
+        @Override
+        public void save(Session session) throws IOException {
+            ByteArrayOutputStream bos = new ByteArrayOutputStream();
+            try (ObjectOutputStream oos = new ObjectOutputStream(bos)) {
+                ((StandardSession) session).writeObjectData(oos);
+            }
+            sessions.put(session.getIdInternal(), bos.toByteArray());
+        }
+    }
+
     private static class DummyServlet extends HttpServlet {
 
         private static final long serialVersionUID = -3696433049266123995L;
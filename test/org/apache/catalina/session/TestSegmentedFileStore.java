@@ -0,0 +1,234 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.catalina.session;
+
+import java.io.File;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import org.apache.catalina.Context;
+import org.apache.catalina.Host;
+import org.apache.catalina.Session;
+import org.apache.catalina.startup.ExpandWar;
+import org.apache.tomcat.unittest.TesterContext;
+import org.apache.tomcat.unittest.TesterHost;
+
+public class TestSegmentedFileStore {
+
+    private File dir;
+    private PersistentManager manager;
+    private SegmentedFileStore store;
+
+
+    @Before
+    public void setUp() throws Exception {
+        dir = new File(System.getProperty("tomcat.test.temp", "output/tmp"), "segmentedFileStore");
+        ExpandWar.delete(dir);
+
+        manager = new PersistentManager();
+        store = new SegmentedFileStore();
+        store.setDirectory(dir.getAbsolutePath());
+        manager.setStore(store);
+
+        Host host = new TesterHost();
+        Context context = new TesterContext();
+        context.setParent(host);
+        manager.setContext(context);
+
+        manager.start();
+    }
+
+
+    @After
+    public void tearDown() throws Exception {
+        manager.setSaveOnRestart(false);
+        manager.stop();
+        ExpandWar.delete(dir);
+    }
+
+
+    @Test
+    public void testSaveLoadRemove() throws Exception {
+        Session session = createSession("value");
+
+        store.save(session);
+        Assert.assertEquals(1, store.getSize());
+        Assert.assertArrayEquals(new String[] { session.getIdInternal() }, store.keys());
+
+        Session loaded = store.load(session.getIdInternal());
+        Assert.assertEquals("value", loaded.getSession().getAttribute("name"));
+
+        session.getSession().setAttribute("name", "value2");
+        store.save(session);
+        Assert.assertEquals(1, store.getSize());
+        loaded = store.load(session.getIdInternal());
+        Assert.assertEquals("value2", loaded.getSession().getAttribute("name"));
+
+        store.remove(session.getIdInternal());
+        Assert.assertEquals(0, store.getSize());
+        Assert.assertNull(store.load(session.getIdInternal()));
+    }
+
+
+    @Test
+    public void testRestart() throws Exception {
+        Session s1 = createSession("value1");
+        Session s2 = createSession("value2");
+        Session s3 = createSession("value3");
+        store.save(s1);
+        store.save(s2);
+        store.save(s3);
+        store.remove(s2.getIdInternal());
+
+        store.stop();
+        store.start();
+
+        Assert.assertEquals(2, store.getSize());
+        Assert.assertEquals("value1", store.load(s1.getIdInternal()).getSession().getAttribute("name"));
+        Assert.assertNull(store.load(s2.getIdInternal()));
+        Assert.assertEquals("value3", store.load(s3.getIdInternal()).getSession().getAttribute("name"));
+    }
+
+
+    @Test
+    public void testCompaction() throws Exception {
+        store.setMaxSegmentSize(2048);
+        Session s1 = createSession("value");
+        Session s2 = createSession("value");
+        store.save(s2);
+        for (int i = 0; i < 50; i++) {
+            s1.getSession().setAttribute("name", "value" + i);
+            store.save(s1);
+        }
+        int segmentCount = store.getSegmentCount();
+        Assert.assertTrue(segmentCount > 5);
+
+        store.processExpires();
+
+        Assert.assertTrue(store.getCompactionCount() > 0);
+        Assert.assertTrue(store.getSegmentCount() < segmentCount);
+        Assert.assertEquals(store.getSegmentCount(), dir.list().length);
+        Assert.assertEquals(2, store.getSize());
+        Assert.assertEquals("value49", store.load(s1.getIdInternal()).getSession().getAttribute("name"));
+        Assert.assertEquals("value", store.load(s2.getIdInternal()).getSession().getAttribute("name"));
+
+        store.stop();
+        store.start();
+
+        Assert.assertEquals(2, store.getSize());
+        Assert.assertEquals("value49", store.load(s1.getIdInternal()).getSession().getAttribute("name"));
+    }
+
+
+    @Test
+    public void testCompactionOfRemovals() throws Exception {
+        store.setMaxSegmentSize(4096);
+        store.setCompactionThreshold(20);
+        // Most of the first segment is live data so it is not compacted
+        Session live = createSession("x".repeat(2500));
+        store.save(live);
+        List<Session> removed = new ArrayList<>();
+        while (store.getSegmentCount() == 1) {
+            Session session = createSession("value");
+            store.save(session);
+            removed.add(session);
+        }
+        // The second segment holds the session that did not fit in the first segment and the removals. The removals of
+        // the sessions saved in the first segment must be retained.
+        for (Session session : removed) {
+            store.remove(session.getIdInternal());
+        }
+        store.save(createSession("x".repeat(4000)));
+        Assert.assertEquals(3, store.getSegmentCount());
+
+        // The second segment contains too little that can be reclaimed to be compacted
+        store.processExpires();
+        Assert.assertEquals(0, store.getCompactionCount());
+        Assert.assertEquals(3, store.getSegmentCount());
+
+        store.remove(live.getIdInternal());
+        store.processExpires();
+        Assert.assertEquals(1, store.getCompactionCount());
+        // Once the saved copies have been compacted the removals are no longer required
+        store.processExpires();
+        Assert.assertEquals(2, store.getCompactionCount());
+        Assert.assertEquals(store.getSegmentCount(), dir.list().length);
+
+        store.stop();
+        store.start();
+
+        Assert.assertEquals(1, store.getSize());
+        Assert.assertNull(store.load(live.getIdInternal()));
+        for (Session session : removed) {
+            Assert.assertNull(store.load(session.getIdInternal()));
+        }
+    }
+
+
+    @Test
+    public void testCorruptRecord() throws Exception {
+        Session s1 = createSession("value1");
+        Session s2 = createSession("value2");
+        store.save(s1);
+        store.save(s2);
+        store.stop();
+
+        // Corrupt the last byte of the second record
+        File segment = dir.listFiles()[0];
+        try (RandomAccessFile raf = new RandomAccessFile(segment, "rw")) {
+            long pos = raf.length() - 1;
+            raf.seek(pos);
+            while (raf.read() == 0) {
+                pos--;
+                raf.seek(pos);
+            }
+            raf.seek(pos);
+            raf.write(0);
+        }
+
+        store.start();
+
+        Assert.assertEquals(1, store.getSize());
+        Assert.assertEquals("value1", store.load(s1.getIdInternal()).getSession().getAttribute("name"));
+    }
+
+
+    @Test
+    public void testExpiredKeys() throws Exception {
+        StandardSession expired = (StandardSession) createSession("value");
+        expired.setMaxInactiveInterval(1);
+        expired.lastAccessedTime = System.currentTimeMillis() - 5000;
+        expired.thisAccessedTime = expired.lastAccessedTime;
+        store.save(expired);
+        store.save(createSession("value"));
+
+        Assert.assertArrayEquals(new String[] { expired.getIdInternal() }, store.expiredKeys());
+    }
+
+
+    private Session createSession(String value) {
+        Session session = manager.createSession(null);
+        session.getSession().setAttribute("name", value);
+        return session;
+    }
+}
@@ -0,0 +1,166 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.catalina.session;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import org.apache.catalina.Session;
+import org.apache.catalina.core.StandardContext;
+
+public class TestSessionExpiryIndex {
+
+    private static final long START = 1_000_000_000L;
+
+
+    @Test
+    public void testScheduleAndAdvance() {
+        SessionExpiryIndex index = new SessionExpiryIndex(1000, START);
+        Session s1 = createSession();
+        Session s2 = createSession();
+        index.schedule(s1, START + 30_000);
+        index.schedule(s2, START + 1_800_000);
+        Assert.assertEquals(2, index.size());
+
+        Assert.assertTrue(index.advance(START + 29_999).isEmpty());
+        Assert.assertEquals(List.of(s1), index.advance(START + 30_000));
+        Assert.assertEquals(1, index.size());
+
+        Assert.assertTrue(index.advance(START + 1_799_999).isEmpty());
+        Assert.assertEquals(List.of(s2), index.advance(START + 1_800_500));
+        Assert.assertEquals(0, index.size());
+    }
+
+
+    @Test
+    public void testReschedule() {
+        SessionExpiryIndex index = new SessionExpiryIndex(1000, START);
+        Session s1 = createSession();
+        index.schedule(s1, START + 10_000);
+        index.schedule(s1, START + 20_000);
+        Assert.assertEquals(1, index.size());
+
+        Assert.assertTrue(index.advance(START + 15_000).isEmpty());
+        Assert.assertEquals(List.of(s1), index.advance(START + 20_000));
+    }
+
+
+    @Test
+    public void testRemove() {
+        SessionExpiryIndex index = new SessionExpiryIndex(1000, START);
+        Session s1 = createSession();
+        index.schedule(s1, START + 10_000);
+        index.remove(s1);
+        Assert.assertEquals(0, index.size());
+        Assert.assertTrue(index.advance(START + 20_000).isEmpty());
+    }
+
+
+    @Test
+    public void testAlreadyExpired() {
+        SessionExpiryIndex index = new SessionExpiryIndex(1000, START);
+        Session s1 = createSession();
+        index.schedule(s1, START - 10_000);
+        Assert.assertEquals(List.of(s1), index.advance(START));
+    }
+
+
+    @Test
+    public void testRandom() {
+        Random random = new Random(42);
+        SessionExpiryIndex index = new SessionExpiryIndex(1000, START);
+        List<Session> sessions = new ArrayList<>();
+        List<Long> expiryTimes = new ArrayList<>();
+        for (int i = 0; i < 2000; i++) {
+            Session session = createSession();
+            long expiryTime = START + (long) (random.nextDouble() * random.nextDouble() * 5_000_000_000L);
+            sessions.add(session);
+            expiryTimes.add(Long.valueOf(expiryTime));
+            index.schedule(session, expiryTime);
+        }
+
+        Set<Session> returned = new HashSet<>();
+        long timeNow = START;
+        while (index.size() > 0) {
+            timeNow += (long) (random.nextDouble() * 10_000_000);
+            for (Session session : index.advance(timeNow)) {
+                long expiryTime = expiryTimes.get(sessions.indexOf(session)).longValue();
+                Assert.assertTrue(expiryTime <= timeNow);
+                Assert.assertTrue(returned.add(session));
+            }
+            // Nothing that has expired is left behind
+            for (int i = 0; i < sessions.size(); i++) {
+                if (expiryTimes.get(i).longValue() <= timeNow) {
+                    Assert.assertTrue(returned.contains(sessions.get(i)));
+                }
+            }
+        }
+        Assert.assertEquals(sessions.size(), returned.size());
+    }
+
+
+    @Test
+    public void testManagerProcessExpires() throws Exception {
+        StandardManager manager = new StandardManager();
+        manager.setContext(new StandardContext());
+
+        StandardSession idle = createManagedSession(manager, "idle", 60);
+        StandardSession active = createManagedSession(manager, "active", 60);
+        StandardSession immortal = createManagedSession(manager, "immortal", -1);
+        long past = System.currentTimeMillis() - 120_000;
+        idle.thisAccessedTime = past;
+        idle.lastAccessedTime = past;
+        active.thisAccessedTime = past;
+        active.lastAccessedTime = past;
+        // Shortening the interval moves the sessions forward in the index
+        idle.setMaxInactiveInterval(30);
+        active.setMaxInactiveInterval(30);
+        immortal.setMaxInactiveInterval(-1);
+
+        // Accessed since it was indexed
+        active.access();
+        active.endAccess();
+
+        manager.processExpires();
+
+        Assert.assertNull(manager.findSession("idle"));
+        Assert.assertSame(active, manager.findSession("active"));
+        Assert.assertSame(immortal, manager.findSession("immortal"));
+        Assert.assertEquals(1, manager.getExpiredSessions());
+    }
+
+
+    private static StandardSession createManagedSession(ManagerBase manager, String id, int maxInactiveInterval) {
+        StandardSession session = new StandardSession(manager);
+        session.setValid(true);
+        session.setCreationTime(System.currentTimeMillis());
+        session.setMaxInactiveInterval(maxInactiveInterval);
+        session.setId(id, false);
+        return session;
+    }
+
+
+    private static Session createSession() {
+        return new StandardSession(null);
+    }
+}
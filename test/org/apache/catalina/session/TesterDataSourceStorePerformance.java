@@ -0,0 +1,157 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.catalina.session;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import org.apache.catalina.Context;
+import org.apache.catalina.Host;
+import org.apache.catalina.LifecycleException;
+import org.apache.catalina.Session;
+import org.apache.catalina.startup.LoggingBaseTest;
+import org.apache.tomcat.unittest.TesterContext;
+import org.apache.tomcat.unittest.TesterHost;
+
+/*
+ * Compares saving sessions to an embedded Derby database one at a time with saving them in batches.
+ */
+public class TesterDataSourceStorePerformance extends LoggingBaseTest {
+
+    private static final int SESSION_COUNT = 2000;
+
+
+    @Test
+    public void testSave() throws Exception {
+        PersistentManager manager = createManager("save");
+        DataSourceStore store = (DataSourceStore) manager.getStore();
+        List<Session> sessions = createSessions(manager);
+
+        long start = System.nanoTime();
+        for (Session session : sessions) {
+            store.save(session);
+        }
+        long time = System.nanoTime() - start;
+        log.info("Saved [" + SESSION_COUNT + "] sessions one at a time in [" + time / 1_000_000 + "]ms");
+        Assert.assertEquals(SESSION_COUNT, store.getSize());
+
+        manager.setSaveOnRestart(false);
+        manager.stop();
+    }
+
+
+    @Test
+    public void testSaveAll() throws Exception {
+        PersistentManager manager = createManager("saveall");
+        DataSourceStore store = (DataSourceStore) manager.getStore();
+        List<Session> sessions = createSessions(manager);
+
+        long start = System.nanoTime();
+        store.saveAll(sessions);
+        long time = System.nanoTime() - start;
+        log.info("Saved [" + SESSION_COUNT + "] sessions in batches of [" + store.getBatchSize() + "] in [" +
+                time / 1_000_000 + "]ms");
+        Assert.assertEquals(SESSION_COUNT, store.getSize());
+
+        List<String> ids = new ArrayList<>();
+        for (Session session : sessions) {
+            ids.add(session.getIdInternal());
+        }
+        start = System.nanoTime();
+        Assert.assertEquals(SESSION_COUNT, store.loadAll(ids).size());
+        time = System.nanoTime() - start;
+        log.info("Loaded [" + SESSION_COUNT + "] sessions in batches of [" + store.getBatchSize() + "] in [" +
+                time / 1_000_000 + "]ms");
+
+        manager.setSaveOnRestart(false);
+        manager.stop();
+    }
+
+
+    private List<Session> createSessions(PersistentManager manager) {
+        List<Session> sessions = new ArrayList<>();
+        for (int i = 0; i < SESSION_COUNT; i++) {
+            Session session = manager.createSession(null);
+            session.getSession().setAttribute("index", Integer.valueOf(i));
+            sessions.add(session);
+        }
+        return sessions;
+    }
+
+
+    private PersistentManager createManager(String name) throws LifecycleException {
+        PersistentManager manager = new PersistentManager();
+        DerbyDataSourceStore store = new DerbyDataSourceStore(name);
+        store.setSessionTable("tomcatsessions");
+        manager.setStore(store);
+
+        Host host = new TesterHost();
+        Context context = new TesterContext();
+        context.setParent(host);
+        manager.setContext(context);
+        manager.start();
+        return manager;
+    }
+
+
+    private class DerbyDataSourceStore extends DataSourceStore {
+
+        private final String name;
+        private Connection connection = null;
+
+        DerbyDataSourceStore(String name) {
+            this.name = "/store-" + name;
+        }
+
+        @Override
+        protected Connection open() {
+            // Replace DataSource use and JNDI access with direct Derby connection
+            if (connection == null) {
+                try {
+                    Class.forName("org.apache.derby.jdbc.EmbeddedDriver");
+                    connection = DriverManager.getConnection(
+                            "jdbc:derby:" + getTemporaryDirectory().getAbsolutePath() + name + ";create=true");
+                    try (Statement statement = connection.createStatement()) {
+                        statement.execute(TestPersistentManagerDataSourceStore.SIMPLE_SCHEMA);
+                    }
+                } catch (Exception e) {
+                    throw new IllegalStateException(e);
+                }
+            }
+            return connection;
+        }
+
+        @Override
+        protected void close(Connection dbConnection) {
+            // Only one connection so don't close it here
+        }
+
+        @Override
+        public void stopInternal() throws LifecycleException {
+            super.stopInternal();
+            if (connection != null) {
+                super.close(connection);
+            }
+        }
+    }
+}
@@ -0,0 +1,205 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.catalina.startup;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.jar.JarEntry;
+import java.util.jar.JarOutputStream;
+
+import jakarta.servlet.ServletContainerInitializer;
+import jakarta.servlet.ServletContext;
+import jakarta.servlet.annotation.HandlesTypes;
+import jakarta.servlet.annotation.WebServlet;
+import jakarta.servlet.http.HttpServlet;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import org.apache.catalina.Context;
+import org.apache.tomcat.util.buf.ByteChunk;
+
+public class TestAnnotationScanCache extends TomcatBaseTest {
+
+    private static final Set<String> handlesTypesMatches = new HashSet<>();
+
+
+    @Test
+    public void testCacheReusedOnRestart() throws Exception {
+        File appDir = new File(getTemporaryDirectory(), "annotation-scan-cache");
+        File lib = new File(appDir, "WEB-INF/lib");
+        Assert.assertTrue(lib.mkdirs());
+        addDeleteOnTearDown(appDir);
+        File jar = new File(lib, "test.jar");
+        createJar(jar);
+
+        Tomcat tomcat = getTomcatInstance();
+        Context ctx = tomcat.addWebapp(null, "/test", appDir.getAbsolutePath());
+        ctx.setCacheAnnotationScanning(true);
+        tomcat.start();
+
+        File workDir = (File) ctx.getServletContext().getAttribute(ServletContext.TEMPDIR);
+        Assert.assertTrue(new File(workDir, AnnotationScanCache.FILE_NAME).isFile());
+        doTestApplication();
+
+        // The classes of the unchanged JAR are cached
+        URL jarUrl = jar.toURI().toURL();
+        AnnotationScanCache.JarScan jarScan = AnnotationScanCache.load(workDir).get(jarUrl);
+        Assert.assertNotNull(jarScan.getClasses());
+        Assert.assertEquals(4, jarScan.getClasses().size());
+
+        // The annotations and HandlesTypes matches are still found when the cache is used
+        ctx.stop();
+        ctx.start();
+        doTestApplication();
+
+        // A modified JAR is parsed again
+        Assert.assertTrue(jar.setLastModified(jar.lastModified() - 10000));
+        Assert.assertNull(AnnotationScanCache.load(workDir).get(jarUrl).getClasses());
+        ctx.stop();
+        ctx.start();
+        doTestApplication();
+        Assert.assertNotNull(AnnotationScanCache.load(workDir).get(jarUrl).getClasses());
+    }
+
+
+    @Test
+    public void testCorruptCountNegative() throws Exception {
+        doTestCorruptCount(-1);
+    }
+
+
+    @Test
+    public void testCorruptCountTooLarge() throws Exception {
+        doTestCorruptCount(Integer.MAX_VALUE);
+    }
+
+
+    private void doTestCorruptCount(int count) throws Exception {
+        File workDir = new File(getTemporaryDirectory(), "annotation-scan-cache-corrupt");
+        Assert.assertTrue(workDir.mkdirs());
+        addDeleteOnTearDown(workDir);
+        File jar = new File(workDir, "test.jar");
+        createJar(jar);
+        URL jarUrl = jar.toURI().toURL();
+
+        AnnotationScanCache cache = AnnotationScanCache.load(workDir);
+        cache.put(cache.get(jarUrl), List.of());
+        cache.save();
+        Assert.assertNotNull(AnnotationScanCache.load(workDir).get(jarUrl).getClasses());
+
+        // Overwrite the count of JARs that follows the magic number and the version
+        try (RandomAccessFile raf = new RandomAccessFile(new File(workDir, AnnotationScanCache.FILE_NAME), "rw")) {
+            raf.seek(8);
+            raf.writeInt(count);
+        }
+
+        // The corrupt cache is ignored
+        Assert.assertNull(AnnotationScanCache.load(workDir).get(jarUrl).getClasses());
+    }
+
+
+    private void doTestApplication() throws IOException {
+        Assert.assertEquals(Set.of(TesterMarkerImpl.class.getName(), TesterAnnotated.class.getName()),
+                handlesTypesMatches);
+        handlesTypesMatches.clear();
+
+        ByteChunk res = new ByteChunk();
+        int rc = getUrl("http://localhost:" + getPort() + "/test/cached", res, null);
+        Assert.assertEquals(HttpServletResponse.SC_OK, rc);
+        Assert.assertEquals("OK", res.toString());
+    }
+
+
+    /*
+     * Creates a JAR with the annotated servlet, the classes that match the HandlesTypes of the SCI and the service
+     * file that registers the SCI.
+     */
+    private static void createJar(File jar) throws IOException {
+        try (JarOutputStream jos = new JarOutputStream(new FileOutputStream(jar))) {
+            jos.putNextEntry(new JarEntry("META-INF/services/" + ServletContainerInitializer.class.getName()));
+            jos.write(TesterSci.class.getName().getBytes(StandardCharsets.UTF_8));
+            jos.closeEntry();
+            for (Class<?> clazz : new Class<?>[] { TesterCachedServlet.class, TesterMarkerImpl.class,
+                    TesterAnnotated.class, TesterMarker.class }) {
+                String name = clazz.getName().replace('.', '/') + ".class";
+                jos.putNextEntry(new JarEntry(name));
+                try (InputStream is = TestAnnotationScanCache.class.getClassLoader().getResourceAsStream(name)) {
+                    is.transferTo(jos);
+                }
+                jos.closeEntry();
+            }
+        }
+    }
+
+
+    @WebServlet("/cached")
+    public static class TesterCachedServlet extends HttpServlet {
+
+        private static final long serialVersionUID = 1L;
+
+        @Override
+        protected void doGet(HttpServletRequest req, HttpServletResponse resp) throws IOException {
+            resp.setContentType("text/plain");
+            resp.getWriter().print("OK");
+        }
+    }
+
+
+    public interface TesterMarker {
+    }
+
+
+    public static class TesterMarkerImpl implements TesterMarker {
+    }
+
+
+    @Retention(RetentionPolicy.RUNTIME)
+    public @interface TesterMarkerAnnotation {
+    }
+
+
+    @TesterMarkerAnnotation
+    public static class TesterAnnotated {
+    }
+
+
+    @HandlesTypes({ TesterMarker.class, TesterMarkerAnnotation.class })
+    public static class TesterSci implements ServletContainerInitializer {
+
+        @Override
+        public void onStartup(Set<Class<?>> c, ServletContext ctx) {
+            if (c != null) {
+                for (Class<?> clazz : c) {
+                    handlesTypesMatches.add(clazz.getName());
+                }
+            }
+        }
+    }
+}
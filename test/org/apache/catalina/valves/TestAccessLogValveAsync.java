@@ -0,0 +1,166 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.catalina.valves;
+
+import java.io.CharArrayWriter;
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import org.apache.catalina.Context;
+import org.apache.catalina.startup.Tomcat;
+import org.apache.catalina.startup.TomcatBaseTest;
+import org.apache.tomcat.util.buf.ByteChunk;
+
+public class TestAccessLogValveAsync extends TomcatBaseTest {
+
+    private static final int REQUEST_COUNT = 20;
+    private static final int THREAD_COUNT = 4;
+    private static final int ENTRIES_PER_THREAD = 5000;
+
+
+    @Test
+    public void testAsyncLog() throws Exception {
+        AccessLogValve valve = createValve("block", "async_block");
+
+        for (int i = 0; i < REQUEST_COUNT; i++) {
+            ByteChunk res = getUrl("http://localhost:" + getPort() + "/?i=" + i);
+            Assert.assertTrue(res.toString().contains("Hello World"));
+        }
+
+        // Log directly from several threads concurrently
+        Thread[] threads = new Thread[THREAD_COUNT];
+        for (int i = 0; i < THREAD_COUNT; i++) {
+            final int thread = i;
+            threads[i] = new Thread(() -> {
+                for (int j = 0; j < ENTRIES_PER_THREAD; j++) {
+                    CharArrayWriter message = new CharArrayWriter();
+                    message.append("entry ").append(Integer.toString(thread)).append(' ')
+                            .append(Integer.toString(j));
+                    valve.log(message);
+                }
+            });
+            threads[i].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        // Stopping writes any entries that remain in the queue
+        getTomcatInstance().stop();
+
+        Assert.assertEquals(0, valve.getAsyncLogDroppedCount());
+        List<String> lines = readLog(valve);
+        Assert.assertEquals(REQUEST_COUNT + THREAD_COUNT * ENTRIES_PER_THREAD, lines.size());
+        Set<String> requests = new HashSet<>();
+        int[] next = new int[THREAD_COUNT];
+        for (String line : lines) {
+            if (line.startsWith("GET ")) {
+                requests.add(line);
+            } else {
+                // Entries from each thread must be in the order they were logged
+                String[] parts = line.split(" ");
+                int thread = Integer.parseInt(parts[1]);
+                Assert.assertEquals(next[thread], Integer.parseInt(parts[2]));
+                next[thread]++;
+            }
+        }
+        for (int i = 0; i < REQUEST_COUNT; i++) {
+            Assert.assertTrue(requests.contains("GET /?i=" + i + " HTTP/1.1 200"));
+        }
+    }
+
+
+    @Test
+    public void testCountOverflow() throws Exception {
+        AccessLogValve valve = createValve("count", "async_count");
+        Assert.assertEquals(1, valve.getAsyncLogQueueSize());
+
+        // Entries larger than the write buffer are written immediately. Holding the valve's lock blocks the writer
+        // so the queue fills.
+        char[] large = new char[128 * 1024];
+        Arrays.fill(large, 'x');
+        int entries = 10;
+        synchronized (valve) {
+            for (int i = 0; i < entries; i++) {
+                CharArrayWriter message = new CharArrayWriter();
+                message.write(large);
+                valve.log(message);
+            }
+            Assert.assertTrue(valve.getAsyncLogDroppedCount() > 0);
+            Assert.assertTrue(valve.getAsyncLogQueueDepth() <= 1);
+        }
+
+        getTomcatInstance().stop();
+
+        List<String> lines = readLog(valve);
+        Assert.assertEquals(entries - valve.getAsyncLogDroppedCount(), lines.size());
+        for (String line : lines) {
+            Assert.assertEquals(large.length, line.length());
+        }
+    }
+
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidOverflowPolicy() {
+        new AccessLogValve().setAsyncLogOverflowPolicy("wait");
+    }
+
+
+    private AccessLogValve createValve(String overflowPolicy, String prefix) throws Exception {
+        Tomcat tomcat = getTomcatInstance();
+
+        // No file system docBase required
+        Context ctx = getProgrammaticRootContext();
+        Tomcat.addServlet(ctx, "hello", new HelloWorldServlet());
+        ctx.addServletMappingDecoded("/", "hello");
+
+        AccessLogValve valve = new AccessLogValve();
+        valve.setDirectory(getLogDirectory().getAbsolutePath());
+        valve.setPrefix(prefix);
+        valve.setSuffix(".txt");
+        valve.setRotatable(false);
+        valve.setPattern("%r %s");
+        valve.setAsyncLog(true);
+        valve.setAsyncLogOverflowPolicy(overflowPolicy);
+        if (!"block".equals(overflowPolicy)) {
+            valve.setAsyncLogQueueSize(1);
+        }
+        tomcat.getHost().getPipeline().addValve(valve);
+
+        tomcat.start();
+        return valve;
+    }
+
+
+    private File getLogDirectory() {
+        return new File(getTemporaryDirectory(), "access-logs");
+    }
+
+
+    private List<String> readLog(AccessLogValve valve) throws Exception {
+        return Files.readAllLines(new File(getLogDirectory(), valve.getPrefix() + valve.getSuffix()).toPath(),
+                StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,173 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.catalina.webresources;
+
+import java.io.File;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import org.apache.catalina.core.StandardContext;
+import org.apache.catalina.startup.LoggingBaseTest;
+
+public class TestCache extends LoggingBaseTest {
+
+    private static final int FILE_COUNT = 300;
+    private static final int FILE_SIZE = 1000;
+
+    private StandardRoot root;
+
+
+    @Before
+    @Override
+    public void setUp() throws Exception {
+        super.setUp();
+        File dir = new File(getTemporaryDirectory(), testName.getMethodName());
+        Assert.assertTrue(dir.mkdirs());
+        byte[] content = new byte[FILE_SIZE];
+        for (int i = 0; i < FILE_COUNT; i++) {
+            Files.write(new File(dir, "file" + i).toPath(), content);
+        }
+
+        root = new StandardRoot(new StandardContext());
+        DirResourceSet main = new DirResourceSet(root, "/", dir.getAbsolutePath(), "/");
+        main.start();
+        root.setMainResources(main);
+    }
+
+
+    @Test
+    public void testScanResistance() {
+        Cache cache = new Cache(root);
+        // Room for roughly 65 entries
+        cache.setMaxSize(100);
+        Assert.assertEquals(Cache.EvictionPolicy.TINYLFU.name(), cache.getEvictionPolicy());
+
+        // Frequently requested resources
+        for (int i = 0; i < 10; i++) {
+            for (int j = 0; j < 20; j++) {
+                cache.getResource("/file" + j, false);
+            }
+        }
+        // A crawler requesting every other resource once
+        for (int i = 20; i < FILE_COUNT; i++) {
+            cache.getResource("/file" + i, false);
+        }
+        Assert.assertTrue(cache.getSize() <= cache.getMaxSize());
+        Assert.assertTrue(cache.getAdmissionRejectionCount() > 0);
+
+        cache.backgroundProcess();
+
+        long hitCount = cache.getHitCount();
+        for (int j = 0; j < 20; j++) {
+            cache.getResource("/file" + j, false);
+        }
+        Assert.assertEquals(hitCount + 20, cache.getHitCount());
+    }
+
+
+    @Test
+    public void testInvalidation() {
+        Cache cache = new Cache(root);
+        cache.getResource("/file1", false);
+        cache.getResource("/file1", false);
+        Assert.assertEquals(0.5, cache.getHitRatio(), 0.001);
+        Assert.assertTrue(cache.getSize() > 0);
+
+        cache.removeCacheEntry("/file1");
+        Assert.assertEquals(1, cache.getInvalidationCount());
+        Assert.assertEquals(0, cache.getSizeEvictionCount());
+        Assert.assertEquals(0, cache.getSize());
+
+        // Removing an entry that is not cached has no effect
+        cache.removeCacheEntry("/file1");
+        Assert.assertEquals(1, cache.getInvalidationCount());
+    }
+
+
+    @Test
+    public void testMappedContent() {
+        Cache cache = new Cache(root);
+        // Every file is too large to cache on the heap but only one can be mapped
+        cache.setObjectMaxSize(0);
+        cache.setMappedMaxSize(1);
+
+        CachedResource first = (CachedResource) cache.getResource("/file1", false);
+        Assert.assertNull(first.getContent());
+        ByteBuffer mapped = first.getMappedContent();
+        Assert.assertNotNull(mapped);
+        Assert.assertTrue(mapped.isReadOnly());
+        Assert.assertEquals(FILE_SIZE, mapped.remaining());
+
+        CachedResource second = (CachedResource) cache.getResource("/file2", false);
+        Assert.assertNull(second.getMappedContent());
+
+        // Removing the mapped entry makes room for another
+        cache.removeCacheEntry("/file1");
+        Assert.assertNotNull(second.getMappedContent());
+    }
+
+
+    @Test
+    public void testTtlEvictionPolicy() {
+        Cache cache = new Cache(root);
+        cache.getResource("/file1", false);
+        cache.setEvictionPolicy("ttl");
+        Assert.assertEquals(Cache.EvictionPolicy.TTL.name(), cache.getEvictionPolicy());
+        // Changing the policy clears the cache
+        Assert.assertEquals(0, cache.getSize());
+
+        cache.setMaxSize(100);
+        cache.setTtl(0);
+        for (int i = 0; i < FILE_COUNT; i++) {
+            cache.getResource("/file" + i, false);
+        }
+        Assert.assertTrue(cache.getSize() <= cache.getMaxSize());
+        Assert.assertTrue(cache.getSizeEvictionCount() > 0);
+        Assert.assertEquals(0, cache.getAdmissionRejectionCount());
+    }
+
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidEvictionPolicy() {
+        new Cache(root).setEvictionPolicy("UNRECOGNIZED");
+    }
+
+
+    @Test
+    public void testFrequencySketch() {
+        FrequencySketch sketch = new FrequencySketch();
+        int hot = "/hot".hashCode();
+        int cold = "/cold".hashCode();
+        for (int i = 0; i < 20; i++) {
+            sketch.increment(hot);
+        }
+        sketch.increment(cold);
+        // Counters saturate
+        Assert.assertEquals(FrequencySketch.MAX_FREQUENCY, sketch.frequency(hot));
+        Assert.assertTrue(sketch.frequency(cold) >= 1);
+
+        // Counters are halved periodically
+        for (int i = 0; i < 10 * sketch.capacity(); i++) {
+            sketch.increment(Integer.valueOf(i).hashCode() * 31);
+        }
+        Assert.assertTrue(sketch.frequency(hot) < FrequencySketch.MAX_FREQUENCY);
+    }
+}
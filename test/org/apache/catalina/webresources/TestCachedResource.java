@@ -20,15 +20,18 @@ import java.io.File;
 import java.io.InputStream;
 import java.net.JarURLConnection;
 import java.net.URL;
+import java.util.zip.GZIPInputStream;
 
 import org.junit.Assert;
 import org.junit.Test;
 
 import org.apache.catalina.Context;
+import org.apache.catalina.WebResource;
 import org.apache.catalina.WebResourceRoot;
 import org.apache.catalina.core.StandardHost;
 import org.apache.catalina.startup.Tomcat;
 import org.apache.catalina.startup.TomcatBaseTest;
+import org.apache.coyote.GzipCompressionCodec;
 
 public class TestCachedResource extends TomcatBaseTest {
 
@@ -131,4 +134,43 @@ public class TestCachedResource extends TomcatBaseTest {
             Assert.assertNotNull(is);
         }
     }
+
+
+    @Test
+    public void testCompressedResource() throws Exception {
+
+        Tomcat tomcat = getTomcatInstance();
+        File docBase = new File("test/webapp");
+        Context ctx = tomcat.addWebapp("/test", docBase.getAbsolutePath());
+        tomcat.start();
+
+        WebResourceRoot root = ctx.getResources();
+
+        WebResource resource = root.getResource("/index.shtml");
+        Assert.assertTrue(resource instanceof CachedResource);
+        CachedResource cachedResource = (CachedResource) resource;
+
+        CachedCompressedResource compressed = cachedResource.getCompressedResource(new GzipCompressionCodec());
+        Assert.assertNotNull(compressed);
+        Assert.assertEquals("gzip", compressed.getEncoding());
+        Assert.assertTrue(compressed.getContentLength() < resource.getContentLength());
+        Assert.assertEquals(resource.getLastModified(), compressed.getLastModified());
+        Assert.assertNotEquals(resource.getETag(), compressed.getETag());
+        Assert.assertNotEquals(resource.getStrongETag(), compressed.getStrongETag());
+        Assert.assertNull(compressed.getCanonicalPath());
+        Assert.assertNull(compressed.getURL());
+        try (InputStream is = new GZIPInputStream(compressed.getInputStream())) {
+            Assert.assertArrayEquals(resource.getContent(), is.readAllBytes());
+        }
+
+        // The compressed content is cached
+        Assert.assertSame(compressed, cachedResource.getCompressedResource(new GzipCompressionCodec()));
+
+        // Compressing a small resource does not reduce its size
+        CachedResource small = (CachedResource) root.getResource("/404.html");
+        Assert.assertNull(small.getCompressedResource(new GzipCompressionCodec()));
+        // The variant that is not served does not use any cache memory
+        Assert.assertEquals(0, small.getCompressedSize());
+        Assert.assertNull(small.getCompressedResource(new GzipCompressionCodec()));
+    }
 }
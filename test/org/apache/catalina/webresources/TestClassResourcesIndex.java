@@ -0,0 +1,131 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.catalina.webresources;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.jar.JarEntry;
+import java.util.jar.JarOutputStream;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import org.apache.catalina.Context;
+import org.apache.catalina.WebResource;
+import org.apache.catalina.WebResourceSet;
+import org.apache.catalina.startup.Tomcat;
+import org.apache.catalina.startup.TomcatBaseTest;
+
+public class TestClassResourcesIndex extends TomcatBaseTest {
+
+    @Test
+    public void testIndexedLookup() throws Exception {
+        File docBase = new File(getTemporaryDirectory(), "indexed");
+        File lib = new File(docBase, "WEB-INF/lib");
+        Assert.assertTrue(lib.mkdirs());
+        addDeleteOnTearDown(docBase);
+        createJar(new File(lib, "a.jar"), "a/A.class", "shared/Shared.txt", "Top.txt");
+        createJar(new File(lib, "b.jar"), "b/", "b/B.class", "b/c/C.class", "shared/Shared.txt");
+
+        StandardRoot root = start(docBase, true);
+        Assert.assertTrue(root.isClassResourcesIndexed());
+
+        assertClassLoaderResource(root, "/a/A.class", "a.jar");
+        assertClassLoaderResource(root, "/b/B.class", "b.jar");
+        assertClassLoaderResource(root, "/b/c/C.class", "b.jar");
+        assertClassLoaderResource(root, "/Top.txt", "a.jar");
+        Assert.assertTrue(root.getClassLoaderResource("/b/").isDirectory());
+        Assert.assertTrue(root.getClassLoaderResource("/b").isDirectory());
+        Assert.assertFalse(root.getClassLoaderResource("/a/Missing.class").exists());
+        Assert.assertFalse(root.getClassLoaderResource("/missing/Missing.class").exists());
+
+        // Every JAR that contains the resource is found, in the order the JARs are searched
+        WebResourceSet[] classResources = root.getClassResources();
+        WebResource[] shared = root.getClassLoaderResources("/shared/Shared.txt");
+        Assert.assertEquals(2, shared.length);
+        for (int i = 0; i < shared.length; i++) {
+            Assert.assertEquals(new File(((AbstractResourceSet) classResources[i]).getBase()).getName(),
+                    new String(shared[i].getContent(), StandardCharsets.UTF_8));
+        }
+    }
+
+
+    @Test
+    public void testNotIndexed() throws Exception {
+        File docBase = new File(getTemporaryDirectory(), "notIndexed");
+        File lib = new File(docBase, "WEB-INF/lib");
+        Assert.assertTrue(lib.mkdirs());
+        addDeleteOnTearDown(docBase);
+        createJar(new File(lib, "a.jar"), "a/A.class");
+
+        StandardRoot root = start(docBase, false);
+        Assert.assertFalse(root.isClassResourcesIndexed());
+        assertClassLoaderResource(root, "/a/A.class", "a.jar");
+    }
+
+
+    @Test
+    public void testUnindexedResourceSetOrder() throws Exception {
+        StandardRoot root = new StandardRoot();
+        WebResourceSet first = new EmptyResourceSet(root);
+        WebResourceSet second = new EmptyResourceSet(root);
+        ClassResourcesIndex index = new ClassResourcesIndex(List.of(first, second), null);
+        Assert.assertEquals(0, index.getDirectoryCount());
+        Assert.assertEquals(List.of(first, second), index.getResourceSets("/WEB-INF/classes/a/A.class"));
+        // Paths outside of /WEB-INF/classes are not covered by the index
+        Assert.assertNull(index.getResourceSets("/WEB-INF/classes"));
+        Assert.assertNull(index.getResourceSets("/WEB-INF/classes/"));
+        Assert.assertNull(index.getResourceSets("/WEB-INF/classesA/A.class"));
+        Assert.assertNull(index.getResourceSets("/index.html"));
+    }
+
+
+    private StandardRoot start(File docBase, boolean indexClassResources) throws Exception {
+        Tomcat tomcat = getTomcatInstance();
+        Context ctx = tomcat.addContext("", docBase.getAbsolutePath());
+        StandardRoot root = new StandardRoot(ctx);
+        root.setIndexClassResources(indexClassResources);
+        ctx.setResources(root);
+        tomcat.start();
+        return root;
+    }
+
+
+    private static void assertClassLoaderResource(StandardRoot root, String path, String expectedJar) {
+        WebResource resource = root.getClassLoaderResource(path);
+        Assert.assertTrue(path, resource.isFile());
+        Assert.assertEquals(expectedJar, new String(resource.getContent(), StandardCharsets.UTF_8));
+    }
+
+
+    /*
+     * Creates a JAR with the given entries. The content of each file entry is the name of the JAR.
+     */
+    private static void createJar(File jar, String... names) throws Exception {
+        try (JarOutputStream jos = new JarOutputStream(new FileOutputStream(jar))) {
+            for (String name : names) {
+                jos.putNextEntry(new JarEntry(name));
+                if (!name.endsWith("/")) {
+                    jos.write(jar.getName().getBytes(StandardCharsets.UTF_8));
+                }
+                jos.closeEntry();
+            }
+        }
+    }
+}
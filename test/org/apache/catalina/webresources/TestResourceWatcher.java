@@ -0,0 +1,191 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.catalina.webresources;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.function.BooleanSupplier;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import org.apache.catalina.Context;
+import org.apache.catalina.startup.Tomcat;
+import org.apache.catalina.startup.TomcatBaseTest;
+
+public class TestResourceWatcher extends TomcatBaseTest {
+
+    @Test
+    public void testChangesInvalidateCache() throws Exception {
+        File docBase = new File(getTemporaryDirectory(), "watched");
+        Assert.assertTrue(docBase.mkdirs());
+        addDeleteOnTearDown(docBase);
+        File file = new File(docBase, "a.txt");
+        Files.writeString(file.toPath(), "abc");
+
+        StandardRoot root = start(docBase, false);
+        Assert.assertTrue(root.isWatched());
+
+        Assert.assertEquals("abc", content(root, "/a.txt"));
+        Assert.assertFalse(root.getResource("/sub/b.txt").exists());
+        Assert.assertEquals(1, root.listWebAppPaths("/").size());
+
+        // Modification
+        Files.writeString(file.toPath(), "defg");
+        waitFor(() -> "defg".equals(content(root, "/a.txt")));
+
+        // Creation of a directory and a file within it
+        File sub = new File(docBase, "sub");
+        Assert.assertTrue(sub.mkdir());
+        Files.writeString(new File(sub, "b.txt").toPath(), "b");
+        waitFor(() -> root.getResource("/sub/b.txt").exists());
+        Assert.assertEquals("b", content(root, "/sub/b.txt"));
+
+        // Deletion
+        Assert.assertTrue(file.delete());
+        waitFor(() -> !root.getResource("/a.txt").exists());
+
+        Assert.assertTrue(root.isWatched());
+    }
+
+
+    @Test
+    public void testDirectoryRenameAndDelete() throws Exception {
+        File docBase = new File(getTemporaryDirectory(), "watchedRename");
+        File sub = new File(docBase, "sub");
+        Assert.assertTrue(sub.mkdirs());
+        addDeleteOnTearDown(docBase);
+        Files.writeString(new File(sub, "b.txt").toPath(), "b");
+
+        StandardRoot root = start(docBase, false);
+        Assert.assertTrue(root.isWatched());
+
+        Assert.assertEquals("b", content(root, "/sub/b.txt"));
+        Assert.assertFalse(root.getResource("/sub2/b.txt").exists());
+
+        // Rename the directory
+        File sub2 = new File(docBase, "sub2");
+        Files.move(sub.toPath(), sub2.toPath());
+        waitFor(() -> !root.getResource("/sub/b.txt").exists());
+        waitFor(() -> root.getResource("/sub2/b.txt").exists());
+        Assert.assertEquals("b", content(root, "/sub2/b.txt"));
+
+        // Changes in the renamed directory are reported under the new path
+        Files.writeString(new File(sub2, "b.txt").toPath(), "cd");
+        waitFor(() -> "cd".equals(content(root, "/sub2/b.txt")));
+
+        // A new directory with the original name
+        Assert.assertTrue(sub.mkdir());
+        Files.writeString(new File(sub, "b.txt").toPath(), "new");
+        waitFor(() -> "new".equals(content(root, "/sub/b.txt")));
+        Assert.assertEquals("cd", content(root, "/sub2/b.txt"));
+
+        // Delete a directory
+        Assert.assertTrue(new File(sub2, "b.txt").delete());
+        Assert.assertTrue(sub2.delete());
+        waitFor(() -> !root.getResource("/sub2/b.txt").exists());
+        waitFor(() -> !root.getResource("/sub2").exists());
+
+        Assert.assertTrue(root.isWatched());
+    }
+
+
+    @Test
+    public void testAllowLinkingNotWatched() throws Exception {
+        File docBase = new File(getTemporaryDirectory(), "linked");
+        Assert.assertTrue(docBase.mkdirs());
+        addDeleteOnTearDown(docBase);
+
+        StandardRoot root = start(docBase, true);
+        Assert.assertFalse(root.isWatched());
+    }
+
+
+    @Test
+    public void testSharedBetweenWebApplications() throws Exception {
+        File docBase = new File(getTemporaryDirectory(), "watchedShared");
+        Assert.assertTrue(docBase.mkdirs());
+        addDeleteOnTearDown(docBase);
+        File file = new File(docBase, "a.txt");
+        Files.writeString(file.toPath(), "abc");
+
+        Tomcat tomcat = getTomcatInstance();
+        StandardRoot root1 = addRoot(tomcat, "/one", docBase, false);
+        StandardRoot root2 = addRoot(tomcat, "/two", docBase, false);
+        tomcat.start();
+        Assert.assertTrue(root1.isWatched());
+        Assert.assertTrue(root2.isWatched());
+
+        int threads = 0;
+        for (Thread thread : Thread.getAllStackTraces().keySet()) {
+            if (thread.getName().startsWith("ResourceWatcher")) {
+                threads++;
+            }
+        }
+        Assert.assertEquals(1, threads);
+
+        Assert.assertEquals("abc", content(root1, "/a.txt"));
+        Assert.assertEquals("abc", content(root2, "/a.txt"));
+        Files.writeString(file.toPath(), "defg");
+        waitFor(() -> "defg".equals(content(root1, "/a.txt")));
+        waitFor(() -> "defg".equals(content(root2, "/a.txt")));
+
+        // Stopping one web application does not stop the other being watched
+        root1.getContext().stop();
+        Files.writeString(file.toPath(), "hi");
+        waitFor(() -> "hi".equals(content(root2, "/a.txt")));
+        Assert.assertTrue(root2.isWatched());
+    }
+
+
+    private StandardRoot start(File docBase, boolean allowLinking) throws Exception {
+        Tomcat tomcat = getTomcatInstance();
+        StandardRoot root = addRoot(tomcat, "", docBase, allowLinking);
+        tomcat.start();
+        return root;
+    }
+
+
+    private static StandardRoot addRoot(Tomcat tomcat, String contextPath, File docBase, boolean allowLinking) {
+        Context ctx = tomcat.addContext(contextPath, docBase.getAbsolutePath());
+        StandardRoot root = new StandardRoot(ctx);
+        root.setWatchChanges(true);
+        root.setAllowLinking(allowLinking);
+        // Only the watcher will invalidate cached resources
+        root.setCacheTtl(3600 * 1000);
+        ctx.setResources(root);
+        return root;
+    }
+
+
+    private static String content(StandardRoot root, String path) {
+        byte[] content = root.getResource(path).getContent();
+        return content == null ? null : new String(content, StandardCharsets.UTF_8);
+    }
+
+
+    private static void waitFor(BooleanSupplier condition) throws InterruptedException {
+        // Some WatchService implementations poll so allow plenty of time
+        int count = 0;
+        while (!condition.getAsBoolean() && count < 300) {
+            Thread.sleep(100);
+            count++;
+        }
+        Assert.assertTrue(condition.getAsBoolean());
+    }
+}
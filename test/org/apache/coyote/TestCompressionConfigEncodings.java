@@ -0,0 +1,145 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.apache.coyote;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class TestCompressionConfigEncodings {
+
+    @Test
+    public void testDefaultCodecs() {
+        CompressionConfig compressionConfig = new CompressionConfig();
+        CompressionCodec[] codecs = compressionConfig.getCompressionCodecs();
+        Assert.assertEquals(1, codecs.length);
+        Assert.assertEquals("gzip", codecs[0].getEncoding());
+    }
+
+
+    @Test
+    public void testUnknownEncodingIgnored() {
+        CompressionConfig compressionConfig = new CompressionConfig();
+        compressionConfig.setCompressionEncodings("unknown, deflate ,gzip");
+        CompressionCodec[] codecs = compressionConfig.getCompressionCodecs();
+        Assert.assertEquals(2, codecs.length);
+        Assert.assertEquals("deflate", codecs[0].getEncoding());
+        Assert.assertEquals("gzip", codecs[1].getEncoding());
+    }
+
+
+    @Test
+    public void testLevels() {
+        CompressionConfig compressionConfig = new CompressionConfig();
+        compressionConfig.setCompressionEncodings("gzip,deflate");
+        compressionConfig.setCompressionEncodingLevels("gzip=1, deflate = 9, invalid");
+        CompressionCodec[] codecs = compressionConfig.getCompressionCodecs();
+        Assert.assertEquals(1, codecs[0].getLevel());
+        Assert.assertEquals(9, codecs[1].getLevel());
+
+        compressionConfig.setCompressionEncodingLevels(null);
+        codecs = compressionConfig.getCompressionCodecs();
+        Assert.assertEquals(CompressionCodec.DEFAULT_LEVEL, codecs[0].getLevel());
+    }
+
+
+    @Test
+    public void testIsCompressible() {
+        CompressionConfig compressionConfig = new CompressionConfig();
+        compressionConfig.setCompressionMinSize(100);
+        compressionConfig.setCompressibleMimeType("text/html,application/json");
+        Assert.assertTrue(compressionConfig.isCompressible("text/html;charset=UTF-8", 100));
+        Assert.assertTrue(compressionConfig.isCompressible("application/json", -1));
+        Assert.assertFalse(compressionConfig.isCompressible("text/html", 99));
+        Assert.assertFalse(compressionConfig.isCompressible("image/png", 1000));
+        Assert.assertFalse(compressionConfig.isCompressible(null, 1000));
+    }
+
+
+    @Test
+    public void testServerPreferenceOnTie() {
+        doTestNegotiation("gzip,deflate", "deflate, gzip", "gzip");
+        doTestNegotiation("deflate,gzip", "gzip, deflate", "deflate");
+    }
+
+
+    @Test
+    public void testQualityPreferred() {
+        doTestNegotiation("gzip,deflate", "gzip;q=0.5, deflate;q=0.8", "deflate");
+    }
+
+
+    @Test
+    public void testNotConfigured() {
+        doTestNegotiation("gzip", "deflate", null);
+    }
+
+
+    @Test
+    public void testWildcard() {
+        doTestNegotiation("gzip,deflate", "*", "gzip");
+        doTestNegotiation("gzip,deflate", "gzip;q=0, *", "deflate");
+        doTestNegotiation("gzip,deflate", "gzip;q=0, deflate;q=0, *", null);
+    }
+
+
+    @Test
+    public void testQualityZero() {
+        doTestNegotiation("gzip", "gzip;q=0", null);
+    }
+
+
+    @Test
+    public void testIdentityPreferred() {
+        doTestNegotiation("gzip", "gzip;q=0.5, identity", null);
+        doTestNegotiation("gzip", "gzip, identity;q=0.5", "gzip");
+    }
+
+
+    @Test
+    public void testMultipleHeaders() {
+        doTestNegotiation("gzip,deflate", new String[] { "gzip;q=0.2", "deflate;q=0.4" }, "deflate");
+    }
+
+
+    private void doTestNegotiation(String encodings, String acceptEncoding, String expected) {
+        doTestNegotiation(encodings, new String[] { acceptEncoding }, expected);
+    }
+
+
+    private void doTestNegotiation(String encodings, String[] acceptEncodings, String expected) {
+        CompressionConfig compressionConfig = new CompressionConfig();
+        // Skip length and MIME type checks
+        compressionConfig.setCompression("force");
+        compressionConfig.setCompressionEncodings(encodings);
+
+        Request request = new Request();
+        Response response = new Response();
+        for (String acceptEncoding : acceptEncodings) {
+            request.getMimeHeaders().addValue("accept-encoding").setString(acceptEncoding);
+        }
+
+        CompressionCodec codec = compressionConfig.getCompressionCodec(request, response);
+        if (expected == null) {
+            Assert.assertNull(codec);
+            Assert.assertNull(response.getMimeHeaders().getHeader("Content-Encoding"));
+        } else {
+            Assert.assertNotNull(codec);
+            Assert.assertEquals(expected, codec.getEncoding());
+            Assert.assertEquals(expected, response.getMimeHeaders().getHeader("Content-Encoding"));
+        }
+    }
+}
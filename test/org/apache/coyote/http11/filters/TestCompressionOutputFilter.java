@@ -0,0 +1,127 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.apache.coyote.http11.filters;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.InflaterInputStream;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import org.apache.coyote.CompressionCodec;
+import org.apache.coyote.DeflateCompressionCodec;
+import org.apache.coyote.GzipCompressionCodec;
+import org.apache.coyote.Response;
+
+public class TestCompressionOutputFilter {
+
+    private static final byte[] DATA;
+
+    static {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < 1000; i++) {
+            sb.append("Hello there tomcat developers ");
+            sb.append(i);
+        }
+        DATA = sb.toString().getBytes(StandardCharsets.ISO_8859_1);
+    }
+
+
+    @Test
+    public void testGzip() throws Exception {
+        byte[] compressed = doCompress(new GzipCompressionCodec());
+        Assert.assertArrayEquals(DATA, new GZIPInputStream(new ByteArrayInputStream(compressed)).readAllBytes());
+    }
+
+
+    @Test
+    public void testGzipLevel() throws Exception {
+        GzipCompressionCodec codec = new GzipCompressionCodec();
+        codec.setLevel(0);
+        byte[] compressed = doCompress(codec);
+        Assert.assertTrue(compressed.length > DATA.length);
+        Assert.assertArrayEquals(DATA, new GZIPInputStream(new ByteArrayInputStream(compressed)).readAllBytes());
+    }
+
+
+    @Test
+    public void testDeflate() throws Exception {
+        byte[] compressed = doCompress(new DeflateCompressionCodec());
+        Assert.assertArrayEquals(DATA, new InflaterInputStream(new ByteArrayInputStream(compressed)).readAllBytes());
+    }
+
+
+    @Test
+    public void testFlushDeflate() throws Exception {
+        Response res = new Response();
+        TesterOutputBuffer tob = new TesterOutputBuffer(res, 8 * 1024);
+        res.setOutputBuffer(tob);
+
+        CompressionOutputFilter filter = new CompressionOutputFilter(new DeflateCompressionCodec());
+        tob.addFilter(filter);
+        tob.addActiveFilter(filter);
+
+        byte[] d = "Hello there tomcat developers".getBytes(StandardCharsets.ISO_8859_1);
+        tob.doWrite(ByteBuffer.wrap(d));
+        tob.flush();
+
+        // Everything written so far must be readable after a flush
+        try (InputStream is = new InflaterInputStream(new ByteArrayInputStream(tob.toByteArray()))) {
+            byte[] result = new byte[d.length];
+            int read = 0;
+            while (read < d.length) {
+                read += is.read(result, read, d.length - read);
+            }
+            Assert.assertArrayEquals(d, result);
+        }
+    }
+
+
+    @Test
+    public void testRecycle() throws Exception {
+        CompressionOutputFilter filter = new CompressionOutputFilter(new DeflateCompressionCodec());
+        Assert.assertEquals("deflate", filter.getCodec().getEncoding());
+        filter.recycle();
+        Assert.assertEquals("gzip", filter.getCodec().getEncoding());
+    }
+
+
+    private byte[] doCompress(CompressionCodec codec) throws Exception {
+        Response res = new Response();
+        TesterOutputBuffer tob = new TesterOutputBuffer(res, 8 * 1024);
+        res.setOutputBuffer(tob);
+
+        CompressionOutputFilter filter = new CompressionOutputFilter(codec);
+        tob.addFilter(filter);
+        tob.addActiveFilter(filter);
+
+        // Write in several chunks
+        int offset = 0;
+        while (offset < DATA.length) {
+            int len = Math.min(1000, DATA.length - offset);
+            tob.doWrite(ByteBuffer.wrap(DATA, offset, len));
+            offset += len;
+        }
+        tob.end();
+
+        return tob.toByteArray();
+    }
+}
@@ -46,6 +46,7 @@ public class TestGzipOutputFilter {
      * @throws Exception
      */
     @Test
+    @SuppressWarnings("deprecation")
     public void testFlushingWithGzip() throws Exception {
         // set up response, InternalOutputBuffer, and ByteArrayOutputStream
         Response res = new Response();
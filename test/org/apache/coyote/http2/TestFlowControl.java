@@ -126,6 +126,101 @@ public class TestFlowControl extends Http2TestBase {
     }
 
 
+    @Test
+    public void testWindowAutoTuning() throws Exception {
+        enableHttp2();
+        http2Protocol.setWindowAutoTuning(true);
+        configureAndStartWebApplication();
+        openClientConnection(false);
+        doHttpUpgrade();
+        sendClientPreface();
+        validateHttp2InitialResponse();
+
+        byte[] headersFrameHeader = new byte[9];
+        ByteBuffer headersPayload = ByteBuffer.allocate(128);
+        byte[] dataFrameHeader = new byte[9];
+        ByteBuffer dataPayload = ByteBuffer.allocate(15000);
+        buildPostRequest(headersFrameHeader, headersPayload, false, null, 4 * 15000 + 2000, "/simple",
+                dataFrameHeader, dataPayload, null, false, 3);
+        writeFrame(headersFrameHeader, headersPayload);
+        // Clear the end of stream flag
+        dataFrameHeader[4] = 0x00;
+
+        /*
+         * The first DATA frame triggers a PING. The client does not acknowledge it until the remaining DATA frames have
+         * been written so the server sees 45000 bytes arrive in a single round trip. That is more than two thirds of
+         * the 64k-1 default window so the connection window is doubled.
+         */
+        for (int i = 0; i < 4; i++) {
+            writeFrame(dataFrameHeader, dataPayload);
+            dataPayload.position(0);
+        }
+        readUntil("0-Ping-[", "0-WindowSize-[65535]\n");
+
+        // The next DATA frame for the stream grows the stream window to match
+        dataPayload.limit(1000);
+        ByteUtil.setThreeBytes(dataFrameHeader, 0, 1000);
+        writeFrame(dataFrameHeader, dataPayload);
+        readUntil("3-WindowSize-[65535]\n");
+    }
+
+
+    @Test
+    public void testWindowStallCount() throws Exception {
+        http2Connect();
+
+        // This test uses small window updates that will trigger the excessive
+        // overhead protection so disable it.
+        http2Protocol.setOverheadWindowUpdateThreshold(0);
+
+        // Set the default window size to 1024 bytes
+        sendSettings(0, false, new SettingValue(4, 1024));
+        // Wait for the ack
+        parser.readFrame();
+        output.clearTrace();
+
+        // Headers + 8k response
+        sendSimpleGetRequest(3);
+        // Headers
+        parser.readFrame();
+        // First 1k of body
+        parser.readFrame();
+        output.clearTrace();
+
+        // Leave the stream waiting for the stream flow control window
+        Thread.sleep(200);
+        sendWindowUpdate(3, 8192);
+        readUntil("3-EndOfStream\n");
+
+        // Counters are updated when the stream is recycled
+        int count = 0;
+        while (http2Protocol.getWindowStallCount() == 0 && count < 50) {
+            Thread.sleep(100);
+            count++;
+        }
+        Assert.assertEquals(1, http2Protocol.getWindowStallCount());
+        Assert.assertTrue(http2Protocol.getStreamWindowStallTime() >= 100);
+        Assert.assertEquals(0, http2Protocol.getConnectionWindowStallTime());
+    }
+
+
+    private void readUntil(String... expected) throws Http2Exception, IOException {
+        StringBuilder trace = new StringBuilder();
+        boolean found;
+        do {
+            parser.readFrame();
+            trace.append(output.getTrace());
+            output.clearTrace();
+            found = true;
+            for (String s : expected) {
+                if (trace.indexOf(s) == -1) {
+                    found = false;
+                }
+            }
+        } while (!found);
+    }
+
+
     /*
      * This might be unnecessary but given the potential for timing differences across different systems a more robust
      * approach seems prudent.
@@ -0,0 +1,236 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.apache.coyote.http2;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class TestFrameWriteQueue {
+
+    @Test
+    public void testUncontended() throws Exception {
+        ReentrantLock lock = new ReentrantLock();
+        AtomicInteger flushes = new AtomicInteger();
+        FrameWriteQueue queue = new FrameWriteQueue(lock, flushes::incrementAndGet, 4);
+        List<Integer> written = new CopyOnWriteArrayList<>();
+
+        for (int i = 0; i < 3; i++) {
+            final int frame = i;
+            queue.write(() -> {
+                Assert.assertTrue(lock.isHeldByCurrentThread());
+                written.add(Integer.valueOf(frame));
+            });
+        }
+
+        Assert.assertEquals(List.of(Integer.valueOf(0), Integer.valueOf(1), Integer.valueOf(2)), written);
+        Assert.assertEquals(3, flushes.get());
+        Assert.assertEquals(3, queue.getFrameCount());
+        Assert.assertFalse(lock.isLocked());
+    }
+
+
+    @Test
+    public void testBatch() throws Exception {
+        ReentrantLock lock = new ReentrantLock();
+        AtomicInteger flushes = new AtomicInteger();
+        FrameWriteQueue queue = new FrameWriteQueue(lock, flushes::incrementAndGet, 16);
+        List<Thread> writers = new CopyOnWriteArrayList<>();
+
+        int threadCount = 8;
+        Thread[] threads = new Thread[threadCount];
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        lock.lock();
+        try {
+            for (int i = 0; i < threadCount; i++) {
+                threads[i] = new Thread(() -> {
+                    try {
+                        queue.write(() -> writers.add(Thread.currentThread()));
+                    } catch (Throwable t) {
+                        failure.set(t);
+                    }
+                });
+                threads[i].start();
+            }
+            waitForQueued(Arrays.asList(threads));
+            Assert.assertEquals(0, queue.getFrameCount());
+
+            // The lock holder writes every queued frame and flushes once
+            queue.drain();
+        } finally {
+            lock.unlock();
+        }
+
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        Assert.assertNull(failure.get());
+        Assert.assertEquals(threadCount, writers.size());
+        for (Thread writer : writers) {
+            Assert.assertSame(Thread.currentThread(), writer);
+        }
+        Assert.assertEquals(threadCount, queue.getFrameCount());
+        Assert.assertEquals(1, flushes.get());
+        Assert.assertEquals(1, queue.getFlushCount());
+    }
+
+
+    @Test
+    public void testPriorityOrder() throws Exception {
+        ReentrantLock lock = new ReentrantLock();
+        FrameWriteQueue queue = new FrameWriteQueue(lock, () -> {}, 16);
+        List<String> written = new CopyOnWriteArrayList<>();
+
+        // Frames are queued by different threads so the order in which they are queued is not known
+        List<Thread> threads = new ArrayList<>();
+        threads.add(new Thread(() -> write(queue, -1, false, 0, written, "control")));
+        threads.add(new Thread(() -> write(queue, 5, false, 3, written, "u5-3")));
+        threads.add(new Thread(() -> write(queue, 1, false, 9, written, "u1-9")));
+        threads.add(new Thread(() -> write(queue, 3, true, 5, written, "u3i-5")));
+        threads.add(new Thread(() -> write(queue, 3, false, 11, written, "u3-11")));
+        threads.add(new Thread(() -> write(queue, 3, false, 7, written, "u3-7")));
+
+        lock.lock();
+        try {
+            for (Thread thread : threads) {
+                thread.start();
+            }
+            waitForQueued(threads);
+            queue.drain();
+        } finally {
+            lock.unlock();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        Assert.assertEquals(List.of("control", "u1-9", "u3-7", "u3-11", "u3i-5", "u5-3"), written);
+    }
+
+
+    @Test
+    public void testErrors() throws Exception {
+        ReentrantLock lock = new ReentrantLock();
+        FrameWriteQueue queue = new FrameWriteQueue(lock, () -> {}, 4);
+
+        try {
+            queue.write(() -> {
+                throw new IllegalStateException();
+            });
+            Assert.fail();
+        } catch (IllegalStateException expected) {
+            // Expected
+        }
+
+        try {
+            queue.write(() -> {
+                throw new IOException();
+            });
+            Assert.fail();
+        } catch (IOException expected) {
+            // Expected
+        }
+
+        // Queue is still usable
+        AtomicInteger written = new AtomicInteger();
+        queue.write(written::incrementAndGet);
+        Assert.assertEquals(1, written.get());
+    }
+
+
+    @Test
+    public void testFlushError() throws Exception {
+        ReentrantLock lock = new ReentrantLock();
+        IOException ioe = new IOException();
+        FrameWriteQueue queue = new FrameWriteQueue(lock, () -> {
+            throw ioe;
+        }, 4);
+
+        Thread thread = new Thread(() -> {
+            try {
+                queue.write(() -> {});
+            } catch (IOException e) {
+                // Expected
+            }
+        });
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        Thread other = new Thread(() -> {
+            try {
+                queue.write(() -> {});
+            } catch (Throwable t) {
+                failure.set(t);
+            }
+        });
+        lock.lock();
+        try {
+            thread.start();
+            other.start();
+            waitForQueued(List.of(thread, other));
+            queue.drain();
+        } finally {
+            lock.unlock();
+        }
+        thread.join();
+        other.join();
+        // Every frame in the batch sees the failure
+        Assert.assertSame(ioe, failure.get());
+    }
+
+
+    private static void write(FrameWriteQueue queue, int urgency, boolean incremental, int streamId,
+            List<String> written, String name) {
+        try {
+            if (urgency < 0) {
+                queue.write(() -> written.add(name));
+            } else {
+                queue.write(urgency, incremental, streamId, () -> written.add(name));
+            }
+        } catch (IOException ioe) {
+            throw new RuntimeException(ioe);
+        }
+    }
+
+
+    /*
+     * A thread that has queued a frame and is waiting for it to be written is parked.
+     */
+    private static void waitForQueued(List<Thread> threads) throws InterruptedException {
+        int count = 0;
+        while (count < 100) {
+            boolean allWaiting = true;
+            for (Thread thread : threads) {
+                if (thread.getState() != Thread.State.TIMED_WAITING) {
+                    allWaiting = false;
+                }
+            }
+            if (allWaiting) {
+                return;
+            }
+            Thread.sleep(50);
+            count++;
+        }
+        Assert.fail();
+    }
+}
@@ -70,6 +70,45 @@ public class TestHpack {
         Assert.assertEquals("value2", headers2.getHeader("header2"));
     }
 
+    @Test
+    public void testEncodedStringCache() throws Exception {
+        MimeHeaders headers = new MimeHeaders();
+        headers.setValue(":status").setString("200");
+        headers.setValue("content-type").setString("text/html;charset=UTF-8");
+        headers.setValue("content-length").setString("1024");
+        headers.setValue("date").setString("Wed, 11 Nov 2015 19:18:42 GMT");
+        headers.setValue("X-Custom-Header").setString("short");
+        headers.setValue("x-non-huffman").setString("{{{{{{{{{{{{{{{{");
+
+        HpackEncoder uncached = new HpackEncoder(false);
+        // Use two encoders so the second uses the strings cached by the first
+        HpackEncoder cached1 = new HpackEncoder();
+        HpackEncoder cached2 = new HpackEncoder();
+        MimeHeaders decoded = new MimeHeaders();
+        HpackDecoder decoder = new HpackDecoder();
+        decoder.setHeaderEmitter(new HeadersListener(decoded));
+
+        for (int i = 0; i < 2; i++) {
+            ByteBuffer expected = ByteBuffer.allocate(512);
+            Assert.assertEquals(HpackEncoder.State.COMPLETE, uncached.encode(headers, expected));
+            expected.flip();
+            ByteBuffer actual1 = ByteBuffer.allocate(512);
+            Assert.assertEquals(HpackEncoder.State.COMPLETE, cached1.encode(headers, actual1));
+            actual1.flip();
+            ByteBuffer actual2 = ByteBuffer.allocate(512);
+            Assert.assertEquals(HpackEncoder.State.COMPLETE, cached2.encode(headers, actual2));
+            actual2.flip();
+            Assert.assertEquals(expected, actual1);
+            Assert.assertEquals(expected, actual2);
+
+            decoded.recycle();
+            decoder.decode(actual2);
+            Assert.assertEquals("Wed, 11 Nov 2015 19:18:42 GMT", decoded.getHeader("date"));
+            Assert.assertEquals("short", decoded.getHeader("x-custom-header"));
+            Assert.assertEquals("{{{{{{{{{{{{{{{{", decoded.getHeader("x-non-huffman"));
+        }
+    }
+
     private static class HeadersListener implements HpackDecoder.HeaderEmitter {
         private final MimeHeaders headers;
 
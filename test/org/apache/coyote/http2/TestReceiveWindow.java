@@ -0,0 +1,95 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.apache.coyote.http2;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class TestReceiveWindow {
+
+    private static final int SIZE = 64 * 1024;
+
+
+    @Test
+    public void testBatchedUpdates() {
+        ReceiveWindow window = new ReceiveWindow(SIZE);
+        window.received(8 * 1024);
+        Assert.assertEquals(0, window.consumed(4 * 1024));
+        Assert.assertEquals(0, window.consumed(4 * 1024));
+        window.received(8 * 1024);
+        Assert.assertEquals(0, window.consumed(4 * 1024));
+        // A quarter of the window has been consumed
+        Assert.assertEquals(16 * 1024, window.consumed(4 * 1024));
+        Assert.assertEquals(0, window.flushIfClientBlocked());
+    }
+
+
+    @Test
+    public void testClientBlocked() {
+        ReceiveWindow window = new ReceiveWindow(SIZE);
+        window.received(40 * 1024);
+        Assert.assertEquals(0, window.consumed(1024));
+        Assert.assertEquals(0, window.flushIfClientBlocked());
+        // Client has 8k of the window remaining so consumed data is returned immediately
+        window.received(16 * 1024);
+        Assert.assertEquals(1024, window.flushIfClientBlocked());
+        Assert.assertEquals(1024, window.consumed(1024));
+        // Nothing left to return
+        Assert.assertEquals(0, window.flushIfClientBlocked());
+    }
+
+
+    @Test
+    public void testSampleGrowsWindow() {
+        ReceiveWindow window = new ReceiveWindow(SIZE);
+        window.startSample(3);
+        Assert.assertTrue(window.isSampling());
+        window.received(48 * 1024);
+        // Acknowledgement of an earlier PING does not end the sample
+        Assert.assertEquals(0, window.endSample(2, 1024 * 1024));
+        Assert.assertTrue(window.isSampling());
+        Assert.assertEquals(SIZE, window.endSample(3, 1024 * 1024));
+        Assert.assertFalse(window.isSampling());
+        Assert.assertEquals(2 * SIZE, window.getSize());
+    }
+
+
+    @Test
+    public void testSampleDoesNotGrowWindow() {
+        ReceiveWindow window = new ReceiveWindow(SIZE);
+        window.startSample(1);
+        window.received(32 * 1024);
+        Assert.assertEquals(0, window.endSample(1, 1024 * 1024));
+        Assert.assertFalse(window.isSampling());
+        Assert.assertEquals(SIZE, window.getSize());
+    }
+
+
+    @Test
+    public void testMaxSize() {
+        ReceiveWindow window = new ReceiveWindow(SIZE);
+        window.startSample(1);
+        window.received(SIZE);
+        Assert.assertEquals(16 * 1024, window.endSample(1, 80 * 1024));
+        Assert.assertEquals(80 * 1024, window.getSize());
+
+        window.startSample(2);
+        window.received(SIZE);
+        Assert.assertEquals(0, window.endSample(2, 80 * 1024));
+        Assert.assertEquals(80 * 1024, window.getSize());
+    }
+}
@@ -1316,6 +1316,11 @@ public class TesterContext implements Context {
     @Override
     public void setParallelAnnotationScanning(boolean parallelAnnotationScanning) {}
 
+    @Override
+    public boolean getCacheAnnotationScanning() { return false; }
+    @Override
+    public void setCacheAnnotationScanning(boolean cacheAnnotationScanning) {}
+
     @Override
     public boolean getMetadataComplete() { return false; }
     @Override
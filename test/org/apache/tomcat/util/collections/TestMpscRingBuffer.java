@@ -0,0 +1,102 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.tomcat.util.collections;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class TestMpscRingBuffer {
+
+    @Test
+    public void testCapacity() {
+        Assert.assertEquals(1, new MpscRingBuffer<>(1).capacity());
+        Assert.assertEquals(8, new MpscRingBuffer<>(5).capacity());
+        Assert.assertEquals(8, new MpscRingBuffer<>(8).capacity());
+    }
+
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidCapacity() {
+        new MpscRingBuffer<>(0);
+    }
+
+
+    @Test
+    public void testOfferPollOrder() {
+        MpscRingBuffer<Integer> queue = new MpscRingBuffer<>(4);
+        Assert.assertTrue(queue.isEmpty());
+        Assert.assertNull(queue.poll());
+
+        // Wrap around the end of the array several times
+        for (int i = 0; i < 10; i++) {
+            for (int j = 0; j < 4; j++) {
+                Assert.assertTrue(queue.offer(Integer.valueOf(i * 4 + j)));
+            }
+            Assert.assertFalse(queue.offer(Integer.valueOf(-1)));
+            Assert.assertEquals(4, queue.size());
+            for (int j = 0; j < 4; j++) {
+                Assert.assertEquals(Integer.valueOf(i * 4 + j), queue.poll());
+            }
+            Assert.assertNull(queue.poll());
+            Assert.assertTrue(queue.isEmpty());
+        }
+    }
+
+
+    @Test
+    public void testConcurrentProducers() throws Exception {
+        final int producerCount = 4;
+        final int itemCount = 100000;
+        MpscRingBuffer<int[]> queue = new MpscRingBuffer<>(64);
+
+        Thread[] producers = new Thread[producerCount];
+        for (int i = 0; i < producerCount; i++) {
+            final int producer = i;
+            producers[i] = new Thread(() -> {
+                for (int j = 0; j < itemCount; j++) {
+                    int[] item = new int[] { producer, j };
+                    while (!queue.offer(item)) {
+                        Thread.yield();
+                    }
+                }
+            });
+            producers[i].start();
+        }
+
+        // Items from each producer must be received in the order they were added
+        int[] next = new int[producerCount];
+        int received = 0;
+        while (received < producerCount * itemCount) {
+            int[] item = queue.poll();
+            if (item == null) {
+                Thread.yield();
+                continue;
+            }
+            Assert.assertEquals(next[item[0]], item[1]);
+            next[item[0]]++;
+            received++;
+        }
+
+        for (Thread producer : producers) {
+            producer.join();
+        }
+        Assert.assertTrue(queue.isEmpty());
+        for (int i = 0; i < producerCount; i++) {
+            Assert.assertEquals(itemCount, next[i]);
+        }
+    }
+}
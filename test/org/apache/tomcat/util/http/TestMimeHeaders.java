@@ -16,6 +16,7 @@
  */
 package org.apache.tomcat.util.http;
 
+import java.nio.charset.StandardCharsets;
 import java.util.Enumeration;
 import java.util.HashSet;
 import java.util.Set;
@@ -107,4 +108,92 @@ public class TestMimeHeaders {
         }
         Assert.assertFalse(names.hasMoreElements());
     }
+
+
+    @Test
+    public void testKnownHeaderBytesIgnoresCase() {
+        MimeHeaders mh = new MimeHeaders();
+
+        addBytes(mh, "content-length", "10");
+        addBytes(mh, "X-Custom", "a");
+        addBytes(mh, "HOST", "localhost");
+        addBytes(mh, "Content-Type", "text/plain");
+
+        Assert.assertEquals("localhost", mh.getHeader("host"));
+        Assert.assertEquals("localhost", mh.getHeader("Host"));
+        Assert.assertEquals("text/plain", mh.getHeader("content-type"));
+        Assert.assertEquals("text/plain", mh.getHeader("CONTENT-TYPE"));
+        Assert.assertEquals("10", mh.getUniqueValue("Content-Length").toString());
+        Assert.assertEquals("a", mh.getHeader("x-custom"));
+        Assert.assertNull(mh.getHeader("Content-Encoding"));
+        Assert.assertEquals(2, mh.findHeader("host", 0));
+        Assert.assertEquals(-1, mh.findHeader("host", 3));
+
+        // Spelling as received must be retained
+        Assert.assertEquals("HOST", mh.getName(2).toString());
+
+        mh.removeHeader("CONTENT-length");
+        Assert.assertEquals(3, mh.size());
+        Assert.assertNull(mh.getHeader("content-length"));
+        Assert.assertEquals("localhost", mh.getHeader("host"));
+    }
+
+    @Test
+    public void testKnownHeaderNameNoConversion() {
+        MimeHeaders mh = new MimeHeaders();
+
+        addBytes(mh, "Accept-Encoding", "gzip");
+        addBytes(mh, "user-agent", "test");
+
+        // The String constants should be used for common spellings
+        Assert.assertSame(mh.getName(0).toString(), mh.getName(0).toString());
+        Assert.assertEquals("Accept-Encoding", mh.getName(0).toString());
+        Assert.assertSame(mh.getName(1).toString(), mh.getName(1).toString());
+        Assert.assertEquals("user-agent", mh.getName(1).toString());
+    }
+
+    @Test
+    public void testKnownHeaderSetValue() {
+        MimeHeaders mh = new MimeHeaders();
+
+        addBytes(mh, "Connection", "keep-alive");
+        addBytes(mh, "connection", "upgrade");
+        mh.setValue("CONNECTION").setString("close");
+
+        Assert.assertEquals(1, mh.size());
+        Assert.assertEquals("close", mh.getHeader("connection"));
+    }
+
+    @Test
+    public void testKnownHeaderDuplicate() throws Exception {
+        MimeHeaders source = new MimeHeaders();
+        addBytes(source, "Host", "localhost");
+
+        MimeHeaders mh = new MimeHeaders();
+        mh.duplicate(source);
+
+        Assert.assertEquals("localhost", mh.getHeader("HOST"));
+    }
+
+    @Test
+    public void testKnownHeaders() {
+        String[] names = new String[] { "accept", "cookie", "transfer-encoding", "upgrade-insecure-requests",
+                "sec-websocket-key", "te", "x-forwarded-for" };
+        for (String name : names) {
+            byte[] bytes = name.getBytes(StandardCharsets.ISO_8859_1);
+            int index = KnownHeaders.indexOf(bytes, 0, bytes.length);
+            Assert.assertNotEquals(name, KnownHeaders.UNKNOWN, index);
+            Assert.assertEquals(name, index, KnownHeaders.indexOf(name));
+            Assert.assertEquals(name, index, KnownHeaders.indexOf(name.toUpperCase()));
+        }
+        Assert.assertEquals(KnownHeaders.UNKNOWN, KnownHeaders.indexOf("hostx"));
+        Assert.assertEquals(KnownHeaders.UNKNOWN, KnownHeaders.indexOf("hos\u00e9"));
+        Assert.assertEquals(KnownHeaders.UNKNOWN, KnownHeaders.indexOf(null));
+    }
+
+    private static void addBytes(MimeHeaders mh, String name, String value) {
+        byte[] nameBytes = name.getBytes(StandardCharsets.ISO_8859_1);
+        byte[] valueBytes = value.getBytes(StandardCharsets.ISO_8859_1);
+        mh.addValue(nameBytes, 0, nameBytes.length).setBytes(valueBytes, 0, valueBytes.length);
+    }
 }
@@ -0,0 +1,127 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.apache.tomcat.util.http.parser;
+
+import java.lang.management.ManagementFactory;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+import org.junit.Assert;
+import org.junit.Assume;
+import org.junit.Test;
+
+import org.apache.tomcat.util.http.MimeHeaders;
+import org.apache.tomcat.util.http.parser.HttpHeaderParser.HeaderDataSource;
+import org.apache.tomcat.util.http.parser.HttpHeaderParser.HeaderParseStatus;
+
+public class TestHttpHeaderParser {
+
+    private static final byte[] HEADERS = ("Host: localhost:8080\r\n" +
+            "user-agent: Mozilla/5.0 (X11; Linux x86_64; rv:131.0) Gecko/20100101 Firefox/131.0\r\n" +
+            "Accept: text/html,application/xhtml+xml,application/xml;q=0.9,*/*;q=0.8\r\n" +
+            "Accept-Language: en-GB,en;q=0.5\r\n" + "Accept-Encoding: gzip, deflate, br, zstd\r\n" +
+            "CONNECTION: keep-alive\r\n" + "Cookie: JSESSIONID=8D2C5C3A0D3F4B1E9A7C6E5D4C3B2A19\r\n" +
+            "X-Custom-Header: some value\r\n" + "\r\n").getBytes(StandardCharsets.ISO_8859_1);
+
+
+    @Test
+    public void testParse() throws Exception {
+        MimeHeaders headers = new MimeHeaders();
+        parse(new Source(HEADERS), headers);
+
+        Assert.assertEquals(8, headers.size());
+        Assert.assertEquals("localhost:8080", headers.getHeader("host"));
+        Assert.assertEquals("keep-alive", headers.getHeader("Connection"));
+        Assert.assertEquals("gzip, deflate, br, zstd", headers.getHeader("accept-encoding"));
+        Assert.assertEquals("some value", headers.getHeader("x-custom-header"));
+        Assert.assertEquals("CONNECTION", headers.getName(5).toString());
+    }
+
+
+    @Test
+    public void testParseNoAllocation() throws Exception {
+        Assume.assumeTrue(ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean);
+        com.sun.management.ThreadMXBean threadMXBean =
+                (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        Assume.assumeTrue(threadMXBean.isThreadAllocatedMemorySupported());
+        threadMXBean.setThreadAllocatedMemoryEnabled(true);
+
+        Source source = new Source(HEADERS);
+        MimeHeaders headers = new MimeHeaders();
+        HttpHeaderParser parser = new HttpHeaderParser(source, headers, true);
+
+        // Warm-up so lazy initialisation and JIT compilation do not skew the result
+        for (int i = 0; i < 20000; i++) {
+            parse(source, headers, parser);
+        }
+
+        int iterations = 10000;
+        long start = threadMXBean.getCurrentThreadAllocatedBytes();
+        for (int i = 0; i < iterations; i++) {
+            parse(source, headers, parser);
+            // Looking up known headers by name must not allocate either
+            if (headers.getValue("host") == null || headers.findHeader("Content-Length", 0) != -1) {
+                Assert.fail();
+            }
+        }
+        long allocated = threadMXBean.getCurrentThreadAllocatedBytes() - start;
+
+        // Allow a little slack for any allocation by the JVM itself (e.g. OSR compilation)
+        Assert.assertTrue("Allocated [" + allocated + "] bytes", allocated < iterations);
+    }
+
+
+    private static void parse(Source source, MimeHeaders headers) throws Exception {
+        parse(source, headers, new HttpHeaderParser(source, headers, true));
+    }
+
+
+    private static void parse(Source source, MimeHeaders headers, HttpHeaderParser parser) throws Exception {
+        source.reset();
+        headers.recycle();
+        parser.recycle();
+        HeaderParseStatus status;
+        do {
+            status = parser.parseHeader();
+        } while (status == HeaderParseStatus.HAVE_MORE_HEADERS);
+        Assert.assertEquals(HeaderParseStatus.DONE, status);
+    }
+
+
+    private static class Source implements HeaderDataSource {
+
+        private final ByteBuffer buffer;
+
+        Source(byte[] data) {
+            buffer = ByteBuffer.wrap(data);
+        }
+
+        void reset() {
+            buffer.position(0);
+        }
+
+        @Override
+        public boolean fillHeaderBuffer() {
+            return false;
+        }
+
+        @Override
+        public ByteBuffer getHeaderByteBuffer() {
+            return buffer;
+        }
+    }
+}
@@ -0,0 +1,183 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.tomcat.util.net;
+
+import java.io.BufferedReader;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import org.junit.Assert;
+import org.junit.Assume;
+import org.junit.Test;
+
+import org.apache.catalina.Context;
+import org.apache.catalina.connector.Connector;
+import org.apache.catalina.startup.Tomcat;
+import org.apache.catalina.startup.TomcatBaseTest;
+import org.apache.coyote.http11.Http11NioProtocol;
+import org.apache.tomcat.util.modeler.Registry;
+
+public class TestNioEndpoint extends TomcatBaseTest {
+
+    private static final int POLLER_COUNT = 3;
+    private static final int CONNECTIONS_PER_POLLER = 2;
+
+
+    @Test
+    public void testMultiplePollers() throws Exception {
+        Tomcat tomcat = getTomcatInstance();
+        Connector connector = tomcat.getConnector();
+        Assume.assumeTrue("Test requires the NIO connector",
+                connector.getProtocolHandler() instanceof Http11NioProtocol);
+        Assert.assertTrue(connector.setProperty("pollerThreadCount", Integer.toString(POLLER_COUNT)));
+
+        // No file system docBase required
+        Context ctx = getProgrammaticRootContext();
+        Tomcat.addServlet(ctx, "hello", new HelloWorldServlet());
+        ctx.addServletMappingDecoded("/", "hello");
+
+        tomcat.start();
+
+        List<Socket> sockets = new ArrayList<>();
+        try {
+            for (int i = 0; i < POLLER_COUNT * CONNECTIONS_PER_POLLER; i++) {
+                @SuppressWarnings("resource")
+                Socket socket = new Socket("localhost", getPort());
+                sockets.add(socket);
+                OutputStream os = socket.getOutputStream();
+                os.write("GET / HTTP/1.1\r\nHost: localhost\r\n\r\n".getBytes(StandardCharsets.ISO_8859_1));
+                os.flush();
+                BufferedReader reader =
+                        new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.ISO_8859_1));
+                Assert.assertEquals("HTTP/1.1 200 ", reader.readLine());
+            }
+
+            MBeanServer mbeanServer = Registry.getRegistry(null).getMBeanServer();
+            Set<ObjectName> onames = mbeanServer.queryNames(new ObjectName("Tomcat:type=ThreadPool,*"), null);
+            Assert.assertEquals(1, onames.size());
+            ObjectName oname = onames.iterator().next();
+
+            Assert.assertEquals(Integer.valueOf(POLLER_COUNT), mbeanServer.getAttribute(oname, "pollerThreadCount"));
+            Assert.assertEquals(Integer.valueOf(POLLER_COUNT * CONNECTIONS_PER_POLLER),
+                    mbeanServer.getAttribute(oname, "keepAliveCount"));
+
+            // New connections are assigned to the pollers in turn
+            int[] keyCounts = (int[]) mbeanServer.getAttribute(oname, "pollerKeyCounts");
+            Assert.assertEquals(POLLER_COUNT, keyCounts.length);
+            for (int keyCount : keyCounts) {
+                Assert.assertEquals(CONNECTIONS_PER_POLLER, keyCount);
+            }
+            int[] eventQueueSizes = (int[]) mbeanServer.getAttribute(oname, "pollerEventQueueSizes");
+            Assert.assertEquals(POLLER_COUNT, eventQueueSizes.length);
+            long[] wakeupCounts = (long[]) mbeanServer.getAttribute(oname, "pollerWakeupCounts");
+            Assert.assertEquals(POLLER_COUNT, wakeupCounts.length);
+        } finally {
+            for (Socket socket : sockets) {
+                socket.close();
+            }
+        }
+    }
+
+
+    @Test
+    public void testSharedBufferPool() throws Exception {
+        Tomcat tomcat = getTomcatInstance();
+        Connector connector = tomcat.getConnector();
+        Assume.assumeTrue("Test requires the NIO connector",
+                connector.getProtocolHandler() instanceof Http11NioProtocol);
+        Assert.assertTrue(connector.setProperty("socket.sharedBufferPool", "true"));
+
+        // No file system docBase required
+        Context ctx = getProgrammaticRootContext();
+        Tomcat.addServlet(ctx, "hello", new HelloWorldServlet());
+        ctx.addServletMappingDecoded("/", "hello");
+
+        tomcat.start();
+
+        MBeanServer mbeanServer = Registry.getRegistry(null).getMBeanServer();
+        ObjectName oname = mbeanServer.queryNames(new ObjectName("Tomcat:type=ThreadPool,*"), null).iterator().next();
+
+        try (Socket socket = new Socket("localhost", getPort())) {
+            OutputStream os = socket.getOutputStream();
+            BufferedReader reader =
+                    new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.ISO_8859_1));
+            for (int i = 0; i < 3; i++) {
+                os.write("GET / HTTP/1.1\r\nHost: localhost\r\n\r\n".getBytes(StandardCharsets.ISO_8859_1));
+                os.flush();
+                Assert.assertEquals("HTTP/1.1 200 ", reader.readLine());
+                String line;
+                while ((line = reader.readLine()) != null && !line.startsWith("Content-Length")) {
+                    // Skip
+                }
+                Assert.assertNotNull(line);
+                int contentLength = Integer.parseInt(line.substring(line.indexOf(':') + 1).trim());
+                while (!reader.readLine().isEmpty()) {
+                    // Skip
+                }
+                Assert.assertEquals(contentLength, reader.read(new char[contentLength]));
+
+                // The keep-alive connection returns its buffers to the pool while idle
+                int count = 0;
+                while (((Long) mbeanServer.getAttribute(oname, "sharedBufferPoolBorrowedCount")).longValue() != 0 &&
+                        count < 50) {
+                    Thread.sleep(100);
+                    count++;
+                }
+                Assert.assertEquals(Long.valueOf(0), mbeanServer.getAttribute(oname, "sharedBufferPoolBorrowedCount"));
+            }
+            // The same buffers were re-used for every request
+            Assert.assertEquals(Long.valueOf(2), mbeanServer.getAttribute(oname, "sharedBufferPoolAllocatedCount"));
+            Assert.assertEquals(Long.valueOf(16384), mbeanServer.getAttribute(oname, "sharedBufferPoolIdleBytes"));
+        }
+    }
+
+
+    @Test
+    public void testPollerThreadCountChangedAfterBind() throws Exception {
+        Tomcat tomcat = getTomcatInstance();
+        Connector connector = tomcat.getConnector();
+        Assume.assumeTrue("Test requires the NIO connector",
+                connector.getProtocolHandler() instanceof Http11NioProtocol);
+        Assert.assertTrue(connector.setProperty("pollerThreadCount", Integer.toString(POLLER_COUNT)));
+
+        // Binds the endpoint
+        tomcat.init();
+        Assert.assertTrue(connector.setProperty("pollerThreadCount", "1"));
+        tomcat.start();
+
+        // The stop must not wait for pollers that were never started
+        long start = System.nanoTime();
+        connector.stop();
+        long duration = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        Assert.assertTrue("Stop took [" + duration + "] ms", duration < 1000);
+    }
+
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidPollerThreadCount() {
+        new NioEndpoint().setPollerThreadCount(0);
+    }
+}
@@ -0,0 +1,147 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.tomcat.util.net;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class TestSocketBufferPool {
+
+    @Test
+    public void testSizeClasses() {
+        SocketBufferPool pool = new SocketBufferPool(-1);
+        Assert.assertEquals(SocketBufferPool.MIN_CLASS_SIZE, pool.borrow(1).capacity());
+        Assert.assertEquals(1024, pool.borrow(1024).capacity());
+        Assert.assertEquals(2048, pool.borrow(1025).capacity());
+        Assert.assertEquals(8192, pool.borrow(8192).capacity());
+        Assert.assertEquals(16384, pool.borrow(8193).capacity());
+        Assert.assertEquals(SocketBufferPool.MAX_CLASS_SIZE, pool.borrow(SocketBufferPool.MAX_CLASS_SIZE).capacity());
+        // Larger than the largest class
+        int size = SocketBufferPool.MAX_CLASS_SIZE + 9;
+        Assert.assertEquals(size, pool.borrow(size).capacity());
+        Assert.assertEquals(7, pool.getBorrowedCount());
+        Assert.assertEquals(7, pool.getAllocatedCount());
+    }
+
+
+    @Test
+    public void testReuse() {
+        SocketBufferPool pool = new SocketBufferPool(-1);
+        ByteBuffer buffer = pool.borrow(8192);
+        Assert.assertTrue(buffer.isDirect());
+        buffer.put((byte) 'a');
+        pool.release(buffer);
+        Assert.assertEquals(0, pool.getBorrowedCount());
+        Assert.assertEquals(8192, pool.getIdleBytes());
+        Assert.assertEquals(1, pool.getIdleCounts()[3]);
+
+        ByteBuffer reused = pool.borrow(5000);
+        Assert.assertSame(buffer, reused);
+        Assert.assertEquals(0, reused.position());
+        Assert.assertEquals(reused.capacity(), reused.limit());
+        Assert.assertEquals(0, pool.getIdleBytes());
+        Assert.assertEquals(1, pool.getAllocatedCount());
+    }
+
+
+    @Test
+    public void testMaxIdleBytes() {
+        SocketBufferPool pool = new SocketBufferPool(4096);
+        ByteBuffer b1 = pool.borrow(2048);
+        ByteBuffer b2 = pool.borrow(2048);
+        ByteBuffer b3 = pool.borrow(2048);
+        pool.release(b1);
+        pool.release(b2);
+        pool.release(b3);
+        Assert.assertEquals(4096, pool.getIdleBytes());
+        Assert.assertEquals(2, pool.getIdleCounts()[1]);
+
+        pool.clear();
+        Assert.assertEquals(0, pool.getIdleBytes());
+        Assert.assertEquals(0, pool.getIdleCounts()[1]);
+    }
+
+
+    @Test
+    public void testHandlerBorrowAndRelease() {
+        SocketBufferPool pool = new SocketBufferPool(-1);
+        SocketBufferHandler sbh = new SocketBufferHandler(8192, 8192, pool);
+        Assert.assertTrue(sbh.isPooled());
+
+        // Nothing is borrowed until a buffer is used
+        Assert.assertTrue(sbh.isReadBufferEmpty());
+        Assert.assertTrue(sbh.isWriteBufferEmpty());
+        Assert.assertTrue(sbh.isWriteBufferWritable());
+        Assert.assertEquals(0, pool.getBorrowedCount());
+
+        sbh.configureReadBufferForWrite();
+        sbh.getReadBuffer().put(getBytes("abc"));
+        Assert.assertEquals(1, pool.getBorrowedCount());
+
+        // Data remains so nothing is released
+        Assert.assertFalse(sbh.releaseIfEmpty());
+        Assert.assertEquals(1, pool.getBorrowedCount());
+
+        sbh.configureReadBufferForRead();
+        sbh.getReadBuffer().get(new byte[3]);
+        Assert.assertTrue(sbh.releaseIfEmpty());
+        Assert.assertEquals(0, pool.getBorrowedCount());
+        Assert.assertEquals(1, pool.getIdleCounts()[3]);
+
+        // Buffers are borrowed again on demand
+        sbh.configureWriteBufferForWrite();
+        sbh.getWriteBuffer().put(getBytes("xyz"));
+        Assert.assertFalse(sbh.isWriteBufferEmpty());
+        Assert.assertEquals(1, pool.getBorrowedCount());
+
+        sbh.free();
+        Assert.assertEquals(0, pool.getBorrowedCount());
+        Assert.assertEquals(1, pool.getIdleCounts()[3]);
+        Assert.assertEquals(1, pool.getAllocatedCount());
+        Assert.assertTrue(sbh.isWriteBufferEmpty());
+    }
+
+
+    @Test
+    public void testHandlerExpand() {
+        SocketBufferPool pool = new SocketBufferPool(-1);
+        SocketBufferHandler sbh = new SocketBufferHandler(8192, 8192, pool);
+
+        sbh.configureReadBufferForWrite();
+        sbh.getReadBuffer().put(getBytes("abc"));
+        sbh.expand(16384 + 9);
+        Assert.assertEquals(32768, sbh.getReadBuffer().capacity());
+        Assert.assertEquals(1, pool.getBorrowedCount());
+        Assert.assertEquals(1, pool.getIdleCounts()[3]);
+
+        sbh.configureReadBufferForRead();
+        byte[] b = new byte[3];
+        sbh.getReadBuffer().get(b);
+        Assert.assertEquals("abc", new String(b, StandardCharsets.UTF_8));
+
+        // The write buffer will be borrowed at the expanded size
+        Assert.assertEquals(32768, sbh.getWriteBuffer().capacity());
+    }
+
+
+    private byte[] getBytes(String input) {
+        return input.getBytes(StandardCharsets.UTF_8);
+    }
+}